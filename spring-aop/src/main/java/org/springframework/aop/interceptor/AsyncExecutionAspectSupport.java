@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
@@ -36,6 +37,7 @@ import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
 import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutionMetrics;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.lang.Nullable;
@@ -54,6 +56,10 @@ import org.springframework.util.function.SingletonSupplier;
  * Executor}, but each individual method may further qualify a specific {@code Executor}
  * bean to be used when executing it, e.g. through an annotation attribute.
  *
+ * <p>As of 5.2.13, the execution of each method can be instrumented through an
+ * {@link AsyncExecutionMetrics} registry, either specified explicitly or
+ * detected in the bean factory.
+ *
  * @author Chris Beams
  * @author Juergen Hoeller
  * @author Stephane Nicoll
@@ -78,6 +84,11 @@ public abstract class AsyncExecutionAspectSupport implements BeanFactoryAware {
 
 	private SingletonSupplier<AsyncUncaughtExceptionHandler> exceptionHandler;
 
+	@Nullable
+	private volatile AsyncExecutionMetrics executionMetrics;
+
+	private volatile boolean executionMetricsResolved;
+
 	@Nullable
 	private BeanFactory beanFactory;
 
@@ -142,6 +153,34 @@ public abstract class AsyncExecutionAspectSupport implements BeanFactoryAware {
 		this.exceptionHandler = SingletonSupplier.of(exceptionHandler);
 	}
 
+	/**
+	 * Specify the {@link AsyncExecutionMetrics} registry to record the execution
+	 * of each async method in. Default is a unique {@code AsyncExecutionMetrics}
+	 * bean in the bean factory, if any; otherwise, no metrics are recorded.
+	 * @since 5.2.13
+	 */
+	public void setExecutionMetrics(@Nullable AsyncExecutionMetrics executionMetrics) {
+		this.executionMetrics = executionMetrics;
+		this.executionMetricsResolved = true;
+	}
+
+	/**
+	 * Return the {@link AsyncExecutionMetrics} registry to record executions in,
+	 * resolving a default from the bean factory on first access.
+	 * @return the metrics registry, or {@code null} if none
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public AsyncExecutionMetrics getExecutionMetrics() {
+		if (!this.executionMetricsResolved) {
+			if (this.beanFactory != null) {
+				this.executionMetrics = this.beanFactory.getBeanProvider(AsyncExecutionMetrics.class).getIfUnique();
+			}
+			this.executionMetricsResolved = true;
+		}
+		return this.executionMetrics;
+	}
+
 	/**
 	 * Set the {@link BeanFactory} to be used when looking up executors by qualifier
 	 * or when relying on the default executor lookup algorithm.
@@ -292,6 +331,34 @@ public abstract class AsyncExecutionAspectSupport implements BeanFactoryAware {
 		}
 	}
 
+	/**
+	 * Delegate for actually executing the given task for the given method with
+	 * the chosen executor, recording the execution in the current
+	 * {@link #getExecutionMetrics() AsyncExecutionMetrics} (if any).
+	 * @param task the task to execute
+	 * @param executor the chosen executor
+	 * @param method the async method that the task is going to invoke
+	 * @param returnType the declared return type (potentially a {@link Future} variant)
+	 * @return the execution result (potentially a corresponding {@link Future} handle)
+	 * @since 5.2.13
+	 * @see #doSubmit(Callable, AsyncTaskExecutor, Class)
+	 */
+	@Nullable
+	protected Object doSubmit(Callable<Object> task, AsyncTaskExecutor executor, Method method, Class<?> returnType) {
+		AsyncExecutionMetrics executionMetrics = getExecutionMetrics();
+		if (executionMetrics == null) {
+			return doSubmit(task, executor, returnType);
+		}
+		TaskExecutionMetrics metrics = executionMetrics.getMetrics(method);
+		try {
+			return doSubmit(metrics.decorateCallable(task), executor, returnType);
+		}
+		catch (RejectedExecutionException ex) {
+			metrics.recordRejection();
+			throw ex;
+		}
+	}
+
 	/**
 	 * Handles a fatal error thrown while asynchronously invoking the specified
 	 * {@link Method}.
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.interceptor;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.task.TaskExecutionMetrics;
+import org.springframework.lang.Nullable;
+
+/**
+ * Registry of {@link TaskExecutionMetrics} per asynchronous method, recording
+ * the queue wait time, execution time, failures, rejections and concurrency
+ * of each method's invocations on its executor.
+ *
+ * <p>Can be set on an {@link AsyncExecutionAspectSupport} instance explicitly,
+ * or simply be declared as a bean: it will be detected by any async execution
+ * aspect in the same bean factory, e.g. for {@code @Async} methods.
+ *
+ * <p>Note that the metrics for a method reflect its invocations on the executor
+ * determined for the method, so comparing the queue wait time percentiles of
+ * several methods indicates which of them suffer from a saturated executor.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see AsyncExecutionAspectSupport#setExecutionMetrics
+ */
+public class AsyncExecutionMetrics {
+
+	private final Map<Method, TaskExecutionMetrics> metrics = new ConcurrentHashMap<>(16);
+
+
+	/**
+	 * Return the metrics for the given method, creating them if necessary.
+	 * @param method the asynchronous method
+	 */
+	public TaskExecutionMetrics getMetrics(Method method) {
+		TaskExecutionMetrics methodMetrics = this.metrics.get(method);
+		if (methodMetrics == null) {
+			methodMetrics = this.metrics.computeIfAbsent(method, key -> new TaskExecutionMetrics());
+		}
+		return methodMetrics;
+	}
+
+	/**
+	 * Return the metrics for the given method, if it has been invoked before.
+	 * @param method the asynchronous method
+	 * @return the corresponding metrics, or {@code null} if none
+	 */
+	@Nullable
+	public TaskExecutionMetrics getMetricsIfPresent(Method method) {
+		return this.metrics.get(method);
+	}
+
+	/**
+	 * Return all metrics, keyed by asynchronous method.
+	 * @return an unmodifiable view of the current metrics
+	 */
+	public Map<Method, TaskExecutionMetrics> getAllMetrics() {
+		return Collections.unmodifiableMap(this.metrics);
+	}
+
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("AsyncExecutionMetrics:");
+		this.metrics.forEach((method, methodMetrics) -> sb.append("\n  ")
+				.append(method.getDeclaringClass().getName()).append('.').append(method.getName())
+				.append(": ").append(methodMetrics));
+		return sb.toString();
+	}
+
+}
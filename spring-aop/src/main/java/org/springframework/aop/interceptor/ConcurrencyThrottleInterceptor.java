@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,6 +35,11 @@ import org.springframework.util.ConcurrencyThrottleSupport;
  * <p>The default concurrency limit of this interceptor is 1.
  * Specify the "concurrencyLimit" bean property to change this value.
  *
+ * <p>As of 5.2.13, the invocation time is reported back to the throttle,
+ * allowing for an {@link #setAdaptiveLatencyThreshold adaptive limit}.
+ * Furthermore, an {@link #setAccessTimeout access timeout} may be specified,
+ * with invocations beyond it being rejected with an {@link IllegalStateException}.
+ *
  * @author Juergen Hoeller
  * @since 11.02.2004
  * @see #setConcurrencyLimit
@@ -50,11 +55,12 @@ public class ConcurrencyThrottleInterceptor extends ConcurrencyThrottleSupport
 	@Override
 	public Object invoke(MethodInvocation methodInvocation) throws Throwable {
 		beforeAccess();
+		long startTime = System.nanoTime();
 		try {
 			return methodInvocation.proceed();
 		}
 		finally {
-			afterAccess();
+			afterAccess(System.nanoTime() - startTime);
 		}
 	}
 
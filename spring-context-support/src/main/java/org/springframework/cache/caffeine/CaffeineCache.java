@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.cache.caffeine;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.function.Function;
 
@@ -100,6 +103,20 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		return (T) fromStoreValue(this.cache.get(key, new LoadFunction(valueLoader)));
 	}
 
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, Object> storeValues = (this.cache instanceof LoadingCache ?
+				((LoadingCache<Object, Object>) this.cache).getAll(keys) : this.cache.getAllPresent(keys));
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(storeValues.size());
+		for (Object key : keys) {
+			ValueWrapper valueWrapper = toValueWrapper(storeValues.get(key));
+			if (valueWrapper != null) {
+				result.put(key, valueWrapper);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	@Nullable
 	protected Object lookup(Object key) {
@@ -111,6 +128,13 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		this.cache.put(key, toStoreValue(value));
 	}
 
+	@Override
+	public void putAll(Map<?, ?> entries) {
+		Map<Object, Object> storeValues = new LinkedHashMap<>(entries.size());
+		entries.forEach((key, value) -> storeValues.put(key, toStoreValue(value)));
+		this.cache.putAll(storeValues);
+	}
+
 	@Override
 	@Nullable
 	public ValueWrapper putIfAbsent(Object key, @Nullable final Object value) {
@@ -129,6 +153,11 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		return (this.cache.asMap().remove(key) != null);
 	}
 
+	@Override
+	public void evictAll(Collection<?> keys) {
+		this.cache.invalidateAll(keys);
+	}
+
 	@Override
 	public void clear() {
 		this.cache.invalidateAll();
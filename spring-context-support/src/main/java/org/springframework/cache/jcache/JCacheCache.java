@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.cache.jcache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import javax.cache.Cache;
@@ -79,6 +83,19 @@ public class JCacheCache extends AbstractValueAdaptingCache {
 		return this.cache.get(key);
 	}
 
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, Object> storeValues = this.cache.getAll(new LinkedHashSet<>(keys));
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(storeValues.size());
+		for (Object key : keys) {
+			ValueWrapper valueWrapper = toValueWrapper(storeValues.get(key));
+			if (valueWrapper != null) {
+				result.put(key, valueWrapper);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	@Nullable
 	public <T> T get(Object key, Callable<T> valueLoader) {
@@ -95,6 +112,13 @@ public class JCacheCache extends AbstractValueAdaptingCache {
 		this.cache.put(key, toStoreValue(value));
 	}
 
+	@Override
+	public void putAll(Map<?, ?> entries) {
+		Map<Object, Object> storeValues = new LinkedHashMap<>(entries.size());
+		entries.forEach((key, value) -> storeValues.put(key, toStoreValue(value)));
+		this.cache.putAll(storeValues);
+	}
+
 	@Override
 	@Nullable
 	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
@@ -112,6 +136,11 @@ public class JCacheCache extends AbstractValueAdaptingCache {
 		return this.cache.remove(key);
 	}
 
+	@Override
+	public void evictAll(Collection<?> keys) {
+		this.cache.removeAll(new LinkedHashSet<>(keys));
+	}
+
 	@Override
 	public void clear() {
 		this.cache.removeAll();
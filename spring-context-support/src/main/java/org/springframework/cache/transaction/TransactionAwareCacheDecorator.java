@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.cache.transaction;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.springframework.cache.Cache;
@@ -26,7 +28,8 @@ import org.springframework.util.Assert;
 
 /**
  * Cache decorator which synchronizes its {@link #put}, {@link #evict} and
- * {@link #clear} operations with Spring-managed transactions (through Spring's
+ * {@link #clear} operations (as well as their bulk variants {@link #putAll}
+ * and {@link #evictAll}) with Spring-managed transactions (through Spring's
  * {@link TransactionSynchronizationManager}, performing the actual cache
  * put/evict/clear operation only in the after-commit phase of a successful
  * transaction. If no transaction is active, {@link #put}, {@link #evict} and
@@ -91,6 +94,11 @@ public class TransactionAwareCacheDecorator implements Cache {
 		return this.targetCache.get(key, valueLoader);
 	}
 
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		return this.targetCache.getAll(keys);
+	}
+
 	@Override
 	public void put(final Object key, @Nullable final Object value) {
 		if (TransactionSynchronizationManager.isSynchronizationActive()) {
@@ -106,6 +114,21 @@ public class TransactionAwareCacheDecorator implements Cache {
 		}
 	}
 
+	@Override
+	public void putAll(final Map<?, ?> entries) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					TransactionAwareCacheDecorator.this.targetCache.putAll(entries);
+				}
+			});
+		}
+		else {
+			this.targetCache.putAll(entries);
+		}
+	}
+
 	@Override
 	@Nullable
 	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
@@ -127,6 +150,21 @@ public class TransactionAwareCacheDecorator implements Cache {
 		}
 	}
 
+	@Override
+	public void evictAll(final Collection<?> keys) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					TransactionAwareCacheDecorator.this.targetCache.evictAll(keys);
+				}
+			});
+		}
+		else {
+			this.targetCache.evictAll(keys);
+		}
+	}
+
 	@Override
 	public boolean evictIfPresent(Object key) {
 		return this.targetCache.evictIfPresent(key);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.cache.transaction;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.cache.Cache;
@@ -143,6 +146,24 @@ public class TransactionAwareCacheDecoratorTests {
 		assertThat(target.get(key)).isNull();
 	}
 
+	@Test
+	public void putAllAndEvictAllTransactional() {
+		Cache target = new ConcurrentMapCache("testCache");
+		Cache cache = new TransactionAwareCacheDecorator(target);
+		Object key1 = new Object();
+		Object key2 = new Object();
+		target.put(key2, "456");
+
+		txTemplate.executeWithoutResult(s -> {
+			cache.putAll(Collections.singletonMap(key1, "123"));
+			cache.evictAll(Collections.singletonList(key2));
+			assertThat(cache.getAll(Arrays.asList(key1, key2))).containsOnlyKeys(key2);
+		});
+
+		assertThat(target.get(key1, String.class)).isEqualTo("123");
+		assertThat(target.get(key2)).isNull();
+	}
+
 	@Test
 	public void evictIfPresentNonTransactional() {
 		Cache target = new ConcurrentMapCache("testCache");
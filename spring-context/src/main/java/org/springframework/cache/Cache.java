@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.springframework.lang.Nullable;
@@ -100,6 +103,32 @@ public interface Cache {
 	@Nullable
 	<T> T get(Object key, Callable<T> valueLoader);
 
+	/**
+	 * Return the values to which this cache maps the specified keys.
+	 * <p>The returned map contains an entry for each key that this cache
+	 * contains a mapping for, in the iteration order of the given keys;
+	 * keys without a mapping are not present in the returned map at all.
+	 * As with {@link #get(Object)}, a cached {@code null} value is exposed
+	 * through a {@link ValueWrapper} holding {@code null}.
+	 * <p>The default implementation delegates to {@link #get(Object)} for each
+	 * key. Cache providers with native bulk retrieval are encouraged to
+	 * override this method in order to fetch all entries in a single step.
+	 * @param keys the keys whose associated values are to be returned
+	 * @return a map from each found key to its value wrapper (never {@code null})
+	 * @since 5.2.13
+	 * @see #get(Object)
+	 */
+	default Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(keys.size());
+		for (Object key : keys) {
+			ValueWrapper valueWrapper = get(key);
+			if (valueWrapper != null) {
+				result.put(key, valueWrapper);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Associate the specified value with the specified key in this cache.
 	 * <p>If the cache previously contained a mapping for this key, the old
@@ -114,6 +143,21 @@ public interface Cache {
 	 */
 	void put(Object key, @Nullable Object value);
 
+	/**
+	 * Associate all of the specified key-value pairs in this cache.
+	 * <p>Actual registration may be performed in an asynchronous or deferred
+	 * fashion, as with {@link #put(Object, Object)}.
+	 * <p>The default implementation delegates to {@link #put(Object, Object)}
+	 * for each entry. Cache providers with native bulk registration are
+	 * encouraged to override this method.
+	 * @param entries the key-value pairs to store in this cache
+	 * @since 5.2.13
+	 * @see #put(Object, Object)
+	 */
+	default void putAll(Map<?, ?> entries) {
+		entries.forEach(this::put);
+	}
+
 	/**
 	 * Atomically associate the specified value with the specified key in this cache
 	 * if it is not set already.
@@ -161,6 +205,23 @@ public interface Cache {
 	 */
 	void evict(Object key);
 
+	/**
+	 * Evict the mappings for the specified keys from this cache if present.
+	 * <p>Actual eviction may be performed in an asynchronous or deferred
+	 * fashion, as with {@link #evict(Object)}.
+	 * <p>The default implementation delegates to {@link #evict(Object)}
+	 * for each key. Cache providers with native bulk removal are
+	 * encouraged to override this method.
+	 * @param keys the keys whose mappings are to be removed from the cache
+	 * @since 5.2.13
+	 * @see #evict(Object)
+	 */
+	default void evictAll(Collection<?> keys) {
+		for (Object key : keys) {
+			evict(key);
+		}
+	}
+
 	/**
 	 * Evict the mapping for this key from this cache if it is present,
 	 * expecting the key to be immediately invisible for subsequent lookups.
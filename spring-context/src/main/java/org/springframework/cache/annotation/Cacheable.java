@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -179,4 +179,34 @@ public @interface Cacheable {
 	 */
 	boolean sync() default false;
 
+	/**
+	 * Cache the result of a multi-key lookup per element rather than as a whole.
+	 * <p>In batch mode, the annotated method is expected to declare a single
+	 * {@link java.util.Collection} parameter and to return a {@link java.util.Map}
+	 * from each of the given elements to its value. Each element is looked up in
+	 * the cache(s) individually, using the key that the {@link #keyGenerator} would
+	 * produce for a method invocation with that element as its only argument
+	 * (i.e. the element itself with the default key generator), so that entries
+	 * are shared with single-key lookups such as {@code findById(id)}.
+	 * <p>The underlying method is only invoked for the elements that are not
+	 * cached yet, with the returned entries stored in the cache(s) through a bulk
+	 * {@link org.springframework.cache.Cache#putAll put}. This leads to a couple
+	 * of limitations:
+	 * <ol>
+	 * <li>{@link #key()} is not supported</li>
+	 * <li>{@link #sync()} is not supported</li>
+	 * <li>No other cache-related operation can be combined</li>
+	 * </ol>
+	 * {@link #unless()} is evaluated for each returned value individually, with
+	 * {@code #result} referring to that value. Note that the target method only
+	 * receives the missing elements if the invocation arguments can be adapted
+	 * by the caching aspect, as is the case with the default proxy-based
+	 * {@link org.springframework.cache.interceptor.CacheInterceptor}; otherwise
+	 * it receives all elements, with only the missing ones taken from its result.
+	 * @since 5.2.13
+	 * @see org.springframework.cache.Cache#getAll(java.util.Collection)
+	 * @see org.springframework.cache.Cache#putAll(java.util.Map)
+	 */
+	boolean batch() default false;
+
 }
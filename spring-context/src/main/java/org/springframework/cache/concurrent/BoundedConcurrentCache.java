@@ -0,0 +1,535 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongBiFunction;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link org.springframework.cache.Cache} implementation based on the core JDK
+ * {@code java.util.concurrent} package, bounded by a maximum weight and with
+ * optional expiration of entries after a time-to-live.
+ *
+ * <p>Eviction follows a segmented LRU policy: new entries enter a probationary
+ * segment and are promoted to a protected segment (holding up to 80% of the
+ * maximum weight) once accessed again, so that a burst of one-time entries
+ * cannot flush frequently used ones. Entries are evicted from the least
+ * recently used end of the probationary segment first.
+ *
+ * <p>Lookups are lock-free; the recording of accesses for the eviction policy
+ * is best-effort and skipped under contention. Modifications are serialized.
+ * Expired entries are removed lazily when accessed, when evicted by size,
+ * or through an explicit {@link #cleanUp()} call.
+ *
+ * <p>Hit, miss, eviction and expiration counts are exposed through
+ * {@link #getStatistics()}.
+ *
+ * <p>Useful for simple local caching scenarios that need predictable memory
+ * usage without a third-party cache provider. For advanced local caching needs,
+ * consider {@link org.springframework.cache.caffeine.CaffeineCache}.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see BoundedConcurrentCacheManager
+ * @see ConcurrentMapCache
+ */
+public class BoundedConcurrentCache extends AbstractValueAdaptingCache {
+
+	/**
+	 * Default weigher, giving each entry a weight of 1: the maximum weight
+	 * is then effectively the maximum number of entries.
+	 */
+	public static final ToLongBiFunction<Object, Object> SINGLETON_WEIGHER = (key, value) -> 1;
+
+	private static final int PROTECTED_PERCENTAGE = 80;
+
+
+	private final String name;
+
+	private final ConcurrentMap<Object, Node> store = new ConcurrentHashMap<>(256);
+
+	private final long maximumWeight;
+
+	private final long protectedMaximumWeight;
+
+	private final ToLongBiFunction<Object, Object> weigher;
+
+	private final long timeToLiveNanos;
+
+	private final ConcurrentMap<Object, LoadingValue> loadingValues = new ConcurrentHashMap<>(16);
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	// The following fields are guarded by the eviction lock
+
+	private final Node probation = Node.sentinel();
+
+	private final Node protectedSegment = Node.sentinel();
+
+	private long weightedSize;
+
+	private long protectedWeightedSize;
+
+	// Statistics
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder evictionWeight = new LongAdder();
+
+	private final LongAdder expirationCount = new LongAdder();
+
+
+	/**
+	 * Create a new BoundedConcurrentCache with the specified name,
+	 * holding up to the given number of entries without expiration.
+	 * @param name the name of the cache
+	 * @param maximumSize the maximum number of entries
+	 */
+	public BoundedConcurrentCache(String name, long maximumSize) {
+		this(name, maximumSize, SINGLETON_WEIGHER, null, true);
+	}
+
+	/**
+	 * Create a new BoundedConcurrentCache with the specified name,
+	 * holding up to the given number of entries that expire after
+	 * the given time-to-live.
+	 * @param name the name of the cache
+	 * @param maximumSize the maximum number of entries
+	 * @param timeToLive the default time-to-live of an entry
+	 * ({@code null} for no expiration)
+	 */
+	public BoundedConcurrentCache(String name, long maximumSize, @Nullable Duration timeToLive) {
+		this(name, maximumSize, SINGLETON_WEIGHER, timeToLive, true);
+	}
+
+	/**
+	 * Create a new BoundedConcurrentCache with the specified name.
+	 * @param name the name of the cache
+	 * @param maximumWeight the maximum total weight of all entries
+	 * @param weigher the function computing the weight of an entry
+	 * from its key and store value; must return a non-negative weight
+	 * @param timeToLive the default time-to-live of an entry
+	 * ({@code null} for no expiration)
+	 * @param allowNullValues whether to accept and convert {@code null}
+	 * values for this cache
+	 */
+	public BoundedConcurrentCache(String name, long maximumWeight, ToLongBiFunction<Object, Object> weigher,
+			@Nullable Duration timeToLive, boolean allowNullValues) {
+
+		super(allowNullValues);
+		Assert.notNull(name, "Name must not be null");
+		Assert.isTrue(maximumWeight >= 0, "Maximum weight must not be negative");
+		Assert.notNull(weigher, "Weigher must not be null");
+		Assert.isTrue(timeToLive == null || !timeToLive.isNegative(), "Time-to-live must not be negative");
+		this.name = name;
+		this.maximumWeight = maximumWeight;
+		this.protectedMaximumWeight = maximumWeight / 100 * PROTECTED_PERCENTAGE +
+				maximumWeight % 100 * PROTECTED_PERCENTAGE / 100;
+		this.weigher = weigher;
+		this.timeToLiveNanos = toNanos(timeToLive);
+	}
+
+
+	@Override
+	public final String getName() {
+		return this.name;
+	}
+
+	/**
+	 * This implementation returns the cache itself, since there is
+	 * no separate native store to expose.
+	 */
+	@Override
+	public final Object getNativeCache() {
+		return this;
+	}
+
+	/**
+	 * Return the maximum total weight of all entries in this cache.
+	 */
+	public final long getMaximumWeight() {
+		return this.maximumWeight;
+	}
+
+	/**
+	 * Return the default time-to-live of an entry, or {@code null} if
+	 * entries do not expire by default.
+	 */
+	@Nullable
+	public final Duration getTimeToLive() {
+		return (this.timeToLiveNanos > 0 ? Duration.ofNanos(this.timeToLiveNanos) : null);
+	}
+
+	/**
+	 * Return the current total weight of all entries in this cache,
+	 * possibly including expired entries that have not been removed yet.
+	 */
+	public long getWeightedSize() {
+		this.evictionLock.lock();
+		try {
+			return this.weightedSize;
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Return the current number of entries in this cache, possibly
+	 * including expired entries that have not been removed yet.
+	 */
+	public int size() {
+		return this.store.size();
+	}
+
+	/**
+	 * Return a snapshot of the statistics of this cache.
+	 */
+	public CacheStatistics getStatistics() {
+		return new CacheStatistics(this.hitCount.sum(), this.missCount.sum(),
+				this.evictionCount.sum(), this.evictionWeight.sum(), this.expirationCount.sum());
+	}
+
+
+	@Override
+	@Nullable
+	protected Object lookup(Object key) {
+		Node node = this.store.get(key);
+		if (node == null) {
+			this.missCount.increment();
+			return null;
+		}
+		if (node.isExpired(System.nanoTime())) {
+			expire(node);
+			this.missCount.increment();
+			return null;
+		}
+		this.hitCount.increment();
+		if (this.evictionLock.tryLock()) {
+			try {
+				onAccess(node);
+			}
+			finally {
+				this.evictionLock.unlock();
+			}
+		}
+		return node.value;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		Object storeValue = lookup(key);
+		if (storeValue == null) {
+			storeValue = loadValue(key, valueLoader);
+		}
+		return (T) fromStoreValue(storeValue);
+	}
+
+	private Object loadValue(Object key, Callable<?> valueLoader) {
+		LoadingValue loadingValue = new LoadingValue();
+		LoadingValue existing = this.loadingValues.putIfAbsent(key, loadingValue);
+		if (existing != null) {
+			return existing.await(key, valueLoader);
+		}
+		try {
+			// Re-check the store: a concurrent load may have completed in the meantime.
+			Node node = this.store.get(key);
+			Object storeValue = (node != null && !node.isExpired(System.nanoTime()) ? node.value : null);
+			if (storeValue == null) {
+				try {
+					storeValue = toStoreValue(valueLoader.call());
+				}
+				catch (Throwable ex) {
+					loadingValue.completeExceptionally(ex);
+					throw new ValueRetrievalException(key, valueLoader, ex);
+				}
+				Object concurrentValue = doPut(key, storeValue, this.timeToLiveNanos, true);
+				if (concurrentValue != null) {
+					storeValue = concurrentValue;
+				}
+			}
+			loadingValue.complete(storeValue);
+			return storeValue;
+		}
+		finally {
+			this.loadingValues.remove(key, loadingValue);
+		}
+	}
+
+	@Override
+	public void put(Object key, @Nullable Object value) {
+		doPut(key, toStoreValue(value), this.timeToLiveNanos, false);
+	}
+
+	/**
+	 * Associate the specified value with the specified key in this cache,
+	 * expiring after the given time-to-live instead of the cache's default.
+	 * @param key the key with which the specified value is to be associated
+	 * @param value the value to be associated with the specified key
+	 * @param timeToLive the time-to-live of this entry
+	 * ({@code null} for no expiration)
+	 */
+	public void put(Object key, @Nullable Object value, @Nullable Duration timeToLive) {
+		Assert.isTrue(timeToLive == null || !timeToLive.isNegative(), "Time-to-live must not be negative");
+		doPut(key, toStoreValue(value), toNanos(timeToLive), false);
+	}
+
+	@Override
+	@Nullable
+	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+		return toValueWrapper(doPut(key, toStoreValue(value), this.timeToLiveNanos, true));
+	}
+
+	@Override
+	public void evict(Object key) {
+		evictIfPresent(key);
+	}
+
+	@Override
+	public boolean evictIfPresent(Object key) {
+		this.evictionLock.lock();
+		try {
+			Node node = this.store.remove(key);
+			if (node != null) {
+				unlink(node);
+				return true;
+			}
+			return false;
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		invalidate();
+	}
+
+	@Override
+	public boolean invalidate() {
+		this.evictionLock.lock();
+		try {
+			boolean notEmpty = !this.store.isEmpty();
+			this.store.clear();
+			this.probation.prev = this.probation.next = this.probation;
+			this.protectedSegment.prev = this.protectedSegment.next = this.protectedSegment;
+			this.weightedSize = 0;
+			this.protectedWeightedSize = 0;
+			return notEmpty;
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Remove all expired entries from this cache right away.
+	 * <p>Expired entries are otherwise removed lazily, so this is only
+	 * worth calling for caches with a large number of entries that are
+	 * rarely accessed after expiration.
+	 */
+	public void cleanUp() {
+		long now = System.nanoTime();
+		this.evictionLock.lock();
+		try {
+			for (Iterator<Node> it = this.store.values().iterator(); it.hasNext();) {
+				Node node = it.next();
+				if (node.isExpired(now)) {
+					it.remove();
+					unlink(node);
+					this.expirationCount.increment();
+				}
+			}
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+
+	/**
+	 * Store the given value, evicting other entries as necessary.
+	 * @return the existing store value if {@code onlyIfAbsent} was specified
+	 * and a non-expired entry was present, or {@code null} otherwise
+	 */
+	@Nullable
+	private Object doPut(Object key, Object storeValue, long timeToLiveNanos, boolean onlyIfAbsent) {
+		long weight = this.weigher.applyAsLong(key, storeValue);
+		Assert.state(weight >= 0, "Weigher must not return a negative weight");
+		long now = System.nanoTime();
+		Node node = new Node(key, storeValue, weight, (timeToLiveNanos > 0), now + timeToLiveNanos);
+		this.evictionLock.lock();
+		try {
+			Node existing = this.store.get(key);
+			if (existing != null) {
+				if (existing.isExpired(now)) {
+					this.expirationCount.increment();
+				}
+				else if (onlyIfAbsent) {
+					onAccess(existing);
+					return existing.value;
+				}
+				unlink(existing);
+			}
+			this.store.put(key, node);
+			linkFirst(this.probation, node);
+			evictIfNecessary();
+			return null;
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	private void expire(Node node) {
+		this.evictionLock.lock();
+		try {
+			if (this.store.remove(node.key, node)) {
+				unlink(node);
+				this.expirationCount.increment();
+			}
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	// Eviction policy: to be called with the eviction lock held
+
+	private void onAccess(Node node) {
+		if (node.segment == this.probation) {
+			unlink(node);
+			linkFirst(this.protectedSegment, node);
+			// Demote the least recently used protected entries if necessary
+			while (this.protectedWeightedSize > this.protectedMaximumWeight) {
+				Node demoted = this.protectedSegment.prev;
+				unlink(demoted);
+				linkFirst(this.probation, demoted);
+			}
+		}
+		else if (node.segment == this.protectedSegment) {
+			unlink(node);
+			linkFirst(this.protectedSegment, node);
+		}
+	}
+
+	private void evictIfNecessary() {
+		while (this.weightedSize > this.maximumWeight) {
+			Node victim = (this.probation.prev != this.probation ? this.probation.prev : this.protectedSegment.prev);
+			this.store.remove(victim.key, victim);
+			unlink(victim);
+			this.evictionCount.increment();
+			this.evictionWeight.add(victim.weight);
+		}
+	}
+
+	private void linkFirst(Node segment, Node node) {
+		node.segment = segment;
+		node.prev = segment;
+		node.next = segment.next;
+		segment.next.prev = node;
+		segment.next = node;
+		this.weightedSize += node.weight;
+		if (segment == this.protectedSegment) {
+			this.protectedWeightedSize += node.weight;
+		}
+	}
+
+	private void unlink(Node node) {
+		Node segment = node.segment;
+		if (segment == null) {
+			return;
+		}
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = node.next = null;
+		node.segment = null;
+		this.weightedSize -= node.weight;
+		if (segment == this.protectedSegment) {
+			this.protectedWeightedSize -= node.weight;
+		}
+	}
+
+	private static long toNanos(@Nullable Duration timeToLive) {
+		return (timeToLive != null ? timeToLive.toNanos() : 0);
+	}
+
+
+	/**
+	 * A cache entry, linked into one of the eviction policy segments.
+	 */
+	private static final class Node {
+
+		final Object key;
+
+		final Object value;
+
+		final long weight;
+
+		final boolean expiring;
+
+		final long expiresAt;
+
+		// Guarded by the eviction lock
+
+		@Nullable
+		Node segment;
+
+		@Nullable
+		Node prev;
+
+		@Nullable
+		Node next;
+
+		Node(Object key, Object value, long weight, boolean expiring, long expiresAt) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.expiring = expiring;
+			this.expiresAt = expiresAt;
+		}
+
+		static Node sentinel() {
+			Node sentinel = new Node(Node.class, Node.class, 0, false, 0);
+			sentinel.prev = sentinel;
+			sentinel.next = sentinel;
+			return sentinel;
+		}
+
+		boolean isExpired(long now) {
+			return (this.expiring && now - this.expiresAt >= 0);
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToLongBiFunction;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CacheManager} implementation that lazily builds {@link BoundedConcurrentCache}
+ * instances for each {@link #getCache} request, all sharing the same bounds.
+ * Also supports a 'static' mode where the set of cache names is pre-defined
+ * through {@link #setCacheNames}, with no dynamic creation of further cache
+ * regions at runtime.
+ *
+ * <p>By default, each cache holds up to {@link #DEFAULT_MAXIMUM_SIZE} entries
+ * which do not expire. Configure {@link #setMaximumSize}, or
+ * {@link #setMaximumWeight} together with {@link #setWeigher}, as well as
+ * {@link #setTimeToLive} as appropriate.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see BoundedConcurrentCache
+ */
+public class BoundedConcurrentCacheManager implements CacheManager {
+
+	/**
+	 * The default maximum number of entries per cache.
+	 */
+	public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+
+	private final ConcurrentMap<String, Cache> cacheMap = new ConcurrentHashMap<>(16);
+
+	private boolean dynamic = true;
+
+	private long maximumWeight = DEFAULT_MAXIMUM_SIZE;
+
+	private ToLongBiFunction<Object, Object> weigher = BoundedConcurrentCache.SINGLETON_WEIGHER;
+
+	@Nullable
+	private Duration timeToLive;
+
+	private boolean allowNullValues = true;
+
+
+	/**
+	 * Construct a dynamic BoundedConcurrentCacheManager,
+	 * lazily creating cache instances as they are being requested.
+	 */
+	public BoundedConcurrentCacheManager() {
+	}
+
+	/**
+	 * Construct a static BoundedConcurrentCacheManager,
+	 * managing caches for the specified cache names only.
+	 */
+	public BoundedConcurrentCacheManager(String... cacheNames) {
+		setCacheNames(Arrays.asList(cacheNames));
+	}
+
+
+	/**
+	 * Specify the set of cache names for this CacheManager's 'static' mode.
+	 * <p>The number of caches and their names will be fixed after a call to this method,
+	 * with no creation of further cache regions at runtime.
+	 * <p>Calling this with a {@code null} collection argument resets the
+	 * mode to 'dynamic', allowing for further creation of caches again.
+	 */
+	public void setCacheNames(@Nullable Collection<String> cacheNames) {
+		if (cacheNames != null) {
+			for (String name : cacheNames) {
+				this.cacheMap.put(name, createBoundedConcurrentCache(name));
+			}
+			this.dynamic = false;
+		}
+		else {
+			this.dynamic = true;
+		}
+	}
+
+	/**
+	 * Specify the maximum number of entries for each cache, resetting
+	 * the weigher to {@link BoundedConcurrentCache#SINGLETON_WEIGHER}.
+	 * <p>Note: A change of this setting will reset all existing caches,
+	 * if any, to reconfigure them with the new bounds.
+	 * @see #setMaximumWeight
+	 */
+	public void setMaximumSize(long maximumSize) {
+		this.weigher = BoundedConcurrentCache.SINGLETON_WEIGHER;
+		setMaximumWeight(maximumSize);
+	}
+
+	/**
+	 * Specify the maximum total weight of the entries of each cache,
+	 * as computed by the configured {@link #setWeigher weigher}.
+	 * <p>Note: A change of this setting will reset all existing caches,
+	 * if any, to reconfigure them with the new bounds.
+	 */
+	public void setMaximumWeight(long maximumWeight) {
+		Assert.isTrue(maximumWeight >= 0, "Maximum weight must not be negative");
+		this.maximumWeight = maximumWeight;
+		recreateCaches();
+	}
+
+	/**
+	 * Return the maximum total weight of the entries of each cache.
+	 */
+	public long getMaximumWeight() {
+		return this.maximumWeight;
+	}
+
+	/**
+	 * Specify the function computing the weight of a cache entry from its
+	 * key and store value. Default is {@link BoundedConcurrentCache#SINGLETON_WEIGHER}.
+	 * <p>Note: A change of this setting will reset all existing caches,
+	 * if any, to reconfigure them with the new weigher.
+	 */
+	public void setWeigher(ToLongBiFunction<Object, Object> weigher) {
+		Assert.notNull(weigher, "Weigher must not be null");
+		this.weigher = weigher;
+		recreateCaches();
+	}
+
+	/**
+	 * Specify the default time-to-live of the entries of each cache.
+	 * Default is {@code null}, i.e. no expiration.
+	 * <p>Note: A change of this setting will reset all existing caches,
+	 * if any, to reconfigure them with the new time-to-live.
+	 */
+	public void setTimeToLive(@Nullable Duration timeToLive) {
+		this.timeToLive = timeToLive;
+		recreateCaches();
+	}
+
+	/**
+	 * Return the default time-to-live of the entries of each cache, if any.
+	 */
+	@Nullable
+	public Duration getTimeToLive() {
+		return this.timeToLive;
+	}
+
+	/**
+	 * Specify whether to accept and convert {@code null} values for all caches
+	 * in this cache manager.
+	 * <p>Default is "true". An internal holder object will be used to store
+	 * user-level {@code null}s.
+	 * <p>Note: A change of the null-value setting will reset all existing caches,
+	 * if any, to reconfigure them with the new null-value requirement.
+	 */
+	public void setAllowNullValues(boolean allowNullValues) {
+		if (allowNullValues != this.allowNullValues) {
+			this.allowNullValues = allowNullValues;
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return whether this cache manager accepts and converts {@code null} values
+	 * for all of its caches.
+	 */
+	public boolean isAllowNullValues() {
+		return this.allowNullValues;
+	}
+
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return Collections.unmodifiableSet(this.cacheMap.keySet());
+	}
+
+	@Override
+	@Nullable
+	public Cache getCache(String name) {
+		Cache cache = this.cacheMap.get(name);
+		if (cache == null && this.dynamic) {
+			synchronized (this.cacheMap) {
+				cache = this.cacheMap.get(name);
+				if (cache == null) {
+					cache = createBoundedConcurrentCache(name);
+					this.cacheMap.put(name, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	private void recreateCaches() {
+		for (Map.Entry<String, Cache> entry : this.cacheMap.entrySet()) {
+			entry.setValue(createBoundedConcurrentCache(entry.getKey()));
+		}
+	}
+
+	/**
+	 * Create a new BoundedConcurrentCache instance for the specified cache name.
+	 * @param name the name of the cache
+	 * @return the BoundedConcurrentCache (or a decorator thereof)
+	 */
+	protected Cache createBoundedConcurrentCache(String name) {
+		return new BoundedConcurrentCache(name, this.maximumWeight, this.weigher, this.timeToLive, this.allowNullValues);
+	}
+
+}
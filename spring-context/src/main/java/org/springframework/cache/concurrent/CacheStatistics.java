@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+/**
+ * Immutable snapshot of the statistics of a {@link BoundedConcurrentCache}.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see BoundedConcurrentCache#getStatistics()
+ */
+public final class CacheStatistics {
+
+	private final long hitCount;
+
+	private final long missCount;
+
+	private final long evictionCount;
+
+	private final long evictionWeight;
+
+	private final long expirationCount;
+
+
+	/**
+	 * Create a new statistics snapshot.
+	 * @param hitCount the number of lookups that found a value
+	 * @param missCount the number of lookups that found no value
+	 * @param evictionCount the number of entries evicted due to size constraints
+	 * @param evictionWeight the total weight of the entries evicted due to size constraints
+	 * @param expirationCount the number of entries removed due to expiration
+	 */
+	public CacheStatistics(long hitCount, long missCount, long evictionCount,
+			long evictionWeight, long expirationCount) {
+
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.evictionWeight = evictionWeight;
+		this.expirationCount = expirationCount;
+	}
+
+
+	/**
+	 * Return the number of lookups that found a (non-expired) value.
+	 */
+	public long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Return the number of lookups that found no value, or an expired one.
+	 */
+	public long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * Return the total number of lookups, i.e. hits plus misses.
+	 */
+	public long getRequestCount() {
+		return this.hitCount + this.missCount;
+	}
+
+	/**
+	 * Return the ratio of lookups that found a value, between {@code 0.0}
+	 * and {@code 1.0}; {@code 1.0} if no lookup has been performed yet.
+	 */
+	public double getHitRate() {
+		long requestCount = getRequestCount();
+		return (requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount);
+	}
+
+	/**
+	 * Return the number of entries evicted in order to stay within the maximum weight.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Return the total weight of the entries evicted in order to stay within
+	 * the maximum weight.
+	 */
+	public long getEvictionWeight() {
+		return this.evictionWeight;
+	}
+
+	/**
+	 * Return the number of entries removed because their time-to-live elapsed.
+	 */
+	public long getExpirationCount() {
+		return this.expirationCount;
+	}
+
+
+	@Override
+	public String toString() {
+		return "CacheStatistics: hits=" + this.hitCount + ", misses=" + this.missCount +
+				", evictions=" + this.evictionCount + ", evictionWeight=" + this.evictionWeight +
+				", expirations=" + this.expirationCount;
+	}
+
+}
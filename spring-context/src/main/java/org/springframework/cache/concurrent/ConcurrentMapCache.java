@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -38,6 +38,12 @@ import org.springframework.util.Assert;
  * them with a predefined internal object. This behavior can be changed through the
  * {@link #ConcurrentMapCache(String, ConcurrentMap, boolean)} constructor.
  *
+ * <p>As of 5.2.13, {@link #get(Object, Callable)} coalesces concurrent loads
+ * for the same key: the first caller invokes the value loader while any other
+ * callers for that key wait for its outcome, without holding a lock on the
+ * underlying map (in contrast to {@link ConcurrentMap#computeIfAbsent}) and
+ * therefore without blocking unrelated keys during a slow load.
+ *
  * @author Costin Leau
  * @author Juergen Hoeller
  * @author Stephane Nicoll
@@ -53,6 +59,8 @@ public class ConcurrentMapCache extends AbstractValueAdaptingCache {
 	@Nullable
 	private final SerializationDelegate serialization;
 
+	private final ConcurrentMap<Object, LoadingValue> loadingValues = new ConcurrentHashMap<>(16);
+
 
 	/**
 	 * Create a new ConcurrentMapCache with the specified name.
@@ -139,14 +147,48 @@ public class ConcurrentMapCache extends AbstractValueAdaptingCache {
 	@Override
 	@Nullable
 	public <T> T get(Object key, Callable<T> valueLoader) {
-		return (T) fromStoreValue(this.store.computeIfAbsent(key, k -> {
-			try {
-				return toStoreValue(valueLoader.call());
-			}
-			catch (Throwable ex) {
-				throw new ValueRetrievalException(key, valueLoader, ex);
+		Object storeValue = this.store.get(key);
+		if (storeValue == null) {
+			storeValue = loadValue(key, valueLoader);
+		}
+		return (T) fromStoreValue(storeValue);
+	}
+
+	/**
+	 * Load the value for the given key, sharing a single invocation of a
+	 * value loader among all concurrent callers for the same key.
+	 * @param key the key to load the value for
+	 * @param valueLoader the value loader to use if no load is in progress yet
+	 * @return the store value (never {@code null})
+	 */
+	private Object loadValue(Object key, Callable<?> valueLoader) {
+		LoadingValue loadingValue = new LoadingValue();
+		LoadingValue existing = this.loadingValues.putIfAbsent(key, loadingValue);
+		if (existing != null) {
+			return existing.await(key, valueLoader);
+		}
+		try {
+			// Re-check the store: a concurrent load may have completed in the meantime.
+			Object storeValue = this.store.get(key);
+			if (storeValue == null) {
+				try {
+					storeValue = toStoreValue(valueLoader.call());
+				}
+				catch (Throwable ex) {
+					loadingValue.completeExceptionally(ex);
+					throw new ValueRetrievalException(key, valueLoader, ex);
+				}
+				Object concurrentValue = this.store.putIfAbsent(key, storeValue);
+				if (concurrentValue != null) {
+					storeValue = concurrentValue;
+				}
 			}
-		}));
+			loadingValue.complete(storeValue);
+			return storeValue;
+		}
+		finally {
+			this.loadingValues.remove(key, loadingValue);
+		}
 	}
 
 	@Override
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.cache.Cache.ValueRetrievalException;
+
+/**
+ * A value load in progress, shared by all concurrent callers for the same key.
+ * Used by {@link ConcurrentMapCache} and {@link BoundedConcurrentCache} for
+ * coalescing concurrent {@code get(key, valueLoader)} calls.
+ *
+ * @author agent
+ * @since 5.2.13
+ */
+final class LoadingValue extends CompletableFuture<Object> {
+
+	private final Thread loadingThread = Thread.currentThread();
+
+
+	/**
+	 * Wait for the load to complete, to be called by other callers than the
+	 * loading thread itself.
+	 * @param key the key being loaded
+	 * @param valueLoader the value loader of the calling thread
+	 * @return the loaded store value
+	 * @throws IllegalStateException in case of a recursive load from the loading thread
+	 * @throws ValueRetrievalException if the load failed or the wait got interrupted
+	 */
+	public Object await(Object key, Callable<?> valueLoader) {
+		if (this.loadingThread == Thread.currentThread()) {
+			throw new IllegalStateException("Recursive load of cache key '" + key + "'");
+		}
+		try {
+			return get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ValueRetrievalException(key, valueLoader, ex);
+		}
+		catch (ExecutionException ex) {
+			throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+		}
+	}
+
+}
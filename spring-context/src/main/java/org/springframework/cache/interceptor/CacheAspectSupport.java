@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,11 +21,17 @@ import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
@@ -44,6 +50,7 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.expression.AnnotatedElementKey;
 import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.CollectionFactory;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -90,6 +97,8 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 	private final CacheOperationExpressionEvaluator evaluator = new CacheOperationExpressionEvaluator();
 
+	private final Map<Object, PendingInvocation> pendingInvocations = new ConcurrentHashMap<>(64);
+
 	@Nullable
 	private CacheOperationSource cacheOperationSource;
 
@@ -101,6 +110,10 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	@Nullable
 	private BeanFactory beanFactory;
 
+	private boolean coalesceCacheMisses = false;
+
+	private long coalesceTimeout = 30000;
+
 	private boolean initialized = false;
 
 
@@ -195,6 +208,54 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		this.cacheResolver = SingletonSupplier.of(new SimpleCacheResolver(cacheManager));
 	}
 
+	/**
+	 * Set whether concurrent invocations that miss the cache for the same
+	 * cache(s) and key(s) should share a single invocation of the underlying
+	 * method, even for {@code @Cacheable} operations without {@code sync=true}.
+	 * <p>Only applies to methods that exclusively declare {@code @Cacheable}
+	 * operations; the shared result is put in the cache(s) by the invocation
+	 * that actually ran the method, and handed to any concurrent callers as
+	 * if it had been a cache hit (including a thrown exception).
+	 * <p>A re-entrant call for the same key(s) on the invoking thread, as well as
+	 * a caller that waited longer than the {@link #setCoalesceTimeout coalesce
+	 * timeout}, invokes the method itself instead of sharing the invocation.
+	 * <p>Default is "false", letting every cache miss invoke the method.
+	 * @since 5.2.13
+	 * @see org.springframework.cache.annotation.Cacheable#sync()
+	 */
+	public void setCoalesceCacheMisses(boolean coalesceCacheMisses) {
+		this.coalesceCacheMisses = coalesceCacheMisses;
+	}
+
+	/**
+	 * Return whether concurrent cache misses for the same key(s) share a
+	 * single invocation of the underlying method.
+	 * @since 5.2.13
+	 */
+	public boolean isCoalesceCacheMisses() {
+		return this.coalesceCacheMisses;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds to wait for a shared invocation
+	 * of the underlying method, before invoking the method directly.
+	 * <p>Default is 30000 (30 seconds).
+	 * @since 5.2.13
+	 * @see #setCoalesceCacheMisses
+	 */
+	public void setCoalesceTimeout(long coalesceTimeout) {
+		Assert.isTrue(coalesceTimeout >= 0, "Coalesce timeout must not be negative");
+		this.coalesceTimeout = coalesceTimeout;
+	}
+
+	/**
+	 * Return the maximum time in milliseconds to wait for a shared invocation.
+	 * @since 5.2.13
+	 */
+	public long getCoalesceTimeout() {
+		return this.coalesceTimeout;
+	}
+
 	/**
 	 * Set the containing {@link BeanFactory} for {@link CacheManager} and other
 	 * service lookups.
@@ -393,6 +454,17 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			}
 		}
 
+		// Special handling of per-element caching for a multi-key invocation
+		if (contexts.isBatch()) {
+			CacheOperationContext context = contexts.get(CacheableOperation.class).iterator().next();
+			if (isConditionPassing(context, CacheOperationExpressionEvaluator.NO_RESULT)) {
+				return handleBatchGet(invoker, method, context);
+			}
+			else {
+				// No caching required, only call the underlying method
+				return invokeOperation(invoker);
+			}
+		}
 
 		// Process any early evictions
 		processCacheEvicts(contexts.get(CacheEvictOperation.class), true,
@@ -408,6 +480,12 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 					CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
 		}
 
+		// Share a concurrent invocation for the same miss, if requested
+		if (cacheHit == null && this.coalesceCacheMisses && !cachePutRequests.isEmpty() &&
+				contexts.get(CachePutOperation.class).isEmpty() && contexts.get(CacheEvictOperation.class).isEmpty()) {
+			return invokeCoalesced(invoker, method, cachePutRequests);
+		}
+
 		Object cacheValue;
 		Object returnValue;
 
@@ -452,6 +530,168 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return result;
 	}
 
+	@Nullable
+	private Object handleBatchGet(CacheOperationInvoker invoker, Method method, CacheOperationContext context) {
+		Object[] args = context.getArgs();
+		Collection<?> elements = (Collection<?>) args[0];
+		if (elements == null) {
+			return invokeOperation(invoker);
+		}
+
+		// Look up all element keys, trying each cache for the keys still missing
+		Map<Object, Object> elementsByKey = new LinkedHashMap<>(elements.size());
+		for (Object element : elements) {
+			elementsByKey.put(generateElementKey(context, element), element);
+		}
+		Map<Object, Object> cachedValues = new HashMap<>(elementsByKey.size());
+		for (Cache cache : context.getCaches()) {
+			List<Object> missingKeys = new ArrayList<>(elementsByKey.size() - cachedValues.size());
+			for (Object key : elementsByKey.keySet()) {
+				if (!cachedValues.containsKey(key)) {
+					missingKeys.add(key);
+				}
+			}
+			if (missingKeys.isEmpty()) {
+				break;
+			}
+			doGetAll(cache, missingKeys).forEach((key, wrapper) -> cachedValues.put(key, wrapper.get()));
+		}
+
+		// Invoke the method for the missing elements only, storing their values
+		Map<?, ?> loadedValues = Collections.emptyMap();
+		if (cachedValues.size() < elementsByKey.size()) {
+			Collection<Object> missingElements = CollectionFactory.createCollection(
+					method.getParameterTypes()[0], elementsByKey.size() - cachedValues.size());
+			elementsByKey.forEach((key, element) -> {
+				if (!cachedValues.containsKey(key)) {
+					missingElements.add(element);
+				}
+			});
+			if (logger.isTraceEnabled()) {
+				logger.trace("No cache entries for elements " + missingElements + " in cache(s) " +
+						context.getCacheNames());
+			}
+			Object returnValue;
+			args[0] = missingElements;
+			try {
+				returnValue = invokeOperation(invoker);
+			}
+			finally {
+				args[0] = elements;
+			}
+			if (returnValue != null) {
+				loadedValues = (Map<?, ?>) returnValue;
+			}
+			Map<Object, Object> cachePuts = new LinkedHashMap<>(loadedValues.size());
+			for (Map.Entry<Object, Object> entry : elementsByKey.entrySet()) {
+				Object element = entry.getValue();
+				if (!cachedValues.containsKey(entry.getKey()) && loadedValues.containsKey(element)) {
+					Object value = loadedValues.get(element);
+					if (context.canPutToCache(value)) {
+						cachePuts.put(entry.getKey(), value);
+					}
+				}
+			}
+			if (!cachePuts.isEmpty()) {
+				for (Cache cache : context.getCaches()) {
+					doPutAll(cache, cachePuts);
+				}
+			}
+		}
+
+		// Assemble the result in the iteration order of the given elements
+		Map<Object, Object> result = CollectionFactory.createMap(method.getReturnType(), elementsByKey.size());
+		for (Map.Entry<Object, Object> entry : elementsByKey.entrySet()) {
+			Object element = entry.getValue();
+			if (cachedValues.containsKey(entry.getKey())) {
+				result.put(element, cachedValues.get(entry.getKey()));
+			}
+			else if (loadedValues.containsKey(element)) {
+				result.put(element, loadedValues.get(element));
+			}
+		}
+		return result;
+	}
+
+	@Nullable
+	private Object invokeCoalesced(
+			CacheOperationInvoker invoker, Method method, Collection<CachePutRequest> cachePutRequests) {
+
+		Object invocationKey = createInvocationKey(cachePutRequests);
+		PendingInvocation invocation = new PendingInvocation();
+		PendingInvocation pendingInvocation = this.pendingInvocations.putIfAbsent(invocationKey, invocation);
+		if (pendingInvocation != null) {
+			if (pendingInvocation.owner == Thread.currentThread()) {
+				// Re-entrant call for the same key(s): waiting for ourselves would deadlock
+				return invokeAndPut(invoker, cachePutRequests);
+			}
+			if (logger.isTraceEnabled()) {
+				logger.trace("Joining pending invocation for cache miss " + invocationKey);
+			}
+			try {
+				Object returnValue = pendingInvocation.get(this.coalesceTimeout, TimeUnit.MILLISECONDS);
+				return wrapCacheValue(method, unwrapReturnValue(returnValue));
+			}
+			catch (ExecutionException ex) {
+				// Propagate the ThrowableWrapper from the shared invocation
+				ReflectionUtils.rethrowRuntimeException(ex.getCause());
+				return null;
+			}
+			catch (TimeoutException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Pending invocation for cache miss " + invocationKey + " did not complete within " +
+							this.coalesceTimeout + " ms - invoking method directly");
+				}
+				return invokeAndPut(invoker, cachePutRequests);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return invokeAndPut(invoker, cachePutRequests);
+			}
+		}
+		try {
+			Object returnValue;
+			try {
+				returnValue = invokeOperation(invoker);
+			}
+			catch (Throwable ex) {
+				invocation.completeExceptionally(ex);
+				throw ex;
+			}
+			invocation.complete(returnValue);
+			applyPutRequests(cachePutRequests, returnValue);
+			return returnValue;
+		}
+		finally {
+			this.pendingInvocations.remove(invocationKey, invocation);
+		}
+	}
+
+	@Nullable
+	private Object invokeAndPut(CacheOperationInvoker invoker, Collection<CachePutRequest> cachePutRequests) {
+		Object returnValue = invokeOperation(invoker);
+		applyPutRequests(cachePutRequests, returnValue);
+		return returnValue;
+	}
+
+	private void applyPutRequests(Collection<CachePutRequest> cachePutRequests, @Nullable Object returnValue) {
+		Object cacheValue = unwrapReturnValue(returnValue);
+		for (CachePutRequest cachePutRequest : cachePutRequests) {
+			cachePutRequest.apply(cacheValue);
+		}
+	}
+
+	private Object createInvocationKey(Collection<CachePutRequest> cachePutRequests) {
+		List<Object> elements = new ArrayList<>(cachePutRequests.size() * 2);
+		for (CachePutRequest cachePutRequest : cachePutRequests) {
+			for (Cache cache : cachePutRequest.context.getCaches()) {
+				elements.add(cache);
+				elements.add(cachePutRequest.key);
+			}
+		}
+		return new SimpleKey(elements.toArray());
+	}
+
 	@Nullable
 	private Object wrapCacheValue(Method method, @Nullable Object cacheValue) {
 		if (method.getReturnType() == Optional.class &&
@@ -588,6 +828,15 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return passing;
 	}
 
+	private Object generateElementKey(CacheOperationContext context, @Nullable Object element) {
+		Object key = context.generateElementKey(element);
+		if (key == null) {
+			throw new IllegalArgumentException("Null key returned for element '" + element +
+					"' of cache operation " + context.metadata.operation);
+		}
+		return key;
+	}
+
 	private Object generateKey(CacheOperationContext context, @Nullable Object result) {
 		Object key = context.generateKey(result);
 		if (key == null) {
@@ -607,6 +856,8 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 		private final boolean sync;
 
+		private final boolean batch;
+
 		public CacheOperationContexts(Collection<? extends CacheOperation> operations, Method method,
 				Object[] args, Object target, Class<?> targetClass) {
 
@@ -615,6 +866,7 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 				this.contexts.add(op.getClass(), getOperationContext(op, method, args, target, targetClass));
 			}
 			this.sync = determineSyncFlag(method);
+			this.batch = determineBatchFlag(method);
 		}
 
 		public Collection<CacheOperationContext> get(Class<? extends CacheOperation> operationClass) {
@@ -626,6 +878,10 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			return this.sync;
 		}
 
+		public boolean isBatch() {
+			return this.batch;
+		}
+
 		private boolean determineSyncFlag(Method method) {
 			List<CacheOperationContext> cacheOperationContexts = this.contexts.get(CacheableOperation.class);
 			if (cacheOperationContexts == null) {  // no @Cacheable operation at all
@@ -661,6 +917,50 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			}
 			return false;
 		}
+
+		private boolean determineBatchFlag(Method method) {
+			List<CacheOperationContext> cacheOperationContexts = this.contexts.get(CacheableOperation.class);
+			if (cacheOperationContexts == null) {  // no @Cacheable operation at all
+				return false;
+			}
+			boolean batchEnabled = false;
+			for (CacheOperationContext cacheOperationContext : cacheOperationContexts) {
+				if (((CacheableOperation) cacheOperationContext.getOperation()).isBatch()) {
+					batchEnabled = true;
+					break;
+				}
+			}
+			if (batchEnabled) {
+				if (this.contexts.size() > 1) {
+					throw new IllegalStateException(
+							"@Cacheable(batch=true) cannot be combined with other cache operations on '" + method + "'");
+				}
+				if (cacheOperationContexts.size() > 1) {
+					throw new IllegalStateException(
+							"Only one @Cacheable(batch=true) entry is allowed on '" + method + "'");
+				}
+				CacheOperationContext cacheOperationContext = cacheOperationContexts.iterator().next();
+				CacheableOperation operation = (CacheableOperation) cacheOperationContext.getOperation();
+				if (operation.isSync()) {
+					throw new IllegalStateException(
+							"@Cacheable(batch=true) cannot be combined with sync attribute on '" + operation + "'");
+				}
+				if (StringUtils.hasText(operation.getKey())) {
+					throw new IllegalStateException(
+							"@Cacheable(batch=true) does not support key attribute on '" + operation + "'");
+				}
+				if (method.getParameterCount() != 1 || !Collection.class.isAssignableFrom(method.getParameterTypes()[0])) {
+					throw new IllegalStateException(
+							"@Cacheable(batch=true) requires a single Collection parameter on '" + method + "'");
+				}
+				if (!Map.class.isAssignableFrom(method.getReturnType())) {
+					throw new IllegalStateException(
+							"@Cacheable(batch=true) requires a Map return type on '" + method + "'");
+				}
+				return true;
+			}
+			return false;
+		}
 	}
 
 
@@ -797,6 +1097,16 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			return this.metadata.keyGenerator.generate(this.target, this.metadata.method, this.args);
 		}
 
+		/**
+		 * Compute the key for a single element of a batch caching operation,
+		 * as if the method had been invoked with that element only.
+		 * @since 5.2.13
+		 */
+		@Nullable
+		protected Object generateElementKey(@Nullable Object element) {
+			return this.metadata.keyGenerator.generate(this.target, this.metadata.method, new Object[] {element});
+		}
+
 		private EvaluationContext createEvaluationContext(@Nullable Object result) {
 			return evaluator.createEvaluationContext(this.caches, this.metadata.method, this.args,
 					this.target, this.metadata.targetClass, this.metadata.targetMethod, result, beanFactory);
@@ -885,6 +1195,16 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		}
 	}
 
+	/**
+	 * Shared invocation of a cache method for a cache miss, remembering the
+	 * thread which actually invokes the method.
+	 */
+	private static class PendingInvocation extends CompletableFuture<Object> {
+
+		final Thread owner = Thread.currentThread();
+	}
+
+
 	/**
 	 * Internal holder class for recording that a cache method was invoked.
 	 */
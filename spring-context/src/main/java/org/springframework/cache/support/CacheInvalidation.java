@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.io.Serializable;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A message sent through a {@link CacheInvalidationChannel}, indicating that
+ * a single entry or all entries of a named cache have been changed by a
+ * participant, so that any other participant needs to drop its local copies.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see CacheInvalidationChannel
+ * @see TieredCache
+ */
+@SuppressWarnings("serial")
+public final class CacheInvalidation implements Serializable {
+
+	private final String origin;
+
+	private final String cacheName;
+
+	@Nullable
+	private final Object key;
+
+
+	private CacheInvalidation(String origin, String cacheName, @Nullable Object key) {
+		Assert.notNull(origin, "Origin must not be null");
+		Assert.notNull(cacheName, "Cache name must not be null");
+		this.origin = origin;
+		this.cacheName = cacheName;
+		this.key = key;
+	}
+
+
+	/**
+	 * Return the identifier of the participant that published this invalidation.
+	 */
+	public String getOrigin() {
+		return this.origin;
+	}
+
+	/**
+	 * Return the name of the affected cache.
+	 */
+	public String getCacheName() {
+		return this.cacheName;
+	}
+
+	/**
+	 * Return the affected key, or {@code null} if the entire cache is affected.
+	 * @see #isClear()
+	 */
+	@Nullable
+	public Object getKey() {
+		return this.key;
+	}
+
+	/**
+	 * Return whether this invalidation affects all entries of the cache.
+	 */
+	public boolean isClear() {
+		return (this.key == null);
+	}
+
+
+	@Override
+	public boolean equals(@Nullable Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CacheInvalidation)) {
+			return false;
+		}
+		CacheInvalidation otherInvalidation = (CacheInvalidation) other;
+		return (this.origin.equals(otherInvalidation.origin) && this.cacheName.equals(otherInvalidation.cacheName) &&
+				ObjectUtils.nullSafeEquals(this.key, otherInvalidation.key));
+	}
+
+	@Override
+	public int hashCode() {
+		return this.cacheName.hashCode() * 29 + ObjectUtils.nullSafeHashCode(this.key);
+	}
+
+	@Override
+	public String toString() {
+		return "CacheInvalidation: cache '" + this.cacheName + "', " +
+				(this.key != null ? "key [" + this.key + "]" : "all entries") + ", origin '" + this.origin + "'";
+	}
+
+
+	/**
+	 * Create an invalidation for a single entry of the specified cache.
+	 * @param origin the identifier of the publishing participant
+	 * @param cacheName the name of the affected cache
+	 * @param key the affected key
+	 */
+	public static CacheInvalidation forKey(String origin, String cacheName, Object key) {
+		Assert.notNull(key, "Key must not be null");
+		return new CacheInvalidation(origin, cacheName, key);
+	}
+
+	/**
+	 * Create an invalidation for all entries of the specified cache.
+	 * @param origin the identifier of the publishing participant
+	 * @param cacheName the name of the affected cache
+	 */
+	public static CacheInvalidation forClear(String origin, String cacheName) {
+		return new CacheInvalidation(origin, cacheName, null);
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.util.function.Consumer;
+
+/**
+ * Strategy interface for propagating {@link CacheInvalidation cache invalidations}
+ * between the participants of a tiered cache setup, e.g. the application
+ * instances sharing a remote cache behind their local in-process caches.
+ *
+ * <p>Implementations typically adapt a messaging infrastructure such as a
+ * broadcast topic. Delivery may be asynchronous; since published invalidations
+ * are also delivered back to their publisher, subscribers are expected to skip
+ * their own invalidations based on the {@link CacheInvalidation#getOrigin() origin}.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see SimpleCacheInvalidationChannel
+ * @see TieredCacheManager
+ */
+public interface CacheInvalidationChannel {
+
+	/**
+	 * Publish the given invalidation to all subscribers.
+	 * @param invalidation the invalidation to publish
+	 */
+	void publish(CacheInvalidation invalidation);
+
+	/**
+	 * Register the given subscriber for all invalidations published from now on.
+	 * @param subscriber the callback to invoke for each invalidation
+	 * @return a handle for cancelling the subscription
+	 */
+	Subscription subscribe(Consumer<CacheInvalidation> subscriber);
+
+
+	/**
+	 * Handle for a registered subscriber.
+	 */
+	interface Subscription {
+
+		/**
+		 * Stop delivering invalidations to the subscriber.
+		 */
+		void unsubscribe();
+	}
+
+}
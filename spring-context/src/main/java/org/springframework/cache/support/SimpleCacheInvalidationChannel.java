@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.util.Assert;
+
+/**
+ * Simple in-memory {@link CacheInvalidationChannel} which synchronously delivers
+ * each invalidation to all subscribers within the same JVM.
+ *
+ * <p>Useful for testing as well as for several {@link TieredCacheManager}
+ * instances within the same process, e.g. in separate application contexts.
+ *
+ * @author agent
+ * @since 5.2.13
+ */
+public class SimpleCacheInvalidationChannel implements CacheInvalidationChannel {
+
+	private final List<Consumer<CacheInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+
+	@Override
+	public void publish(CacheInvalidation invalidation) {
+		Assert.notNull(invalidation, "CacheInvalidation must not be null");
+		for (Consumer<CacheInvalidation> subscriber : this.subscribers) {
+			subscriber.accept(invalidation);
+		}
+	}
+
+	@Override
+	public Subscription subscribe(Consumer<CacheInvalidation> subscriber) {
+		Assert.notNull(subscriber, "Subscriber must not be null");
+		// Register a distinct instance, so that unsubscribe removes this subscription only
+		Consumer<CacheInvalidation> registration = subscriber::accept;
+		this.subscribers.add(registration);
+		return () -> this.subscribers.remove(registration);
+	}
+
+}
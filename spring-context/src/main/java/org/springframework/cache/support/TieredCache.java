@@ -0,0 +1,271 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Two-level {@link Cache} implementation which reads through a local "near"
+ * cache (e.g. a {@code CaffeineCache} or a
+ * {@link org.springframework.cache.concurrent.BoundedConcurrentCache}) to a
+ * shared "far" cache (e.g. a JCache or remote cache), populating the near
+ * cache on far cache hits.
+ *
+ * <p>All write operations are applied to the far cache first, then to the near
+ * cache. If a {@link CacheInvalidationChannel} has been specified, each write
+ * is furthermore announced as a {@link CacheInvalidation}, allowing the other
+ * participants to drop their now stale near cache entries.
+ *
+ * <p>Note: The near cache only reflects changes of other participants once their
+ * invalidations have been received; it should therefore be bounded in size and
+ * ideally in time-to-live as well, limiting the effect of missed invalidations.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see TieredCacheManager
+ */
+public class TieredCache implements Cache {
+
+	private final Cache nearCache;
+
+	private final Cache farCache;
+
+	@Nullable
+	private final CacheInvalidationChannel invalidationChannel;
+
+	private final String origin;
+
+
+	/**
+	 * Create a new TieredCache for the given near and far caches,
+	 * without propagation of invalidations.
+	 * @param nearCache the local cache to read from first
+	 * @param farCache the shared cache to read through to
+	 */
+	public TieredCache(Cache nearCache, Cache farCache) {
+		this(nearCache, farCache, null, UUID.randomUUID().toString());
+	}
+
+	/**
+	 * Create a new TieredCache for the given near and far caches,
+	 * publishing invalidations to the given channel.
+	 * @param nearCache the local cache to read from first
+	 * @param farCache the shared cache to read through to
+	 * @param invalidationChannel the channel to publish invalidations to
+	 * (may be {@code null} for no propagation of invalidations)
+	 * @param origin the identifier of this participant, to be exposed
+	 * through {@link CacheInvalidation#getOrigin()}
+	 */
+	public TieredCache(Cache nearCache, Cache farCache,
+			@Nullable CacheInvalidationChannel invalidationChannel, String origin) {
+
+		Assert.notNull(nearCache, "Near Cache must not be null");
+		Assert.notNull(farCache, "Far Cache must not be null");
+		Assert.notNull(origin, "Origin must not be null");
+		this.nearCache = nearCache;
+		this.farCache = farCache;
+		this.invalidationChannel = invalidationChannel;
+		this.origin = origin;
+	}
+
+
+	/**
+	 * Return the local cache that this cache reads from first.
+	 */
+	public Cache getNearCache() {
+		return this.nearCache;
+	}
+
+	/**
+	 * Return the shared cache that this cache reads through to.
+	 */
+	public Cache getFarCache() {
+		return this.farCache;
+	}
+
+	@Override
+	public String getName() {
+		return this.farCache.getName();
+	}
+
+	@Override
+	public Object getNativeCache() {
+		return this.farCache.getNativeCache();
+	}
+
+	@Override
+	@Nullable
+	public ValueWrapper get(Object key) {
+		ValueWrapper valueWrapper = this.nearCache.get(key);
+		if (valueWrapper == null) {
+			valueWrapper = this.farCache.get(key);
+			if (valueWrapper != null) {
+				this.nearCache.put(key, valueWrapper.get());
+			}
+		}
+		return valueWrapper;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <T> T get(Object key, @Nullable Class<T> type) {
+		ValueWrapper valueWrapper = get(key);
+		Object value = (valueWrapper != null ? valueWrapper.get() : null);
+		if (value != null && type != null && !type.isInstance(value)) {
+			throw new IllegalStateException(
+					"Cached value is not of required type [" + type.getName() + "]: " + value);
+		}
+		return (T) value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		ValueWrapper valueWrapper = this.nearCache.get(key);
+		if (valueWrapper != null) {
+			return (T) valueWrapper.get();
+		}
+		T value = this.farCache.get(key, valueLoader);
+		this.nearCache.put(key, value);
+		return value;
+	}
+
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> nearValues = this.nearCache.getAll(keys);
+		if (nearValues.size() == keys.size()) {
+			return nearValues;
+		}
+		List<Object> missingKeys = new ArrayList<>(keys.size() - nearValues.size());
+		for (Object key : keys) {
+			if (!nearValues.containsKey(key)) {
+				missingKeys.add(key);
+			}
+		}
+		Map<Object, ValueWrapper> farValues = this.farCache.getAll(missingKeys);
+		if (!farValues.isEmpty()) {
+			Map<Object, Object> nearPuts = new LinkedHashMap<>(farValues.size());
+			farValues.forEach((key, valueWrapper) -> nearPuts.put(key, valueWrapper.get()));
+			this.nearCache.putAll(nearPuts);
+		}
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(nearValues.size() + farValues.size());
+		for (Object key : keys) {
+			ValueWrapper valueWrapper = nearValues.get(key);
+			if (valueWrapper == null) {
+				valueWrapper = farValues.get(key);
+			}
+			if (valueWrapper != null) {
+				result.put(key, valueWrapper);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void put(Object key, @Nullable Object value) {
+		this.farCache.put(key, value);
+		this.nearCache.put(key, value);
+		publishEviction(key);
+	}
+
+	@Override
+	public void putAll(Map<?, ?> entries) {
+		this.farCache.putAll(entries);
+		this.nearCache.putAll(entries);
+		for (Object key : entries.keySet()) {
+			publishEviction(key);
+		}
+	}
+
+	@Override
+	@Nullable
+	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+		ValueWrapper existingValue = this.farCache.putIfAbsent(key, value);
+		if (existingValue == null) {
+			this.nearCache.put(key, value);
+			publishEviction(key);
+		}
+		else {
+			this.nearCache.put(key, existingValue.get());
+		}
+		return existingValue;
+	}
+
+	@Override
+	public void evict(Object key) {
+		this.farCache.evict(key);
+		this.nearCache.evict(key);
+		publishEviction(key);
+	}
+
+	@Override
+	public void evictAll(Collection<?> keys) {
+		this.farCache.evictAll(keys);
+		this.nearCache.evictAll(keys);
+		for (Object key : keys) {
+			publishEviction(key);
+		}
+	}
+
+	@Override
+	public boolean evictIfPresent(Object key) {
+		boolean present = this.farCache.evictIfPresent(key);
+		present |= this.nearCache.evictIfPresent(key);
+		publishEviction(key);
+		return present;
+	}
+
+	@Override
+	public void clear() {
+		this.farCache.clear();
+		this.nearCache.clear();
+		publishClear();
+	}
+
+	@Override
+	public boolean invalidate() {
+		boolean notEmpty = this.farCache.invalidate();
+		notEmpty |= this.nearCache.invalidate();
+		publishClear();
+		return notEmpty;
+	}
+
+	private void publishEviction(Object key) {
+		if (this.invalidationChannel != null) {
+			this.invalidationChannel.publish(CacheInvalidation.forKey(this.origin, getName(), key));
+		}
+	}
+
+	private void publishClear() {
+		if (this.invalidationChannel != null) {
+			this.invalidationChannel.publish(CacheInvalidation.forClear(this.origin, getName()));
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CacheManager} implementation which layers the caches of a local "near"
+ * CacheManager in front of the caches of a shared "far" CacheManager, exposing
+ * a {@link TieredCache} for each cache name known to the far CacheManager.
+ *
+ * <p>In contrast to {@link CompositeCacheManager}, which picks the first delegate
+ * that knows a given cache name, this manager combines both delegates for each
+ * cache: reads are served from the near cache where possible, and writes go to
+ * both. If the near CacheManager is not aware of a cache name, the far cache is
+ * exposed as-is.
+ *
+ * <p>Invalidations are propagated through an optional {@link CacheInvalidationChannel}
+ * shared between all participants: each write to a tiered cache is published, and
+ * invalidations received from other participants evict the corresponding entries
+ * from the local near caches. This manager subscribes to the channel on
+ * {@link #afterPropertiesSet()} and unsubscribes on {@link #destroy()}, as
+ * invoked by a container for a bean definition or to be invoked programmatically.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see TieredCache
+ * @see SimpleCacheInvalidationChannel
+ */
+public class TieredCacheManager implements CacheManager, InitializingBean, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(TieredCacheManager.class);
+
+	private final ConcurrentMap<String, Cache> cacheMap = new ConcurrentHashMap<>(16);
+
+	private final CacheManager nearCacheManager;
+
+	private final CacheManager farCacheManager;
+
+	@Nullable
+	private final CacheInvalidationChannel invalidationChannel;
+
+	private final String origin = UUID.randomUUID().toString();
+
+	@Nullable
+	private CacheInvalidationChannel.Subscription subscription;
+
+
+	/**
+	 * Create a new TieredCacheManager for the given near and far CacheManagers,
+	 * without propagation of invalidations.
+	 * @param nearCacheManager the CacheManager for the local caches
+	 * @param farCacheManager the CacheManager for the shared caches
+	 */
+	public TieredCacheManager(CacheManager nearCacheManager, CacheManager farCacheManager) {
+		this(nearCacheManager, farCacheManager, null);
+	}
+
+	/**
+	 * Create a new TieredCacheManager for the given near and far CacheManagers,
+	 * propagating invalidations through the given channel.
+	 * @param nearCacheManager the CacheManager for the local caches
+	 * @param farCacheManager the CacheManager for the shared caches
+	 * @param invalidationChannel the channel to publish invalidations to and
+	 * receive invalidations from (may be {@code null} for no propagation)
+	 */
+	public TieredCacheManager(CacheManager nearCacheManager, CacheManager farCacheManager,
+			@Nullable CacheInvalidationChannel invalidationChannel) {
+
+		Assert.notNull(nearCacheManager, "Near CacheManager must not be null");
+		Assert.notNull(farCacheManager, "Far CacheManager must not be null");
+		this.nearCacheManager = nearCacheManager;
+		this.farCacheManager = farCacheManager;
+		this.invalidationChannel = invalidationChannel;
+	}
+
+
+	/**
+	 * Return the CacheManager for the local caches.
+	 */
+	public CacheManager getNearCacheManager() {
+		return this.nearCacheManager;
+	}
+
+	/**
+	 * Return the CacheManager for the shared caches.
+	 */
+	public CacheManager getFarCacheManager() {
+		return this.farCacheManager;
+	}
+
+	/**
+	 * Return the identifier of this participant in the invalidation channel.
+	 * @see CacheInvalidation#getOrigin()
+	 */
+	public String getOrigin() {
+		return this.origin;
+	}
+
+
+	/**
+	 * Subscribe to the invalidation channel, if any.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		if (this.invalidationChannel != null && this.subscription == null) {
+			this.subscription = this.invalidationChannel.subscribe(this::handleInvalidation);
+		}
+	}
+
+	/**
+	 * Unsubscribe from the invalidation channel, if subscribed.
+	 */
+	@Override
+	public void destroy() {
+		if (this.subscription != null) {
+			this.subscription.unsubscribe();
+			this.subscription = null;
+		}
+	}
+
+
+	@Override
+	@Nullable
+	public Cache getCache(String name) {
+		Cache cache = this.cacheMap.get(name);
+		if (cache == null) {
+			Cache farCache = this.farCacheManager.getCache(name);
+			if (farCache == null) {
+				return null;
+			}
+			Cache nearCache = this.nearCacheManager.getCache(name);
+			cache = (nearCache != null ? createTieredCache(nearCache, farCache) : farCache);
+			Cache existing = this.cacheMap.putIfAbsent(name, cache);
+			if (existing != null) {
+				cache = existing;
+			}
+		}
+		return cache;
+	}
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return this.farCacheManager.getCacheNames();
+	}
+
+	/**
+	 * Create a TieredCache for the given near and far caches.
+	 * @param nearCache the local cache
+	 * @param farCache the shared cache
+	 * @return the TieredCache (or a decorator thereof)
+	 */
+	protected Cache createTieredCache(Cache nearCache, Cache farCache) {
+		return new TieredCache(nearCache, farCache, this.invalidationChannel, this.origin);
+	}
+
+	/**
+	 * Apply the given invalidation to the corresponding near cache,
+	 * unless it originates from this CacheManager.
+	 * @param invalidation the invalidation received from the channel
+	 */
+	protected void handleInvalidation(CacheInvalidation invalidation) {
+		if (this.origin.equals(invalidation.getOrigin())) {
+			return;
+		}
+		Cache cache = this.cacheMap.get(invalidation.getCacheName());
+		if (cache instanceof TieredCache) {
+			Cache nearCache = ((TieredCache) cache).getNearCache();
+			if (logger.isTraceEnabled()) {
+				logger.trace("Applying " + invalidation);
+			}
+			Object key = invalidation.getKey();
+			if (key != null) {
+				nearCache.evictIfPresent(key);
+			}
+			else {
+				nearCache.invalidate();
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.context.event;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +51,11 @@ import org.springframework.util.ObjectUtils;
  * ApplicationListener objects can be overridden through the "collectionClass"
  * bean property.
  *
+ * <p>Listeners retrieved for a specific event type and source type are cached.
+ * Adding or removing a listener instance incrementally updates the cached
+ * entries instead of discarding them, so that a listener registration at
+ * runtime does not force re-evaluation of all listeners for every event type.
+ *
  * <p>Implementing ApplicationEventMulticaster's actual {@link #multicastEvent} method
  * is left to subclasses. {@link SimpleApplicationEventMulticaster} simply multicasts
  * all events to all registered listeners, invoking them in the calling thread.
@@ -106,10 +113,13 @@ public abstract class AbstractApplicationEventMulticaster
 			// in order to avoid double invocations of the same listener.
 			Object singletonTarget = AopProxyUtils.getSingletonTarget(listener);
 			if (singletonTarget instanceof ApplicationListener) {
-				this.defaultRetriever.applicationListeners.remove(singletonTarget);
+				if (this.defaultRetriever.applicationListeners.remove(singletonTarget)) {
+					updateCachedRetrievers((ApplicationListener<?>) singletonTarget, false);
+				}
+			}
+			if (this.defaultRetriever.applicationListeners.add(listener)) {
+				updateCachedRetrievers(listener, true);
 			}
-			this.defaultRetriever.applicationListeners.add(listener);
-			this.retrieverCache.clear();
 		}
 	}
 
@@ -124,8 +134,9 @@ public abstract class AbstractApplicationEventMulticaster
 	@Override
 	public void removeApplicationListener(ApplicationListener<?> listener) {
 		synchronized (this.defaultRetriever) {
-			this.defaultRetriever.applicationListeners.remove(listener);
-			this.retrieverCache.clear();
+			if (this.defaultRetriever.applicationListeners.remove(listener)) {
+				updateCachedRetrievers(listener, false);
+			}
 		}
 	}
 
@@ -147,6 +158,72 @@ public abstract class AbstractApplicationEventMulticaster
 	}
 
 
+	/**
+	 * Incrementally apply the addition or removal of the given listener instance
+	 * to all cached retrievers. Retrievers which are not fully populated yet or
+	 * which refer to non-singleton listener beans get discarded instead.
+	 * <p>If the given listener is also registered as a listener bean, all cached
+	 * retrievers get discarded, since the bean registration may still reach it.
+	 * <p>To be called with the {@code defaultRetriever} lock held.
+	 * @param listener the listener that has been added or removed
+	 * @param added {@code true} if the listener has been added,
+	 * {@code false} if it has been removed
+	 */
+	private void updateCachedRetrievers(ApplicationListener<?> listener, boolean added) {
+		if (this.retrieverCache.isEmpty()) {
+			return;
+		}
+		if (isListenerBean(listener)) {
+			this.retrieverCache.clear();
+			return;
+		}
+		for (Iterator<Map.Entry<ListenerCacheKey, CachedListenerRetriever>> it =
+				this.retrieverCache.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<ListenerCacheKey, CachedListenerRetriever> entry = it.next();
+			ListenerCacheKey cacheKey = entry.getKey();
+			CachedListenerRetriever retriever = entry.getValue();
+			Set<ApplicationListener<?>> applicationListeners = retriever.applicationListeners;
+			Set<String> applicationListenerBeans = retriever.applicationListenerBeans;
+			if (applicationListeners == null || applicationListenerBeans == null ||
+					!applicationListenerBeans.isEmpty()) {
+				it.remove();
+			}
+			else if (added) {
+				if (supportsEvent(listener, cacheKey.eventType, cacheKey.sourceType)) {
+					List<ApplicationListener<?>> allListeners = new ArrayList<>(applicationListeners.size() + 1);
+					allListeners.addAll(applicationListeners);
+					allListeners.add(listener);
+					AnnotationAwareOrderComparator.sort(allListeners);
+					retriever.populate(new LinkedHashSet<>(allListeners), applicationListenerBeans);
+				}
+			}
+			else if (applicationListeners.contains(listener)) {
+				Set<ApplicationListener<?>> remainingListeners = new LinkedHashSet<>(applicationListeners);
+				remainingListeners.remove(listener);
+				retriever.populate(remainingListeners, applicationListenerBeans);
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the given listener instance is (or is about to become)
+	 * the singleton for one of the registered listener beans.
+	 * <p>To be called with the {@code defaultRetriever} lock held.
+	 */
+	private boolean isListenerBean(ApplicationListener<?> listener) {
+		ConfigurableBeanFactory beanFactory = this.beanFactory;
+		if (beanFactory != null) {
+			for (String listenerBeanName : this.defaultRetriever.applicationListenerBeans) {
+				if (beanFactory.isCurrentlyInCreation(listenerBeanName) ||
+						(beanFactory.containsSingleton(listenerBeanName) &&
+								beanFactory.getSingleton(listenerBeanName) == listener)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Return a Collection containing all ApplicationListeners.
 	 * @return a Collection of ApplicationListeners
@@ -278,12 +355,10 @@ public abstract class AbstractApplicationEventMulticaster
 		AnnotationAwareOrderComparator.sort(allListeners);
 		if (retriever != null) {
 			if (filteredListenerBeans.isEmpty()) {
-				retriever.applicationListeners = new LinkedHashSet<>(allListeners);
-				retriever.applicationListenerBeans = filteredListenerBeans;
+				retriever.populate(new LinkedHashSet<>(allListeners), filteredListenerBeans);
 			}
 			else {
-				retriever.applicationListeners = filteredListeners;
-				retriever.applicationListenerBeans = filteredListenerBeans;
+				retriever.populate(filteredListeners, filteredListenerBeans);
 			}
 		}
 		return allListeners;
@@ -422,6 +497,8 @@ public abstract class AbstractApplicationEventMulticaster
 	 * Helper class that encapsulates a specific set of target listeners,
 	 * allowing for efficient retrieval of pre-filtered listeners.
 	 * <p>An instance of this helper gets cached per event type and source type.
+	 * In the common case of singleton listeners only, it exposes a precomputed
+	 * unmodifiable list of listeners, avoiding any per-event allocation.
 	 */
 	private class CachedListenerRetriever {
 
@@ -431,6 +508,17 @@ public abstract class AbstractApplicationEventMulticaster
 		@Nullable
 		public volatile Set<String> applicationListenerBeans;
 
+		@Nullable
+		private volatile List<ApplicationListener<?>> preFilteredListeners;
+
+		public void populate(Set<ApplicationListener<?>> applicationListeners, Set<String> applicationListenerBeans) {
+			// Pre-filtered list first, so that it is visible once the sets are
+			this.preFilteredListeners = (applicationListenerBeans.isEmpty() ?
+					Collections.unmodifiableList(new ArrayList<>(applicationListeners)) : null);
+			this.applicationListeners = applicationListeners;
+			this.applicationListenerBeans = applicationListenerBeans;
+		}
+
 		@Nullable
 		public Collection<ApplicationListener<?>> getApplicationListeners() {
 			Set<ApplicationListener<?>> applicationListeners = this.applicationListeners;
@@ -439,6 +527,12 @@ public abstract class AbstractApplicationEventMulticaster
 				// Not fully populated yet
 				return null;
 			}
+			if (applicationListenerBeans.isEmpty()) {
+				List<ApplicationListener<?>> preFilteredListeners = this.preFilteredListeners;
+				if (preFilteredListeners != null) {
+					return preFilteredListeners;
+				}
+			}
 
 			List<ApplicationListener<?>> allListeners = new ArrayList<>(
 					applicationListeners.size() + applicationListenerBeans.size());
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -86,6 +86,9 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 	@Nullable
 	private final String condition;
 
+	@Nullable
+	private final String partitionKey;
+
 	private final int order;
 
 	@Nullable
@@ -105,6 +108,7 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 		EventListener ann = AnnotatedElementUtils.findMergedAnnotation(this.targetMethod, EventListener.class);
 		this.declaredEventTypes = resolveDeclaredEventTypes(method, ann);
 		this.condition = (ann != null ? ann.condition() : null);
+		this.partitionKey = (ann != null ? ann.partitionKey() : null);
 		this.order = resolveOrder(this.targetMethod);
 	}
 
@@ -332,6 +336,30 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 		return this.applicationContext.getBean(this.beanName);
 	}
 
+	/**
+	 * Compute the partition key for the handling of the specified event, based
+	 * on the {@link #getPartitionKey() partition key expression}, if any.
+	 * @param event the event to compute the partition key for
+	 * @return the partition key, or {@code null} if no partition key expression
+	 * has been declared or if the event is not handled by this listener
+	 * @since 5.2.13
+	 * @see PartitionedApplicationEventMulticaster
+	 */
+	@Nullable
+	public Object resolvePartitionKey(ApplicationEvent event) {
+		String partitionKey = getPartitionKey();
+		if (!StringUtils.hasText(partitionKey)) {
+			return null;
+		}
+		Object[] args = resolveArguments(event);
+		if (args == null) {
+			return null;
+		}
+		Assert.notNull(this.evaluator, "EventExpressionEvaluator must not be null");
+		return this.evaluator.partitionKey(
+				partitionKey, event, this.targetMethod, this.methodKey, args, this.applicationContext);
+	}
+
 	/**
 	 * Return the condition to use.
 	 * <p>Matches the {@code condition} attribute of the {@link EventListener}
@@ -343,6 +371,18 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 		return this.condition;
 	}
 
+	/**
+	 * Return the partition key expression to use.
+	 * <p>Matches the {@code partitionKey} attribute of the {@link EventListener}
+	 * annotation or any matching attribute on a composed annotation that
+	 * is meta-annotated with {@code @EventListener}.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	protected String getPartitionKey() {
+		return this.partitionKey;
+	}
+
 	/**
 	 * Add additional details such as the bean type and method signature to
 	 * the given error message.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -41,6 +41,8 @@ class EventExpressionEvaluator extends CachedExpressionEvaluator {
 
 	private final Map<ExpressionKey, Expression> conditionCache = new ConcurrentHashMap<>(64);
 
+	private final Map<ExpressionKey, Expression> partitionKeyCache = new ConcurrentHashMap<>(64);
+
 
 	/**
 	 * Determine if the condition defined by the specified expression evaluates
@@ -60,4 +62,22 @@ class EventExpressionEvaluator extends CachedExpressionEvaluator {
 				evaluationContext, Boolean.class)));
 	}
 
+	/**
+	 * Compute the partition key defined by the specified expression.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public Object partitionKey(String partitionKeyExpression, ApplicationEvent event, Method targetMethod,
+			AnnotatedElementKey methodKey, Object[] args, @Nullable BeanFactory beanFactory) {
+
+		EventExpressionRootObject root = new EventExpressionRootObject(event, args);
+		MethodBasedEvaluationContext evaluationContext = new MethodBasedEvaluationContext(
+				root, targetMethod, args, getParameterNameDiscoverer());
+		if (beanFactory != null) {
+			evaluationContext.setBeanResolver(new BeanFactoryResolver(beanFactory));
+		}
+
+		return getExpression(this.partitionKeyCache, methodKey, partitionKeyExpression).getValue(evaluationContext);
+	}
+
 }
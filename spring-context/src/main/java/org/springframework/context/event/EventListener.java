@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -128,4 +128,19 @@ public @interface EventListener {
 	 */
 	String condition() default "";
 
+	/**
+	 * Spring Expression Language (SpEL) expression computing the key that the
+	 * handling of an event by this listener is partitioned by.
+	 * <p>Only applied by a {@link PartitionedApplicationEventMulticaster}, which
+	 * dispatches all events with the same key to the same single-threaded lane,
+	 * preserving their publication order. For example, {@code "#order.id"}
+	 * processes all events for the same order in sequence.
+	 * <p>The default expression is {@code ""}, meaning that the multicaster's
+	 * default partitioning applies. The SpEL expression is evaluated against the
+	 * same context as the {@link #condition}.
+	 * @since 5.2.13
+	 * @see PartitionedApplicationEventMulticaster
+	 */
+	String partitionKey() default "";
+
 }
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Asynchronous {@link ApplicationEventMulticaster} which partitions the
+ * invocations of listeners onto a fixed number of single-threaded lanes,
+ * each with a bounded queue.
+ *
+ * <p>The lane for a listener invocation is selected by a partition key,
+ * so that all invocations with the same key are performed in publication order
+ * on the same thread. The partition key is determined as follows:
+ * <ol>
+ * <li>the {@link EventListener#partitionKey() partitionKey} expression of an
+ * {@code @EventListener} method, if declared</li>
+ * <li>a {@link #addPartitionKeyResolver partition key resolver} registered for
+ * the type of the event or of the payload of a {@link PayloadApplicationEvent}</li>
+ * <li>the event itself, keeping all listener invocations for a given event in
+ * sequence but distributing separate events across lanes</li>
+ * </ol>
+ *
+ * <p>If the queue of a lane is full, the configured {@link OverflowPolicy}
+ * applies, by default blocking the publisher until the lane catches up.
+ * Current queue depths are available through {@link #getQueueDepth(int)}.
+ *
+ * <p>Note that all events, including the application context's own lifecycle
+ * events, are processed asynchronously; a {@link #setTaskExecutor task executor}
+ * is not used by this multicaster. Listener exceptions are passed to the
+ * {@link #setErrorHandler error handler}, if any, or logged otherwise.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see EventListener#partitionKey()
+ */
+public class PartitionedApplicationEventMulticaster extends SimpleApplicationEventMulticaster
+		implements DisposableBean {
+
+	/**
+	 * The default queue capacity per lane.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	private static final Runnable SHUTDOWN_TASK = () -> {};
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final Map<Class<?>, Function<Object, ?>> partitionKeyResolvers = new ConcurrentHashMap<>(8);
+
+	private int laneCount = Runtime.getRuntime().availableProcessors();
+
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	private ThreadFactory threadFactory = createDefaultThreadFactory();
+
+	private long awaitTerminationMillis = 0;
+
+	@Nullable
+	private volatile Lane[] lanes;
+
+	private volatile boolean shutdown;
+
+
+	/**
+	 * Create a new PartitionedApplicationEventMulticaster.
+	 */
+	public PartitionedApplicationEventMulticaster() {
+	}
+
+	/**
+	 * Create a new PartitionedApplicationEventMulticaster for the given BeanFactory.
+	 */
+	public PartitionedApplicationEventMulticaster(BeanFactory beanFactory) {
+		super(beanFactory);
+	}
+
+
+	/**
+	 * Set the number of lanes, i.e. of threads processing events.
+	 * <p>Default is the number of available processors.
+	 */
+	public void setLaneCount(int laneCount) {
+		Assert.isTrue(laneCount > 0, "Lane count must be greater than 0");
+		assertNotStarted();
+		this.laneCount = laneCount;
+	}
+
+	/**
+	 * Return the number of lanes.
+	 */
+	public int getLaneCount() {
+		return this.laneCount;
+	}
+
+	/**
+	 * Set the capacity of the queue of each lane.
+	 * <p>Default is {@link #DEFAULT_QUEUE_CAPACITY}.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be greater than 0");
+		assertNotStarted();
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Set the policy to apply when the queue of a lane is full.
+	 * <p>Default is {@link OverflowPolicy#BLOCK}.
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		Assert.notNull(overflowPolicy, "OverflowPolicy must not be null");
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Set the ThreadFactory to create lane threads with.
+	 * <p>Default is a {@link CustomizableThreadFactory} creating daemon
+	 * threads named "event-lane-" plus a sequence number.
+	 */
+	public void setThreadFactory(ThreadFactory threadFactory) {
+		Assert.notNull(threadFactory, "ThreadFactory must not be null");
+		assertNotStarted();
+		this.threadFactory = threadFactory;
+	}
+
+	/**
+	 * Set the maximum number of seconds that {@link #destroy()} is supposed to
+	 * block for the lanes to process their remaining queued events.
+	 * <p>Default is 0, i.e. not waiting for the lanes to terminate; remaining
+	 * events are processed in the background unless the lane threads are
+	 * daemon threads and the JVM exits in the meantime.
+	 */
+	public void setAwaitTerminationSeconds(int awaitTerminationSeconds) {
+		this.awaitTerminationMillis = TimeUnit.SECONDS.toMillis(awaitTerminationSeconds);
+	}
+
+	/**
+	 * Register a function determining the partition key for events of the
+	 * given type, or for {@link PayloadApplicationEvent payload events} with
+	 * a payload of the given type.
+	 * <p>For example: {@code addPartitionKeyResolver(OrderEvent.class, OrderEvent::getOrderId)}
+	 * @param eventType the event or payload type
+	 * @param resolver the function returning the partition key for a given event
+	 * or payload (or {@code null} for the default partitioning)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void addPartitionKeyResolver(Class<T> eventType, Function<? super T, ?> resolver) {
+		Assert.notNull(eventType, "Event type must not be null");
+		Assert.notNull(resolver, "Resolver must not be null");
+		this.partitionKeyResolvers.put(eventType, (Function<Object, ?>) resolver);
+	}
+
+
+	@Override
+	public void multicastEvent(ApplicationEvent event, @Nullable ResolvableType eventType) {
+		ResolvableType type = (eventType != null ? eventType : ResolvableType.forInstance(event));
+		for (ApplicationListener<?> listener : getApplicationListeners(event, type)) {
+			Object partitionKey = determinePartitionKey(listener, event);
+			dispatch(partitionKey, () -> invokeListener(listener, event));
+		}
+	}
+
+	/**
+	 * Determine the partition key for the invocation of the given listener
+	 * with the given event.
+	 * @param listener the listener to invoke
+	 * @param event the event to process
+	 * @return the partition key (never {@code null})
+	 */
+	protected Object determinePartitionKey(ApplicationListener<?> listener, ApplicationEvent event) {
+		if (listener instanceof ApplicationListenerMethodAdapter) {
+			Object partitionKey = ((ApplicationListenerMethodAdapter) listener).resolvePartitionKey(event);
+			if (partitionKey != null) {
+				return partitionKey;
+			}
+		}
+		if (!this.partitionKeyResolvers.isEmpty()) {
+			Object partitionKey = resolvePartitionKey(event);
+			if (partitionKey == null && event instanceof PayloadApplicationEvent) {
+				partitionKey = resolvePartitionKey(((PayloadApplicationEvent<?>) event).getPayload());
+			}
+			if (partitionKey != null) {
+				return partitionKey;
+			}
+		}
+		return event;
+	}
+
+	@Nullable
+	private Object resolvePartitionKey(Object event) {
+		for (Map.Entry<Class<?>, Function<Object, ?>> entry : this.partitionKeyResolvers.entrySet()) {
+			if (entry.getKey().isInstance(event)) {
+				return entry.getValue().apply(event);
+			}
+		}
+		return null;
+	}
+
+	private void dispatch(Object partitionKey, Runnable task) {
+		Lane[] lanes = obtainLanes();
+		if (lanes == null) {
+			// Shut down already: process in the publishing thread
+			task.run();
+			return;
+		}
+		int hash = partitionKey.hashCode();
+		lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)].enqueue(task);
+	}
+
+	@Nullable
+	private Lane[] obtainLanes() {
+		Lane[] lanes = this.lanes;
+		if (lanes == null) {
+			synchronized (this) {
+				lanes = this.lanes;
+				if (lanes == null && !this.shutdown) {
+					lanes = new Lane[this.laneCount];
+					for (int i = 0; i < lanes.length; i++) {
+						lanes[i] = new Lane(i);
+					}
+					this.lanes = lanes;
+				}
+			}
+		}
+		return lanes;
+	}
+
+	private void assertNotStarted() {
+		Assert.state(this.lanes == null, "PartitionedApplicationEventMulticaster has been started already");
+	}
+
+
+	/**
+	 * Return the number of listener invocations currently queued in the given lane.
+	 * @param lane the index of the lane, between 0 and {@link #getLaneCount()} - 1
+	 */
+	public int getQueueDepth(int lane) {
+		Lane[] lanes = this.lanes;
+		return (lanes != null ? lanes[lane].queue.size() : 0);
+	}
+
+	/**
+	 * Return the total number of listener invocations currently queued in all lanes.
+	 */
+	public int getTotalQueueDepth() {
+		Lane[] lanes = this.lanes;
+		int total = 0;
+		if (lanes != null) {
+			for (Lane lane : lanes) {
+				total += lane.queue.size();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Return the number of listener invocations rejected by the given lane
+	 * according to the {@link OverflowPolicy}.
+	 * @param lane the index of the lane, between 0 and {@link #getLaneCount()} - 1
+	 */
+	public long getRejectedCount(int lane) {
+		Lane[] lanes = this.lanes;
+		return (lanes != null ? lanes[lane].rejectedCount.get() : 0);
+	}
+
+
+	/**
+	 * Stop all lanes, letting them process the events queued so far,
+	 * waiting for them according to the {@link #setAwaitTerminationSeconds
+	 * "awaitTerminationSeconds"} setting.
+	 */
+	@Override
+	public void destroy() {
+		Lane[] lanes;
+		synchronized (this) {
+			this.shutdown = true;
+			lanes = this.lanes;
+			this.lanes = null;
+		}
+		if (lanes == null) {
+			return;
+		}
+		for (Lane lane : lanes) {
+			// A full lane is not waiting for new tasks: it notices the shutdown flag itself
+			lane.queue.offer(SHUTDOWN_TASK);
+		}
+		if (this.awaitTerminationMillis > 0) {
+			long deadline = System.currentTimeMillis() + this.awaitTerminationMillis;
+			try {
+				for (Lane lane : lanes) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining > 0) {
+						lane.thread.join(remaining);
+					}
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static ThreadFactory createDefaultThreadFactory() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("event-lane-");
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+
+	/**
+	 * Policy for a listener invocation that does not fit into the queue of its lane.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * Block the publishing thread until the lane has capacity again.
+		 */
+		BLOCK,
+
+		/**
+		 * Invoke the listener in the publishing thread, giving up the ordering
+		 * guarantee for the partition key in favor of throttling the publisher.
+		 */
+		CALLER_RUNS,
+
+		/**
+		 * Silently drop the new listener invocation.
+		 */
+		DISCARD,
+
+		/**
+		 * Drop the oldest queued listener invocation in the lane,
+		 * then queue the new one.
+		 */
+		DISCARD_OLDEST,
+
+		/**
+		 * Throw a {@link TaskRejectedException} to the publisher.
+		 */
+		ABORT
+	}
+
+
+	/**
+	 * A single-threaded lane with a bounded queue of listener invocations.
+	 */
+	private class Lane implements Runnable {
+
+		private final int index;
+
+		private final BlockingQueue<Runnable> queue;
+
+		private final AtomicLong rejectedCount = new AtomicLong();
+
+		private final Thread thread;
+
+		public Lane(int index) {
+			this.index = index;
+			this.queue = new ArrayBlockingQueue<>(queueCapacity);
+			this.thread = threadFactory.newThread(this);
+			this.thread.start();
+		}
+
+		public void enqueue(Runnable task) {
+			if (this.queue.offer(task)) {
+				return;
+			}
+			switch (overflowPolicy) {
+				case BLOCK:
+					try {
+						this.queue.put(task);
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						this.rejectedCount.incrementAndGet();
+						throw new TaskRejectedException("Interrupted while waiting for event lane " + this.index, ex);
+					}
+					break;
+				case CALLER_RUNS:
+					task.run();
+					break;
+				case DISCARD:
+					reject();
+					break;
+				case DISCARD_OLDEST:
+					do {
+						if (this.queue.poll() != null) {
+							reject();
+						}
+					}
+					while (!this.queue.offer(task));
+					break;
+				case ABORT:
+					reject();
+					throw new TaskRejectedException("Event lane " + this.index + " is full (capacity " +
+							queueCapacity + "): rejected listener invocation");
+			}
+		}
+
+		private void reject() {
+			this.rejectedCount.incrementAndGet();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Discarding listener invocation in full event lane " + this.index);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Runnable task = (shutdown ? this.queue.poll() : this.queue.take());
+					if (task == null || task == SHUTDOWN_TASK) {
+						break;
+					}
+					try {
+						task.run();
+					}
+					catch (Throwable ex) {
+						logger.error("Unexpected error occurred in event listener", ex);
+					}
+				}
+			}
+			catch (InterruptedException ex) {
+				int remaining = this.queue.size();
+				if (remaining > 0 && logger.isWarnEnabled()) {
+					logger.warn("Event lane " + this.index + " interrupted with " + remaining +
+							" pending listener invocations");
+				}
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -72,6 +72,7 @@ import org.springframework.scheduling.config.ScheduledTaskHolder;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.scheduling.support.ScheduledMethodRunnable;
+import org.springframework.scheduling.support.TaskLeaseManager;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.util.StringValueResolver;
@@ -90,6 +91,10 @@ import org.springframework.util.StringValueResolver;
  * control over task registration (e.g. registration of {@link Trigger} tasks.
  * See the @{@link EnableScheduling} javadocs for complete usage details.
  *
+ * <p>As of 5.2.13, a unique {@link TaskLeaseManager} bean in the container is
+ * also autodetected, coordinating scheduled executions across a cluster of nodes
+ * unless a lease manager has been set on the registrar explicitly.
+ *
  * @author Mark Fisher
  * @author Juergen Hoeller
  * @author Chris Beams
@@ -247,6 +252,10 @@ public class ScheduledAnnotationBeanPostProcessor
 			for (SchedulingConfigurer configurer : configurers) {
 				configurer.configureTasks(this.registrar);
 			}
+			if (this.registrar.getTaskLeaseManager() == null) {
+				this.registrar.setTaskLeaseManager(((ListableBeanFactory) this.beanFactory)
+						.getBeanProvider(TaskLeaseManager.class).getIfUnique());
+			}
 		}
 
 		if (this.registrar.hasTasks() && this.registrar.getScheduler() == null) {
@@ -370,6 +379,7 @@ public class ScheduledAnnotationBeanPostProcessor
 			}
 			else {
 				// Non-empty set of methods
+				this.registrar.registerTargetBeanName(bean, beanName);
 				annotatedMethods.forEach((method, scheduledMethods) ->
 						scheduledMethods.forEach(scheduled -> processScheduled(scheduled, method, bean)));
 				if (logger.isTraceEnabled()) {
@@ -567,6 +577,7 @@ public class ScheduledAnnotationBeanPostProcessor
 			for (ScheduledTask task : tasks) {
 				task.cancel();
 			}
+			this.registrar.removeTargetBeanName(bean);
 		}
 	}
 
@@ -0,0 +1,492 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskExecutionMetrics;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.SchedulingTaskExecutor;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
+
+/**
+ * Alternative to {@link ThreadPoolTaskExecutor} which is backed by a
+ * {@link java.util.concurrent.ForkJoinPool} with a work-stealing scheduler,
+ * exposed as a Spring {@link org.springframework.core.task.TaskExecutor}.
+ *
+ * <p>In contrast to the single shared queue of a {@code ThreadPoolExecutor},
+ * every worker thread has its own task deque, with idle workers stealing
+ * tasks from busy ones; tasks submitted from outside of the pool are spread
+ * across several submission queues. This reduces contention for bursty
+ * workloads with many short-lived tasks, e.g. {@code @Async} methods.
+ * The pool runs in FIFO {@link #setAsyncMode "asyncMode"} by default.
+ *
+ * <p>Tasks may be submitted with an affinity key via {@link #execute(Runnable, Object)}:
+ * tasks with the same key are executed one at a time in submission order, by
+ * routing them through one of a fixed number of {@link #setAffinityStripes stripes}.
+ *
+ * <p>A {@link #setQueueCapacity "queueCapacity"} limits the number of tasks
+ * waiting for execution, rejecting further tasks with a {@link TaskRejectedException}.
+ * A {@link TaskExecutionMetrics} instance can be specified for recording
+ * queue wait times, execution times and rejections. Note that a custom
+ * {@link java.util.concurrent.RejectedExecutionHandler} is not supported,
+ * and a custom {@link #setThreadFactory ThreadFactory} is only applied if it
+ * implements {@link ForkJoinPool.ForkJoinWorkerThreadFactory} as well.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see ThreadPoolTaskExecutor
+ * @see ForkJoinPoolFactoryBean
+ * @see TaskExecutionMetrics
+ */
+@SuppressWarnings("serial")
+public class ForkJoinPoolTaskExecutor extends ExecutorConfigurationSupport
+		implements AsyncListenableTaskExecutor, SchedulingTaskExecutor {
+
+	private static final int MAX_STRIPE_BATCH = 64;
+
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private boolean asyncMode = true;
+
+	private int queueCapacity = Integer.MAX_VALUE;
+
+	private int affinityStripes = -1;
+
+	@Nullable
+	private TaskDecorator taskDecorator;
+
+	@Nullable
+	private TaskExecutionMetrics metrics;
+
+	@Nullable
+	private ForkJoinPool forkJoinPool;
+
+	@Nullable
+	private AffinityStripe[] stripes;
+
+	private final AtomicInteger queuedCount = new AtomicInteger();
+
+	// User-level Future handles waiting for execution, to be cancelled on shutdown
+	private final Set<Runnable> queuedFutures = ConcurrentHashMap.newKeySet();
+
+
+	/**
+	 * Specify the parallelism level, i.e. the target number of worker threads.
+	 * Default is {@link Runtime#availableProcessors()}.
+	 */
+	public void setParallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "Parallelism must be positive");
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Return the parallelism level.
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * Set whether to establish a local first-in-first-out scheduling mode
+	 * for forked tasks that are never joined.
+	 * <p>Default is "true", suitable for event-style asynchronous tasks.
+	 * Switch this to "false" for the stack-based mode of fork/join algorithms.
+	 * @see ForkJoinPool#getAsyncMode()
+	 */
+	public void setAsyncMode(boolean asyncMode) {
+		this.asyncMode = asyncMode;
+	}
+
+	/**
+	 * Set the maximum number of tasks waiting for execution, across all
+	 * worker and submission queues. Default is {@code Integer.MAX_VALUE}.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be positive");
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Set the number of stripes for tasks with an affinity key.
+	 * <p>Default is four times the parallelism level. Keys are assigned to
+	 * stripes by hash code, so a higher number reduces the likelihood of
+	 * unrelated keys waiting for each other.
+	 * @see #execute(Runnable, Object)
+	 */
+	public void setAffinityStripes(int affinityStripes) {
+		Assert.isTrue(affinityStripes > 0, "Affinity stripes must be positive");
+		this.affinityStripes = affinityStripes;
+	}
+
+	/**
+	 * Specify a custom {@link TaskDecorator} to be applied to any {@link Runnable}
+	 * about to be executed.
+	 * @see ThreadPoolTaskExecutor#setTaskDecorator
+	 */
+	public void setTaskDecorator(TaskDecorator taskDecorator) {
+		this.taskDecorator = taskDecorator;
+	}
+
+	/**
+	 * Specify a {@link TaskExecutionMetrics} instance to record queue wait
+	 * times, execution times and rejections for this executor.
+	 * <p>A custom {@link #setTaskDecorator TaskDecorator} is applied within
+	 * the measurement of the given metrics.
+	 */
+	public void setTaskExecutionMetrics(TaskExecutionMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Return the {@link TaskExecutionMetrics} for this executor, if any.
+	 */
+	@Nullable
+	public TaskExecutionMetrics getTaskExecutionMetrics() {
+		return this.metrics;
+	}
+
+
+	@Override
+	protected ExecutorService initializeExecutor(
+			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		ForkJoinPool.ForkJoinWorkerThreadFactory workerThreadFactory =
+				(threadFactory instanceof ForkJoinPool.ForkJoinWorkerThreadFactory ?
+						(ForkJoinPool.ForkJoinWorkerThreadFactory) threadFactory : this::newWorkerThread);
+		this.forkJoinPool = new ForkJoinPool(this.parallelism, workerThreadFactory, null, this.asyncMode);
+		int stripeCount = (this.affinityStripes > 0 ? this.affinityStripes : this.parallelism * 4);
+		AffinityStripe[] stripes = new AffinityStripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new AffinityStripe();
+		}
+		this.stripes = stripes;
+		return new ForkJoinPoolShutdownAdapter(this.forkJoinPool);
+	}
+
+	private ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+		ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {};
+		thread.setName(nextThreadName());
+		thread.setPriority(getThreadPriority());
+		thread.setDaemon(isDaemon());
+		return thread;
+	}
+
+	/**
+	 * Return the underlying ForkJoinPool for native access.
+	 * @return the underlying ForkJoinPool (never {@code null})
+	 * @throws IllegalStateException if the ForkJoinPoolTaskExecutor hasn't been initialized yet
+	 */
+	public ForkJoinPool getForkJoinPool() throws IllegalStateException {
+		Assert.state(this.forkJoinPool != null, "ForkJoinPoolTaskExecutor not initialized");
+		return this.forkJoinPool;
+	}
+
+	/**
+	 * Return the current number of worker threads.
+	 * @see ForkJoinPool#getPoolSize()
+	 */
+	public int getPoolSize() {
+		return (this.forkJoinPool != null ? this.forkJoinPool.getPoolSize() : 0);
+	}
+
+	/**
+	 * Return the number of currently active threads (an estimate).
+	 * @see ForkJoinPool#getActiveThreadCount()
+	 */
+	public int getActiveCount() {
+		return (this.forkJoinPool != null ? this.forkJoinPool.getActiveThreadCount() : 0);
+	}
+
+	/**
+	 * Return the number of tasks waiting for execution.
+	 */
+	public int getQueuedTaskCount() {
+		return this.queuedCount.get();
+	}
+
+	/**
+	 * Return the total number of tasks stolen from one worker's deque
+	 * by another worker (an estimate).
+	 * @see ForkJoinPool#getStealCount()
+	 */
+	public long getStealCount() {
+		return (this.forkJoinPool != null ? this.forkJoinPool.getStealCount() : 0);
+	}
+
+
+	@Override
+	public void execute(Runnable task) {
+		ForkJoinPool pool = getForkJoinPool();
+		Runnable queuedTask = queue(task);
+		try {
+			pool.execute(queuedTask);
+		}
+		catch (RejectedExecutionException ex) {
+			throw rejected(task, ex);
+		}
+	}
+
+	/**
+	 * Execute the given task with an affinity to the given key: tasks with
+	 * the same key are executed one at a time, in the order of submission.
+	 * @param task the {@code Runnable} to execute (never {@code null})
+	 * @param affinityKey the key to serialize the execution on
+	 * @throws TaskRejectedException if the given task was not accepted
+	 * @see #setAffinityStripes
+	 */
+	public void execute(Runnable task, Object affinityKey) {
+		ForkJoinPool pool = getForkJoinPool();
+		Assert.state(this.stripes != null, "ForkJoinPoolTaskExecutor not initialized");
+		AffinityStripe stripe = this.stripes[Math.floorMod(affinityKey.hashCode(), this.stripes.length)];
+		QueuedTask queuedTask = queue(task);
+		stripe.tasks.add(queuedTask);
+		if (stripe.size.getAndIncrement() == 0) {
+			try {
+				pool.execute(stripe);
+			}
+			catch (RejectedExecutionException ex) {
+				// Withdraw this task unless already run, rejecting any others queued in the meantime
+				boolean withdrawn = stripe.tasks.remove(queuedTask);
+				if (stripe.size.decrementAndGet() > 0) {
+					stripe.rejectRemaining(ex);
+				}
+				if (withdrawn) {
+					throw rejected(task, ex);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void execute(Runnable task, long startTimeout) {
+		execute(task);
+	}
+
+	@Override
+	public Future<?> submit(Runnable task) {
+		FutureTask<Object> future = new FutureTask<>(task, null);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> task) {
+		FutureTask<T> future = new FutureTask<>(task);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public ListenableFuture<?> submitListenable(Runnable task) {
+		ListenableFutureTask<Object> future = new ListenableFutureTask<>(task, null);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
+		ListenableFutureTask<T> future = new ListenableFutureTask<>(task);
+		execute(future);
+		return future;
+	}
+
+	/**
+	 * Decorate the given task and register it as waiting for execution,
+	 * enforcing the queue capacity.
+	 */
+	private QueuedTask queue(Runnable task) {
+		if (this.queuedCount.incrementAndGet() > this.queueCapacity) {
+			throw rejected(task, null);
+		}
+		Runnable decorated = task;
+		if (this.taskDecorator != null) {
+			decorated = this.taskDecorator.decorate(decorated);
+		}
+		if (this.metrics != null) {
+			decorated = this.metrics.decorate(decorated);
+		}
+		if (task instanceof Future) {
+			this.queuedFutures.add(task);
+		}
+		return new QueuedTask(task, decorated);
+	}
+
+	private TaskRejectedException rejected(Runnable task, @Nullable RejectedExecutionException ex) {
+		this.queuedCount.decrementAndGet();
+		this.queuedFutures.remove(task);
+		if (this.metrics != null) {
+			this.metrics.recordRejection();
+		}
+		String msg = "Executor [" + this.forkJoinPool + "] did not accept task: " + task;
+		return (ex != null ? new TaskRejectedException(msg, ex) :
+				new TaskRejectedException(msg + " (queue capacity " + this.queueCapacity + " reached)"));
+	}
+
+
+	/**
+	 * A task waiting for execution, unregistering itself when started.
+	 */
+	private class QueuedTask implements Runnable {
+
+		final Runnable task;
+
+		private final Runnable decorated;
+
+		QueuedTask(Runnable task, Runnable decorated) {
+			this.task = task;
+			this.decorated = decorated;
+		}
+
+		@Override
+		public void run() {
+			queuedCount.decrementAndGet();
+			if (this.task instanceof Future) {
+				queuedFutures.remove(this.task);
+			}
+			this.decorated.run();
+		}
+	}
+
+
+	/**
+	 * A stripe of tasks sharing an affinity key hash, scheduled on the pool
+	 * as a single task which drains the stripe's queue in batches.
+	 */
+	private class AffinityStripe implements Runnable {
+
+		final Queue<QueuedTask> tasks = new ConcurrentLinkedQueue<>();
+
+		final AtomicInteger size = new AtomicInteger();
+
+		@Override
+		public void run() {
+			for (int i = 0; i < MAX_STRIPE_BATCH; i++) {
+				QueuedTask task = this.tasks.poll();
+				if (task != null) {
+					try {
+						task.run();
+					}
+					catch (Throwable ex) {
+						logger.error("Unexpected error occurred in task with affinity key", ex);
+					}
+				}
+				if (this.size.decrementAndGet() == 0) {
+					return;
+				}
+			}
+			// Let other tasks through before continuing with this stripe
+			try {
+				getForkJoinPool().execute(this);
+			}
+			catch (RejectedExecutionException ex) {
+				rejectRemaining(ex);
+			}
+		}
+
+		/**
+		 * Reject the remaining tasks in this stripe since the stripe could not
+		 * be scheduled, cancelling them if they are {@code Future} handles.
+		 * To be called by the current owner of the stripe only.
+		 */
+		void rejectRemaining(RejectedExecutionException ex) {
+			do {
+				QueuedTask task = this.tasks.poll();
+				if (task != null) {
+					TaskRejectedException rejection = rejected(task.task, ex);
+					if (task.task instanceof Future) {
+						((Future<?>) task.task).cancel(false);
+					}
+					logger.warn(rejection.getMessage());
+				}
+			}
+			while (this.size.decrementAndGet() > 0);
+		}
+	}
+
+
+	/**
+	 * ExecutorService view on the ForkJoinPool for the shutdown handling in
+	 * the base class, exposing user-level Future handles which never started
+	 * on {@link #shutdownNow()} (since the pool itself does not return them).
+	 */
+	private class ForkJoinPoolShutdownAdapter extends AbstractExecutorService {
+
+		private final ForkJoinPool pool;
+
+		ForkJoinPoolShutdownAdapter(ForkJoinPool pool) {
+			this.pool = pool;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			ForkJoinPoolTaskExecutor.this.execute(command);
+		}
+
+		@Override
+		public void shutdown() {
+			this.pool.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			this.pool.shutdownNow();
+			List<Runnable> remainingTasks = new ArrayList<>(queuedFutures);
+			queuedFutures.clear();
+			return remainingTasks;
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return this.pool.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return this.pool.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return this.pool.awaitTermination(timeout, unit);
+		}
+	}
+
+}
@@ -0,0 +1,722 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+import org.springframework.scheduling.support.TaskUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * {@link TaskScheduler} implementation based on a hashed timing wheel,
+ * designed for a very large number of scheduled tasks with coarse-grained
+ * timing requirements, e.g. per-session timeouts or heartbeats.
+ *
+ * <p>In contrast to {@link ThreadPoolTaskScheduler}, which keeps all tasks
+ * in the binary heap of a {@code ScheduledThreadPoolExecutor}, scheduling and
+ * cancelling a task is an O(1) operation here: new tasks are handed over to
+ * the timer thread through a lock-free queue, and each task is kept in the
+ * bucket of the wheel corresponding to its deadline, with the number of
+ * remaining revolutions for deadlines beyond a single revolution. The timer
+ * thread advances the wheel by one bucket per {@link #setTickDuration tick},
+ * so tasks fire with a precision of the tick duration.
+ *
+ * <p>All tasks expiring within the same tick are collected and handed to the
+ * {@link #setTaskExecutor task executor} in batches. By default, tasks are
+ * executed on the timer thread itself, which is only appropriate for short
+ * non-blocking tasks; specify an executor for anything else.
+ *
+ * <p>The timer thread is started on demand with the first scheduled task
+ * and stopped on {@link #destroy()}, cancelling all remaining tasks.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see #setTickDuration
+ * @see #setTicksPerWheel
+ * @see #setTaskExecutor
+ */
+public class HashedWheelTaskScheduler implements TaskScheduler, DisposableBean {
+
+	/**
+	 * The default tick duration: 10 milliseconds.
+	 */
+	public static final long DEFAULT_TICK_DURATION = 10;
+
+	/**
+	 * The default number of buckets in the wheel: 512.
+	 */
+	public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+	/**
+	 * The default maximum number of tasks handed to the executor at once: 64.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private long tickNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TICK_DURATION);
+
+	private int ticksPerWheel = DEFAULT_TICKS_PER_WHEEL;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	@Nullable
+	private Executor taskExecutor;
+
+	@Nullable
+	private ErrorHandler errorHandler;
+
+	private ThreadFactory threadFactory = new CustomizableThreadFactory("wheel-timer-");
+
+	private final Queue<WheelTask> pendingTasks = new ConcurrentLinkedQueue<>();
+
+	private final Queue<WheelTask> cancelledTasks = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger scheduledTaskCount = new AtomicInteger();
+
+	@Nullable
+	private volatile Thread timerThread;
+
+	private volatile long startTime;
+
+	private volatile boolean shutdown;
+
+
+	/**
+	 * Set the duration of a single tick in milliseconds, i.e. the precision
+	 * of this scheduler. Default is {@link #DEFAULT_TICK_DURATION}.
+	 */
+	public void setTickDuration(long tickDuration) {
+		Assert.isTrue(tickDuration > 0, "Tick duration must be greater than 0");
+		assertNotStarted();
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+	}
+
+	/**
+	 * Set the number of buckets in the wheel, rounded up to a power of two.
+	 * Default is {@link #DEFAULT_TICKS_PER_WHEEL}.
+	 * <p>Tasks with a deadline beyond a single revolution of the wheel
+	 * (number of ticks times tick duration) are revisited once per revolution,
+	 * so a larger wheel reduces that overhead at the cost of memory.
+	 */
+	public void setTicksPerWheel(int ticksPerWheel) {
+		Assert.isTrue(ticksPerWheel > 0 && ticksPerWheel <= (1 << 30), "Ticks per wheel must be between 1 and 2^30");
+		assertNotStarted();
+		int normalized = 1;
+		while (normalized < ticksPerWheel) {
+			normalized <<= 1;
+		}
+		this.ticksPerWheel = normalized;
+	}
+
+	/**
+	 * Set the maximum number of tasks expiring within the same tick to hand
+	 * over to the {@link #setTaskExecutor task executor} as a single batch,
+	 * executing them one after the other. Default is {@link #DEFAULT_BATCH_SIZE};
+	 * specify 1 for an individual hand-off of each task.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the executor to run expired tasks with, e.g. a
+	 * {@link ThreadPoolTaskExecutor} or a {@code VirtualThreadTaskExecutor}.
+	 * <p>Default is none, running expired tasks on the timer thread.
+	 */
+	public void setTaskExecutor(@Nullable Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Provide an {@link ErrorHandler} strategy.
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * Set the ThreadFactory to create the timer thread with.
+	 * <p>Default is a {@link CustomizableThreadFactory} with thread name
+	 * prefix "wheel-timer-".
+	 */
+	public void setThreadFactory(ThreadFactory threadFactory) {
+		Assert.notNull(threadFactory, "ThreadFactory must not be null");
+		assertNotStarted();
+		this.threadFactory = threadFactory;
+	}
+
+	/**
+	 * Return the number of tasks currently scheduled, including periodic tasks
+	 * which have not been cancelled yet.
+	 */
+	public int getScheduledTaskCount() {
+		return this.scheduledTaskCount.get();
+	}
+
+	private void assertNotStarted() {
+		Assert.state(this.timerThread == null, "HashedWheelTaskScheduler has been started already");
+	}
+
+
+	// TaskScheduler implementation
+
+	@Override
+	@Nullable
+	public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+		SimpleTriggerContext triggerContext = new SimpleTriggerContext();
+		Date firstExecution = trigger.nextExecutionTime(triggerContext);
+		if (firstExecution == null) {
+			return null;
+		}
+		WheelTask wheelTask = new TriggerTask(errorHandlingTask(task, true), trigger, triggerContext, firstExecution);
+		return schedule(wheelTask, delayUntil(firstExecution));
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+		return schedule(new WheelTask(errorHandlingTask(task, false)), delayUntil(startTime));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+		Assert.isTrue(period > 0, "Period must be greater than 0");
+		return schedule(new PeriodicTask(errorHandlingTask(task, true), period, true), delayUntil(startTime));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+		Assert.isTrue(period > 0, "Period must be greater than 0");
+		return schedule(new PeriodicTask(errorHandlingTask(task, true), period, true), 0);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+		Assert.isTrue(delay > 0, "Delay must be greater than 0");
+		return schedule(new PeriodicTask(errorHandlingTask(task, true), delay, false), delayUntil(startTime));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+		Assert.isTrue(delay > 0, "Delay must be greater than 0");
+		return schedule(new PeriodicTask(errorHandlingTask(task, true), delay, false), 0);
+	}
+
+	private Runnable errorHandlingTask(Runnable task, boolean isRepeatingTask) {
+		return TaskUtils.decorateTaskWithErrorHandler(task, this.errorHandler, isRepeatingTask);
+	}
+
+	private static long delayUntil(Date time) {
+		return TimeUnit.MILLISECONDS.toNanos(Math.max(time.getTime() - System.currentTimeMillis(), 0));
+	}
+
+	private WheelTask schedule(WheelTask task, long delayNanos) {
+		if (this.shutdown) {
+			throw new TaskRejectedException("HashedWheelTaskScheduler has been shut down");
+		}
+		startIfNecessary();
+		this.scheduledTaskCount.incrementAndGet();
+		enqueue(task, System.nanoTime() - this.startTime + delayNanos);
+		return task;
+	}
+
+	private void enqueue(WheelTask task, long deadline) {
+		task.deadline = deadline;
+		this.pendingTasks.add(task);
+	}
+
+	private void startIfNecessary() {
+		if (this.timerThread == null) {
+			synchronized (this) {
+				if (this.timerThread == null && !this.shutdown) {
+					this.startTime = System.nanoTime();
+					Thread thread = this.threadFactory.newThread(new Worker());
+					this.timerThread = thread;
+					thread.start();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Stop the timer thread, cancelling all remaining tasks.
+	 * Tasks which are currently executing are not interrupted.
+	 */
+	@Override
+	public void destroy() {
+		Thread thread;
+		synchronized (this) {
+			this.shutdown = true;
+			thread = this.timerThread;
+		}
+		if (thread != null && thread != Thread.currentThread()) {
+			thread.interrupt();
+			try {
+				thread.join(TimeUnit.NANOSECONDS.toMillis(this.tickNanos) * 10);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		else {
+			cancelAll(this.pendingTasks);
+		}
+	}
+
+	private void cancelAll(Queue<WheelTask> tasks) {
+		WheelTask task;
+		while ((task = tasks.poll()) != null) {
+			task.cancel(false);
+		}
+	}
+
+
+	/**
+	 * The timer thread: advances the wheel tick by tick,
+	 * dispatching the tasks expired in the current bucket.
+	 */
+	private class Worker implements Runnable {
+
+		private final Bucket[] wheel;
+
+		private final int mask;
+
+		private long tick;
+
+		public Worker() {
+			this.wheel = new Bucket[ticksPerWheel];
+			for (int i = 0; i < this.wheel.length; i++) {
+				this.wheel[i] = new Bucket();
+			}
+			this.mask = this.wheel.length - 1;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!shutdown) {
+					long deadline = waitForNextTick();
+					if (deadline < 0) {
+						break;
+					}
+					removeCancelledTasks();
+					transferPendingTasks();
+					List<WheelTask> expired = this.wheel[(int) (this.tick & this.mask)].expire(deadline);
+					if (!expired.isEmpty()) {
+						dispatch(expired);
+					}
+					this.tick++;
+				}
+			}
+			finally {
+				for (Bucket bucket : this.wheel) {
+					bucket.cancelAll();
+				}
+				cancelAll(pendingTasks);
+				cancelledTasks.clear();
+			}
+		}
+
+		private long waitForNextTick() {
+			long deadline = tickNanos * (this.tick + 1);
+			while (true) {
+				long currentTime = System.nanoTime() - startTime;
+				long sleepMillis = TimeUnit.NANOSECONDS.toMillis(deadline - currentTime + 999999);
+				if (sleepMillis <= 0) {
+					return currentTime;
+				}
+				try {
+					Thread.sleep(sleepMillis);
+				}
+				catch (InterruptedException ex) {
+					if (shutdown) {
+						return -1;
+					}
+				}
+			}
+		}
+
+		private void removeCancelledTasks() {
+			WheelTask task;
+			while ((task = cancelledTasks.poll()) != null) {
+				Bucket bucket = task.bucket;
+				if (bucket != null) {
+					bucket.remove(task);
+				}
+			}
+		}
+
+		private void transferPendingTasks() {
+			for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+				WheelTask task = pendingTasks.poll();
+				if (task == null) {
+					break;
+				}
+				if (task.isFinished()) {
+					continue;
+				}
+				long calculated = task.deadline / tickNanos;
+				task.remainingRounds = (calculated - this.tick) / this.wheel.length;
+				// Ensure that tasks with a past deadline are processed in the current tick
+				long ticks = Math.max(calculated, this.tick);
+				this.wheel[(int) (ticks & this.mask)].add(task);
+			}
+		}
+
+		private void dispatch(List<WheelTask> expired) {
+			Executor executor = taskExecutor;
+			if (executor == null) {
+				for (WheelTask task : expired) {
+					task.execute();
+				}
+				return;
+			}
+			for (int from = 0; from < expired.size(); from += batchSize) {
+				List<WheelTask> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+				try {
+					if (batch.size() == 1) {
+						executor.execute(batch.get(0)::execute);
+					}
+					else {
+						executor.execute(() -> batch.forEach(WheelTask::execute));
+					}
+				}
+				catch (RejectedExecutionException ex) {
+					logger.warn("Executor [" + executor + "] did not accept " + batch.size() + " expired tasks", ex);
+					for (WheelTask task : batch) {
+						task.reject(ex);
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * A bucket of the wheel: a doubly-linked list of tasks,
+	 * only ever accessed by the timer thread.
+	 */
+	private static class Bucket {
+
+		@Nullable
+		private WheelTask head;
+
+		@Nullable
+		private WheelTask tail;
+
+		public void add(WheelTask task) {
+			task.bucket = this;
+			if (this.head == null) {
+				this.head = this.tail = task;
+			}
+			else {
+				Assert.state(this.tail != null, "No tail");
+				this.tail.next = task;
+				task.prev = this.tail;
+				this.tail = task;
+			}
+		}
+
+		public List<WheelTask> expire(long deadline) {
+			List<WheelTask> expired = null;
+			WheelTask task = this.head;
+			while (task != null) {
+				WheelTask next = task.next;
+				if (task.isFinished()) {
+					remove(task);
+				}
+				else if (task.remainingRounds <= 0 && task.deadline <= deadline) {
+					remove(task);
+					if (expired == null) {
+						expired = new ArrayList<>();
+					}
+					expired.add(task);
+				}
+				else if (task.remainingRounds > 0) {
+					task.remainingRounds--;
+				}
+				task = next;
+			}
+			return (expired != null ? expired : new ArrayList<>(0));
+		}
+
+		public void remove(WheelTask task) {
+			if (task.bucket != this) {
+				return;
+			}
+			WheelTask next = task.next;
+			if (task.prev != null) {
+				task.prev.next = next;
+			}
+			if (next != null) {
+				next.prev = task.prev;
+			}
+			if (task == this.head) {
+				this.head = next;
+			}
+			if (task == this.tail) {
+				this.tail = task.prev;
+			}
+			task.prev = null;
+			task.next = null;
+			task.bucket = null;
+		}
+
+		public void cancelAll() {
+			WheelTask task = this.head;
+			while (task != null) {
+				WheelTask next = task.next;
+				remove(task);
+				task.cancel(false);
+				task = next;
+			}
+		}
+	}
+
+
+	/**
+	 * A one-time task in the wheel, exposed as its own ScheduledFuture.
+	 */
+	private class WheelTask implements ScheduledFuture<Object> {
+
+		protected final Runnable runnable;
+
+		private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+		private final AtomicBoolean finished = new AtomicBoolean();
+
+		/** Deadline in nanoseconds relative to the start time of the scheduler. */
+		volatile long deadline;
+
+		// Fields only accessed by the timer thread
+
+		long remainingRounds;
+
+		@Nullable
+		Bucket bucket;
+
+		@Nullable
+		WheelTask prev;
+
+		@Nullable
+		WheelTask next;
+
+		public WheelTask(Runnable runnable) {
+			this.runnable = runnable;
+		}
+
+		public void execute() {
+			if (isFinished()) {
+				return;
+			}
+			try {
+				this.runnable.run();
+			}
+			catch (Throwable ex) {
+				if (finish()) {
+					this.future.completeExceptionally(ex);
+				}
+				return;
+			}
+			afterExecution();
+		}
+
+		protected void afterExecution() {
+			complete();
+		}
+
+		protected void complete() {
+			if (finish()) {
+				this.future.complete(null);
+			}
+		}
+
+		public boolean isFinished() {
+			return this.finished.get();
+		}
+
+		private boolean finish() {
+			if (this.finished.compareAndSet(false, true)) {
+				scheduledTaskCount.decrementAndGet();
+				return true;
+			}
+			return false;
+		}
+
+		protected void reschedule(long deadline) {
+			if (isFinished()) {
+				return;
+			}
+			if (shutdown) {
+				cancel(false);
+				return;
+			}
+			enqueue(this, deadline);
+		}
+
+		public void reject(RejectedExecutionException ex) {
+			if (finish()) {
+				this.future.completeExceptionally(
+						new TaskRejectedException("Executor did not accept task: " + this.runnable, ex));
+			}
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(this.deadline - (System.nanoTime() - startTime), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (this == other) {
+				return 0;
+			}
+			long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+			return (diff == 0 ? 0 : (diff < 0 ? -1 : 1));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			if (!finish()) {
+				return false;
+			}
+			this.future.cancel(false);
+			cancelledTasks.add(this);
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return this.future.isCancelled();
+		}
+
+		@Override
+		public boolean isDone() {
+			return this.future.isDone();
+		}
+
+		@Override
+		public Object get() throws InterruptedException, ExecutionException {
+			return this.future.get();
+		}
+
+		@Override
+		public Object get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException, TimeoutException {
+
+			return this.future.get(timeout, unit);
+		}
+	}
+
+
+	/**
+	 * A task repeatedly executed at a fixed rate or with a fixed delay.
+	 */
+	private class PeriodicTask extends WheelTask {
+
+		private final long periodNanos;
+
+		private final boolean fixedRate;
+
+		public PeriodicTask(Runnable runnable, long periodMillis, boolean fixedRate) {
+			super(runnable);
+			this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+			this.fixedRate = fixedRate;
+		}
+
+		@Override
+		protected void afterExecution() {
+			reschedule(this.fixedRate ? this.deadline + this.periodNanos :
+					System.nanoTime() - startTime + this.periodNanos);
+		}
+	}
+
+
+	/**
+	 * A task repeatedly executed according to a {@link Trigger}.
+	 */
+	private class TriggerTask extends WheelTask {
+
+		private final Trigger trigger;
+
+		private final SimpleTriggerContext triggerContext;
+
+		private volatile Date scheduledExecutionTime;
+
+		@Nullable
+		private volatile Date actualExecutionTime;
+
+		public TriggerTask(Runnable runnable, Trigger trigger, SimpleTriggerContext triggerContext,
+				Date scheduledExecutionTime) {
+
+			super(runnable);
+			this.trigger = trigger;
+			this.triggerContext = triggerContext;
+			this.scheduledExecutionTime = scheduledExecutionTime;
+		}
+
+		@Override
+		public void execute() {
+			this.actualExecutionTime = new Date();
+			super.execute();
+		}
+
+		@Override
+		protected void afterExecution() {
+			this.triggerContext.update(this.scheduledExecutionTime, this.actualExecutionTime, new Date());
+			Date nextExecutionTime = this.trigger.nextExecutionTime(this.triggerContext);
+			if (nextExecutionTime == null) {
+				complete();
+			}
+			else {
+				this.scheduledExecutionTime = nextExecutionTime;
+				reschedule(System.nanoTime() - startTime + delayUntil(nextExecutionTime));
+			}
+		}
+	}
+
+}
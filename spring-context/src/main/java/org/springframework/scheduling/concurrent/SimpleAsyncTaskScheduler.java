@@ -0,0 +1,212 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.TaskUtils;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * A simple implementation of Spring's {@link TaskScheduler} interface, using
+ * a single scheduler thread and executing every scheduled task in an individual
+ * separate thread, as created by the {@link SimpleAsyncTaskExecutor} base class.
+ *
+ * <p>This is particularly useful in combination with {@link #setVirtualThreads
+ * virtual threads} on JDK 21+: in contrast to a fixed-size scheduler pool such
+ * as {@link ThreadPoolTaskScheduler}, a long-running or blocking task does not
+ * hold up other scheduled tasks. The {@link #setConcurrencyLimit concurrency limit}
+ * of the base class applies to the execution of scheduled tasks as well, blocking
+ * the scheduler thread once the limit has been reached.
+ *
+ * <p>Note that fixed-delay tasks are executed on the single scheduler thread
+ * itself, since the next execution depends on the completion of the current one;
+ * trigger-based, one-time and fixed-rate tasks are handed off to a separate
+ * thread for each execution, with a {@link Trigger} observing the hand-off
+ * as completion time.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see #setVirtualThreads
+ * @see #setConcurrencyLimit
+ * @see ThreadPoolTaskScheduler
+ */
+@SuppressWarnings("serial")
+public class SimpleAsyncTaskScheduler extends SimpleAsyncTaskExecutor implements TaskScheduler, DisposableBean {
+
+	private final ScheduledThreadPoolExecutor scheduledExecutor = createScheduledExecutor();
+
+	@Nullable
+	private ErrorHandler errorHandler;
+
+
+	/**
+	 * Create a new SimpleAsyncTaskScheduler with default thread name prefix.
+	 */
+	public SimpleAsyncTaskScheduler() {
+		super();
+	}
+
+	/**
+	 * Create a new SimpleAsyncTaskScheduler with the given thread name prefix.
+	 * @param threadNamePrefix the prefix to use for the names of newly created threads
+	 */
+	public SimpleAsyncTaskScheduler(String threadNamePrefix) {
+		super(threadNamePrefix);
+	}
+
+
+	/**
+	 * Provide an {@link ErrorHandler} strategy.
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	private ScheduledThreadPoolExecutor createScheduledExecutor() {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+			Thread thread = createThread(task);
+			thread.setName(getThreadNamePrefix() + "scheduler");
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+		return executor;
+	}
+
+
+	@Override
+	@Nullable
+	public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+		try {
+			ErrorHandler errorHandler = this.errorHandler;
+			if (errorHandler == null) {
+				errorHandler = TaskUtils.getDefaultErrorHandler(true);
+			}
+			return new ReschedulingRunnable(
+					scheduledTask(task, errorHandler), trigger, this.scheduledExecutor, errorHandler).schedule();
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException("Scheduler did not accept task: " + task, ex);
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+		long initialDelay = startTime.getTime() - System.currentTimeMillis();
+		try {
+			return this.scheduledExecutor.schedule(
+					scheduledTask(task, errorHandler(false)), initialDelay, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException("Scheduler did not accept task: " + task, ex);
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+		long initialDelay = startTime.getTime() - System.currentTimeMillis();
+		try {
+			return this.scheduledExecutor.scheduleAtFixedRate(
+					scheduledTask(task, errorHandler(true)), initialDelay, period, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException("Scheduler did not accept task: " + task, ex);
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+		try {
+			return this.scheduledExecutor.scheduleAtFixedRate(
+					scheduledTask(task, errorHandler(true)), 0, period, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException("Scheduler did not accept task: " + task, ex);
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+		long initialDelay = startTime.getTime() - System.currentTimeMillis();
+		try {
+			return this.scheduledExecutor.scheduleWithFixedDelay(
+					TaskUtils.decorateTaskWithErrorHandler(task, this.errorHandler, true),
+					initialDelay, delay, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException("Scheduler did not accept task: " + task, ex);
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+		try {
+			return this.scheduledExecutor.scheduleWithFixedDelay(
+					TaskUtils.decorateTaskWithErrorHandler(task, this.errorHandler, true),
+					0, delay, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException("Scheduler did not accept task: " + task, ex);
+		}
+	}
+
+	private ErrorHandler errorHandler(boolean isRepeatingTask) {
+		return (this.errorHandler != null ? this.errorHandler : TaskUtils.getDefaultErrorHandler(isRepeatingTask));
+	}
+
+	/**
+	 * Wrap the given task for execution in a separate thread, with the
+	 * given ErrorHandler applied within the actual execution thread.
+	 * <p>A rejected hand-off is reported to the ErrorHandler as well, rather
+	 * than propagated to the scheduler thread (which would cancel any further
+	 * executions of a repeating task).
+	 */
+	private Runnable scheduledTask(Runnable task, ErrorHandler errorHandler) {
+		Runnable errorHandlingTask = TaskUtils.decorateTaskWithErrorHandler(task, errorHandler, false);
+		return () -> {
+			try {
+				execute(errorHandlingTask);
+			}
+			catch (TaskRejectedException ex) {
+				errorHandler.handleError(ex);
+			}
+		};
+	}
+
+
+	/**
+	 * Shut down the scheduler thread, cancelling all scheduled tasks.
+	 * Tasks which are currently executing in their own threads are not affected.
+	 */
+	@Override
+	public void destroy() {
+		this.scheduledExecutor.shutdownNow();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskExecutionMetrics;
 import org.springframework.core.task.TaskRejectedException;
 import org.springframework.lang.Nullable;
 import org.springframework.scheduling.SchedulingTaskExecutor;
@@ -71,12 +72,17 @@ import org.springframework.util.concurrent.ListenableFutureTask;
  * Spring {@link org.springframework.core.task.TaskExecutor}, simply wrap it with a
  * {@link org.springframework.scheduling.concurrent.ConcurrentTaskExecutor} adapter.
  *
+ * <p>For bursty workloads with many short-lived tasks, consider the work-stealing
+ * {@link ForkJoinPoolTaskExecutor} instead. Either executor can expose queue wait
+ * times, execution times and rejections through {@link TaskExecutionMetrics}.
+ *
  * @author Juergen Hoeller
  * @since 2.0
  * @see org.springframework.core.task.TaskExecutor
  * @see java.util.concurrent.ThreadPoolExecutor
  * @see ThreadPoolExecutorFactoryBean
  * @see ConcurrentTaskExecutor
+ * @see ForkJoinPoolTaskExecutor
  */
 @SuppressWarnings("serial")
 public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
@@ -97,6 +103,9 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 	@Nullable
 	private TaskDecorator taskDecorator;
 
+	@Nullable
+	private TaskExecutionMetrics metrics;
+
 	@Nullable
 	private ThreadPoolExecutor threadPoolExecutor;
 
@@ -218,6 +227,26 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 		this.taskDecorator = taskDecorator;
 	}
 
+	/**
+	 * Specify a {@link TaskExecutionMetrics} instance to record queue wait
+	 * times, execution times and rejections for this executor.
+	 * <p>A custom {@link #setTaskDecorator TaskDecorator} is applied within
+	 * the measurement of the given metrics.
+	 * @since 5.2.13
+	 */
+	public void setTaskExecutionMetrics(TaskExecutionMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Return the {@link TaskExecutionMetrics} for this executor, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public TaskExecutionMetrics getTaskExecutionMetrics() {
+		return this.metrics;
+	}
+
 
 	/**
 	 * Note: This method exposes an {@link ExecutorService} to its base class
@@ -231,14 +260,26 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 
 		BlockingQueue<Runnable> queue = createQueue(this.queueCapacity);
 
+		TaskDecorator taskDecorator = this.taskDecorator;
+		RejectedExecutionHandler handlerToUse = rejectedExecutionHandler;
+		TaskExecutionMetrics metrics = this.metrics;
+		if (metrics != null) {
+			taskDecorator = (taskDecorator != null ? metrics.decorate(taskDecorator) : metrics);
+			handlerToUse = (task, pool) -> {
+				metrics.recordRejection();
+				rejectedExecutionHandler.rejectedExecution(task, pool);
+			};
+		}
+
 		ThreadPoolExecutor executor;
-		if (this.taskDecorator != null) {
+		if (taskDecorator != null) {
+			TaskDecorator decoratorToUse = taskDecorator;
 			executor = new ThreadPoolExecutor(
 					this.corePoolSize, this.maxPoolSize, this.keepAliveSeconds, TimeUnit.SECONDS,
-					queue, threadFactory, rejectedExecutionHandler) {
+					queue, threadFactory, handlerToUse) {
 				@Override
 				public void execute(Runnable command) {
-					Runnable decorated = taskDecorator.decorate(command);
+					Runnable decorated = decoratorToUse.decorate(command);
 					if (decorated != command) {
 						decoratedTaskMap.put(decorated, command);
 					}
@@ -249,8 +290,7 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 		else {
 			executor = new ThreadPoolExecutor(
 					this.corePoolSize, this.maxPoolSize, this.keepAliveSeconds, TimeUnit.SECONDS,
-					queue, threadFactory, rejectedExecutionHandler);
-
+					queue, threadFactory, handlerToUse);
 		}
 
 		if (this.allowCoreThreadTimeOut) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,12 @@
 
 package org.springframework.scheduling.config;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +36,10 @@ import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.Trigger;
 import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
 import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.LeasedTaskRunnable;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+import org.springframework.scheduling.support.TaskLeaseManager;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
@@ -47,6 +53,11 @@ import org.springframework.util.CollectionUtils;
  * {@link org.springframework.scheduling.annotation.SchedulingConfigurer
  * SchedulingConfigurer} callback interface.
  *
+ * <p>As of 5.2.13, a {@link #setTaskLeaseManager TaskLeaseManager} can be specified
+ * for coordinating the execution of scheduled tasks within a cluster of nodes:
+ * each node fires its tasks as usual, but only the node acquiring the lease for
+ * a task performs the actual execution of that firing.
+ *
  * @author Juergen Hoeller
  * @author Chris Beams
  * @author Tobias Montagna-Hay
@@ -75,6 +86,16 @@ public class ScheduledTaskRegistrar implements ScheduledTaskHolder, Initializing
 	@Nullable
 	private ScheduledExecutorService localExecutor;
 
+	@Nullable
+	private TaskLeaseManager taskLeaseManager;
+
+	private Duration leaseTime = Duration.ofMinutes(10);
+
+	@Nullable
+	private Duration minLeaseHoldTime;
+
+	private final Map<Object, String> targetBeanNames = Collections.synchronizedMap(new IdentityHashMap<>(16));
+
 	@Nullable
 	private List<TriggerTask> triggerTasks;
 
@@ -129,6 +150,94 @@ public class ScheduledTaskRegistrar implements ScheduledTaskHolder, Initializing
 	}
 
 
+	/**
+	 * Set a {@link TaskLeaseManager} for lease-based execution ownership of all
+	 * tasks scheduled by this registrar, e.g. a JDBC-based implementation shared
+	 * by all nodes of a cluster. A firing of a task is only executed if the lease
+	 * for the task could be acquired; otherwise it is skipped on this node.
+	 * <p>{@code @Scheduled} methods are identified by bean name and method name
+	 * ({@code beanName.methodName}), as registered through
+	 * {@link #registerTargetBeanName}. Other tasks do not have a stable name
+	 * across nodes and are therefore executed on every node, unless registered
+	 * as a {@link LeasedTaskRunnable} with an explicit task name.
+	 * @since 5.2.13
+	 * @see #setLeaseTime
+	 * @see #setMinLeaseHoldTime
+	 */
+	public void setTaskLeaseManager(@Nullable TaskLeaseManager taskLeaseManager) {
+		this.taskLeaseManager = taskLeaseManager;
+	}
+
+	/**
+	 * Return the {@link TaskLeaseManager} for this registrar (may be {@code null}).
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public TaskLeaseManager getTaskLeaseManager() {
+		return this.taskLeaseManager;
+	}
+
+	/**
+	 * Set the maximum time to hold a task lease for, in case of a node not
+	 * releasing it (e.g. due to a crash). Default is 10 minutes.
+	 * <p>This should be comfortably longer than the longest task execution,
+	 * and must not be shorter than a specified {@link #setMinLeaseHoldTime
+	 * minimum lease hold time}.
+	 * @since 5.2.13
+	 * @see #setTaskLeaseManager
+	 */
+	public void setLeaseTime(Duration leaseTime) {
+		Assert.isTrue(!leaseTime.isNegative() && !leaseTime.isZero(), "Lease time must be positive");
+		Assert.isTrue(this.minLeaseHoldTime == null || this.minLeaseHoldTime.compareTo(leaseTime) <= 0,
+				"Lease time must not be shorter than minimum lease hold time");
+		this.leaseTime = leaseTime;
+	}
+
+	/**
+	 * Set the minimum time to hold a task lease for, measured from the start
+	 * of the execution, in order to prevent a short-running task from getting
+	 * executed once more for the same firing by a node whose clock is behind.
+	 * <p>Default is half of the period of each task, as determined from its
+	 * interval or from its trigger, capped at the {@link #setLeaseTime lease time}.
+	 * This suppresses duplicate executions for clock differences of up to half a
+	 * period while still keeping the lease available for the next firing.
+	 * <p>An explicitly specified value applies to all tasks and must not exceed
+	 * the lease time (to be set before this property if not the default).
+	 * @since 5.2.13
+	 * @see #setTaskLeaseManager
+	 */
+	public void setMinLeaseHoldTime(Duration minLeaseHoldTime) {
+		Assert.isTrue(!minLeaseHoldTime.isNegative(), "Minimum lease hold time must not be negative");
+		Assert.isTrue(minLeaseHoldTime.compareTo(this.leaseTime) <= 0,
+				"Minimum lease hold time must not exceed lease time");
+		this.minLeaseHoldTime = minLeaseHoldTime;
+	}
+
+	/**
+	 * Register the bean name of the given target of {@link ScheduledMethodRunnable}
+	 * tasks, identifying its scheduled methods for lease purposes.
+	 * @param target the target bean instance
+	 * @param beanName the name of the bean
+	 * @since 5.2.13
+	 * @see #setTaskLeaseManager
+	 */
+	public void registerTargetBeanName(Object target, String beanName) {
+		Assert.notNull(target, "Target must not be null");
+		Assert.hasText(beanName, "Bean name must not be empty");
+		this.targetBeanNames.put(target, beanName);
+	}
+
+	/**
+	 * Remove the bean name registered for the given target, if any.
+	 * @param target the target bean instance
+	 * @since 5.2.13
+	 * @see #registerTargetBeanName
+	 */
+	public void removeTargetBeanName(Object target) {
+		this.targetBeanNames.remove(target);
+	}
+
+
 	/**
 	 * Specify triggered tasks as a Map of Runnables (the tasks) and Trigger objects
 	 * (typically custom implementations of the {@link Trigger} interface).
@@ -403,7 +512,7 @@ public class ScheduledTaskRegistrar implements ScheduledTaskHolder, Initializing
 			newTask = true;
 		}
 		if (this.taskScheduler != null) {
-			scheduledTask.future = this.taskScheduler.schedule(task.getRunnable(), task.getTrigger());
+			scheduledTask.future = this.taskScheduler.schedule(obtainRunnable(task), task.getTrigger());
 		}
 		else {
 			addTriggerTask(task);
@@ -428,7 +537,7 @@ public class ScheduledTaskRegistrar implements ScheduledTaskHolder, Initializing
 			newTask = true;
 		}
 		if (this.taskScheduler != null) {
-			scheduledTask.future = this.taskScheduler.schedule(task.getRunnable(), task.getTrigger());
+			scheduledTask.future = this.taskScheduler.schedule(obtainRunnable(task), task.getTrigger());
 		}
 		else {
 			addCronTask(task);
@@ -472,11 +581,11 @@ public class ScheduledTaskRegistrar implements ScheduledTaskHolder, Initializing
 			if (task.getInitialDelay() > 0) {
 				Date startTime = new Date(System.currentTimeMillis() + task.getInitialDelay());
 				scheduledTask.future =
-						this.taskScheduler.scheduleAtFixedRate(task.getRunnable(), startTime, task.getInterval());
+						this.taskScheduler.scheduleAtFixedRate(obtainRunnable(task), startTime, task.getInterval());
 			}
 			else {
 				scheduledTask.future =
-						this.taskScheduler.scheduleAtFixedRate(task.getRunnable(), task.getInterval());
+						this.taskScheduler.scheduleAtFixedRate(obtainRunnable(task), task.getInterval());
 			}
 		}
 		else {
@@ -521,11 +630,11 @@ public class ScheduledTaskRegistrar implements ScheduledTaskHolder, Initializing
 			if (task.getInitialDelay() > 0) {
 				Date startTime = new Date(System.currentTimeMillis() + task.getInitialDelay());
 				scheduledTask.future =
-						this.taskScheduler.scheduleWithFixedDelay(task.getRunnable(), startTime, task.getInterval());
+						this.taskScheduler.scheduleWithFixedDelay(obtainRunnable(task), startTime, task.getInterval());
 			}
 			else {
 				scheduledTask.future =
-						this.taskScheduler.scheduleWithFixedDelay(task.getRunnable(), task.getInterval());
+						this.taskScheduler.scheduleWithFixedDelay(obtainRunnable(task), task.getInterval());
 			}
 		}
 		else {
@@ -535,6 +644,55 @@ public class ScheduledTaskRegistrar implements ScheduledTaskHolder, Initializing
 		return (newTask ? scheduledTask : null);
 	}
 
+	/**
+	 * Obtain the {@code Runnable} to schedule for the given task,
+	 * decorated with lease handling if a {@link TaskLeaseManager} is set.
+	 */
+	private Runnable obtainRunnable(Task task) {
+		Runnable runnable = task.getRunnable();
+		if (this.taskLeaseManager == null || !(runnable instanceof ScheduledMethodRunnable)) {
+			return runnable;
+		}
+		ScheduledMethodRunnable methodRunnable = (ScheduledMethodRunnable) runnable;
+		String beanName = this.targetBeanNames.get(methodRunnable.getTarget());
+		if (beanName == null) {
+			// No stable cluster-wide name for the task
+			return runnable;
+		}
+		String taskName = beanName + "." + methodRunnable.getMethod().getName();
+		return new LeasedTaskRunnable(runnable, taskName, this.taskLeaseManager,
+				this.leaseTime, determineMinLeaseHoldTime(task));
+	}
+
+	/**
+	 * Determine the minimum lease hold time for the given task: the specified
+	 * value if any, or otherwise half of the task's period, capped at the lease time.
+	 */
+	private Duration determineMinLeaseHoldTime(Task task) {
+		if (this.minLeaseHoldTime != null) {
+			return this.minLeaseHoldTime;
+		}
+		Duration period = Duration.ZERO;
+		if (task instanceof IntervalTask) {
+			period = Duration.ofMillis(((IntervalTask) task).getInterval());
+		}
+		else if (task instanceof TriggerTask) {
+			Trigger trigger = ((TriggerTask) task).getTrigger();
+			Date next = trigger.nextExecutionTime(new SimpleTriggerContext());
+			if (next != null) {
+				Date following = trigger.nextExecutionTime(new SimpleTriggerContext(next, next, next));
+				if (following != null) {
+					period = Duration.ofMillis(following.getTime() - next.getTime());
+				}
+			}
+		}
+		Duration holdTime = period.dividedBy(2);
+		if (holdTime.isNegative()) {
+			return Duration.ZERO;
+		}
+		return (holdTime.compareTo(this.leaseTime) > 0 ? this.leaseTime : holdTime);
+	}
+
 
 	/**
 	 * Return all locally registered tasks that have been scheduled by this registrar.
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.support;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Representation of a
+ * <a href="https://www.manpagez.com/man/5/crontab/">Crontab pattern</a>
+ * based on {@code java.time}, calculating the next matching date-time
+ * after a given {@link ZonedDateTime}.
+ *
+ * <p>Supports the same syntax as {@link CronSequenceGenerator}: a list of six
+ * single space-separated fields representing second, minute, hour, day,
+ * month, weekday. Month and weekday names can be given as the first three
+ * letters of the English names.
+ *
+ * <p>All fields are precomputed into bit masks when parsing the expression,
+ * with the day-of-week field additionally expanded into one day-of-month
+ * mask per possible first weekday of a month. The next matching value of
+ * each field is then determined through a single bit operation rather than
+ * by iterating over calendar values, and the search moves forward in
+ * month-sized steps at most, so that a next-fire-time computation costs
+ * a handful of arithmetic operations in the common case.
+ *
+ * <p>Matching happens on local date-times in the zone of the given
+ * {@code ZonedDateTime}. Local times falling into a daylight saving gap
+ * are skipped; local times occurring twice in a daylight saving overlap
+ * match once, preferring the offset of the given date-time.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see #parse(String)
+ * @see #next(ZonedDateTime)
+ * @see CronTrigger
+ */
+public final class CronExpression {
+
+	// A 400-year Gregorian cycle repeats all calendar constellations
+	private static final int MAX_YEARS = 400;
+
+
+	private final String expression;
+
+	private final long seconds;
+
+	private final long minutes;
+
+	private final long hours;
+
+	private final long daysOfMonth;
+
+	private final long months;
+
+	private final long daysOfWeek;
+
+	/**
+	 * Days of month (bits 1-31) matching both the day-of-month and the
+	 * day-of-week field, indexed by the ISO day of week of the 1st
+	 * (0 = Monday ... 6 = Sunday).
+	 */
+	private final long[] daysByFirstWeekday = new long[7];
+
+
+	private CronExpression(String expression, String[] fields) {
+		this.expression = expression;
+		this.seconds = parseNumberHits(fields[0], 0, 60);
+		this.minutes = parseNumberHits(fields[1], 0, 60);
+		this.hours = parseNumberHits(fields[2], 0, 24);
+		// Days of month start with 1, a possible 0 is cleared
+		this.daysOfMonth = parseDays(fields[3], 32) & ~1L;
+		this.months = parseNumberHits(
+				replaceOrdinals(fields[4], "FOO,JAN,FEB,MAR,APR,MAY,JUN,JUL,AUG,SEP,OCT,NOV,DEC"), 1, 13);
+		long cronDays = parseDays(replaceOrdinals(fields[5], "SUN,MON,TUE,WED,THU,FRI,SAT"), 8);
+		// Cron weekdays start with 0 or 7 (Sunday), ISO weekdays with 1 (Monday) ending with 7 (Sunday)
+		long isoDays = cronDays & 0xFE;
+		if ((cronDays & 1L) != 0) {
+			isoDays |= (1L << 7);
+		}
+		this.daysOfWeek = isoDays;
+		for (int first = 0; first < 7; first++) {
+			long mask = 0;
+			for (int day = 1; day <= 31; day++) {
+				int isoDayOfWeek = (first + day - 1) % 7 + 1;
+				if ((isoDays & (1L << isoDayOfWeek)) != 0) {
+					mask |= (1L << day);
+				}
+			}
+			this.daysByFirstWeekday[first] = mask & this.daysOfMonth;
+		}
+	}
+
+
+	/**
+	 * Parse the given cron expression.
+	 * @param expression a space-separated list of six time fields
+	 * @return the corresponding {@code CronExpression}
+	 * @throws IllegalArgumentException if the expression cannot be parsed
+	 */
+	public static CronExpression parse(String expression) {
+		String[] fields = StringUtils.tokenizeToStringArray(expression, " ");
+		if (fields.length != 6) {
+			throw new IllegalArgumentException(String.format(
+					"Cron expression must consist of 6 fields (found %d in \"%s\")", fields.length, expression));
+		}
+		try {
+			return new CronExpression(expression, fields);
+		}
+		catch (NumberFormatException ex) {
+			throw new IllegalArgumentException(
+					"Invalid number in cron expression \"" + expression + "\": " + ex.getMessage(), ex);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException(ex.getMessage() + " in expression \"" + expression + "\"", ex);
+		}
+	}
+
+	/**
+	 * Determine whether the specified expression represents a valid cron pattern.
+	 * @param expression the expression to evaluate
+	 * @return {@code true} if the given expression is a valid cron expression
+	 */
+	public static boolean isValidExpression(@Nullable String expression) {
+		if (expression == null) {
+			return false;
+		}
+		try {
+			parse(expression);
+			return true;
+		}
+		catch (IllegalArgumentException ex) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Return the cron pattern that this expression has been parsed from.
+	 */
+	public String getExpression() {
+		return this.expression;
+	}
+
+	/**
+	 * Calculate the next date-time matching this expression, strictly after
+	 * the given date-time and in the same time zone. The result will have a
+	 * whole number of seconds.
+	 * @param dateTime the date-time to start from
+	 * @return the next matching date-time, or {@code null} if the expression
+	 * can never match (e.g. "0 0 0 31 6 *")
+	 */
+	@Nullable
+	public ZonedDateTime next(ZonedDateTime dateTime) {
+		ZoneId zone = dateTime.getZone();
+		ZoneRules rules = zone.getRules();
+		LocalDateTime start = dateTime.toLocalDateTime().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+		int maxYear = start.getYear() + MAX_YEARS;
+		while (true) {
+			LocalDateTime local = nextLocal(start, maxYear);
+			if (local == null) {
+				return null;
+			}
+			if (rules.getValidOffsets(local).isEmpty()) {
+				// Local time within a daylight saving gap: continue right after the gap
+				ZoneOffsetTransition gap = rules.getTransition(local);
+				start = (gap != null ? gap.getDateTimeAfter() : local.plusSeconds(1));
+				continue;
+			}
+			ZonedDateTime result = ZonedDateTime.ofLocal(local, zone, dateTime.getOffset());
+			if (result.isAfter(dateTime)) {
+				return result;
+			}
+			start = local.plusSeconds(1);
+		}
+	}
+
+	/**
+	 * Find the next local date-time at or after the given one which matches
+	 * all fields, moving on to the next candidate value of the most significant
+	 * mismatching field (and resetting all lower fields) in each step.
+	 */
+	@Nullable
+	private LocalDateTime nextLocal(LocalDateTime start, int maxYear) {
+		int year = start.getYear();
+		int month = start.getMonthValue();
+		int day = start.getDayOfMonth();
+		int hour = start.getHour();
+		int minute = start.getMinute();
+		int second = start.getSecond();
+
+		while (year <= maxYear) {
+			int nextMonth = nextBit(this.months, month);
+			if (nextMonth < 0) {
+				year++;
+				month = 1;
+				day = 1;
+				hour = minute = second = 0;
+				continue;
+			}
+			if (nextMonth != month) {
+				month = nextMonth;
+				day = 1;
+				hour = minute = second = 0;
+			}
+
+			int nextDay = nextDay(year, month, day);
+			if (nextDay < 0) {
+				month++;
+				day = 1;
+				hour = minute = second = 0;
+				continue;
+			}
+			if (nextDay != day) {
+				day = nextDay;
+				hour = minute = second = 0;
+			}
+
+			int nextHour = nextBit(this.hours, hour);
+			if (nextHour < 0) {
+				day++;
+				hour = minute = second = 0;
+				continue;
+			}
+			if (nextHour != hour) {
+				hour = nextHour;
+				minute = second = 0;
+			}
+
+			int nextMinute = nextBit(this.minutes, minute);
+			if (nextMinute < 0) {
+				hour++;
+				minute = second = 0;
+				continue;
+			}
+			if (nextMinute != minute) {
+				minute = nextMinute;
+				second = 0;
+			}
+
+			int nextSecond = nextBit(this.seconds, second);
+			if (nextSecond < 0) {
+				minute++;
+				second = 0;
+				continue;
+			}
+			return LocalDateTime.of(year, month, day, hour, minute, nextSecond);
+		}
+		return null;
+	}
+
+	/**
+	 * Determine the next day in the given month, at or after the given day,
+	 * matching both the day-of-month and the day-of-week field.
+	 * @return the matching day, or -1 if none left in this month
+	 */
+	private int nextDay(int year, int month, int day) {
+		if (day > 31) {
+			return -1;
+		}
+		int firstWeekday = LocalDate.of(year, month, 1).getDayOfWeek().getValue() - 1;
+		int length = Month.of(month).length(Year.isLeap(year));
+		long candidates = this.daysByFirstWeekday[firstWeekday] & ((1L << (length + 1)) - 1);
+		return nextBit(candidates, day);
+	}
+
+	/**
+	 * Return the index of the lowest bit set at or above the given index.
+	 * @return the bit index, or -1 if none
+	 */
+	private static int nextBit(long bits, int fromIndex) {
+		long candidates = bits & (-1L << fromIndex);
+		return (candidates != 0 ? Long.numberOfTrailingZeros(candidates) : -1);
+	}
+
+
+	// Parsing logic invoked by the constructor
+
+	/**
+	 * Replace the values in the comma-separated list (case insensitive)
+	 * with their index in the list.
+	 */
+	private static String replaceOrdinals(String value, String commaSeparatedList) {
+		String[] list = StringUtils.commaDelimitedListToStringArray(commaSeparatedList);
+		for (int i = 0; i < list.length; i++) {
+			value = StringUtils.replace(value.toUpperCase(), list[i], "" + i);
+		}
+		return value;
+	}
+
+	private static long parseDays(String field, int max) {
+		if (field.contains("?")) {
+			field = "*";
+		}
+		return parseNumberHits(field, 0, max);
+	}
+
+	private static long parseNumberHits(String value, int min, int max) {
+		long bits = 0;
+		for (String field : StringUtils.delimitedListToStringArray(value, ",")) {
+			if (!field.contains("/")) {
+				// Not an incrementer so it must be a range (possibly empty)
+				int[] range = getRange(field, min, max);
+				for (int i = range[0]; i <= range[1]; i++) {
+					bits |= (1L << i);
+				}
+			}
+			else {
+				String[] split = StringUtils.delimitedListToStringArray(field, "/");
+				if (split.length > 2) {
+					throw new IllegalArgumentException("Incrementer has more than two fields: '" + field + "'");
+				}
+				int[] range = getRange(split[0], min, max);
+				if (!split[0].contains("-")) {
+					range[1] = max - 1;
+				}
+				int delta = Integer.parseInt(split[1]);
+				if (delta <= 0) {
+					throw new IllegalArgumentException("Incrementer delta must be 1 or higher: '" + field + "'");
+				}
+				for (int i = range[0]; i <= range[1]; i += delta) {
+					bits |= (1L << i);
+				}
+			}
+		}
+		return bits;
+	}
+
+	private static int[] getRange(String field, int min, int max) {
+		int[] result = new int[2];
+		if (field.contains("*")) {
+			result[0] = min;
+			result[1] = max - 1;
+			return result;
+		}
+		if (!field.contains("-")) {
+			result[0] = result[1] = Integer.parseInt(field);
+		}
+		else {
+			String[] split = StringUtils.delimitedListToStringArray(field, "-");
+			if (split.length > 2) {
+				throw new IllegalArgumentException("Range has more than two fields: '" + field + "'");
+			}
+			result[0] = Integer.parseInt(split[0]);
+			result[1] = Integer.parseInt(split[1]);
+		}
+		if (result[0] >= max || result[1] >= max) {
+			throw new IllegalArgumentException("Range exceeds maximum (" + max + "): '" + field + "'");
+		}
+		if (result[0] < min || result[1] < min) {
+			throw new IllegalArgumentException("Range less than minimum (" + min + "): '" + field + "'");
+		}
+		if (result[0] > result[1]) {
+			throw new IllegalArgumentException("Invalid inverted range: '" + field + "'");
+		}
+		return result;
+	}
+
+
+	@Override
+	public boolean equals(@Nullable Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CronExpression)) {
+			return false;
+		}
+		CronExpression otherCron = (CronExpression) other;
+		return (this.months == otherCron.months && this.daysOfMonth == otherCron.daysOfMonth &&
+				this.daysOfWeek == otherCron.daysOfWeek && this.hours == otherCron.hours &&
+				this.minutes == otherCron.minutes && this.seconds == otherCron.seconds);
+	}
+
+	@Override
+	public int hashCode() {
+		return (17 * Long.hashCode(this.months) + 29 * Long.hashCode(this.daysOfMonth) +
+				37 * Long.hashCode(this.daysOfWeek) + 41 * Long.hashCode(this.hours) +
+				53 * Long.hashCode(this.minutes) + 61 * Long.hashCode(this.seconds));
+	}
+
+	@Override
+	public String toString() {
+		return this.expression;
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.support;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Simple {@link TaskLeaseManager} implementation which keeps its leases
+ * in a local map. Only coordinates within the current JVM, i.e. between
+ * several schedulers or application contexts sharing this instance;
+ * primarily intended for testing purposes.
+ *
+ * @author agent
+ * @since 5.2.13
+ */
+public class InMemoryTaskLeaseManager implements TaskLeaseManager {
+
+	private final Map<String, LeaseEntry> leases = new ConcurrentHashMap<>();
+
+
+	@Override
+	@Nullable
+	public Lease tryAcquire(String taskName, Duration leaseTime) {
+		Instant now = Instant.now();
+		LeaseEntry entry = new LeaseEntry(now.plus(leaseTime));
+		LeaseEntry current = this.leases.merge(taskName, entry,
+				(existing, candidate) -> (existing.until.isAfter(now) ? existing : candidate));
+		return (current == entry ? holdUntil -> release(taskName, entry, holdUntil) : null);
+	}
+
+	private void release(String taskName, LeaseEntry entry, Instant holdUntil) {
+		this.leases.computeIfPresent(taskName, (key, existing) -> {
+			if (existing != entry) {
+				// Expired and acquired elsewhere in the meantime
+				return existing;
+			}
+			return (holdUntil.isAfter(Instant.now()) ? new LeaseEntry(holdUntil) : null);
+		});
+	}
+
+	/**
+	 * Determine whether the lease for the given task is currently held.
+	 * @param taskName the name of the task
+	 */
+	public boolean isLeased(String taskName) {
+		LeaseEntry entry = this.leases.get(taskName);
+		return (entry != null && entry.until.isAfter(Instant.now()));
+	}
+
+
+	private static final class LeaseEntry {
+
+		final Instant until;
+
+		LeaseEntry(Instant until) {
+			this.until = until;
+		}
+	}
+
+}
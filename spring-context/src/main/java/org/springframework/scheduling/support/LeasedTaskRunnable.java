@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.support;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * Runnable decorator which executes the target task only if the lease for
+ * the task could be acquired from the given {@link TaskLeaseManager},
+ * silently skipping the current execution otherwise.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see TaskLeaseManager
+ * @see org.springframework.scheduling.config.ScheduledTaskRegistrar#setTaskLeaseManager
+ */
+public class LeasedTaskRunnable implements Runnable {
+
+	private static final Log logger = LogFactory.getLog(LeasedTaskRunnable.class);
+
+	private final Runnable delegate;
+
+	private final String taskName;
+
+	private final TaskLeaseManager leaseManager;
+
+	private final Duration leaseTime;
+
+	private final Duration minHoldTime;
+
+
+	/**
+	 * Create a new {@code LeasedTaskRunnable}.
+	 * @param delegate the target task to execute
+	 * @param taskName the cluster-wide name of the task
+	 * @param leaseManager the lease manager to acquire the lease from
+	 * @param leaseTime the maximum time to hold the lease for
+	 * @param minHoldTime the minimum time to hold the lease for, measured
+	 * from the start of the execution (may be {@link Duration#ZERO})
+	 */
+	public LeasedTaskRunnable(Runnable delegate, String taskName, TaskLeaseManager leaseManager,
+			Duration leaseTime, Duration minHoldTime) {
+
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.hasText(taskName, "Task name must not be empty");
+		Assert.notNull(leaseManager, "TaskLeaseManager must not be null");
+		Assert.isTrue(!leaseTime.isNegative() && !leaseTime.isZero(), "Lease time must be positive");
+		Assert.isTrue(minHoldTime.compareTo(leaseTime) <= 0, "Minimum hold time must not exceed lease time");
+		this.delegate = delegate;
+		this.taskName = taskName;
+		this.leaseManager = leaseManager;
+		this.leaseTime = leaseTime;
+		this.minHoldTime = minHoldTime;
+	}
+
+
+	/**
+	 * Return the target task.
+	 */
+	public Runnable getDelegate() {
+		return this.delegate;
+	}
+
+	/**
+	 * Return the cluster-wide name of the task.
+	 */
+	public String getTaskName() {
+		return this.taskName;
+	}
+
+
+	@Override
+	public void run() {
+		Instant start = Instant.now();
+		TaskLeaseManager.Lease lease = this.leaseManager.tryAcquire(this.taskName, this.leaseTime);
+		if (lease == null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Skipping execution of task '" + this.taskName + "' - lease held elsewhere");
+			}
+			return;
+		}
+		try {
+			this.delegate.run();
+		}
+		finally {
+			lease.release(start.plus(this.minHoldTime));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.delegate.toString();
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.support;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Strategy interface for lease-based execution ownership of scheduled tasks,
+ * typically shared between several nodes of a cluster: every node fires the
+ * task according to its local schedule, but only the node which acquires the
+ * lease for a given task actually executes it.
+ *
+ * <p>A lease expires after the specified lease time even if not released,
+ * so that a crashed node does not block a task forever. The lease time
+ * should therefore be comfortably longer than the task's execution time.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see LeasedTaskRunnable
+ * @see InMemoryTaskLeaseManager
+ * @see org.springframework.scheduling.config.ScheduledTaskRegistrar#setTaskLeaseManager
+ */
+public interface TaskLeaseManager {
+
+	/**
+	 * Try to acquire the lease for the given task.
+	 * @param taskName the cluster-wide name of the task
+	 * @param leaseTime the maximum time to hold the lease for
+	 * @return the acquired lease, or {@code null} if currently held elsewhere
+	 */
+	@Nullable
+	Lease tryAcquire(String taskName, Duration leaseTime);
+
+
+	/**
+	 * Handle for an acquired lease.
+	 */
+	interface Lease {
+
+		/**
+		 * Release this lease, keeping it held until the given point in time
+		 * (if in the future). This allows for suppressing duplicate executions
+		 * of a short-running task on nodes whose clocks are slightly behind.
+		 * @param holdUntil the point in time at which the lease should be
+		 * available again, e.g. {@code Instant.now()} for an immediate release
+		 */
+		void release(Instant holdUntil);
+	}
+
+}
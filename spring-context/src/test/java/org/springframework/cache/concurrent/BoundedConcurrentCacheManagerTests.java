@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.Cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link BoundedConcurrentCacheManager}.
+ *
+ * @author agent
+ */
+public class BoundedConcurrentCacheManagerTests {
+
+	@Test
+	public void testDynamicMode() {
+		BoundedConcurrentCacheManager cm = new BoundedConcurrentCacheManager();
+		Cache cache1 = cm.getCache("c1");
+		assertThat(cache1).isInstanceOf(BoundedConcurrentCache.class);
+		assertThat(cm.getCache("c1")).isSameAs(cache1);
+		assertThat(((BoundedConcurrentCache) cache1).getMaximumWeight())
+				.isEqualTo(BoundedConcurrentCacheManager.DEFAULT_MAXIMUM_SIZE);
+		assertThat(cm.getCache("c2")).isNotSameAs(cache1);
+		assertThat(cm.getCacheNames()).containsOnly("c1", "c2");
+	}
+
+	@Test
+	public void testStaticMode() {
+		BoundedConcurrentCacheManager cm = new BoundedConcurrentCacheManager("c1", "c2");
+		assertThat(cm.getCacheNames()).containsOnly("c1", "c2");
+		assertThat(cm.getCache("c3")).isNull();
+	}
+
+	@Test
+	public void testChangeBoundsRecreatesCaches() {
+		BoundedConcurrentCacheManager cm = new BoundedConcurrentCacheManager("c1");
+		Cache cache1 = cm.getCache("c1");
+		cache1.put("key", "value");
+
+		cm.setMaximumSize(5);
+		cm.setTimeToLive(Duration.ofMinutes(10));
+		BoundedConcurrentCache cache1x = (BoundedConcurrentCache) cm.getCache("c1");
+		assertThat(cache1x).isNotSameAs(cache1);
+		assertThat(cache1x.get("key")).isNull();
+		assertThat(cache1x.getMaximumWeight()).isEqualTo(5);
+		assertThat(cache1x.getTimeToLive()).isEqualTo(Duration.ofMinutes(10));
+
+		cm.setAllowNullValues(false);
+		assertThat(((BoundedConcurrentCache) cm.getCache("c1")).isAllowNullValues()).isFalse();
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.context.testfixture.cache.AbstractValueAdaptingCacheTests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link BoundedConcurrentCache}.
+ *
+ * @author agent
+ */
+public class BoundedConcurrentCacheTests extends AbstractValueAdaptingCacheTests<BoundedConcurrentCache> {
+
+	private BoundedConcurrentCache cache;
+
+	private BoundedConcurrentCache cacheNoNull;
+
+
+	@BeforeEach
+	public void setup() {
+		this.cache = new BoundedConcurrentCache(CACHE_NAME, 100);
+		this.cacheNoNull = new BoundedConcurrentCache(CACHE_NAME_NO_NULL, 100,
+				BoundedConcurrentCache.SINGLETON_WEIGHER, null, false);
+	}
+
+	@Override
+	protected BoundedConcurrentCache getCache() {
+		return getCache(true);
+	}
+
+	@Override
+	protected BoundedConcurrentCache getCache(boolean allowNull) {
+		return (allowNull ? this.cache : this.cacheNoNull);
+	}
+
+	@Override
+	protected Object getNativeCache() {
+		return this.cache;
+	}
+
+
+	@Test
+	public void evictsLeastRecentlyUsedEntry() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 3);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.put("c", "3");
+		cache.put("d", "4");
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.get("b")).isNotNull();
+		assertThat(cache.get("c")).isNotNull();
+		assertThat(cache.get("d")).isNotNull();
+		assertThat(cache.size()).isEqualTo(3);
+		assertThat(cache.getStatistics().getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void protectsFrequentlyUsedEntriesFromScan() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 10);
+		cache.put("hot", "value");
+		assertThat(cache.get("hot")).isNotNull();
+		for (int i = 0; i < 100; i++) {
+			cache.put("scan" + i, i);
+		}
+		assertThat(cache.get("hot")).isNotNull();
+		assertThat(cache.size()).isEqualTo(10);
+	}
+
+	@Test
+	public void replacingEntryKeepsWeightConsistent() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 10);
+		cache.put("a", "1");
+		cache.put("a", "2");
+		assertThat(cache.get("a").get()).isEqualTo("2");
+		assertThat(cache.getWeightedSize()).isEqualTo(1);
+		cache.evict("a");
+		assertThat(cache.getWeightedSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void evictsByWeight() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 10,
+				(key, value) -> ((String) value).length(), null, true);
+		cache.put("a", "12345");
+		cache.put("b", "1234");
+		assertThat(cache.getWeightedSize()).isEqualTo(9);
+		cache.put("c", "123");
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.getWeightedSize()).isEqualTo(7);
+		assertThat(cache.getStatistics().getEvictionWeight()).isEqualTo(5);
+	}
+
+	@Test
+	public void entryHeavierThanMaximumIsNotRetained() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 3,
+				(key, value) -> ((String) value).length(), null, true);
+		cache.put("a", "1234");
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.getWeightedSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void expiresEntriesAfterTimeToLive() throws InterruptedException {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 10, Duration.ofMillis(50));
+		cache.put("a", "1");
+		cache.put("b", "2", Duration.ofMinutes(1));
+		cache.put("c", "3", null);
+		assertThat(cache.get("a")).isNotNull();
+		Thread.sleep(100);
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.get("b")).isNotNull();
+		assertThat(cache.get("c")).isNotNull();
+		assertThat(cache.getStatistics().getExpirationCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void cleanUpRemovesExpiredEntries() throws InterruptedException {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 10, Duration.ofMillis(50));
+		cache.put("a", "1");
+		cache.put("b", "2");
+		Thread.sleep(100);
+		assertThat(cache.size()).isEqualTo(2);
+		cache.cleanUp();
+		assertThat(cache.size()).isEqualTo(0);
+		assertThat(cache.getWeightedSize()).isEqualTo(0);
+		assertThat(cache.getStatistics().getExpirationCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void putIfAbsentReplacesExpiredEntry() throws InterruptedException {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 10, Duration.ofMillis(50));
+		cache.put("a", "1");
+		assertThat(cache.putIfAbsent("a", "2").get()).isEqualTo("1");
+		Thread.sleep(100);
+		assertThat(cache.putIfAbsent("a", "3")).isNull();
+		assertThat(cache.get("a").get()).isEqualTo("3");
+	}
+
+	@Test
+	public void recordsStatistics() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(CACHE_NAME, 10);
+		cache.put("a", "1");
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+		CacheStatistics statistics = cache.getStatistics();
+		assertThat(statistics.getHitCount()).isEqualTo(2);
+		assertThat(statistics.getMissCount()).isEqualTo(1);
+		assertThat(statistics.getRequestCount()).isEqualTo(3);
+		assertThat(statistics.getHitRate()).isEqualTo(2.0 / 3);
+	}
+
+}
@@ -21,15 +21,23 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.springframework.cache.Cache;
 import org.springframework.context.testfixture.cache.AbstractValueAdaptingCacheTests;
 import org.springframework.core.serializer.support.SerializationDelegate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 /**
  * @author Costin Leau
@@ -115,6 +123,50 @@ public class ConcurrentMapCacheTests extends AbstractValueAdaptingCacheTests<Con
 			.withMessageContaining("Some garbage");
 	}
 
+	@Test
+	public void testGetWithValueLoaderSharesConcurrentLoad() throws Exception {
+		String key = createRandomKey();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger invocations = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<String> first = executor.submit(() -> this.cache.get(key, () -> {
+				invocations.incrementAndGet();
+				loading.countDown();
+				release.await();
+				return "value";
+			}));
+			assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+			List<Future<String>> others = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				others.add(executor.submit(() -> this.cache.get(key, () -> {
+					invocations.incrementAndGet();
+					return "other";
+				})));
+			}
+			// An unrelated key must not be blocked by the pending load
+			assertThat(this.cache.get(createRandomKey(), () -> "unrelated")).isEqualTo("unrelated");
+			release.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+			for (Future<String> other : others) {
+				assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+			}
+			assertThat(invocations.get()).isEqualTo(1);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testGetWithValueLoaderRecursiveLoad() {
+		String key = createRandomKey();
+		assertThatExceptionOfType(Cache.ValueRetrievalException.class).isThrownBy(() ->
+				this.cache.get(key, () -> this.cache.get(key, () -> "value")))
+			.withCauseInstanceOf(IllegalStateException.class);
+	}
+
 
 	private ConcurrentMapCache createCacheWithStoreByValue() {
 		return new ConcurrentMapCache(CACHE_NAME, this.nativeCache, true,
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Tests for {@code @Cacheable(batch = true)} operations.
+ *
+ * @author agent
+ */
+public class CacheBatchOperationTests {
+
+	private ConfigurableApplicationContext context;
+
+	private BatchService service;
+
+	private Cache cache;
+
+
+	@BeforeEach
+	public void setup() {
+		this.context = new AnnotationConfigApplicationContext(Config.class);
+		this.service = this.context.getBean(BatchService.class);
+		this.cache = this.context.getBean(CacheManager.class).getCache("testCache");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		this.context.close();
+	}
+
+
+	@Test
+	public void missingElementsOnlyAreLoaded() {
+		this.cache.put(2L, "cached-2");
+
+		Map<Long, String> result = this.service.findAll(Arrays.asList(1L, 2L, 3L));
+		assertThat(result).containsExactly(entry(1L, "value-1"), entry(2L, "cached-2"), entry(3L, "value-3"));
+		assertThat(this.service.getInvocations()).containsExactly(Arrays.asList(1L, 3L));
+		assertThat(this.cache.get(1L).get()).isEqualTo("value-1");
+		assertThat(this.cache.get(3L).get()).isEqualTo("value-3");
+	}
+
+	@Test
+	public void fullHitDoesNotInvokeTarget() {
+		this.service.findAll(Arrays.asList(1L, 2L));
+		Map<Long, String> result = this.service.findAll(Arrays.asList(2L, 1L));
+		assertThat(result).containsExactly(entry(2L, "value-2"), entry(1L, "value-1"));
+		assertThat(this.service.getInvocations()).hasSize(1);
+	}
+
+	@Test
+	public void entriesSharedWithSingleKeyLookup() {
+		assertThat(this.service.findOne(1L)).isEqualTo("value-1");
+		this.service.findAll(Arrays.asList(1L, 2L));
+		assertThat(this.service.getInvocations()).containsExactly(
+				Arrays.asList(1L), Arrays.asList(2L));
+	}
+
+	@Test
+	public void elementsAbsentFromResultAreNotCached() {
+		Map<Long, String> result = this.service.findAll(Arrays.asList(1L, -1L));
+		assertThat(result).containsOnlyKeys(1L);
+		assertThat(this.cache.get(-1L)).isNull();
+	}
+
+	@Test
+	public void unlessEvaluatedPerValue() {
+		this.service.findAllUnless(new LinkedHashSet<>(Arrays.asList(1L, 0L)));
+		assertThat(this.cache.get(1L)).isNotNull();
+		assertThat(this.cache.get(0L)).isNull();
+	}
+
+	@Test
+	public void conditionFailingInvokesTargetWithAllElements() {
+		this.cache.put(1L, "cached-1");
+		Map<Long, String> result = this.service.findAllConditional(Arrays.asList(1L, 2L));
+		assertThat(result).containsExactly(entry(1L, "value-1"), entry(2L, "value-2"));
+		assertThat(this.service.getInvocations()).containsExactly(Arrays.asList(1L, 2L));
+	}
+
+	@Test
+	public void invalidSignatureIsRejected() {
+		assertThatIllegalStateException().isThrownBy(() -> this.service.invalid(1L))
+				.withMessageContaining("single Collection parameter");
+	}
+
+
+	static class BatchService {
+
+		private final List<List<Long>> invocations = new ArrayList<>();
+
+		public List<List<Long>> getInvocations() {
+			return this.invocations;
+		}
+
+		@Cacheable("testCache")
+		public String findOne(Long id) {
+			this.invocations.add(Arrays.asList(id));
+			return "value-" + id;
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public Map<Long, String> findAll(Collection<Long> ids) {
+			return load(ids);
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true, unless = "#result.endsWith('0')")
+		public Map<Long, String> findAllUnless(Set<Long> ids) {
+			return load(ids);
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true, condition = "#ids.size() > 2")
+		public Map<Long, String> findAllConditional(List<Long> ids) {
+			return load(ids);
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public Map<Long, String> invalid(Long id) {
+			return load(Arrays.asList(id));
+		}
+
+		private Map<Long, String> load(Collection<Long> ids) {
+			this.invocations.add(new ArrayList<>(ids));
+			Map<Long, String> result = new LinkedHashMap<>();
+			for (Long id : ids) {
+				if (id >= 0) {
+					result.put(id, "value-" + id);
+				}
+			}
+			return result;
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class Config extends CachingConfigurerSupport {
+
+		@Override
+		@Bean
+		public CacheManager cacheManager() {
+			return new ConcurrentMapCacheManager();
+		}
+
+		@Bean
+		public BatchService batchService() {
+			return new BatchService();
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link CacheAspectSupport#setCoalesceCacheMisses(boolean)}.
+ *
+ * @author agent
+ */
+public class CacheMissCoalescingTests {
+
+	private ConfigurableApplicationContext context;
+
+	private SlowService service;
+
+	private Invocations invocations;
+
+	private ExecutorService executor;
+
+
+	@BeforeEach
+	public void setup() {
+		this.context = new AnnotationConfigApplicationContext(Config.class);
+		this.context.getBean(CacheInterceptor.class).setCoalesceCacheMisses(true);
+		this.service = this.context.getBean(SlowService.class);
+		this.invocations = this.context.getBean(Invocations.class);
+		this.executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		this.executor.shutdownNow();
+		this.context.close();
+	}
+
+
+	@Test
+	public void concurrentMissesShareInvocation() throws Exception {
+		List<Future<Long>> results = invokeConcurrently(() -> this.service.get("key"));
+		this.invocations.release.countDown();
+		for (Future<Long> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(0L);
+		}
+		assertThat(this.invocations.count.get()).isEqualTo(1);
+		assertThat(this.service.get("key")).isEqualTo(0L);
+		assertThat(this.invocations.count.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentMissesShareFailure() throws Exception {
+		this.invocations.failure = new IllegalStateException("Test failure");
+		List<Future<Long>> results = invokeConcurrently(() -> this.service.get("key"));
+		this.invocations.release.countDown();
+		for (Future<Long> result : results) {
+			assertThatIllegalStateException().isThrownBy(() -> {
+				try {
+					result.get(5, TimeUnit.SECONDS);
+				}
+				catch (ExecutionException ex) {
+					throw ex.getCause();
+				}
+			}).withMessage("Test failure");
+		}
+		assertThat(this.invocations.count.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void missesWithOtherOperationsAreNotShared() throws Exception {
+		List<Future<Long>> results = invokeConcurrently(() -> this.service.getAndEvict("key"));
+		this.invocations.release.countDown();
+		for (Future<Long> result : results) {
+			result.get(5, TimeUnit.SECONDS);
+		}
+		assertThat(this.invocations.count.get()).isEqualTo(results.size());
+	}
+
+	@Test
+	public void reentrantMissInvokesDirectly() throws Exception {
+		this.invocations.release.countDown();
+		this.invocations.nested = () -> this.service.get("key");
+		Future<Long> result = this.executor.submit(() -> this.service.get("key"));
+		assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(1L);
+		assertThat(this.invocations.count.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void stuckInvocationTimesOut() throws Exception {
+		this.context.getBean(CacheInterceptor.class).setCoalesceTimeout(50);
+		Future<Long> first = this.executor.submit(() -> this.service.get("key"));
+		assertThat(this.invocations.started.await(5, TimeUnit.SECONDS)).isTrue();
+		Future<Long> second = this.executor.submit(() -> this.service.get("key"));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (this.invocations.count.get() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(this.invocations.count.get()).isEqualTo(2);
+		this.invocations.release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(0L);
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(1L);
+	}
+
+	private List<Future<Long>> invokeConcurrently(Callable<Long> call) throws Exception {
+		List<Future<Long>> results = new ArrayList<>();
+		results.add(this.executor.submit(call));
+		assertThat(this.invocations.started.await(5, TimeUnit.SECONDS)).isTrue();
+		for (int i = 0; i < 3; i++) {
+			results.add(this.executor.submit(call));
+		}
+		// Give the other callers a chance to reach the pending invocation
+		Thread.sleep(100);
+		return results;
+	}
+
+
+	static class Invocations {
+
+		final AtomicInteger count = new AtomicInteger();
+
+		final CountDownLatch started = new CountDownLatch(1);
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		volatile RuntimeException failure;
+
+		volatile Callable<Long> nested;
+
+		Long invoke() throws Exception {
+			Callable<Long> nested = this.nested;
+			if (nested != null) {
+				this.nested = null;
+				nested.call();
+			}
+			long current = this.count.getAndIncrement();
+			this.started.countDown();
+			this.release.await(5, TimeUnit.SECONDS);
+			if (this.failure != null) {
+				throw this.failure;
+			}
+			return current;
+		}
+	}
+
+
+	static class SlowService {
+
+		private final Invocations invocations;
+
+		SlowService(Invocations invocations) {
+			this.invocations = invocations;
+		}
+
+		@Cacheable("testCache")
+		public Long get(Object key) throws Exception {
+			return this.invocations.invoke();
+		}
+
+		@Cacheable("testCache")
+		@CacheEvict(cacheNames = "otherCache", key = "'other'")
+		public Long getAndEvict(Object key) throws Exception {
+			return this.invocations.invoke();
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class Config extends CachingConfigurerSupport {
+
+		@Override
+		@Bean
+		public CacheManager cacheManager() {
+			return new ConcurrentMapCacheManager();
+		}
+
+		@Bean
+		public Invocations invocations() {
+			return new Invocations();
+		}
+
+		@Bean
+		public SlowService slowService() {
+			return new SlowService(invocations());
+		}
+	}
+
+}
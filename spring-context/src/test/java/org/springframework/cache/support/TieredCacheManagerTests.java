@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TieredCacheManager}.
+ *
+ * @author agent
+ */
+public class TieredCacheManagerTests {
+
+	private final CacheManager farCacheManager = new ConcurrentMapCacheManager("c1", "c2");
+
+	private final CacheInvalidationChannel channel = new SimpleCacheInvalidationChannel();
+
+
+	@Test
+	public void tieredCacheForEachFarCache() {
+		CacheManager nearCacheManager = new ConcurrentMapCacheManager("c1");
+		TieredCacheManager cm = new TieredCacheManager(nearCacheManager, this.farCacheManager);
+
+		Cache c1 = cm.getCache("c1");
+		assertThat(c1).isInstanceOf(TieredCache.class);
+		assertThat(((TieredCache) c1).getNearCache()).isSameAs(nearCacheManager.getCache("c1"));
+		assertThat(((TieredCache) c1).getFarCache()).isSameAs(this.farCacheManager.getCache("c1"));
+		assertThat(cm.getCache("c1")).isSameAs(c1);
+		assertThat(cm.getCache("c2")).isSameAs(this.farCacheManager.getCache("c2"));
+		assertThat(cm.getCache("c3")).isNull();
+		assertThat(cm.getCacheNames()).containsOnly("c1", "c2");
+	}
+
+	@Test
+	public void invalidationsEvictNearEntriesOfOtherManagers() {
+		TieredCacheManager cm1 = new TieredCacheManager(
+				new ConcurrentMapCacheManager(), this.farCacheManager, this.channel);
+		TieredCacheManager cm2 = new TieredCacheManager(
+				new ConcurrentMapCacheManager(), this.farCacheManager, this.channel);
+		cm1.afterPropertiesSet();
+		cm2.afterPropertiesSet();
+		Cache cache1 = cm1.getCache("c1");
+		Cache cache2 = cm2.getCache("c1");
+
+		cache1.put("key", "value1");
+		assertThat(cache2.get("key").get()).isEqualTo("value1");
+
+		cache1.put("key", "value2");
+		assertThat(((TieredCache) cache1).getNearCache().get("key").get()).isEqualTo("value2");
+		assertThat(((TieredCache) cache2).getNearCache().get("key")).isNull();
+		assertThat(cache2.get("key").get()).isEqualTo("value2");
+
+		cache2.clear();
+		assertThat(((TieredCache) cache1).getNearCache().get("key")).isNull();
+		assertThat(cache1.get("key")).isNull();
+	}
+
+	@Test
+	public void destroyUnsubscribesFromChannel() {
+		TieredCacheManager cm1 = new TieredCacheManager(
+				new ConcurrentMapCacheManager(), this.farCacheManager, this.channel);
+		TieredCacheManager cm2 = new TieredCacheManager(
+				new ConcurrentMapCacheManager(), this.farCacheManager, this.channel);
+		cm1.afterPropertiesSet();
+		cm2.afterPropertiesSet();
+		Cache cache1 = cm1.getCache("c1");
+		Cache cache2 = cm2.getCache("c1");
+		cache1.put("key", "value1");
+		assertThat(cache2.get("key").get()).isEqualTo("value1");
+
+		cm2.destroy();
+		cache1.put("key", "value2");
+		assertThat(((TieredCache) cache2).getNearCache().get("key").get()).isEqualTo("value1");
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.testfixture.cache.AbstractCacheTests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TieredCache}.
+ *
+ * @author agent
+ */
+public class TieredCacheTests extends AbstractCacheTests<TieredCache> {
+
+	private final List<CacheInvalidation> invalidations = new ArrayList<>();
+
+	private ConcurrentMap<Object, Object> nativeCache;
+
+	private ConcurrentMapCache nearCache;
+
+	private ConcurrentMapCache farCache;
+
+	private TieredCache cache;
+
+
+	@BeforeEach
+	public void setup() {
+		this.nativeCache = new ConcurrentHashMap<>();
+		this.nearCache = new ConcurrentMapCache(CACHE_NAME);
+		this.farCache = new ConcurrentMapCache(CACHE_NAME, this.nativeCache, true);
+		SimpleCacheInvalidationChannel channel = new SimpleCacheInvalidationChannel();
+		channel.subscribe(this.invalidations::add);
+		this.cache = new TieredCache(this.nearCache, this.farCache, channel, "test");
+	}
+
+	@Override
+	protected TieredCache getCache() {
+		return this.cache;
+	}
+
+	@Override
+	protected Object getNativeCache() {
+		return this.nativeCache;
+	}
+
+
+	@Test
+	public void farHitPopulatesNearCache() {
+		this.farCache.put("key", "value");
+		assertThat(this.nearCache.get("key")).isNull();
+
+		assertThat(this.cache.get("key").get()).isEqualTo("value");
+		assertThat(this.nearCache.get("key").get()).isEqualTo("value");
+	}
+
+	@Test
+	public void nearHitDoesNotReadFarCache() {
+		this.nearCache.put("key", "near");
+		this.farCache.put("key", "far");
+		assertThat(this.cache.get("key", String.class)).isEqualTo("near");
+	}
+
+	@Test
+	public void getAllCombinesNearAndFarHits() {
+		this.nearCache.put("key1", "value1");
+		this.farCache.put("key2", "value2");
+
+		assertThat(this.cache.getAll(Arrays.asList("key1", "key2", "key3"))).containsOnlyKeys("key1", "key2");
+		assertThat(this.nearCache.get("key2").get()).isEqualTo("value2");
+	}
+
+	@Test
+	public void writesAreAppliedToBothLevelsAndPublished() {
+		this.cache.put("key", "value");
+		assertThat(this.nearCache.get("key").get()).isEqualTo("value");
+		assertThat(this.farCache.get("key").get()).isEqualTo("value");
+
+		this.cache.evict("key");
+		assertThat(this.nearCache.get("key")).isNull();
+		assertThat(this.farCache.get("key")).isNull();
+
+		this.cache.clear();
+		assertThat(this.invalidations).containsExactly(
+				CacheInvalidation.forKey("test", CACHE_NAME, "key"),
+				CacheInvalidation.forKey("test", CACHE_NAME, "key"),
+				CacheInvalidation.forClear("test", CACHE_NAME));
+	}
+
+	@Test
+	public void putIfAbsentWithExistingValueIsNotPublished() {
+		this.farCache.put("key", "existing");
+		Cache.ValueWrapper existing = this.cache.putIfAbsent("key", "value");
+		assertThat(existing.get()).isEqualTo("existing");
+		assertThat(this.nearCache.get("key").get()).isEqualTo("existing");
+		assertThat(this.invalidations).isEmpty();
+	}
+
+}
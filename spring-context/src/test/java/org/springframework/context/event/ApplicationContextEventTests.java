@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -212,6 +212,55 @@ public class ApplicationContextEventTests extends AbstractApplicationEventListen
 		assertThat(listener1.seenEvents.size()).isEqualTo(2);
 	}
 
+	@Test
+	public void listenersUpdatedIncrementallyAfterCaching() {
+		MyOrderedListener1 listener1 = new MyOrderedListener1();
+		MyOrderedListener2 listener2 = new MyOrderedListener2(listener1);
+
+		SimpleApplicationEventMulticaster smc = new SimpleApplicationEventMulticaster();
+		smc.addApplicationListener(listener1);
+		smc.multicastEvent(new MyEvent(this));
+		smc.multicastEvent(new MyOtherEvent(this));
+		assertThat(smc.retrieverCache.size()).isEqualTo(2);
+
+		// Ordered ahead of listener2, and not applicable to MyOtherEvent
+		smc.addApplicationListener(listener2);
+		assertThat(smc.retrieverCache.size()).isEqualTo(2);
+		MyEvent event = new MyEvent(this);
+		smc.multicastEvent(event);
+		smc.multicastEvent(new MyOtherEvent(this));
+		assertThat(listener1.seenEvents.size()).isEqualTo(4);
+		assertThat(smc.getApplicationListeners(event, ResolvableType.forInstance(event)))
+				.containsExactly(listener1, listener2);
+
+		smc.removeApplicationListener(listener1);
+		assertThat(smc.retrieverCache.size()).isEqualTo(2);
+		smc.multicastEvent(new MyOtherEvent(this));
+		assertThat(listener1.seenEvents.size()).isEqualTo(4);
+		assertThat(smc.getApplicationListeners(event, ResolvableType.forInstance(event)))
+				.containsExactly(listener2);
+	}
+
+	@Test
+	public void removedListenerInstanceStillRegisteredAsBean() {
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.registerBeanDefinition("listener1", new RootBeanDefinition(MyOrderedListener1.class));
+		context.refresh();
+
+		MyOrderedListener1 listener1 = context.getBean("listener1", MyOrderedListener1.class);
+		MyEvent event1 = new MyEvent(context);
+		context.publishEvent(event1);
+		assertThat(listener1.seenEvents).contains(event1);
+
+		ApplicationEventMulticaster multicaster = context.getBean(ApplicationEventMulticaster.class);
+		multicaster.removeApplicationListener(listener1);
+		MyEvent event2 = new MyEvent(context);
+		context.publishEvent(event2);
+		assertThat(listener1.seenEvents).contains(event2);
+
+		context.close();
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	public void proxiedListeners() {
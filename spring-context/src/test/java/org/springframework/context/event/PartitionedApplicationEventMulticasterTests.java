@@ -0,0 +1,269 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link PartitionedApplicationEventMulticaster}.
+ *
+ * @author agent
+ */
+public class PartitionedApplicationEventMulticasterTests {
+
+	private final PartitionedApplicationEventMulticaster multicaster = new PartitionedApplicationEventMulticaster();
+
+
+	@AfterEach
+	public void destroy() {
+		this.multicaster.destroy();
+	}
+
+
+	@Test
+	public void eventsWithSameKeyProcessedInOrderOnSameThread() throws Exception {
+		this.multicaster.setLaneCount(4);
+		this.multicaster.addPartitionKeyResolver(OrderEvent.class, OrderEvent::getOrderId);
+		Map<String, List<Integer>> sequences = new ConcurrentHashMap<>();
+		Map<String, Thread> threads = new ConcurrentHashMap<>();
+		CountDownLatch latch = new CountDownLatch(300);
+		this.multicaster.addApplicationListener((ApplicationListener<PayloadApplicationEvent<OrderEvent>>) event -> {
+			OrderEvent order = event.getPayload();
+			sequences.computeIfAbsent(order.getOrderId(), key -> Collections.synchronizedList(new ArrayList<>()))
+					.add(order.getSequence());
+			assertThat(threads.computeIfAbsent(order.getOrderId(), key -> Thread.currentThread()))
+					.isSameAs(Thread.currentThread());
+			latch.countDown();
+		});
+
+		for (int i = 0; i < 100; i++) {
+			for (String orderId : new String[] {"a", "b", "c"}) {
+				this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, new OrderEvent(orderId, i)));
+			}
+		}
+
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(sequences).hasSize(3);
+		for (List<Integer> sequence : sequences.values()) {
+			assertThat(sequence).hasSize(100).isSorted();
+		}
+		assertThat(threads.values()).doesNotContain(Thread.currentThread());
+	}
+
+	@Test
+	public void partitionKeyExpressionOnEventListener() throws Exception {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(PartitionedConfig.class);
+		try {
+			context.publishEvent(new OrderEvent("x", 1));
+			context.publishEvent(new OrderEvent("y", 1));
+			context.publishEvent(new OrderEvent("x", 2));
+			OrderListener listener = context.getBean(OrderListener.class);
+			assertThat(listener.latch.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(listener.sequences.get("x")).containsExactly(1, 2);
+			assertThat(listener.sequences.get("y")).containsExactly(1);
+
+			ApplicationListenerMethodAdapter adapter = new ApplicationListenerMethodAdapter(
+					"orderListener", OrderListener.class, OrderListener.class.getMethod("onOrder", OrderEvent.class));
+			adapter.init(context, new EventExpressionEvaluator());
+			assertThat(adapter.resolvePartitionKey(new PayloadApplicationEvent<>(this, new OrderEvent("z", 3))))
+					.isEqualTo("z");
+		}
+		finally {
+			context.close();
+		}
+	}
+
+	@Test
+	public void discardWhenLaneIsFull() throws Exception {
+		this.multicaster.setLaneCount(1);
+		this.multicaster.setQueueCapacity(2);
+		this.multicaster.setOverflowPolicy(PartitionedApplicationEventMulticaster.OverflowPolicy.DISCARD);
+		BlockingListener listener = new BlockingListener();
+		this.multicaster.addApplicationListener(listener);
+
+		this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "first"));
+		assertThat(listener.started.await(10, TimeUnit.SECONDS)).isTrue();
+		for (int i = 0; i < 5; i++) {
+			this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "next"));
+		}
+		assertThat(this.multicaster.getQueueDepth(0)).isEqualTo(2);
+		assertThat(this.multicaster.getTotalQueueDepth()).isEqualTo(2);
+		assertThat(this.multicaster.getRejectedCount(0)).isEqualTo(3);
+
+		listener.release.countDown();
+		this.multicaster.setAwaitTerminationSeconds(10);
+		this.multicaster.destroy();
+		assertThat(listener.count).hasValue(3);
+	}
+
+	@Test
+	public void callerRunsWhenLaneIsFull() throws Exception {
+		this.multicaster.setLaneCount(1);
+		this.multicaster.setQueueCapacity(1);
+		this.multicaster.setOverflowPolicy(PartitionedApplicationEventMulticaster.OverflowPolicy.CALLER_RUNS);
+		BlockingListener listener = new BlockingListener();
+		this.multicaster.addApplicationListener(listener);
+
+		this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "first"));
+		assertThat(listener.started.await(10, TimeUnit.SECONDS)).isTrue();
+		this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "queued"));
+		this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "inline"));
+		assertThat(listener.callerThreadInvocations).hasValue(1);
+		assertThat(this.multicaster.getRejectedCount(0)).isEqualTo(0);
+		listener.release.countDown();
+	}
+
+	@Test
+	public void abortWhenLaneIsFull() throws Exception {
+		this.multicaster.setLaneCount(1);
+		this.multicaster.setQueueCapacity(1);
+		this.multicaster.setOverflowPolicy(PartitionedApplicationEventMulticaster.OverflowPolicy.ABORT);
+		BlockingListener listener = new BlockingListener();
+		this.multicaster.addApplicationListener(listener);
+
+		this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "first"));
+		assertThat(listener.started.await(10, TimeUnit.SECONDS)).isTrue();
+		this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "queued"));
+		assertThatExceptionOfType(TaskRejectedException.class).isThrownBy(() ->
+				this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "rejected")));
+		assertThat(this.multicaster.getRejectedCount(0)).isEqualTo(1);
+		listener.release.countDown();
+	}
+
+	@Test
+	public void eventsProcessedInCallerThreadAfterShutdown() {
+		List<Thread> threads = new ArrayList<>();
+		this.multicaster.addApplicationListener(event -> threads.add(Thread.currentThread()));
+		this.multicaster.destroy();
+		this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "late"));
+		assertThat(threads).containsExactly(Thread.currentThread());
+	}
+
+	@Test
+	public void settingsLockedAfterStart() {
+		this.multicaster.addApplicationListener(event -> {});
+		this.multicaster.multicastEvent(new PayloadApplicationEvent<>(this, "start"));
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() ->
+				this.multicaster.setLaneCount(2));
+	}
+
+
+	public static class OrderEvent {
+
+		private final String orderId;
+
+		private final int sequence;
+
+		public OrderEvent(String orderId, int sequence) {
+			this.orderId = orderId;
+			this.sequence = sequence;
+		}
+
+		public String getOrderId() {
+			return this.orderId;
+		}
+
+		public int getSequence() {
+			return this.sequence;
+		}
+	}
+
+
+	@Component
+	public static class OrderListener {
+
+		final Map<String, List<Integer>> sequences = new ConcurrentHashMap<>();
+
+		final CountDownLatch latch = new CountDownLatch(3);
+
+		@EventListener(partitionKey = "#event.orderId")
+		public void onOrder(OrderEvent event) {
+			this.sequences.computeIfAbsent(event.getOrderId(), key -> Collections.synchronizedList(new ArrayList<>()))
+					.add(event.getSequence());
+			this.latch.countDown();
+		}
+	}
+
+
+	@Configuration
+	static class PartitionedConfig {
+
+		@Bean(name = AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+		public PartitionedApplicationEventMulticaster applicationEventMulticaster() {
+			PartitionedApplicationEventMulticaster multicaster = new PartitionedApplicationEventMulticaster();
+			multicaster.setLaneCount(2);
+			return multicaster;
+		}
+
+		@Bean
+		public OrderListener orderListener() {
+			return new OrderListener();
+		}
+	}
+
+
+	static class BlockingListener implements ApplicationListener<PayloadApplicationEvent<String>> {
+
+		final CountDownLatch started = new CountDownLatch(1);
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final AtomicInteger count = new AtomicInteger();
+
+		final AtomicInteger callerThreadInvocations = new AtomicInteger();
+
+		@Override
+		public void onApplicationEvent(PayloadApplicationEvent<String> event) {
+			if (Thread.currentThread().getName().startsWith("event-lane-")) {
+				this.started.countDown();
+				try {
+					this.release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			else {
+				this.callerThreadInvocations.incrementAndGet();
+			}
+			this.count.incrementAndGet();
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.PayloadApplicationEvent;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.ResolvableType;
 import org.springframework.stereotype.Component;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -42,6 +43,18 @@ public class PayloadApplicationEventTests {
 		assertThat(ac.getBean(AuditableListener.class).events.contains(event)).isTrue();
 	}
 
+	@Test
+	public void testResolvableTypeForPayloadClass() {
+		ResolvableType eventType = new PayloadApplicationEvent<>(this, "xyz").getResolvableType();
+		assertThat(eventType.toClass()).isEqualTo(PayloadApplicationEvent.class);
+		assertThat(eventType.getGeneric().toClass()).isEqualTo(String.class);
+		assertThat(new PayloadApplicationEvent<>(this, "abc").getResolvableType()).isSameAs(eventType);
+		assertThat(new PayloadApplicationEvent<>(this, 1).getResolvableType().getGeneric().toClass())
+				.isEqualTo(Integer.class);
+		assertThat(new AuditablePayloadEvent<>(this, "xyz").getResolvableType().toClass())
+				.isEqualTo(AuditablePayloadEvent.class);
+	}
+
 
 	public interface Auditable {
 	}
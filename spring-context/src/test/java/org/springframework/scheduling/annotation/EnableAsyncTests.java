@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,7 @@ import org.mockito.Mockito;
 
 import org.springframework.aop.Advisor;
 import org.springframework.aop.framework.Advised;
+import org.springframework.aop.interceptor.AsyncExecutionMetrics;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.BeansException;
@@ -48,6 +49,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.Ordered;
+import org.springframework.core.task.TaskExecutionMetrics;
 import org.springframework.lang.Nullable;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -130,6 +132,31 @@ public class EnableAsyncTests {
 		ctx.close();
 	}
 
+	@Test
+	public void withAsyncExecutionMetrics() throws Exception {
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		ctx.register(AsyncWithExecutorQualifiedByNameConfig.class);
+		ctx.registerBean(AsyncExecutionMetrics.class);
+		ctx.refresh();
+
+		AsyncBeanWithExecutorQualifiedByName asyncBean = ctx.getBean(AsyncBeanWithExecutorQualifiedByName.class);
+		asyncBean.work().get();
+		asyncBean.work().get();
+		asyncBean.work2().get();
+
+		AsyncExecutionMetrics executionMetrics = ctx.getBean(AsyncExecutionMetrics.class);
+		Method work = AsyncBeanWithExecutorQualifiedByName.class.getMethod("work");
+		Method work2 = AsyncBeanWithExecutorQualifiedByName.class.getMethod("work2");
+		assertThat(executionMetrics.getAllMetrics()).containsOnlyKeys(work, work2);
+		TaskExecutionMetrics workMetrics = executionMetrics.getMetrics(work);
+		Awaitility.await().atMost(1, TimeUnit.SECONDS).until(() -> workMetrics.getExecutionCount() == 2);
+		assertThat(workMetrics.getFailureCount()).isEqualTo(0);
+		assertThat(workMetrics.getPeakActiveCount()).isEqualTo(1);
+		assertThat(executionMetrics.getMetricsIfPresent(AsyncBeanWithExecutorQualifiedByName.class.getMethod("work3"))).isNull();
+
+		ctx.close();
+	}
+
 	@Test
 	public void asyncProcessorIsOrderedLowestPrecedenceByDefault() {
 		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
@@ -52,6 +52,7 @@ import org.springframework.scheduling.config.IntervalTask;
 import org.springframework.scheduling.config.ScheduledTaskHolder;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.InMemoryTaskLeaseManager;
 import org.springframework.scheduling.support.ScheduledMethodRunnable;
 import org.springframework.scheduling.support.SimpleTriggerContext;
 import org.springframework.stereotype.Component;
@@ -107,6 +108,28 @@ public class ScheduledAnnotationBeanPostProcessorTests {
 		assertThat(task.getInterval()).isEqualTo(5000L);
 	}
 
+	@Test
+	public void fixedDelayTaskWithTaskLeaseManager() {
+		BeanDefinition processorDefinition = new RootBeanDefinition(ScheduledAnnotationBeanPostProcessor.class);
+		BeanDefinition targetDefinition = new RootBeanDefinition(FixedDelayTestBean.class);
+		context.registerBeanDefinition("postProcessor", processorDefinition);
+		context.registerBeanDefinition("target", targetDefinition);
+		context.registerBeanDefinition("leaseManager", new RootBeanDefinition(InMemoryTaskLeaseManager.class));
+		context.refresh();
+
+		ScheduledTaskHolder postProcessor = context.getBean("postProcessor", ScheduledTaskHolder.class);
+		ScheduledTaskRegistrar registrar = (ScheduledTaskRegistrar)
+				new DirectFieldAccessor(postProcessor).getPropertyValue("registrar");
+		assertThat(registrar.getTaskLeaseManager()).isSameAs(context.getBean("leaseManager"));
+		@SuppressWarnings("unchecked")
+		Map<Object, String> targetBeanNames = (Map<Object, String>)
+				new DirectFieldAccessor(registrar).getPropertyValue("targetBeanNames");
+		assertThat(targetBeanNames).containsEntry(context.getBean("target"), "target");
+
+		context.getBeanFactory().destroySingletons();
+		assertThat(targetBeanNames).isEmpty();
+	}
+
 	@Test
 	public void fixedRateTask() {
 		BeanDefinition processorDefinition = new RootBeanDefinition(ScheduledAnnotationBeanPostProcessor.class);
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.TaskExecutionMetrics;
+import org.springframework.core.task.TaskRejectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * @author agent
+ */
+public class ForkJoinPoolTaskExecutorTests extends AbstractSchedulingTaskExecutorTests {
+
+	@Override
+	protected AsyncListenableTaskExecutor buildExecutor() {
+		ForkJoinPoolTaskExecutor executor = new ForkJoinPoolTaskExecutor();
+		executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+		executor.setParallelism(1);
+		executor.afterPropertiesSet();
+		return executor;
+	}
+
+
+	@Test
+	public void affinityKeySerializesExecution() throws Exception {
+		ForkJoinPoolTaskExecutor executor = new ForkJoinPoolTaskExecutor();
+		executor.setParallelism(4);
+		executor.setAffinityStripes(2);
+		executor.afterPropertiesSet();
+		try {
+			int taskCount = 1000;
+			CountDownLatch latch = new CountDownLatch(taskCount * 2);
+			List<Integer> sequence1 = Collections.synchronizedList(new ArrayList<>());
+			List<Integer> sequence2 = Collections.synchronizedList(new ArrayList<>());
+			AtomicInteger concurrent = new AtomicInteger();
+			AtomicInteger maxConcurrent = new AtomicInteger();
+			for (int i = 0; i < taskCount; i++) {
+				int index = i;
+				executor.execute(() -> {
+					maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+					sequence1.add(index);
+					concurrent.decrementAndGet();
+					latch.countDown();
+				}, "key1");
+				executor.execute(() -> {
+					sequence2.add(index);
+					latch.countDown();
+				}, "key2");
+			}
+			assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(maxConcurrent.get()).isEqualTo(1);
+			for (int i = 0; i < taskCount; i++) {
+				assertThat(sequence1.get(i)).isEqualTo(i);
+				assertThat(sequence2.get(i)).isEqualTo(i);
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void affinityStripeRejectedAfterShutdown() throws Exception {
+		ForkJoinPoolTaskExecutor executor = new ForkJoinPoolTaskExecutor();
+		TaskExecutionMetrics metrics = new TaskExecutionMetrics();
+		executor.setParallelism(1);
+		executor.setAffinityStripes(1);
+		executor.setTaskExecutionMetrics(metrics);
+		executor.afterPropertiesSet();
+		try {
+			CountDownLatch blocker = new CountDownLatch(1);
+			CountDownLatch started = new CountDownLatch(1);
+			executor.execute(() -> {
+				started.countDown();
+				try {
+					blocker.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}, "key");
+			assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+			AtomicInteger executed = new AtomicInteger();
+			for (int i = 0; i < 100; i++) {
+				executor.execute(executed::incrementAndGet, "key");
+			}
+			// Interrupts the blocking task, with the stripe running on until its batch is done
+			executor.getForkJoinPool().shutdownNow();
+			assertThat(executor.getForkJoinPool().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+			// Tasks beyond the first batch are rejected if the pool refuses to reschedule
+			// the stripe from its worker thread (depending on the JDK's ForkJoinPool)
+			long rejected = metrics.getRejectedCount();
+			assertThat(executed.get() + rejected).isEqualTo(100);
+			assertThat(executor.getQueuedTaskCount()).isEqualTo(0);
+
+			assertThatExceptionOfType(TaskRejectedException.class).isThrownBy(() -> executor.execute(() -> {}, "key"));
+			assertThat(metrics.getRejectedCount()).isEqualTo(rejected + 1);
+			assertThat(executor.getQueuedTaskCount()).isEqualTo(0);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void queueCapacityAndMetrics() throws Exception {
+		ForkJoinPoolTaskExecutor executor = new ForkJoinPoolTaskExecutor();
+		TaskExecutionMetrics metrics = new TaskExecutionMetrics();
+		executor.setParallelism(1);
+		executor.setQueueCapacity(2);
+		executor.setTaskExecutionMetrics(metrics);
+		executor.afterPropertiesSet();
+		try {
+			CountDownLatch blocker = new CountDownLatch(1);
+			CountDownLatch started = new CountDownLatch(1);
+			executor.execute(() -> {
+				started.countDown();
+				try {
+					blocker.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+			CountDownLatch queuedDone = new CountDownLatch(2);
+			executor.execute(queuedDone::countDown);
+			executor.execute(queuedDone::countDown);
+			assertThat(executor.getQueuedTaskCount()).isEqualTo(2);
+			assertThatExceptionOfType(TaskRejectedException.class).isThrownBy(() -> executor.execute(() -> {}));
+			assertThat(metrics.getRejectedCount()).isEqualTo(1);
+
+			blocker.countDown();
+			assertThat(queuedDone.await(10, TimeUnit.SECONDS)).isTrue();
+			executor.submit(() -> {}).get(10, TimeUnit.SECONDS);
+			assertThat(executor.getQueuedTaskCount()).isEqualTo(0);
+			assertThat(metrics.getExecutionCount()).isGreaterThanOrEqualTo(3);
+			assertThat(metrics.getAverageQueueWaitTime(TimeUnit.NANOSECONDS)).isGreaterThan(0);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+}
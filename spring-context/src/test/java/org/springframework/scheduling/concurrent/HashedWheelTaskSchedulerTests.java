@@ -0,0 +1,216 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.PeriodicTrigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * @author agent
+ */
+public class HashedWheelTaskSchedulerTests {
+
+	private final HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler();
+
+
+	@AfterEach
+	public void shutdown() {
+		this.scheduler.destroy();
+	}
+
+
+	@Test
+	public void scheduleOneTimeTask() throws Exception {
+		long start = System.currentTimeMillis();
+		AtomicInteger count = new AtomicInteger();
+		ScheduledFuture<?> future = this.scheduler.schedule(count::incrementAndGet, new Date(start + 50));
+		assertThat(future.getDelay(TimeUnit.MILLISECONDS)).isBetween(0L, 50L);
+		assertThat(future.get(10, TimeUnit.SECONDS)).isNull();
+		assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(50);
+		assertThat(count.get()).isEqualTo(1);
+		assertThat(future.isDone()).isTrue();
+		assertThat(this.scheduler.getScheduledTaskCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void scheduleBeyondSingleRevolution() throws Exception {
+		this.scheduler.setTickDuration(1);
+		this.scheduler.setTicksPerWheel(8);
+		long start = System.currentTimeMillis();
+		ScheduledFuture<?> future = this.scheduler.schedule(() -> {}, new Date(start + 50));
+		future.get(10, TimeUnit.SECONDS);
+		assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(50);
+	}
+
+	@Test
+	public void manyTasksAndCancellation() throws Exception {
+		// Hold back the execution of due tasks until all tasks have been checked
+		CountDownLatch gate = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			this.scheduler.setTaskExecutor(task -> executor.execute(() -> {
+				try {
+					gate.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				task.run();
+			}));
+			int taskCount = 10000;
+			CountDownLatch latch = new CountDownLatch(taskCount / 2);
+			AtomicInteger count = new AtomicInteger();
+			List<ScheduledFuture<?>> futures = new ArrayList<>(taskCount);
+			Date startTime = new Date(System.currentTimeMillis() + 100);
+			Date laterStartTime = new Date(System.currentTimeMillis() + 3600000);
+			for (int i = 0; i < taskCount; i++) {
+				futures.add(this.scheduler.schedule(() -> {
+					count.incrementAndGet();
+					latch.countDown();
+				}, (i % 2 == 0 ? laterStartTime : startTime)));
+			}
+			assertThat(this.scheduler.getScheduledTaskCount()).isEqualTo(taskCount);
+			for (int i = 0; i < taskCount; i += 2) {
+				assertThat(futures.get(i).cancel(false)).isTrue();
+				assertThat(futures.get(i).isCancelled()).isTrue();
+			}
+			assertThat(count.get()).isEqualTo(0);
+			gate.countDown();
+			assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+			for (int i = 1; i < taskCount; i += 2) {
+				futures.get(i).get(10, TimeUnit.SECONDS);
+			}
+			assertThat(count.get()).isEqualTo(taskCount / 2);
+			assertThat(this.scheduler.getScheduledTaskCount()).isEqualTo(0);
+			assertThat(futures.get(1).cancel(false)).isFalse();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void batchesDispatchedToExecutor() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			AtomicInteger submissions = new AtomicInteger();
+			this.scheduler.setTaskExecutor(task -> {
+				submissions.incrementAndGet();
+				executor.execute(task);
+			});
+			this.scheduler.setBatchSize(10);
+			CountDownLatch latch = new CountDownLatch(100);
+			Date startTime = new Date(System.currentTimeMillis() + 50);
+			for (int i = 0; i < 100; i++) {
+				this.scheduler.schedule(latch::countDown, startTime);
+			}
+			assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(submissions.get()).isLessThan(100);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void scheduleAtFixedRate() throws Exception {
+		CountDownLatch latch = new CountDownLatch(5);
+		ScheduledFuture<?> future = this.scheduler.scheduleAtFixedRate(latch::countDown, 10);
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(future.cancel(false)).isTrue();
+		assertThat(future.isDone()).isTrue();
+		assertThat(this.scheduler.getScheduledTaskCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void scheduleWithFixedDelay() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = this.scheduler.scheduleWithFixedDelay(latch::countDown, 10);
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		future.cancel(false);
+	}
+
+	@Test
+	public void scheduleWithTrigger() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = this.scheduler.schedule(latch::countDown, new PeriodicTrigger(10));
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		future.cancel(false);
+	}
+
+	@Test
+	public void scheduleWithFiniteTrigger() throws Exception {
+		ScheduledFuture<?> future = this.scheduler.schedule(() -> {}, new Trigger() {
+			@Override
+			public Date nextExecutionTime(TriggerContext triggerContext) {
+				return (triggerContext.lastCompletionTime() == null ? new Date() : null);
+			}
+		});
+		assertThat((Object) future).isNotNull();
+		future.get(10, TimeUnit.SECONDS);
+		assertThat(future.isDone()).isTrue();
+	}
+
+	@Test
+	public void failingOneTimeTask() {
+		ScheduledFuture<?> future = this.scheduler.schedule(() -> {
+			throw new IllegalStateException("expected");
+		}, new Date());
+		assertThatExceptionOfType(ExecutionException.class).isThrownBy(() ->
+				future.get(10, TimeUnit.SECONDS)).withCauseInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void failingPeriodicTaskWithErrorHandler() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		this.scheduler.setErrorHandler(ex -> latch.countDown());
+		ScheduledFuture<?> future = this.scheduler.scheduleAtFixedRate(() -> {
+			throw new IllegalStateException("expected");
+		}, 10);
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		future.cancel(false);
+	}
+
+	@Test
+	public void destroyCancelsPendingTasks() {
+		ScheduledFuture<?> future = this.scheduler.schedule(() -> {}, new Date(System.currentTimeMillis() + 60000));
+		this.scheduler.destroy();
+		assertThat(future.isCancelled()).isTrue();
+		assertThatExceptionOfType(TaskRejectedException.class).isThrownBy(() ->
+				this.scheduler.schedule(() -> {}, new Date()));
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.support.PeriodicTrigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author agent
+ */
+public class SimpleAsyncTaskSchedulerTests {
+
+	private final SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler("test-");
+
+
+	@AfterEach
+	public void shutdown() {
+		this.scheduler.destroy();
+	}
+
+
+	@Test
+	public void scheduleOneTimeTask() throws Exception {
+		List<String> threadNames = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(1);
+		this.scheduler.schedule(() -> {
+			threadNames.add(Thread.currentThread().getName());
+			latch.countDown();
+		}, new Date(System.currentTimeMillis() + 10));
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(threadNames).hasSize(1);
+		assertThat(threadNames.get(0)).startsWith("test-").isNotEqualTo("test-scheduler");
+	}
+
+	@Test
+	public void scheduleAtFixedRateDoesNotWaitForBlockingTask() throws Exception {
+		CountDownLatch blocker = new CountDownLatch(1);
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = this.scheduler.scheduleAtFixedRate(() -> {
+			latch.countDown();
+			try {
+				blocker.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}, 10);
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		future.cancel(true);
+		blocker.countDown();
+	}
+
+	@Test
+	public void scheduleAtFixedRateContinuesAfterRejection() throws Exception {
+		AtomicInteger attempts = new AtomicInteger();
+		SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler("test-") {
+			@Override
+			public void execute(Runnable task) {
+				if (attempts.incrementAndGet() == 1) {
+					throw new TaskRejectedException("expected");
+				}
+				super.execute(task);
+			}
+		};
+		List<Throwable> errors = new CopyOnWriteArrayList<>();
+		scheduler.setErrorHandler(errors::add);
+		CountDownLatch latch = new CountDownLatch(2);
+		try {
+			scheduler.scheduleAtFixedRate(latch::countDown, 10);
+			assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(errors).hasSize(1).first().isInstanceOf(TaskRejectedException.class);
+		}
+		finally {
+			scheduler.destroy();
+		}
+	}
+
+	@Test
+	public void scheduleWithFixedDelayRunsOnSchedulerThread() throws Exception {
+		List<String> threadNames = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(2);
+		ScheduledFuture<?> future = this.scheduler.scheduleWithFixedDelay(() -> {
+			threadNames.add(Thread.currentThread().getName());
+			latch.countDown();
+		}, 10);
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		future.cancel(true);
+		assertThat(threadNames).allMatch("test-scheduler"::equals);
+	}
+
+	@Test
+	public void scheduleWithTrigger() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = this.scheduler.schedule(latch::countDown, new PeriodicTrigger(10));
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		future.cancel(true);
+		assertThat(future.isCancelled()).isTrue();
+	}
+
+	@Test
+	public void errorHandlerInvokedInExecutionThread() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		this.scheduler.setErrorHandler(ex -> latch.countDown());
+		this.scheduler.schedule(() -> {
+			throw new IllegalStateException("expected");
+		}, new Date());
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+}
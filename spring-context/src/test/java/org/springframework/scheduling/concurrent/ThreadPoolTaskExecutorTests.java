@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,16 @@
 
 package org.springframework.scheduling.concurrent;
 
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
 import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.TaskExecutionMetrics;
+import org.springframework.core.task.TaskRejectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 /**
  * @author Juergen Hoeller
@@ -33,4 +42,30 @@ public class ThreadPoolTaskExecutorTests extends AbstractSchedulingTaskExecutorT
 		return executor;
 	}
 
+
+	@Test
+	public void taskExecutionMetrics() throws Exception {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		TaskExecutionMetrics metrics = new TaskExecutionMetrics();
+		executor.setTaskExecutionMetrics(metrics);
+		executor.setTaskDecorator(runnable -> runnable);
+		executor.setMaxPoolSize(1);
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		executor.afterPropertiesSet();
+		try {
+			executor.submit(() -> {}).get(1, TimeUnit.SECONDS);
+			executor.submit(() -> {
+				throw new IllegalStateException("expected");
+			});
+			executor.shutdown();
+			assertThatExceptionOfType(TaskRejectedException.class).isThrownBy(() -> executor.execute(() -> {}));
+			assertThat(executor.getThreadPoolExecutor().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(metrics.getExecutionCount()).isEqualTo(2);
+			assertThat(metrics.getRejectedCount()).isEqualTo(1);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,25 @@
 
 package org.springframework.scheduling.config;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.support.InMemoryTaskLeaseManager;
+import org.springframework.scheduling.support.LeasedTaskRunnable;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 /**
  * Unit tests for {@link ScheduledTaskRegistrar}.
@@ -95,4 +106,93 @@ class ScheduledTaskRegistrarTests {
 		assertThat(this.taskRegistrar.getCronTaskList()).isEmpty();
 	}
 
+	@Test
+	void taskLeaseManagerCoordinatesRegistrars() throws Exception {
+		InMemoryTaskLeaseManager leaseManager = new InMemoryTaskLeaseManager();
+		CountingTask task1 = new CountingTask();
+		CountingTask task2 = new CountingTask();
+		Runnable runnable1 = scheduleWithLeaseManager(new ScheduledMethodRunnable(task1, "run"), "task", leaseManager, Duration.ofMinutes(1));
+		Runnable runnable2 = scheduleWithLeaseManager(new ScheduledMethodRunnable(task2, "run"), "task", leaseManager, Duration.ofMinutes(1));
+		assertThat(runnable1).isInstanceOf(LeasedTaskRunnable.class);
+		assertThat(((LeasedTaskRunnable) runnable1).getTaskName()).isEqualTo("task.run");
+
+		runnable1.run();
+		runnable2.run();
+		runnable1.run();
+		assertThat(task1.count.get()).isEqualTo(1);
+		assertThat(task2.count.get()).isEqualTo(0);
+		assertThat(leaseManager.isLeased("task.run")).isTrue();
+	}
+
+	@Test
+	void taskLeaseManagerDistinguishesBeansOfSameClass() throws Exception {
+		InMemoryTaskLeaseManager leaseManager = new InMemoryTaskLeaseManager();
+		CountingTask task1 = new CountingTask();
+		CountingTask task2 = new CountingTask();
+		scheduleWithLeaseManager(new ScheduledMethodRunnable(task1, "run"), "task1", leaseManager, Duration.ofMinutes(1)).run();
+		scheduleWithLeaseManager(new ScheduledMethodRunnable(task2, "run"), "task2", leaseManager, Duration.ofMinutes(1)).run();
+		assertThat(task1.count.get()).isEqualTo(1);
+		assertThat(task2.count.get()).isEqualTo(1);
+	}
+
+	@Test
+	void taskLeaseManagerSkipsUnnamedTasks() throws Exception {
+		InMemoryTaskLeaseManager leaseManager = new InMemoryTaskLeaseManager();
+		Runnable methodRunnable = new ScheduledMethodRunnable(new CountingTask(), "run");
+		assertThat(scheduleWithLeaseManager(methodRunnable, null, leaseManager, null)).isSameAs(methodRunnable);
+		Runnable runnable = () -> {};
+		assertThat(scheduleWithLeaseManager(runnable, null, leaseManager, null)).isSameAs(runnable);
+	}
+
+	@Test
+	void taskLeaseManagerHoldsLeaseForHalfPeriodByDefault() throws Exception {
+		InMemoryTaskLeaseManager leaseManager = new InMemoryTaskLeaseManager();
+		CountingTask task1 = new CountingTask();
+		CountingTask task2 = new CountingTask();
+		scheduleWithLeaseManager(new ScheduledMethodRunnable(task1, "run"), "task", leaseManager, null).run();
+		scheduleWithLeaseManager(new ScheduledMethodRunnable(task2, "run"), "task", leaseManager, null).run();
+		assertThat(task1.count.get()).isEqualTo(1);
+		assertThat(task2.count.get()).isEqualTo(0);
+		assertThat(leaseManager.isLeased("task.run")).isTrue();
+	}
+
+	@Test
+	void minLeaseHoldTimeMustNotExceedLeaseTime() {
+		assertThatIllegalArgumentException().isThrownBy(() ->
+				this.taskRegistrar.setMinLeaseHoldTime(Duration.ofMinutes(11)));
+		this.taskRegistrar.setMinLeaseHoldTime(Duration.ofMinutes(5));
+		assertThatIllegalArgumentException().isThrownBy(() ->
+				this.taskRegistrar.setLeaseTime(Duration.ofMinutes(1)));
+		this.taskRegistrar.setLeaseTime(Duration.ofMinutes(5));
+	}
+
+	private Runnable scheduleWithLeaseManager(Runnable runnable, @Nullable String beanName,
+			InMemoryTaskLeaseManager leaseManager, @Nullable Duration minLeaseHoldTime) throws Exception {
+
+		TaskScheduler scheduler = mock(TaskScheduler.class);
+		ScheduledTaskRegistrar registrar = new ScheduledTaskRegistrar();
+		registrar.setTaskScheduler(scheduler);
+		registrar.setTaskLeaseManager(leaseManager);
+		if (minLeaseHoldTime != null) {
+			registrar.setMinLeaseHoldTime(minLeaseHoldTime);
+		}
+		if (beanName != null) {
+			registrar.registerTargetBeanName(((ScheduledMethodRunnable) runnable).getTarget(), beanName);
+		}
+		registrar.addFixedRateTask(runnable, 60000);
+		registrar.afterPropertiesSet();
+		ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler).scheduleAtFixedRate(captor.capture(), anyLong());
+		return captor.getValue();
+	}
+
+	static class CountingTask {
+
+		final AtomicInteger count = new AtomicInteger();
+
+		public void run() {
+			this.count.incrementAndGet();
+		}
+	}
+
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.support;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.testfixture.EnabledForTestGroups;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.springframework.core.testfixture.TestGroup.PERFORMANCE;
+
+/**
+ * @author agent
+ */
+public class CronExpressionTests {
+
+	private static final ZoneId CET = ZoneId.of("Europe/Berlin");
+
+
+	@Test
+	public void nextSecond() {
+		CronExpression expression = CronExpression.parse("* * * * * *");
+		ZonedDateTime start = LocalDateTime.of(2021, 1, 1, 10, 0, 0, 500_000_000).atZone(CET);
+		assertThat(expression.next(start)).isEqualTo(LocalDateTime.of(2021, 1, 1, 10, 0, 1).atZone(CET));
+	}
+
+	@Test
+	public void nextIsStrictlyAfter() {
+		CronExpression expression = CronExpression.parse("0 0 12 * * *");
+		ZonedDateTime noon = LocalDateTime.of(2021, 1, 1, 12, 0).atZone(CET);
+		assertThat(expression.next(noon)).isEqualTo(noon.plusDays(1));
+	}
+
+	@Test
+	public void rollOverMinuteHourDayMonthYear() {
+		CronExpression expression = CronExpression.parse("*/15 * 1-4 * * *");
+		assertThat(expression.next(LocalDateTime.of(2012, 7, 1, 9, 53, 50).atZone(CET)))
+				.isEqualTo(LocalDateTime.of(2012, 7, 2, 1, 0).atZone(CET));
+		expression = CronExpression.parse("0 0 0 1 1 *");
+		assertThat(expression.next(LocalDateTime.of(2021, 12, 31, 23, 59, 59).atZone(CET)))
+				.isEqualTo(LocalDateTime.of(2022, 1, 1, 0, 0).atZone(CET));
+	}
+
+	@Test
+	public void dayOfWeekAndDayOfMonth() {
+		// Friday the 13th
+		CronExpression expression = CronExpression.parse("0 0 0 13 * FRI");
+		ZonedDateTime next = expression.next(LocalDateTime.of(2021, 1, 1, 0, 0).atZone(CET));
+		assertThat(next).isEqualTo(LocalDateTime.of(2021, 8, 13, 0, 0).atZone(CET));
+		assertThat(next.getDayOfWeek()).isEqualTo(DayOfWeek.FRIDAY);
+	}
+
+	@Test
+	public void sundayAsZeroOrSeven() {
+		ZonedDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0).atZone(CET);
+		ZonedDateTime sunday = LocalDateTime.of(2021, 1, 3, 0, 0).atZone(CET);
+		assertThat(CronExpression.parse("0 0 0 * * 0").next(start)).isEqualTo(sunday);
+		assertThat(CronExpression.parse("0 0 0 * * 7").next(start)).isEqualTo(sunday);
+		assertThat(CronExpression.parse("0 0 0 * * SUN").next(start)).isEqualTo(sunday);
+		assertThat(CronExpression.parse("0 0 0 * * 0")).isEqualTo(CronExpression.parse("0 0 0 * * 7"));
+	}
+
+	@Test
+	public void leapDay() {
+		CronExpression expression = CronExpression.parse("0 0 0 29 2 *");
+		assertThat(expression.next(LocalDateTime.of(2021, 3, 1, 0, 0).atZone(CET)))
+				.isEqualTo(LocalDateTime.of(2024, 2, 29, 0, 0).atZone(CET));
+	}
+
+	@Test
+	public void leapDayOnMonday() {
+		CronExpression expression = CronExpression.parse("0 0 0 29 FEB MON");
+		assertThat(expression.next(LocalDateTime.of(2021, 1, 1, 0, 0).atZone(CET)))
+				.isEqualTo(LocalDateTime.of(2044, 2, 29, 0, 0).atZone(CET));
+	}
+
+	@Test
+	public void neverMatching() {
+		CronExpression expression = CronExpression.parse("0 0 0 31 6 *");
+		assertThat(expression.next(LocalDateTime.of(2021, 1, 1, 0, 0).atZone(CET))).isNull();
+	}
+
+	@Test
+	public void daylightSavingGapSkipped() {
+		CronExpression expression = CronExpression.parse("0 30 2 * * *");
+		ZonedDateTime start = LocalDateTime.of(2021, 3, 28, 0, 0).atZone(CET);
+		assertThat(expression.next(start)).isEqualTo(LocalDateTime.of(2021, 3, 29, 2, 30).atZone(CET));
+	}
+
+	@Test
+	public void daylightSavingGapContinuesAfterGap() {
+		CronExpression expression = CronExpression.parse("0 */20 * * * *");
+		ZonedDateTime start = LocalDateTime.of(2021, 3, 28, 1, 50).atZone(CET);
+		ZonedDateTime next = expression.next(start);
+		assertThat(next.toLocalDateTime()).isEqualTo(LocalDateTime.of(2021, 3, 28, 3, 0));
+		assertThat(next.toInstant()).isEqualTo(start.toInstant().plusSeconds(600));
+	}
+
+	@Test
+	public void daylightSavingOverlapMatchesOnce() {
+		CronExpression expression = CronExpression.parse("0 30 2 * * *");
+		ZonedDateTime start = LocalDateTime.of(2021, 10, 31, 0, 0).atZone(CET);
+		ZonedDateTime first = expression.next(start);
+		assertThat(first.toLocalDateTime()).isEqualTo(LocalDateTime.of(2021, 10, 31, 2, 30));
+		assertThat(expression.next(first)).isEqualTo(LocalDateTime.of(2021, 11, 1, 2, 30).atZone(CET));
+	}
+
+	@Test
+	public void daylightSavingOverlapHourly() {
+		CronExpression expression = CronExpression.parse("0 0 * * * *");
+		ZonedDateTime dateTime = LocalDateTime.of(2021, 10, 31, 1, 30).atZone(CET);
+		for (int i = 0; i < 3; i++) {
+			ZonedDateTime next = expression.next(dateTime);
+			assertThat(next).isAfter(dateTime);
+			dateTime = next;
+		}
+		assertThat(dateTime.toLocalDateTime()).isEqualTo(LocalDateTime.of(2021, 10, 31, 4, 0));
+	}
+
+	@Test
+	public void sameResultsAsCronSequenceGenerator() {
+		String[] expressions = {"*/15 * 1-4 * * *", "0 0 9-17 * * MON-FRI", "0 0/30 8-10 * * *",
+				"0 0 0 25 12 ?", "0 30 23 30 1/3 ?", "0 0 0 28-31 * *", "0 0 12 1,15 * *"};
+		TimeZone timeZone = TimeZone.getTimeZone("America/New_York");
+		for (String expression : expressions) {
+			CronSequenceGenerator generator = new CronSequenceGenerator(expression, timeZone);
+			CronExpression cronExpression = CronExpression.parse(expression);
+			Date date = new Date(1609459200000L);
+			for (int i = 0; i < 100; i++) {
+				Date expected = generator.next(date);
+				ZonedDateTime actual = cronExpression.next(date.toInstant().atZone(timeZone.toZoneId()));
+				assertThat(Date.from(actual.toInstant())).as(expression).isEqualTo(expected);
+				date = expected;
+			}
+		}
+	}
+
+	@Test
+	public void invalidExpressions() {
+		assertThatIllegalArgumentException().isThrownBy(() -> CronExpression.parse("* * * * *"));
+		assertThatIllegalArgumentException().isThrownBy(() -> CronExpression.parse("60 * * * * *"))
+				.withMessageContaining("Range exceeds maximum");
+		assertThatIllegalArgumentException().isThrownBy(() -> CronExpression.parse("* * * 0 0 *"))
+				.withMessageContaining("Range less than minimum");
+		assertThatIllegalArgumentException().isThrownBy(() -> CronExpression.parse("* * 5-2 * * *"))
+				.withMessageContaining("Invalid inverted range");
+		assertThatIllegalArgumentException().isThrownBy(() -> CronExpression.parse("*/0 * * * * *"));
+		assertThatIllegalArgumentException().isThrownBy(() -> CronExpression.parse("a * * * * *"));
+		assertThat(CronExpression.isValidExpression("0 0 12 * * MON-FRI")).isTrue();
+		assertThat(CronExpression.isValidExpression("0 0 12 * * XYZ")).isFalse();
+		assertThat(CronExpression.isValidExpression(null)).isFalse();
+	}
+
+	@Test
+	@EnabledForTestGroups(PERFORMANCE)
+	public void nextFireTimeThroughput() {
+		String[] expressions = {"*/10 * * * * *", "0 */15 * * * *", "0 0 9-17 * * MON-FRI", "0 0 0 * * MON"};
+		int iterations = 100000;
+		Log logger = LogFactory.getLog(getClass());
+		for (String expression : expressions) {
+			CronExpression cronExpression = CronExpression.parse(expression);
+			CronSequenceGenerator generator = new CronSequenceGenerator(expression, TimeZone.getTimeZone(CET));
+			StopWatch sw = new StopWatch(expression);
+			sw.start("CronExpression");
+			ZonedDateTime dateTime = LocalDateTime.of(2021, 1, 1, 0, 0).atZone(CET);
+			for (int i = 0; i < iterations; i++) {
+				dateTime = cronExpression.next(dateTime);
+			}
+			sw.stop();
+			sw.start("CronSequenceGenerator");
+			Date date = Date.from(LocalDateTime.of(2021, 1, 1, 0, 0).atZone(CET).toInstant());
+			for (int i = 0; i < iterations; i++) {
+				date = generator.next(date);
+			}
+			sw.stop();
+			assertThat(Date.from(dateTime.toInstant())).isEqualTo(date);
+			logger.info(sw.prettyPrint() + iterations * 1000L / Math.max(1, sw.getTaskInfo()[0].getTimeMillis()) +
+					" next-fire-time computations per second with CronExpression");
+		}
+	}
+
+}
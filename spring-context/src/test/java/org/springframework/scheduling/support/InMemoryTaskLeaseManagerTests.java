@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.support;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * @author agent
+ */
+public class InMemoryTaskLeaseManagerTests {
+
+	private final InMemoryTaskLeaseManager leaseManager = new InMemoryTaskLeaseManager();
+
+
+	@Test
+	public void acquireAndRelease() {
+		TaskLeaseManager.Lease lease = this.leaseManager.tryAcquire("task", Duration.ofMinutes(1));
+		assertThat(lease).isNotNull();
+		assertThat(this.leaseManager.isLeased("task")).isTrue();
+		assertThat(this.leaseManager.tryAcquire("task", Duration.ofMinutes(1))).isNull();
+		assertThat(this.leaseManager.tryAcquire("otherTask", Duration.ofMinutes(1))).isNotNull();
+
+		lease.release(Instant.now());
+		assertThat(this.leaseManager.isLeased("task")).isFalse();
+		assertThat(this.leaseManager.tryAcquire("task", Duration.ofMinutes(1))).isNotNull();
+	}
+
+	@Test
+	public void releaseWithHoldTime() {
+		TaskLeaseManager.Lease lease = this.leaseManager.tryAcquire("task", Duration.ofMinutes(1));
+		lease.release(Instant.now().plusSeconds(60));
+		assertThat(this.leaseManager.isLeased("task")).isTrue();
+		assertThat(this.leaseManager.tryAcquire("task", Duration.ofMinutes(1))).isNull();
+	}
+
+	@Test
+	public void expiredLeaseCanBeAcquiredElsewhere() throws Exception {
+		TaskLeaseManager.Lease lease = this.leaseManager.tryAcquire("task", Duration.ofMillis(10));
+		Thread.sleep(50);
+		assertThat(this.leaseManager.isLeased("task")).isFalse();
+		TaskLeaseManager.Lease otherLease = this.leaseManager.tryAcquire("task", Duration.ofMinutes(1));
+		assertThat(otherLease).isNotNull();
+		// Late release of the expired lease must not affect the new lease
+		lease.release(Instant.now());
+		assertThat(this.leaseManager.isLeased("task")).isTrue();
+	}
+
+	@Test
+	public void leasedTaskRunnable() {
+		AtomicInteger count = new AtomicInteger();
+		LeasedTaskRunnable runnable1 = new LeasedTaskRunnable(count::incrementAndGet, "task",
+				this.leaseManager, Duration.ofMinutes(1), Duration.ZERO);
+		LeasedTaskRunnable runnable2 = new LeasedTaskRunnable(() -> {
+			runnable1.run();
+			count.incrementAndGet();
+		}, "task2", this.leaseManager, Duration.ofMinutes(1), Duration.ZERO);
+
+		runnable1.run();
+		runnable1.run();
+		assertThat(count.get()).isEqualTo(2);
+		runnable2.run();
+		assertThat(count.get()).isEqualTo(4);
+		assertThat(this.leaseManager.isLeased("task")).isFalse();
+	}
+
+	@Test
+	public void leasedTaskRunnableReleasesOnFailure() {
+		LeasedTaskRunnable runnable = new LeasedTaskRunnable(() -> {
+			throw new IllegalStateException("expected");
+		}, "task", this.leaseManager, Duration.ofMinutes(1), Duration.ZERO);
+		assertThatIllegalStateException().isThrownBy(runnable::run);
+		assertThat(this.leaseManager.isLeased("task")).isFalse();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,10 @@ import org.springframework.util.concurrent.ListenableFutureTask;
  * <p>Supports limiting concurrent threads through the "concurrencyLimit"
  * bean property. By default, the number of concurrent threads is unlimited.
  *
+ * <p>As of 5.2.13, this executor may create virtual threads instead of platform
+ * threads on JDK 21+, see {@link #setVirtualThreads}. This is well suited for
+ * a large number of concurrent tasks which spend most of their time blocking.
+ *
  * <p><b>NOTE: This implementation does not reuse threads!</b> Consider a
  * thread-pooling TaskExecutor implementation instead, in particular for
  * executing a large number of short-lived tasks.
@@ -44,6 +48,7 @@ import org.springframework.util.concurrent.ListenableFutureTask;
  * @since 2.0
  * @see #setConcurrencyLimit
  * @see SyncTaskExecutor
+ * @see VirtualThreadTaskExecutor
  * @see org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
  * @see org.springframework.scheduling.commonj.WorkManagerTaskExecutor
  */
@@ -73,6 +78,8 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 	@Nullable
 	private TaskDecorator taskDecorator;
 
+	private boolean virtualThreads = false;
+
 
 	/**
 	 * Create a new SimpleAsyncTaskExecutor with default thread name prefix.
@@ -118,6 +125,32 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 		return this.threadFactory;
 	}
 
+	/**
+	 * Specify whether to create virtual threads instead of platform threads,
+	 * provided that the JVM supports them (JDK 21+). Thread names are still
+	 * derived from the "threadNamePrefix"; other thread settings such as
+	 * priority, daemon flag and thread group do not apply to virtual threads.
+	 * <p>Default is "false". If switched on while running on a JVM without
+	 * virtual thread support, this executor keeps creating platform threads.
+	 * An external {@link #setThreadFactory ThreadFactory} takes precedence.
+	 * @since 5.2.13
+	 * @see #isVirtualThreads()
+	 * @see VirtualThreadTaskExecutor
+	 */
+	public void setVirtualThreads(boolean virtual) {
+		this.virtualThreads = virtual;
+	}
+
+	/**
+	 * Return whether this executor actually creates virtual threads,
+	 * i.e. whether virtual threads have been requested and are supported.
+	 * @since 5.2.13
+	 * @see #setVirtualThreads
+	 */
+	public boolean isVirtualThreads() {
+		return (this.virtualThreads && VirtualThreadDelegate.isSupported());
+	}
+
 	/**
 	 * Specify a custom {@link TaskDecorator} to be applied to any {@link Runnable}
 	 * about to be executed.
@@ -168,6 +201,76 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 		return this.concurrencyThrottle.isThrottleActive();
 	}
 
+	/**
+	 * Specify whether tasks waiting for the concurrency limit should be
+	 * started in first-in-first-out order. Default is "false".
+	 * @since 5.2.13
+	 * @see ConcurrencyThrottleSupport#setFair
+	 */
+	public void setFairConcurrencyThrottle(boolean fair) {
+		this.concurrencyThrottle.setFair(fair);
+	}
+
+	/**
+	 * Specify the maximum number of milliseconds that a submitting thread
+	 * waits for the concurrency limit, before rejecting the task with a
+	 * {@link TaskRejectedException}. Default is -1, waiting indefinitely.
+	 * @since 5.2.13
+	 * @see ConcurrencyThrottleSupport#setAccessTimeout
+	 */
+	public void setConcurrencyAccessTimeout(long accessTimeout) {
+		this.concurrencyThrottle.setAccessTimeout(accessTimeout);
+	}
+
+	/**
+	 * Adapt the effective concurrency limit to the execution time of tasks,
+	 * reducing it when tasks take longer than the given threshold.
+	 * Default is -1, i.e. a fixed concurrency limit.
+	 * @param latencyThreshold the execution time threshold in milliseconds
+	 * @since 5.2.13
+	 * @see ConcurrencyThrottleSupport#setAdaptiveLatencyThreshold
+	 * @see #setMinConcurrencyLimit
+	 */
+	public void setAdaptiveLatencyThreshold(long latencyThreshold) {
+		this.concurrencyThrottle.setAdaptiveLatencyThreshold(latencyThreshold);
+	}
+
+	/**
+	 * Set the lower bound for the effective concurrency limit in adaptive mode.
+	 * Default is 1.
+	 * @since 5.2.13
+	 * @see #setAdaptiveLatencyThreshold
+	 */
+	public void setMinConcurrencyLimit(int minConcurrencyLimit) {
+		this.concurrencyThrottle.setMinConcurrencyLimit(minConcurrencyLimit);
+	}
+
+	/**
+	 * Return the currently effective concurrency limit.
+	 * @since 5.2.13
+	 * @see #setAdaptiveLatencyThreshold
+	 */
+	public final int getEffectiveConcurrencyLimit() {
+		return this.concurrencyThrottle.getEffectiveConcurrencyLimit();
+	}
+
+	/**
+	 * Return the number of tasks currently executing within the concurrency limit.
+	 * @since 5.2.13
+	 */
+	public final int getConcurrencyCount() {
+		return this.concurrencyThrottle.getConcurrencyCount();
+	}
+
+	/**
+	 * Return an estimate of the number of threads waiting to submit a task
+	 * due to the concurrency limit.
+	 * @since 5.2.13
+	 */
+	public final int getConcurrencyQueueLength() {
+		return this.concurrencyThrottle.getQueueLength();
+	}
+
 
 	/**
 	 * Executes the given task, within a concurrency throttle
@@ -234,11 +337,21 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 	 * <p>The default implementation creates a new Thread and starts it.
 	 * @param task the Runnable to execute
 	 * @see #setThreadFactory
+	 * @see #setVirtualThreads
 	 * @see #createThread
 	 * @see java.lang.Thread#start()
 	 */
 	protected void doExecute(Runnable task) {
-		Thread thread = (this.threadFactory != null ? this.threadFactory.newThread(task) : createThread(task));
+		Thread thread;
+		if (this.threadFactory != null) {
+			thread = this.threadFactory.newThread(task);
+		}
+		else if (isVirtualThreads()) {
+			thread = VirtualThreadDelegate.newVirtualThread(nextThreadName(), task);
+		}
+		else {
+			thread = createThread(task);
+		}
 		thread.start();
 	}
 
@@ -256,15 +369,21 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 		}
 
 		@Override
-		protected void afterAccess() {
-			super.afterAccess();
+		protected void onAccessRejected(String msg) {
+			throw new TaskRejectedException(msg);
+		}
+
+		@Override
+		protected void afterAccess(long elapsedNanos) {
+			super.afterAccess(elapsedNanos);
 		}
 	}
 
 
 	/**
 	 * This Runnable calls {@code afterAccess()} after the
-	 * target Runnable has finished its execution.
+	 * target Runnable has finished its execution, passing
+	 * the execution time on to the concurrency throttle.
 	 */
 	private class ConcurrencyThrottlingRunnable implements Runnable {
 
@@ -276,11 +395,12 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 
 		@Override
 		public void run() {
+			long startTime = System.nanoTime();
 			try {
 				this.target.run();
 			}
 			finally {
-				concurrencyThrottle.afterAccess();
+				concurrencyThrottle.afterAccess(System.nanoTime() - startTime);
 			}
 		}
 	}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics about task execution: queue wait times and execution times
+ * (each as a total plus a histogram), failures, rejections and concurrency.
+ *
+ * <p>Implemented as a {@link TaskDecorator}, measuring the queue wait time
+ * from decoration (on submission) to the start of the execution, and the
+ * execution time of the decorated task. As a consequence, an instance can be
+ * applied to any executor which supports a {@code TaskDecorator}, or composed
+ * with a custom decorator through {@link #decorate(TaskDecorator)}. Executors
+ * with explicit support for this class also record their rejections.
+ *
+ * <p>The histograms use power-of-two buckets in microseconds: bucket 0 counts
+ * times below 1&micro;s, bucket {@code n} counts times within
+ * [2<sup>n-1</sup>, 2<sup>n</sup>) &micro;s, and the last bucket all longer
+ * times. All recording is lock-free, based on {@link LongAdder} and
+ * {@link AtomicLongArray} counters.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor#setTaskExecutionMetrics
+ * @see org.springframework.scheduling.concurrent.ForkJoinPoolTaskExecutor#setTaskExecutionMetrics
+ */
+public class TaskExecutionMetrics implements TaskDecorator {
+
+	/** The number of histogram buckets, with the last one covering 2^31 microseconds and above. */
+	public static final int BUCKET_COUNT = 33;
+
+
+	private final LongAdder executionCount = new LongAdder();
+
+	private final LongAdder failureCount = new LongAdder();
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	private final LongAdder totalQueueWaitNanos = new LongAdder();
+
+	private final LongAdder totalExecutionNanos = new LongAdder();
+
+	private final AtomicLongArray queueWaitHistogram = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLongArray executionTimeHistogram = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final AtomicInteger peakActiveCount = new AtomicInteger();
+
+
+	/**
+	 * Decorate the given task for measuring its queue wait time and its
+	 * execution time. To be called at the time of submission.
+	 */
+	@Override
+	public Runnable decorate(Runnable runnable) {
+		long submitted = System.nanoTime();
+		return () -> {
+			long start = beforeExecution(submitted);
+			boolean success = false;
+			try {
+				runnable.run();
+				success = true;
+			}
+			finally {
+				afterExecution(start, success);
+			}
+		};
+	}
+
+	/**
+	 * Decorate the given {@link Callable} for measuring its queue wait time
+	 * and its execution time. To be called at the time of submission.
+	 * @param callable the task to decorate
+	 * @see #decorate(Runnable)
+	 */
+	public <V> Callable<V> decorateCallable(Callable<V> callable) {
+		long submitted = System.nanoTime();
+		return () -> {
+			long start = beforeExecution(submitted);
+			boolean success = false;
+			try {
+				V result = callable.call();
+				success = true;
+				return result;
+			}
+			finally {
+				afterExecution(start, success);
+			}
+		};
+	}
+
+	/**
+	 * Return a {@link TaskDecorator} which applies the given decorator
+	 * within the measurement of this metrics instance.
+	 * @param taskDecorator the custom decorator to apply to each task
+	 */
+	public TaskDecorator decorate(TaskDecorator taskDecorator) {
+		return runnable -> decorate(taskDecorator.decorate(runnable));
+	}
+
+
+	private long beforeExecution(long submitted) {
+		long start = System.nanoTime();
+		recordQueueWait(start - submitted);
+		int active = this.activeCount.incrementAndGet();
+		if (active > this.peakActiveCount.get()) {
+			this.peakActiveCount.accumulateAndGet(active, Math::max);
+		}
+		return start;
+	}
+
+	private void afterExecution(long start, boolean success) {
+		this.activeCount.decrementAndGet();
+		recordExecution(System.nanoTime() - start, success);
+	}
+
+	/**
+	 * Record the given time that a task spent waiting for execution.
+	 * @param nanos the queue wait time in nanoseconds
+	 */
+	public void recordQueueWait(long nanos) {
+		this.totalQueueWaitNanos.add(nanos);
+		this.queueWaitHistogram.incrementAndGet(bucketIndex(nanos));
+	}
+
+	/**
+	 * Record the given execution time of a task.
+	 * @param nanos the execution time in nanoseconds
+	 * @param success whether the task completed normally
+	 */
+	public void recordExecution(long nanos, boolean success) {
+		this.executionCount.increment();
+		if (!success) {
+			this.failureCount.increment();
+		}
+		this.totalExecutionNanos.add(nanos);
+		this.executionTimeHistogram.incrementAndGet(bucketIndex(nanos));
+	}
+
+	/**
+	 * Record the rejection of a task by the executor.
+	 */
+	public void recordRejection() {
+		this.rejectedCount.increment();
+	}
+
+
+	/**
+	 * Return the number of completed task executions (including failures).
+	 */
+	public long getExecutionCount() {
+		return this.executionCount.sum();
+	}
+
+	/**
+	 * Return the number of task executions which threw an exception.
+	 */
+	public long getFailureCount() {
+		return this.failureCount.sum();
+	}
+
+	/**
+	 * Return the number of tasks rejected by the executor.
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.sum();
+	}
+
+	/**
+	 * Return the number of decorated tasks currently executing.
+	 */
+	public int getActiveCount() {
+		return this.activeCount.get();
+	}
+
+	/**
+	 * Return the highest number of decorated tasks which have been
+	 * executing concurrently so far.
+	 */
+	public int getPeakActiveCount() {
+		return this.peakActiveCount.get();
+	}
+
+	/**
+	 * Return the average queue wait time of all started tasks.
+	 * @param unit the time unit to return the average in
+	 */
+	public long getAverageQueueWaitTime(TimeUnit unit) {
+		return average(this.totalQueueWaitNanos.sum(), sum(this.queueWaitHistogram), unit);
+	}
+
+	/**
+	 * Return the average execution time of all completed tasks.
+	 * @param unit the time unit to return the average in
+	 */
+	public long getAverageExecutionTime(TimeUnit unit) {
+		return average(this.totalExecutionNanos.sum(), getExecutionCount(), unit);
+	}
+
+	/**
+	 * Return a snapshot of the queue wait time histogram.
+	 * @return the count per bucket (see {@link #getBucketUpperBound})
+	 */
+	public long[] getQueueWaitHistogram() {
+		return snapshot(this.queueWaitHistogram);
+	}
+
+	/**
+	 * Return a snapshot of the execution time histogram.
+	 * @return the count per bucket (see {@link #getBucketUpperBound})
+	 */
+	public long[] getExecutionTimeHistogram() {
+		return snapshot(this.executionTimeHistogram);
+	}
+
+	/**
+	 * Return an upper bound for the given percentile of queue wait times,
+	 * with the precision of the histogram buckets.
+	 * @param percentile the percentile, between 0.0 and 1.0 (e.g. 0.99)
+	 * @param unit the time unit to return the bound in
+	 */
+	public long getQueueWaitPercentile(double percentile, TimeUnit unit) {
+		return percentile(this.queueWaitHistogram, percentile, unit);
+	}
+
+	/**
+	 * Return an upper bound for the given percentile of execution times,
+	 * with the precision of the histogram buckets.
+	 * @param percentile the percentile, between 0.0 and 1.0 (e.g. 0.99)
+	 * @param unit the time unit to return the bound in
+	 */
+	public long getExecutionTimePercentile(double percentile, TimeUnit unit) {
+		return percentile(this.executionTimeHistogram, percentile, unit);
+	}
+
+	/**
+	 * Return the exclusive upper bound of the given histogram bucket,
+	 * in microseconds ({@code Long.MAX_VALUE} for the last bucket).
+	 */
+	public static long getBucketUpperBound(int bucket) {
+		return (bucket < BUCKET_COUNT - 1 ? 1L << bucket : Long.MAX_VALUE);
+	}
+
+
+	private static int bucketIndex(long nanos) {
+		long micros = nanos / 1000;
+		if (micros <= 0) {
+			return 0;
+		}
+		return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+	}
+
+	private static long[] snapshot(AtomicLongArray histogram) {
+		long[] result = new long[histogram.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+
+	private static long sum(AtomicLongArray histogram) {
+		long sum = 0;
+		for (int i = 0; i < histogram.length(); i++) {
+			sum += histogram.get(i);
+		}
+		return sum;
+	}
+
+	private static long average(long totalNanos, long count, TimeUnit unit) {
+		return (count > 0 ? unit.convert(totalNanos / count, TimeUnit.NANOSECONDS) : 0);
+	}
+
+	private static long percentile(AtomicLongArray histogram, double percentile, TimeUnit unit) {
+		long[] counts = snapshot(histogram);
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long threshold = (long) Math.ceil(total * percentile);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= threshold && seen > 0) {
+				long bound = getBucketUpperBound(i);
+				return (bound == Long.MAX_VALUE ? Long.MAX_VALUE : unit.convert(bound, TimeUnit.MICROSECONDS));
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		return "TaskExecutionMetrics: executions=" + getExecutionCount() + ", failures=" + getFailureCount() +
+				", rejections=" + getRejectedCount() + ", peakConcurrency=" + getPeakActiveCount() +
+				", averageQueueWait=" +
+				getAverageQueueWaitTime(TimeUnit.MICROSECONDS) + "us, averageExecutionTime=" +
+				getAverageExecutionTime(TimeUnit.MICROSECONDS) + "us";
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.lang.reflect.Method;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Internal delegate for virtual thread handling on JDK 21+, detected reflectively
+ * ({@code Thread.ofVirtual()}) so that this code compiles and runs on earlier JDKs.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see VirtualThreadTaskExecutor
+ * @see SimpleAsyncTaskExecutor#setVirtualThreads
+ */
+final class VirtualThreadDelegate {
+
+	@Nullable
+	private static final Method ofVirtualMethod;
+
+	@Nullable
+	private static final Method nameMethod;
+
+	@Nullable
+	private static final Method unstartedMethod;
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method unstarted = null;
+		try {
+			Class<?> builderClass = ClassUtils.forName("java.lang.Thread$Builder", Thread.class.getClassLoader());
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			name = builderClass.getMethod("name", String.class);
+			unstarted = builderClass.getMethod("unstarted", Runnable.class);
+			// Virtual threads might still require --enable-preview on JDK 19/20
+			ofVirtual.invoke(null);
+		}
+		catch (Throwable ex) {
+			// Not running on a JDK with virtual thread support
+			ofVirtual = null;
+		}
+		ofVirtualMethod = ofVirtual;
+		nameMethod = name;
+		unstartedMethod = unstarted;
+	}
+
+
+	private VirtualThreadDelegate() {
+	}
+
+
+	/**
+	 * Determine whether virtual threads are supported on the current JVM.
+	 */
+	public static boolean isSupported() {
+		return (ofVirtualMethod != null);
+	}
+
+	/**
+	 * Create a new unstarted virtual thread with the given name.
+	 * @param name the thread name
+	 * @param task the task to run in the thread
+	 * @return the virtual thread (not started yet)
+	 * @throws IllegalStateException if virtual threads are not supported
+	 */
+	public static Thread newVirtualThread(String name, Runnable task) {
+		Assert.state(ofVirtualMethod != null && nameMethod != null && unstartedMethod != null,
+				"Virtual threads not supported on this JVM");
+		Object builder = ReflectionUtils.invokeMethod(ofVirtualMethod, null);
+		builder = ReflectionUtils.invokeMethod(nameMethod, builder, name);
+		Thread thread = (Thread) ReflectionUtils.invokeMethod(unstartedMethod, builder, task);
+		Assert.state(thread != null, "No virtual thread created");
+		return thread;
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link TaskExecutor} implementation which runs each task on a new virtual
+ * thread when running on JDK 21+, falling back to a shared pool of reusable
+ * platform threads on earlier JDKs.
+ *
+ * <p>Intended for a large number of tasks which spend most of their time
+ * blocking, e.g. on I/O: in contrast to a {@link SimpleAsyncTaskExecutor}
+ * with platform threads, the cost of a thread per task is negligible here.
+ * The fallback pool grows on demand and shrinks again after 60 seconds of
+ * inactivity, so it is recommended to specify a {@link #setConcurrencyLimit
+ * concurrency limit} when running on earlier JDKs. The limit is applied
+ * through a semaphore in either mode, blocking the submitting thread.
+ *
+ * <p>Threads (virtual or pooled) are named according to the
+ * {@link #setThreadNamePrefix "threadNamePrefix"}; pooled threads
+ * are daemon threads by default.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see SimpleAsyncTaskExecutor#setVirtualThreads
+ * @see #setConcurrencyLimit
+ */
+@SuppressWarnings("serial")
+public class VirtualThreadTaskExecutor extends SimpleAsyncTaskExecutor {
+
+	@Nullable
+	private transient volatile ThreadPoolExecutor fallbackExecutor;
+
+
+	/**
+	 * Create a new VirtualThreadTaskExecutor with default thread name prefix.
+	 */
+	public VirtualThreadTaskExecutor() {
+		super();
+		initDefaults();
+	}
+
+	/**
+	 * Create a new VirtualThreadTaskExecutor with the given thread name prefix.
+	 * @param threadNamePrefix the prefix to use for the names of newly created threads
+	 */
+	public VirtualThreadTaskExecutor(String threadNamePrefix) {
+		super(threadNamePrefix);
+		initDefaults();
+	}
+
+	private void initDefaults() {
+		setVirtualThreads(true);
+		setDaemon(true);
+	}
+
+
+	/**
+	 * Return whether this executor runs its tasks on virtual threads,
+	 * as opposed to the fallback pool of platform threads.
+	 */
+	public boolean isVirtual() {
+		return isVirtualThreads();
+	}
+
+	/**
+	 * Return the number of threads currently held by the fallback pool
+	 * (always 0 when running on virtual threads).
+	 */
+	public int getFallbackPoolSize() {
+		ThreadPoolExecutor fallbackExecutor = this.fallbackExecutor;
+		return (fallbackExecutor != null ? fallbackExecutor.getPoolSize() : 0);
+	}
+
+
+	/**
+	 * This implementation starts a new virtual thread if supported,
+	 * delegating to the fallback pool of platform threads otherwise.
+	 */
+	@Override
+	protected void doExecute(Runnable task) {
+		if (isVirtualThreads()) {
+			super.doExecute(task);
+		}
+		else {
+			ThreadPoolExecutor fallbackExecutor = obtainFallbackExecutor();
+			try {
+				fallbackExecutor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				throw new TaskRejectedException("Executor [" + fallbackExecutor + "] did not accept task: " + task, ex);
+			}
+		}
+	}
+
+	private ThreadPoolExecutor obtainFallbackExecutor() {
+		ThreadPoolExecutor fallbackExecutor = this.fallbackExecutor;
+		if (fallbackExecutor == null) {
+			synchronized (this) {
+				fallbackExecutor = this.fallbackExecutor;
+				if (fallbackExecutor == null) {
+					ThreadFactory threadFactory = getThreadFactory();
+					fallbackExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+							new SynchronousQueue<>(), (threadFactory != null ? threadFactory : this::createThread));
+					this.fallbackExecutor = fallbackExecutor;
+				}
+			}
+		}
+		return fallbackExecutor;
+	}
+
+}
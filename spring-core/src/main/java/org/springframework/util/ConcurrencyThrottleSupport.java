@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,10 @@ package org.springframework.util;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +39,15 @@ import org.apache.commons.logging.LogFactory;
  * ("unbounded concurrency"). Subclasses may override this default;
  * check the javadoc of the concrete class that you're using.
  *
+ * <p>As of 5.2.13, the throttle is implemented with a {@link Semaphore}
+ * rather than a shared monitor, so that threads entering and leaving the
+ * throttle do not contend for a common lock, and so that waiting does not
+ * pin the carrier thread when running on virtual threads. Furthermore,
+ * the throttle may be {@link #setFair fair}, may reject access after a
+ * {@link #setAccessTimeout timeout}, and may adapt its effective limit
+ * to the observed latency of throttled invocations: see
+ * {@link #setAdaptiveLatencyThreshold}.
+ *
  * @author Juergen Hoeller
  * @since 1.2.5
  * @see #setConcurrencyLimit
@@ -60,11 +73,25 @@ public abstract class ConcurrencyThrottleSupport implements Serializable {
 	/** Transient to optimize serialization. */
 	protected transient Log logger = LogFactory.getLog(getClass());
 
-	private transient Object monitor = new Object();
+	private transient volatile ThrottleSemaphore semaphore = new ThrottleSemaphore(0, false);
+
+	private volatile int concurrencyLimit = UNBOUNDED_CONCURRENCY;
+
+	private boolean fair = false;
+
+	private volatile long accessTimeout = -1;
+
+	private volatile long latencyThresholdNanos = -1;
 
-	private int concurrencyLimit = UNBOUNDED_CONCURRENCY;
+	private volatile int minConcurrencyLimit = 1;
 
-	private int concurrencyCount = 0;
+	/** The currently effective limit, i.e. the number of permits in the semaphore. */
+	private transient AtomicInteger effectiveLimit = new AtomicInteger();
+
+	/** The number of latency samples since the last limit adjustment. */
+	private transient AtomicInteger sampleCount = new AtomicInteger();
+
+	private transient AtomicLong rejectedCount = new AtomicLong();
 
 
 	/**
@@ -77,7 +104,10 @@ public abstract class ConcurrencyThrottleSupport implements Serializable {
 	 * of -1 effectively turns off concurrency counting completely.
 	 */
 	public void setConcurrencyLimit(int concurrencyLimit) {
+		int newLimit = Math.max(concurrencyLimit, 0);
 		this.concurrencyLimit = concurrencyLimit;
+		this.semaphore.adjustPermits(newLimit - this.effectiveLimit.getAndSet(newLimit));
+		this.sampleCount.set(0);
 	}
 
 	/**
@@ -96,6 +126,114 @@ public abstract class ConcurrencyThrottleSupport implements Serializable {
 		return (this.concurrencyLimit >= 0);
 	}
 
+	/**
+	 * Specify whether waiting threads should be granted access in
+	 * first-in-first-out order.
+	 * <p>Default is "false", allowing arriving threads to barge ahead of waiting
+	 * threads, for higher throughput. Switch this to "true" to avoid starvation
+	 * of individual callers at high contention levels.
+	 * <p>NOTE: This is a config time setting, not to be changed while
+	 * accesses are in progress.
+	 * @since 5.2.13
+	 */
+	public void setFair(boolean fair) {
+		this.fair = fair;
+		this.semaphore = new ThrottleSemaphore(this.effectiveLimit.get(), fair);
+	}
+
+	/**
+	 * Return whether waiting threads are granted access in first-in-first-out order.
+	 * @since 5.2.13
+	 */
+	public boolean isFair() {
+		return this.fair;
+	}
+
+	/**
+	 * Specify the maximum number of milliseconds to wait for access once
+	 * the concurrency limit has been reached.
+	 * <p>Default is -1, waiting indefinitely. A value of 0 rejects any access
+	 * beyond the concurrency limit immediately. A rejection is signalled
+	 * through {@link #onAccessRejected}, by default as {@link IllegalStateException}.
+	 * @since 5.2.13
+	 * @see #getRejectedCount()
+	 */
+	public void setAccessTimeout(long accessTimeout) {
+		this.accessTimeout = accessTimeout;
+	}
+
+	/**
+	 * Return the maximum number of milliseconds to wait for access.
+	 * @since 5.2.13
+	 */
+	public long getAccessTimeout() {
+		return this.accessTimeout;
+	}
+
+	/**
+	 * Adapt the effective concurrency limit to the observed latency of throttled
+	 * invocations, following an AIMD scheme: every invocation taking longer than
+	 * the given threshold halves the effective limit (at most once per round of
+	 * invocations, and not below the {@link #setMinConcurrencyLimit minimum}),
+	 * whereas a round of invocations within the threshold increases it by one,
+	 * up to the configured {@link #setConcurrencyLimit concurrency limit}.
+	 * <p>Default is -1, i.e. a fixed concurrency limit. Latencies are only
+	 * observed by subclasses which call {@link #afterAccess(long)}.
+	 * @param latencyThreshold the latency threshold in milliseconds
+	 * @since 5.2.13
+	 * @see #getEffectiveConcurrencyLimit()
+	 */
+	public void setAdaptiveLatencyThreshold(long latencyThreshold) {
+		this.latencyThresholdNanos = (latencyThreshold > 0 ? TimeUnit.MILLISECONDS.toNanos(latencyThreshold) : -1);
+	}
+
+	/**
+	 * Set the lower bound for the effective concurrency limit in adaptive mode.
+	 * <p>Default is 1.
+	 * @since 5.2.13
+	 * @see #setAdaptiveLatencyThreshold
+	 */
+	public void setMinConcurrencyLimit(int minConcurrencyLimit) {
+		Assert.isTrue(minConcurrencyLimit > 0, "Minimum concurrency limit must be greater than 0");
+		this.minConcurrencyLimit = minConcurrencyLimit;
+	}
+
+	/**
+	 * Return the currently effective concurrency limit: the configured limit,
+	 * or a lower value if reduced due to high latency in adaptive mode.
+	 * @since 5.2.13
+	 * @see #setAdaptiveLatencyThreshold
+	 */
+	public int getEffectiveConcurrencyLimit() {
+		return (this.concurrencyLimit > 0 ? this.effectiveLimit.get() : this.concurrencyLimit);
+	}
+
+	/**
+	 * Return the current number of concurrent accesses within the throttle.
+	 * <p>Only counted when a concrete concurrency limit is active.
+	 * @since 5.2.13
+	 */
+	public int getConcurrencyCount() {
+		return Math.max(this.effectiveLimit.get() - this.semaphore.availablePermits(), 0);
+	}
+
+	/**
+	 * Return an estimate of the number of threads currently waiting for access.
+	 * @since 5.2.13
+	 */
+	public int getQueueLength() {
+		return this.semaphore.getQueueLength();
+	}
+
+	/**
+	 * Return the number of access attempts rejected due to the access timeout.
+	 * @since 5.2.13
+	 * @see #setAccessTimeout
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.get();
+	}
+
 
 	/**
 	 * To be invoked before the main execution logic of concrete subclasses.
@@ -103,54 +241,107 @@ public abstract class ConcurrencyThrottleSupport implements Serializable {
 	 * @see #afterAccess()
 	 */
 	protected void beforeAccess() {
-		if (this.concurrencyLimit == NO_CONCURRENCY) {
+		int concurrencyLimit = this.concurrencyLimit;
+		if (concurrencyLimit == NO_CONCURRENCY) {
 			throw new IllegalStateException(
 					"Currently no invocations allowed - concurrency limit set to NO_CONCURRENCY");
 		}
-		if (this.concurrencyLimit > 0) {
+		if (concurrencyLimit > 0) {
 			boolean debug = logger.isDebugEnabled();
-			synchronized (this.monitor) {
-				boolean interrupted = false;
-				while (this.concurrencyCount >= this.concurrencyLimit) {
-					if (interrupted) {
-						throw new IllegalStateException("Thread was interrupted while waiting for invocation access, " +
-								"but concurrency limit still does not allow for entering");
-					}
-					if (debug) {
-						logger.debug("Concurrency count " + this.concurrencyCount +
-								" has reached limit " + this.concurrencyLimit + " - blocking");
-					}
-					try {
-						this.monitor.wait();
+			ThrottleSemaphore semaphore = this.semaphore;
+			if (!semaphore.tryAcquire()) {
+				if (debug) {
+					logger.debug("Concurrency count " + getConcurrencyCount() +
+							" has reached limit " + getEffectiveConcurrencyLimit() + " - blocking");
+				}
+				long accessTimeout = this.accessTimeout;
+				try {
+					if (accessTimeout < 0) {
+						semaphore.acquire();
 					}
-					catch (InterruptedException ex) {
-						// Re-interrupt current thread, to allow other threads to react.
-						Thread.currentThread().interrupt();
-						interrupted = true;
+					else if (!semaphore.tryAcquire(accessTimeout, TimeUnit.MILLISECONDS)) {
+						this.rejectedCount.incrementAndGet();
+						onAccessRejected("Concurrency limit " + getEffectiveConcurrencyLimit() +
+								" still reached after waiting for " + accessTimeout + " ms");
+						return;
 					}
 				}
-				if (debug) {
-					logger.debug("Entering throttle at concurrency count " + this.concurrencyCount);
+				catch (InterruptedException ex) {
+					// Re-interrupt current thread, to allow other threads to react.
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Thread was interrupted while waiting for invocation access, " +
+							"but concurrency limit still does not allow for entering");
 				}
-				this.concurrencyCount++;
+			}
+			if (debug) {
+				logger.debug("Entering throttle at concurrency count " + (getConcurrencyCount() - 1));
 			}
 		}
 	}
 
+	/**
+	 * Template method for handling a rejected access attempt, i.e. when the
+	 * concurrency limit has still been reached after the access timeout.
+	 * <p>The default implementation throws an {@link IllegalStateException}.
+	 * Subclasses may throw a more specific exception but must not return
+	 * normally, since no access has been granted.
+	 * @param msg a message describing the rejection
+	 * @since 5.2.13
+	 * @see #setAccessTimeout
+	 */
+	protected void onAccessRejected(String msg) {
+		throw new IllegalStateException(msg);
+	}
+
 	/**
 	 * To be invoked after the main execution logic of concrete subclasses.
 	 * @see #beforeAccess()
+	 * @see #afterAccess(long)
 	 */
 	protected void afterAccess() {
-		if (this.concurrencyLimit >= 0) {
-			synchronized (this.monitor) {
-				this.concurrencyCount--;
+		if (this.concurrencyLimit > 0) {
+			this.semaphore.release();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Returning from throttle at concurrency count " + getConcurrencyCount());
+			}
+		}
+	}
+
+	/**
+	 * To be invoked after the main execution logic of concrete subclasses,
+	 * providing the time taken for adapting the effective concurrency limit.
+	 * @param elapsedNanos the time spent within the throttle in nanoseconds
+	 * @since 5.2.13
+	 * @see #setAdaptiveLatencyThreshold
+	 */
+	protected void afterAccess(long elapsedNanos) {
+		if (this.concurrencyLimit > 0 && this.latencyThresholdNanos > 0) {
+			adaptConcurrencyLimit(elapsedNanos);
+		}
+		afterAccess();
+	}
+
+	private void adaptConcurrencyLimit(long elapsedNanos) {
+		int current = this.effectiveLimit.get();
+		int samples = this.sampleCount.incrementAndGet();
+		if (elapsedNanos > this.latencyThresholdNanos) {
+			// Multiplicative decrease, at most once per round of invocations
+			int reduced = Math.max(current / 2, Math.min(this.minConcurrencyLimit, this.concurrencyLimit));
+			if (samples > 0 && reduced < current && this.effectiveLimit.compareAndSet(current, reduced)) {
+				this.sampleCount.set(-reduced);
+				this.semaphore.adjustPermits(reduced - current);
 				if (logger.isDebugEnabled()) {
-					logger.debug("Returning from throttle at concurrency count " + this.concurrencyCount);
+					logger.debug("Reduced effective concurrency limit to " + reduced + " due to latency of " +
+							TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms");
 				}
-				this.monitor.notify();
 			}
 		}
+		else if (samples >= current && current < this.concurrencyLimit &&
+				this.effectiveLimit.compareAndSet(current, current + 1)) {
+			// Additive increase after a round of invocations within the latency threshold
+			this.sampleCount.set(0);
+			this.semaphore.adjustPermits(1);
+		}
 	}
 
 
@@ -163,8 +354,34 @@ public abstract class ConcurrencyThrottleSupport implements Serializable {
 		ois.defaultReadObject();
 
 		// Initialize transient fields.
+		int limit = Math.max(this.concurrencyLimit, 0);
 		this.logger = LogFactory.getLog(getClass());
-		this.monitor = new Object();
+		this.semaphore = new ThrottleSemaphore(limit, this.fair);
+		this.effectiveLimit = new AtomicInteger(limit);
+		this.sampleCount = new AtomicInteger();
+		this.rejectedCount = new AtomicLong();
+	}
+
+
+	/**
+	 * Semaphore variant which allows for adjusting the number of permits
+	 * according to a changed concurrency limit.
+	 */
+	@SuppressWarnings("serial")
+	private static class ThrottleSemaphore extends Semaphore {
+
+		public ThrottleSemaphore(int permits, boolean fair) {
+			super(permits, fair);
+		}
+
+		public void adjustPermits(int delta) {
+			if (delta > 0) {
+				release(delta);
+			}
+			else if (delta < 0) {
+				reducePermits(-delta);
+			}
+		}
 	}
 
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Simple LRU (Least Recently Used) cache, bounded by a specified cache limit.
+ *
+ * <p>This implementation is backed by a {@code ConcurrentHashMap} for storing
+ * the cached values. Cache hits are lock-free and allocation-free: they only
+ * record the current access epoch on the cached entry, with a new epoch being
+ * started by every cache miss. When the cache limit is exceeded, an entry
+ * from the least recent epoch is evicted, which makes this an approximation
+ * of LRU order that is exact with respect to the sequence of misses.
+ *
+ * <p>Values are generated outside of any lock: concurrent misses for the same
+ * key may generate the value more than once, with only one of them retained.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @param <K> the type of the key used for cache retrieval
+ * @param <V> the type of the cached values
+ * @see #get
+ */
+public class ConcurrentLruCache<K, V> {
+
+	private final int sizeLimit;
+
+	private final Function<K, V> generator;
+
+	private final ConcurrentHashMap<K, CacheEntry<V>> cache = new ConcurrentHashMap<>();
+
+	private final AtomicLong epoch = new AtomicLong();
+
+	private final Lock evictionLock = new ReentrantLock();
+
+
+	/**
+	 * Create a new cache instance with the given limit and generator function.
+	 * @param sizeLimit the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value)
+	 * @param generator a function to generate a new value for a given key
+	 */
+	public ConcurrentLruCache(int sizeLimit, Function<K, V> generator) {
+		Assert.isTrue(sizeLimit >= 0, "Cache size limit must not be negative");
+		Assert.notNull(generator, "Generator function must not be null");
+		this.sizeLimit = sizeLimit;
+		this.generator = generator;
+	}
+
+
+	/**
+	 * Retrieve an entry from the cache, potentially triggering generation
+	 * of the value.
+	 * @param key the key to retrieve the entry for
+	 * @return the cached or newly generated value
+	 */
+	public V get(K key) {
+		if (this.sizeLimit == 0) {
+			return this.generator.apply(key);
+		}
+
+		CacheEntry<V> entry = this.cache.get(key);
+		if (entry != null) {
+			long currentEpoch = this.epoch.get();
+			if (entry.lastAccess != currentEpoch) {
+				entry.lastAccess = currentEpoch;
+			}
+			return entry.value;
+		}
+
+		// A new entry starts an epoch of its own, ordered before all subsequent hits
+		V value = this.generator.apply(key);
+		CacheEntry<V> newEntry = new CacheEntry<>(value, this.epoch.addAndGet(2) - 1);
+		CacheEntry<V> existing = this.cache.putIfAbsent(key, newEntry);
+		if (existing != null) {
+			return existing.value;
+		}
+		if (this.cache.size() > this.sizeLimit) {
+			evict();
+		}
+		return value;
+	}
+
+	/**
+	 * Evict entries from the least recent access epochs until the cache
+	 * is within its size limit again.
+	 */
+	private void evict() {
+		this.evictionLock.lock();
+		try {
+			while (this.cache.size() > this.sizeLimit) {
+				Map.Entry<K, CacheEntry<V>> leastRecent = null;
+				for (Map.Entry<K, CacheEntry<V>> candidate : this.cache.entrySet()) {
+					if (leastRecent == null || candidate.getValue().lastAccess < leastRecent.getValue().lastAccess) {
+						leastRecent = candidate;
+					}
+				}
+				if (leastRecent == null) {
+					return;
+				}
+				this.cache.remove(leastRecent.getKey(), leastRecent.getValue());
+			}
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Determine whether the given key is present in this cache.
+	 * @param key the key to check for
+	 * @return {@code true} if the key is present,
+	 * {@code false} if there was no matching key
+	 */
+	public boolean contains(K key) {
+		return this.cache.containsKey(key);
+	}
+
+	/**
+	 * Immediately remove the given key and any associated value.
+	 * @param key the key to evict the entry for
+	 * @return {@code true} if the key was present before,
+	 * {@code false} if there was no matching key
+	 */
+	public boolean remove(K key) {
+		return (this.cache.remove(key) != null);
+	}
+
+	/**
+	 * Immediately remove all entries from this cache.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Return the current size of the cache.
+	 * @see #sizeLimit()
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Return the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value).
+	 * @see #size()
+	 */
+	public int sizeLimit() {
+		return this.sizeLimit;
+	}
+
+
+	private static final class CacheEntry<V> {
+
+		final V value;
+
+		volatile long lastAccess;
+
+		CacheEntry(V value, long lastAccess) {
+			this.value = value;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * A {@link CompletableFuture} which implements {@link ListenableFuture} as well,
+ * exposing itself from {@link #completable()} and notifying its callbacks on its
+ * own completion, without any intermediate adapter.
+ *
+ * <p>Callbacks are kept in a lock-free {@link ListenableFutureCallbackRegistry}
+ * which is only created - and connected to the completion of this future -
+ * once the first callback is added. Failure callbacks receive the exception
+ * that this future has been completed with, e.g. a
+ * {@link java.util.concurrent.CancellationException} after cancellation.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @param <T> the result type returned by this Future's {@code get} method
+ * @see CompletableToListenableFutureAdapter
+ */
+public class CompletableListenableFuture<T> extends CompletableFuture<T> implements ListenableFuture<T> {
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<CompletableListenableFuture, ListenableFutureCallbackRegistry>
+			CALLBACKS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+					CompletableListenableFuture.class, ListenableFutureCallbackRegistry.class, "callbacks");
+
+
+	@Nullable
+	private volatile ListenableFutureCallbackRegistry<T> callbacks;
+
+
+	@Override
+	public void addCallback(ListenableFutureCallback<? super T> callback) {
+		obtainCallbacks().addCallback(callback);
+	}
+
+	@Override
+	public void addCallback(SuccessCallback<? super T> successCallback, FailureCallback failureCallback) {
+		obtainCallbacks().addCallback(successCallback, failureCallback);
+	}
+
+	/**
+	 * This implementation returns this future itself.
+	 */
+	@Override
+	public CompletableFuture<T> completable() {
+		return this;
+	}
+
+	private ListenableFutureCallbackRegistry<T> obtainCallbacks() {
+		ListenableFutureCallbackRegistry<T> registry = this.callbacks;
+		if (registry == null) {
+			registry = new ListenableFutureCallbackRegistry<>();
+			if (CALLBACKS_UPDATER.compareAndSet(this, null, registry)) {
+				connect(this, registry);
+			}
+			else {
+				registry = this.callbacks;
+			}
+		}
+		return registry;
+	}
+
+
+	/**
+	 * Connect the given callback registry to the completion of the given future.
+	 */
+	static <T> void connect(CompletableFuture<T> future, ListenableFutureCallbackRegistry<T> registry) {
+		future.whenComplete((result, ex) -> {
+			if (ex != null) {
+				registry.failure(ex);
+			}
+			else {
+				registry.success(result);
+			}
+		});
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,11 +21,18 @@ import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.springframework.lang.Nullable;
 
 /**
  * Adapts a {@link CompletableFuture} or {@link CompletionStage} into a
  * Spring {@link ListenableFuture}.
  *
+ * <p>As of 5.2.13, callbacks are only connected to the given future once the
+ * first callback is added, and directly delegated to a given
+ * {@link CompletableListenableFuture} which is able to handle them itself.
+ *
  * @author Sebastien Deleuze
  * @author Juergen Hoeller
  * @since 4.2
@@ -33,9 +40,16 @@ import java.util.concurrent.TimeoutException;
  */
 public class CompletableToListenableFutureAdapter<T> implements ListenableFuture<T> {
 
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<CompletableToListenableFutureAdapter, ListenableFutureCallbackRegistry>
+			CALLBACKS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+					CompletableToListenableFutureAdapter.class, ListenableFutureCallbackRegistry.class, "callbacks");
+
+
 	private final CompletableFuture<T> completableFuture;
 
-	private final ListenableFutureCallbackRegistry<T> callbacks = new ListenableFutureCallbackRegistry<>();
+	@Nullable
+	private volatile ListenableFutureCallbackRegistry<T> callbacks;
 
 
 	/**
@@ -51,26 +65,22 @@ public class CompletableToListenableFutureAdapter<T> implements ListenableFuture
 	 */
 	public CompletableToListenableFutureAdapter(CompletableFuture<T> completableFuture) {
 		this.completableFuture = completableFuture;
-		this.completableFuture.whenComplete((result, ex) -> {
-			if (ex != null) {
-				this.callbacks.failure(ex);
-			}
-			else {
-				this.callbacks.success(result);
-			}
-		});
 	}
 
 
 	@Override
 	public void addCallback(ListenableFutureCallback<? super T> callback) {
-		this.callbacks.addCallback(callback);
+		addCallback(callback, callback);
 	}
 
 	@Override
 	public void addCallback(SuccessCallback<? super T> successCallback, FailureCallback failureCallback) {
-		this.callbacks.addSuccessCallback(successCallback);
-		this.callbacks.addFailureCallback(failureCallback);
+		if (this.completableFuture instanceof CompletableListenableFuture) {
+			((CompletableListenableFuture<T>) this.completableFuture).addCallback(successCallback, failureCallback);
+		}
+		else {
+			obtainCallbacks().addCallback(successCallback, failureCallback);
+		}
 	}
 
 	@Override
@@ -78,6 +88,20 @@ public class CompletableToListenableFutureAdapter<T> implements ListenableFuture
 		return this.completableFuture;
 	}
 
+	private ListenableFutureCallbackRegistry<T> obtainCallbacks() {
+		ListenableFutureCallbackRegistry<T> registry = this.callbacks;
+		if (registry == null) {
+			registry = new ListenableFutureCallbackRegistry<>();
+			if (CALLBACKS_UPDATER.compareAndSet(this, null, registry)) {
+				CompletableListenableFuture.connect(this.completableFuture, registry);
+			}
+			else {
+				registry = this.callbacks;
+			}
+		}
+		return registry;
+	}
+
 
 	@Override
 	public boolean cancel(boolean mayInterruptIfRunning) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,7 @@
 
 package org.springframework.util.concurrent;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -28,24 +27,32 @@ import org.springframework.util.Assert;
  *
  * <p>Inspired by {@code com.google.common.util.concurrent.ExecutionList}.
  *
+ * <p>As of 5.2.13, this registry is lock-free: pending callbacks are kept in
+ * a linked stack of nodes (one per registration) which is atomically replaced
+ * by the outcome on completion, and then notified in registration order.
+ * The first outcome wins; any subsequent {@link #success}/{@link #failure}
+ * calls are ignored.
+ *
  * @author Arjen Poutsma
  * @author Sebastien Deleuze
  * @author Rossen Stoyanchev
+ * @author agent
  * @since 4.0
  * @param <T> the callback result type
  */
 public class ListenableFutureCallbackRegistry<T> {
 
-	private final Queue<SuccessCallback<? super T>> successCallbacks = new LinkedList<>();
-
-	private final Queue<FailureCallback> failureCallbacks = new LinkedList<>();
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<ListenableFutureCallbackRegistry, Object> STATE_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(ListenableFutureCallbackRegistry.class, Object.class, "state");
 
-	private State state = State.NEW;
 
+	/**
+	 * Either {@code null} (no callbacks yet), the top {@link CallbackNode}
+	 * of the pending callbacks, or the final {@link Outcome}.
+	 */
 	@Nullable
-	private Object result;
-
-	private final Object mutex = new Object();
+	private volatile Object state;
 
 
 	/**
@@ -54,40 +61,20 @@ public class ListenableFutureCallbackRegistry<T> {
 	 */
 	public void addCallback(ListenableFutureCallback<? super T> callback) {
 		Assert.notNull(callback, "'callback' must not be null");
-		synchronized (this.mutex) {
-			switch (this.state) {
-				case NEW:
-					this.successCallbacks.add(callback);
-					this.failureCallbacks.add(callback);
-					break;
-				case SUCCESS:
-					notifySuccess(callback);
-					break;
-				case FAILURE:
-					notifyFailure(callback);
-					break;
-			}
-		}
-	}
-
-	@SuppressWarnings("unchecked")
-	private void notifySuccess(SuccessCallback<? super T> callback) {
-		try {
-			callback.onSuccess((T) this.result);
-		}
-		catch (Throwable ex) {
-			// Ignore
-		}
+		register(callback, callback);
 	}
 
-	private void notifyFailure(FailureCallback callback) {
-		Assert.state(this.result instanceof Throwable, "No Throwable result for failure state");
-		try {
-			callback.onFailure((Throwable) this.result);
-		}
-		catch (Throwable ex) {
-			// Ignore
-		}
+	/**
+	 * Add the given success and failure callbacks to this registry,
+	 * as a single registration.
+	 * @param successCallback the success callback to add
+	 * @param failureCallback the failure callback to add
+	 * @since 5.2.13
+	 */
+	public void addCallback(SuccessCallback<? super T> successCallback, FailureCallback failureCallback) {
+		Assert.notNull(successCallback, "'successCallback' must not be null");
+		Assert.notNull(failureCallback, "'failureCallback' must not be null");
+		register(successCallback, failureCallback);
 	}
 
 	/**
@@ -97,16 +84,7 @@ public class ListenableFutureCallbackRegistry<T> {
 	 */
 	public void addSuccessCallback(SuccessCallback<? super T> callback) {
 		Assert.notNull(callback, "'callback' must not be null");
-		synchronized (this.mutex) {
-			switch (this.state) {
-				case NEW:
-					this.successCallbacks.add(callback);
-					break;
-				case SUCCESS:
-					notifySuccess(callback);
-					break;
-			}
-		}
+		register(callback, null);
 	}
 
 	/**
@@ -116,14 +94,26 @@ public class ListenableFutureCallbackRegistry<T> {
 	 */
 	public void addFailureCallback(FailureCallback callback) {
 		Assert.notNull(callback, "'callback' must not be null");
-		synchronized (this.mutex) {
-			switch (this.state) {
-				case NEW:
-					this.failureCallbacks.add(callback);
-					break;
-				case FAILURE:
-					notifyFailure(callback);
-					break;
+		register(null, callback);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void register(@Nullable SuccessCallback<? super T> successCallback,
+			@Nullable FailureCallback failureCallback) {
+
+		CallbackNode<T> node = null;
+		while (true) {
+			Object current = this.state;
+			if (current instanceof Outcome) {
+				notify((Outcome) current, successCallback, failureCallback);
+				return;
+			}
+			if (node == null) {
+				node = new CallbackNode<>(successCallback, failureCallback);
+			}
+			node.next = (CallbackNode<T>) current;
+			if (STATE_UPDATER.compareAndSet(this, current, node)) {
+				return;
 			}
 		}
 	}
@@ -134,14 +124,7 @@ public class ListenableFutureCallbackRegistry<T> {
 	 * @param result the result to trigger the callbacks with
 	 */
 	public void success(@Nullable T result) {
-		synchronized (this.mutex) {
-			this.state = State.SUCCESS;
-			this.result = result;
-			SuccessCallback<? super T> callback;
-			while ((callback = this.successCallbacks.poll()) != null) {
-				notifySuccess(callback);
-			}
-		}
+		complete(new Outcome(result, false));
 	}
 
 	/**
@@ -150,17 +133,84 @@ public class ListenableFutureCallbackRegistry<T> {
 	 * @param ex the exception to trigger the callbacks with
 	 */
 	public void failure(Throwable ex) {
-		synchronized (this.mutex) {
-			this.state = State.FAILURE;
-			this.result = ex;
-			FailureCallback callback;
-			while ((callback = this.failureCallbacks.poll()) != null) {
-				notifyFailure(callback);
+		complete(new Outcome(ex, true));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void complete(Outcome outcome) {
+		Object current;
+		do {
+			current = this.state;
+			if (current instanceof Outcome) {
+				return;
 			}
 		}
+		while (!STATE_UPDATER.compareAndSet(this, current, outcome));
+
+		// Reverse the stack in order to notify the callbacks in registration order
+		CallbackNode<T> node = (CallbackNode<T>) current;
+		CallbackNode<T> reversed = null;
+		while (node != null) {
+			CallbackNode<T> next = node.next;
+			node.next = reversed;
+			reversed = node;
+			node = next;
+		}
+		while (reversed != null) {
+			notify(outcome, reversed.successCallback, reversed.failureCallback);
+			reversed = reversed.next;
+		}
 	}
 
+	@SuppressWarnings("unchecked")
+	private void notify(Outcome outcome, @Nullable SuccessCallback<? super T> successCallback,
+			@Nullable FailureCallback failureCallback) {
+
+		try {
+			if (!outcome.failure) {
+				if (successCallback != null) {
+					successCallback.onSuccess((T) outcome.result);
+				}
+			}
+			else if (failureCallback != null) {
+				failureCallback.onFailure((Throwable) outcome.result);
+			}
+		}
+		catch (Throwable ex) {
+			// Ignore
+		}
+	}
 
-	private enum State {NEW, SUCCESS, FAILURE}
+
+	private static final class CallbackNode<T> {
+
+		@Nullable
+		final SuccessCallback<? super T> successCallback;
+
+		@Nullable
+		final FailureCallback failureCallback;
+
+		@Nullable
+		CallbackNode<T> next;
+
+		CallbackNode(@Nullable SuccessCallback<? super T> successCallback, @Nullable FailureCallback failureCallback) {
+			this.successCallback = successCallback;
+			this.failureCallback = failureCallback;
+		}
+	}
+
+
+	private static final class Outcome {
+
+		@Nullable
+		final Object result;
+
+		final boolean failure;
+
+		Outcome(@Nullable Object result, boolean failure) {
+			this.result = result;
+			this.failure = failure;
+		}
+	}
 
 }
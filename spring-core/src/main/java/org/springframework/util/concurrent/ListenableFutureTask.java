@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -63,15 +63,13 @@ public class ListenableFutureTask<T> extends FutureTask<T> implements Listenable
 
 	@Override
 	public void addCallback(SuccessCallback<? super T> successCallback, FailureCallback failureCallback) {
-		this.callbacks.addSuccessCallback(successCallback);
-		this.callbacks.addFailureCallback(failureCallback);
+		this.callbacks.addCallback(successCallback, failureCallback);
 	}
 
 	@Override
 	public CompletableFuture<T> completable() {
 		CompletableFuture<T> completable = new DelegatingCompletableFuture<>(this);
-		this.callbacks.addSuccessCallback(completable::complete);
-		this.callbacks.addFailureCallback(completable::completeExceptionally);
+		this.callbacks.addCallback(completable::complete, completable::completeExceptionally);
 		return completable;
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -90,8 +90,7 @@ public class MonoToListenableFutureAdapter<T> implements ListenableFuture<T> {
 
 	@Override
 	public void addCallback(SuccessCallback<? super T> success, FailureCallback failure) {
-		this.registry.addSuccessCallback(success);
-		this.registry.addFailureCallback(failure);
+		this.registry.addCallback(success, failure);
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,7 @@
 
 package org.springframework.util.concurrent;
 
-import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +31,11 @@ import org.springframework.util.Assert;
  *
  * <p>Inspired by {@code com.google.common.util.concurrent.SettableFuture}.
  *
+ * <p>As of 5.2.13, this future is backed by a {@link CompletableListenableFuture}.
+ * {@link #completable()} exposes a separate view on it which follows its result
+ * and routes cancellation back to {@link #cancel}, without being able to set
+ * the result of this future itself.
+ *
  * @author Mattias Severson
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
@@ -39,12 +44,7 @@ import org.springframework.util.Assert;
  */
 public class SettableListenableFuture<T> implements ListenableFuture<T> {
 
-	private static final Callable<Object> DUMMY_CALLABLE = () -> {
-		throw new IllegalStateException("Should never be called");
-	};
-
-
-	private final SettableTask<T> settableTask = new SettableTask<>();
+	private final CompletableListenableFuture<T> future = new CompletableListenableFuture<>();
 
 
 	/**
@@ -55,7 +55,7 @@ public class SettableListenableFuture<T> implements ListenableFuture<T> {
 	 * @return {@code true} if the value was successfully set, else {@code false}
 	 */
 	public boolean set(@Nullable T value) {
-		return this.settableTask.setResultValue(value);
+		return this.future.complete(value);
 	}
 
 	/**
@@ -67,29 +67,39 @@ public class SettableListenableFuture<T> implements ListenableFuture<T> {
 	 */
 	public boolean setException(Throwable exception) {
 		Assert.notNull(exception, "Exception must not be null");
-		return this.settableTask.setExceptionResult(exception);
+		return this.future.completeExceptionally(exception);
 	}
 
 
 	@Override
 	public void addCallback(ListenableFutureCallback<? super T> callback) {
-		this.settableTask.addCallback(callback);
+		this.future.addCallback(callback);
 	}
 
 	@Override
 	public void addCallback(SuccessCallback<? super T> successCallback, FailureCallback failureCallback) {
-		this.settableTask.addCallback(successCallback, failureCallback);
+		this.future.addCallback(successCallback, failureCallback);
 	}
 
 	@Override
 	public CompletableFuture<T> completable() {
-		return this.settableTask.completable();
+		CompletableFuture<T> completable = new DelegatingCompletableFuture<>(this);
+		this.future.whenComplete((result, ex) -> {
+			if (ex != null) {
+				completable.completeExceptionally(ex);
+			}
+			else {
+				completable.complete(result);
+			}
+		});
+		return completable;
 	}
 
 
 	@Override
 	public boolean cancel(boolean mayInterruptIfRunning) {
-		boolean cancelled = this.settableTask.cancel(mayInterruptIfRunning);
+		// Only report a cancellation which actually triggered completion
+		boolean cancelled = this.future.completeExceptionally(new CancellationException());
 		if (cancelled && mayInterruptIfRunning) {
 			interruptTask();
 		}
@@ -98,12 +108,12 @@ public class SettableListenableFuture<T> implements ListenableFuture<T> {
 
 	@Override
 	public boolean isCancelled() {
-		return this.settableTask.isCancelled();
+		return this.future.isCancelled();
 	}
 
 	@Override
 	public boolean isDone() {
-		return this.settableTask.isDone();
+		return this.future.isDone();
 	}
 
 	/**
@@ -116,7 +126,7 @@ public class SettableListenableFuture<T> implements ListenableFuture<T> {
 	 */
 	@Override
 	public T get() throws InterruptedException, ExecutionException {
-		return this.settableTask.get();
+		return this.future.get();
 	}
 
 	/**
@@ -131,7 +141,7 @@ public class SettableListenableFuture<T> implements ListenableFuture<T> {
 	 */
 	@Override
 	public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-		return this.settableTask.get(timeout, unit);
+		return this.future.get(timeout, unit);
 	}
 
 	/**
@@ -143,45 +153,4 @@ public class SettableListenableFuture<T> implements ListenableFuture<T> {
 	protected void interruptTask() {
 	}
 
-
-	private static class SettableTask<T> extends ListenableFutureTask<T> {
-
-		@Nullable
-		private volatile Thread completingThread;
-
-		@SuppressWarnings("unchecked")
-		public SettableTask() {
-			super((Callable<T>) DUMMY_CALLABLE);
-		}
-
-		public boolean setResultValue(@Nullable T value) {
-			set(value);
-			return checkCompletingThread();
-		}
-
-		public boolean setExceptionResult(Throwable exception) {
-			setException(exception);
-			return checkCompletingThread();
-		}
-
-		@Override
-		protected void done() {
-			if (!isCancelled()) {
-				// Implicitly invoked by set/setException: store current thread for
-				// determining whether the given result has actually triggered completion
-				// (since FutureTask.set/setException unfortunately don't expose that)
-				this.completingThread = Thread.currentThread();
-			}
-			super.done();
-		}
-
-		private boolean checkCompletingThread() {
-			boolean check = (this.completingThread == Thread.currentThread());
-			if (check) {
-				this.completingThread = null;  // only first match actually counts
-			}
-			return check;
-		}
-	}
-
 }
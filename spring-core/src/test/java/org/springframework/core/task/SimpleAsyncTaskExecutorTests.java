@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,17 @@
 
 package org.springframework.core.task;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
 import org.springframework.util.ConcurrencyThrottleSupport;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 
@@ -72,12 +76,88 @@ class SimpleAsyncTaskExecutorTests {
 		assertThat(task.getThreadName()).isEqualTo("test");
 	}
 
+	@Test
+	void concurrencyLimitIsApplied() throws Exception {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+		executor.setConcurrencyLimit(2);
+		AtomicInteger current = new AtomicInteger();
+		AtomicInteger max = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(20);
+		for (int i = 0; i < 20; i++) {
+			executor.execute(() -> {
+				max.accumulateAndGet(current.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				current.decrementAndGet();
+				latch.countDown();
+			});
+		}
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(max.get()).isBetween(1, 2);
+	}
+
+	@Test
+	void concurrencyLimitCanBeRaisedAtRuntime() throws Exception {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+		executor.setConcurrencyLimit(1);
+		CountDownLatch blocker = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(2);
+		executor.execute(() -> {
+			started.countDown();
+			awaitQuietly(blocker);
+		});
+		executor.setConcurrencyLimit(2);
+		executor.execute(() -> {
+			started.countDown();
+			awaitQuietly(blocker);
+		});
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		blocker.countDown();
+	}
+
+	@Test
+	void taskRejectedAfterConcurrencyAccessTimeout() throws Exception {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+		executor.setConcurrencyLimit(1);
+		executor.setConcurrencyAccessTimeout(10);
+		CountDownLatch blocker = new CountDownLatch(1);
+		executor.execute(() -> awaitQuietly(blocker));
+		assertThatExceptionOfType(TaskRejectedException.class).isThrownBy(() ->
+				executor.execute(new NoOpRunnable()));
+		assertThat(executor.getConcurrencyCount()).isEqualTo(1);
+		blocker.countDown();
+	}
+
+	@Test
+	void virtualThreadsFallBackToPlatformThreadsIfNotSupported() throws Exception {
+		final Object monitor = new Object();
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("virtual#");
+		executor.setVirtualThreads(true);
+		assertThat(executor.isVirtualThreads()).isEqualTo(VirtualThreadDelegate.isSupported());
+		ThreadNameHarvester task = new ThreadNameHarvester(monitor);
+		executeAndWait(executor, task, monitor);
+		assertThat(task.getThreadName()).startsWith("virtual#");
+	}
+
 	@Test
 	void throwsExceptionWhenSuppliedWithNullRunnable() throws Exception {
 		assertThatIllegalArgumentException().isThrownBy(() ->
 				new SimpleAsyncTaskExecutor().execute(null));
 	}
 
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	private void executeAndWait(SimpleAsyncTaskExecutor executor, Runnable task, Object monitor) {
 		synchronized (monitor) {
 			executor.execute(task);
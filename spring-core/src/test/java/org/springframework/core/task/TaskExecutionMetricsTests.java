@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * @author agent
+ */
+class TaskExecutionMetricsTests {
+
+	private final TaskExecutionMetrics metrics = new TaskExecutionMetrics();
+
+
+	@Test
+	void decorateRecordsExecutionsAndFailures() {
+		this.metrics.decorate(() -> {}).run();
+		Runnable failing = this.metrics.decorate(() -> {
+			throw new IllegalStateException("expected");
+		});
+		assertThatIllegalStateException().isThrownBy(failing::run);
+
+		assertThat(this.metrics.getExecutionCount()).isEqualTo(2);
+		assertThat(this.metrics.getFailureCount()).isEqualTo(1);
+		assertThat(this.metrics.getRejectedCount()).isEqualTo(0);
+		assertThat(sum(this.metrics.getQueueWaitHistogram())).isEqualTo(2);
+		assertThat(sum(this.metrics.getExecutionTimeHistogram())).isEqualTo(2);
+	}
+
+	@Test
+	void decorateWithCustomDecorator() {
+		StringBuilder sb = new StringBuilder();
+		TaskDecorator decorator = this.metrics.decorate(runnable -> () -> {
+			sb.append("before-");
+			runnable.run();
+		});
+		decorator.decorate(() -> sb.append("task")).run();
+		assertThat(sb.toString()).isEqualTo("before-task");
+		assertThat(this.metrics.getExecutionCount()).isEqualTo(1);
+	}
+
+	@Test
+	void decorateCallableRecordsConcurrency() throws Exception {
+		Callable<Integer> callable = this.metrics.decorateCallable(() -> this.metrics.getActiveCount());
+		assertThat(callable.call()).isEqualTo(1);
+		assertThat(this.metrics.getActiveCount()).isEqualTo(0);
+
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		Runnable blocking = () -> {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		Thread thread1 = new Thread(this.metrics.decorate(blocking));
+		Thread thread2 = new Thread(this.metrics.decorate(blocking));
+		thread1.start();
+		thread2.start();
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(this.metrics.getActiveCount()).isEqualTo(2);
+		release.countDown();
+		thread1.join();
+		thread2.join();
+
+		assertThat(this.metrics.getActiveCount()).isEqualTo(0);
+		assertThat(this.metrics.getPeakActiveCount()).isEqualTo(2);
+		assertThat(this.metrics.getExecutionCount()).isEqualTo(3);
+	}
+
+	@Test
+	void histogramBuckets() {
+		this.metrics.recordExecution(500, true);
+		this.metrics.recordExecution(TimeUnit.MICROSECONDS.toNanos(1), true);
+		this.metrics.recordExecution(TimeUnit.MICROSECONDS.toNanos(3), true);
+		this.metrics.recordExecution(TimeUnit.MICROSECONDS.toNanos(1000), true);
+		this.metrics.recordExecution(TimeUnit.DAYS.toNanos(1), true);
+
+		long[] histogram = this.metrics.getExecutionTimeHistogram();
+		assertThat(histogram).hasSize(TaskExecutionMetrics.BUCKET_COUNT);
+		assertThat(histogram[0]).isEqualTo(1);
+		assertThat(histogram[1]).isEqualTo(1);
+		assertThat(histogram[2]).isEqualTo(1);
+		assertThat(histogram[10]).isEqualTo(1);
+		assertThat(histogram[TaskExecutionMetrics.BUCKET_COUNT - 1]).isEqualTo(1);
+
+		assertThat(TaskExecutionMetrics.getBucketUpperBound(0)).isEqualTo(1);
+		assertThat(TaskExecutionMetrics.getBucketUpperBound(10)).isEqualTo(1024);
+		assertThat(TaskExecutionMetrics.getBucketUpperBound(TaskExecutionMetrics.BUCKET_COUNT - 1))
+				.isEqualTo(Long.MAX_VALUE);
+	}
+
+	@Test
+	void percentilesAndAverages() {
+		for (int i = 0; i < 99; i++) {
+			this.metrics.recordQueueWait(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		this.metrics.recordQueueWait(TimeUnit.MILLISECONDS.toNanos(100));
+
+		assertThat(this.metrics.getQueueWaitPercentile(0.5, TimeUnit.MICROSECONDS)).isEqualTo(128);
+		assertThat(this.metrics.getQueueWaitPercentile(0.99, TimeUnit.MICROSECONDS)).isEqualTo(128);
+		assertThat(this.metrics.getQueueWaitPercentile(1.0, TimeUnit.MICROSECONDS)).isEqualTo(131072);
+		assertThat(this.metrics.getAverageQueueWaitTime(TimeUnit.MICROSECONDS)).isEqualTo(1099);
+		assertThat(this.metrics.getExecutionTimePercentile(0.99, TimeUnit.MICROSECONDS)).isEqualTo(0);
+		assertThat(this.metrics.getAverageExecutionTime(TimeUnit.MICROSECONDS)).isEqualTo(0);
+	}
+
+	@Test
+	void rejections() {
+		this.metrics.recordRejection();
+		this.metrics.recordRejection();
+		assertThat(this.metrics.getRejectedCount()).isEqualTo(2);
+		assertThat(this.metrics.toString()).contains("rejections=2");
+	}
+
+
+	private static long sum(long[] counts) {
+		long sum = 0;
+		for (long count : counts) {
+			sum += count;
+		}
+		return sum;
+	}
+
+}
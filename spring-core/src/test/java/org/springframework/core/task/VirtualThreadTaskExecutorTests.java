@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author agent
+ */
+class VirtualThreadTaskExecutorTests {
+
+	@Test
+	void tasksRunOnNamedThreads() throws Exception {
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("vt-");
+		assertThat(executor.isVirtual()).isEqualTo(VirtualThreadDelegate.isSupported());
+		Future<String> future = executor.submit(() -> Thread.currentThread().getName());
+		assertThat(future.get(10, TimeUnit.SECONDS)).startsWith("vt-");
+	}
+
+	@Test
+	void manyBlockingTasks() throws Exception {
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor();
+		int taskCount = 500;
+		CountDownLatch blocker = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(taskCount);
+		CountDownLatch finished = new CountDownLatch(taskCount);
+		for (int i = 0; i < taskCount; i++) {
+			executor.execute(() -> {
+				started.countDown();
+				try {
+					blocker.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				finished.countDown();
+			});
+		}
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		blocker.countDown();
+		assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void fallbackPoolReusesThreads() throws Exception {
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor();
+		executor.setConcurrencyLimit(2);
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		AtomicInteger current = new AtomicInteger();
+		AtomicInteger max = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(50);
+		for (int i = 0; i < 50; i++) {
+			executor.execute(() -> {
+				max.accumulateAndGet(current.incrementAndGet(), Math::max);
+				threads.add(Thread.currentThread());
+				current.decrementAndGet();
+				latch.countDown();
+			});
+		}
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(max.get()).isBetween(1, 2);
+		if (!executor.isVirtual()) {
+			assertThat(threads.size()).isLessThan(50);
+			assertThat(executor.getFallbackPoolSize()).isGreaterThan(0);
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.testfixture.io.SerializationTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * @author agent
+ */
+class ConcurrencyThrottleSupportTests {
+
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+
+	@Test
+	void concurrencyCountAndQueueLength() throws Exception {
+		TestThrottle throttle = new TestThrottle();
+		throttle.setConcurrencyLimit(2);
+		throttle.beforeAccess();
+		throttle.beforeAccess();
+		assertThat(throttle.getConcurrencyCount()).isEqualTo(2);
+
+		CountDownLatch entered = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			throttle.beforeAccess();
+			entered.countDown();
+			throttle.afterAccess();
+		});
+		waiter.start();
+		while (throttle.getQueueLength() == 0) {
+			Thread.sleep(1);
+		}
+		assertThat(throttle.getQueueLength()).isEqualTo(1);
+
+		throttle.afterAccess();
+		assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+		waiter.join();
+		throttle.afterAccess();
+		assertThat(throttle.getConcurrencyCount()).isEqualTo(0);
+		assertThat(throttle.getQueueLength()).isEqualTo(0);
+	}
+
+	@Test
+	void accessTimeout() {
+		TestThrottle throttle = new TestThrottle();
+		throttle.setConcurrencyLimit(1);
+		throttle.setFair(true);
+		throttle.setAccessTimeout(10);
+		throttle.beforeAccess();
+		assertThatIllegalStateException().isThrownBy(throttle::beforeAccess);
+		assertThat(throttle.getRejectedCount()).isEqualTo(1);
+		throttle.afterAccess();
+		throttle.beforeAccess();
+		assertThat(throttle.getConcurrencyCount()).isEqualTo(1);
+	}
+
+	@Test
+	void concurrencyLimitChangedAtRuntime() {
+		TestThrottle throttle = new TestThrottle();
+		throttle.setConcurrencyLimit(1);
+		throttle.setAccessTimeout(0);
+		throttle.beforeAccess();
+		assertThatIllegalStateException().isThrownBy(throttle::beforeAccess);
+		throttle.setConcurrencyLimit(2);
+		throttle.beforeAccess();
+		assertThat(throttle.getConcurrencyCount()).isEqualTo(2);
+		throttle.setConcurrencyLimit(1);
+		throttle.afterAccess();
+		assertThatIllegalStateException().isThrownBy(throttle::beforeAccess);
+		throttle.afterAccess();
+		throttle.beforeAccess();
+	}
+
+	@Test
+	void adaptiveLimitDecreasesMultiplicativelyAndIncreasesAdditively() {
+		TestThrottle throttle = new TestThrottle();
+		throttle.setConcurrencyLimit(8);
+		throttle.setAdaptiveLatencyThreshold(100);
+		throttle.setMinConcurrencyLimit(2);
+		assertThat(throttle.getEffectiveConcurrencyLimit()).isEqualTo(8);
+
+		access(throttle, SLOW);
+		assertThat(throttle.getEffectiveConcurrencyLimit()).isEqualTo(4);
+		// Further slow invocations within the same round do not reduce the limit again
+		access(throttle, SLOW);
+		assertThat(throttle.getEffectiveConcurrencyLimit()).isEqualTo(4);
+		for (int i = 0; i < 4; i++) {
+			access(throttle, SLOW);
+		}
+		assertThat(throttle.getEffectiveConcurrencyLimit()).isEqualTo(2);
+		for (int i = 0; i < 10; i++) {
+			access(throttle, SLOW);
+		}
+		assertThat(throttle.getEffectiveConcurrencyLimit()).isEqualTo(2);
+
+		for (int i = 0; i < 100; i++) {
+			access(throttle, FAST);
+		}
+		assertThat(throttle.getEffectiveConcurrencyLimit()).isEqualTo(8);
+		assertThat(throttle.getConcurrencyCount()).isEqualTo(0);
+	}
+
+	@Test
+	void adaptiveLimitIsEnforced() {
+		TestThrottle throttle = new TestThrottle();
+		throttle.setConcurrencyLimit(4);
+		throttle.setAdaptiveLatencyThreshold(100);
+		throttle.setAccessTimeout(0);
+		access(throttle, SLOW);
+		assertThat(throttle.getEffectiveConcurrencyLimit()).isEqualTo(2);
+		throttle.beforeAccess();
+		throttle.beforeAccess();
+		assertThatIllegalStateException().isThrownBy(throttle::beforeAccess);
+	}
+
+	@Test
+	void serializable() throws Exception {
+		TestThrottle throttle = new TestThrottle();
+		throttle.setConcurrencyLimit(3);
+		throttle.setFair(true);
+		throttle.beforeAccess();
+		TestThrottle copy = (TestThrottle) SerializationTestUtils.serializeAndDeserialize(throttle);
+		assertThat(copy.getConcurrencyLimit()).isEqualTo(3);
+		assertThat(copy.getEffectiveConcurrencyLimit()).isEqualTo(3);
+		assertThat(copy.isFair()).isTrue();
+		assertThat(copy.getConcurrencyCount()).isEqualTo(0);
+	}
+
+	private static void access(TestThrottle throttle, long elapsedNanos) {
+		throttle.beforeAccess();
+		throttle.afterAccess(elapsedNanos);
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class TestThrottle extends ConcurrencyThrottleSupport {
+	}
+
+}
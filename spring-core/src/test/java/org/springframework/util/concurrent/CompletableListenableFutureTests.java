@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author agent
+ */
+class CompletableListenableFutureTests {
+
+	@Test
+	void completableReturnsSameInstance() {
+		CompletableListenableFuture<String> future = new CompletableListenableFuture<>();
+		assertThat(future.completable()).isSameAs(future);
+	}
+
+	@Test
+	void callbacksOnSuccess() {
+		CompletableListenableFuture<String> future = new CompletableListenableFuture<>();
+		List<Object> invocations = new ArrayList<>();
+		future.addCallback(invocations::add, invocations::add);
+		future.addCallback(new ListenableFutureCallback<String>() {
+			@Override
+			public void onSuccess(String result) {
+				invocations.add(result + "2");
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				invocations.add(ex);
+			}
+		});
+		assertThat(future.complete("value")).isTrue();
+		future.addCallback(result -> invocations.add(result + "3"), invocations::add);
+		assertThat(invocations).containsExactly("value", "value2", "value3");
+	}
+
+	@Test
+	void callbacksOnFailureAndCancellation() {
+		CompletableListenableFuture<String> future = new CompletableListenableFuture<>();
+		List<Object> invocations = new ArrayList<>();
+		future.addCallback(invocations::add, invocations::add);
+		IllegalStateException failure = new IllegalStateException();
+		future.completeExceptionally(failure);
+		assertThat(invocations).containsExactly(failure);
+
+		CompletableListenableFuture<String> cancelled = new CompletableListenableFuture<>();
+		cancelled.cancel(true);
+		cancelled.addCallback(invocations::add, invocations::add);
+		assertThat(invocations).hasSize(2);
+		assertThat(invocations.get(1)).isInstanceOf(CancellationException.class);
+	}
+
+	@Test
+	void adapterDelegatesToCompletableListenableFuture() {
+		CompletableListenableFuture<String> future = new CompletableListenableFuture<>();
+		ListenableFuture<String> adapter = new CompletableToListenableFutureAdapter<>(future);
+		List<Object> invocations = new ArrayList<>();
+		adapter.addCallback(invocations::add, invocations::add);
+		future.complete("value");
+		assertThat(invocations).containsExactly("value");
+		assertThat(adapter.completable()).isSameAs(future);
+	}
+
+	@Test
+	void adapterForPlainCompletableFuture() {
+		CompletableFuture<String> future = new CompletableFuture<>();
+		ListenableFuture<String> adapter = new CompletableToListenableFutureAdapter<>(future);
+		List<Object> invocations = new ArrayList<>();
+		adapter.addCallback(result -> invocations.add(result + "1"), invocations::add);
+		adapter.addCallback(result -> invocations.add(result + "2"), invocations::add);
+		future.complete("value");
+		adapter.addCallback(result -> invocations.add(result + "3"), invocations::add);
+		assertThat(invocations).containsExactly("value1", "value2", "value3");
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.testfixture.EnabledForTestGroups;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.core.testfixture.TestGroup.PERFORMANCE;
+
+/**
+ * @author agent
+ */
+class ListenableFutureCallbackRegistryTests {
+
+	private final ListenableFutureCallbackRegistry<String> registry = new ListenableFutureCallbackRegistry<>();
+
+
+	@Test
+	void callbacksNotifiedInRegistrationOrder() {
+		List<String> invocations = new ArrayList<>();
+		this.registry.addSuccessCallback(result -> invocations.add("success1:" + result));
+		this.registry.addFailureCallback(ex -> invocations.add("failure1"));
+		this.registry.addCallback(result -> invocations.add("success2:" + result), ex -> invocations.add("failure2"));
+		this.registry.addSuccessCallback(result -> {
+			throw new IllegalStateException("ignored");
+		});
+		this.registry.addSuccessCallback(result -> invocations.add("success3:" + result));
+		assertThat(invocations).isEmpty();
+
+		this.registry.success("x");
+		assertThat(invocations).containsExactly("success1:x", "success2:x", "success3:x");
+	}
+
+	@Test
+	void callbacksAddedAfterCompletionNotifiedImmediately() {
+		List<Object> invocations = new ArrayList<>();
+		IllegalStateException failure = new IllegalStateException();
+		this.registry.failure(failure);
+
+		this.registry.addSuccessCallback(invocations::add);
+		this.registry.addFailureCallback(invocations::add);
+		assertThat(invocations).containsExactly(failure);
+	}
+
+	@Test
+	void firstOutcomeWins() {
+		List<Object> invocations = new ArrayList<>();
+		this.registry.addCallback(invocations::add, invocations::add);
+		this.registry.success("first");
+		this.registry.success("second");
+		this.registry.failure(new IllegalStateException());
+		this.registry.addCallback(invocations::add, invocations::add);
+		assertThat(invocations).containsExactly("first", "first");
+	}
+
+	@Test
+	void concurrentRegistrationAndCompletion() throws Exception {
+		int threads = 4;
+		int callbacksPerThread = 10000;
+		AtomicInteger notified = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i < threads; i++) {
+				executor.execute(() -> {
+					try {
+						start.await();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+					for (int j = 0; j < callbacksPerThread; j++) {
+						this.registry.addSuccessCallback(result -> notified.incrementAndGet());
+					}
+				});
+			}
+			start.countDown();
+			this.registry.success("done");
+			executor.shutdown();
+			assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(notified.get()).isEqualTo(threads * callbacksPerThread);
+	}
+
+	@Test
+	@EnabledForTestGroups(PERFORMANCE)
+	void callbackPipelineThroughput() throws Exception {
+		int futures = 200000;
+		int callbacksPerFuture = 8;
+		AtomicInteger notified = new AtomicInteger();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < futures; i++) {
+			SettableListenableFuture<Integer> future = new SettableListenableFuture<>();
+			for (int j = 0; j < callbacksPerFuture; j++) {
+				future.addCallback(result -> notified.incrementAndGet(), ex -> {});
+			}
+			future.completable().thenApply(result -> result + 1);
+			future.set(i);
+		}
+		long settableTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < futures; i++) {
+			ListenableFutureTask<Integer> future = new ListenableFutureTask<>(() -> 1);
+			for (int j = 0; j < callbacksPerFuture; j++) {
+				future.addCallback(result -> notified.incrementAndGet(), ex -> {});
+			}
+			future.completable().thenApply(result -> result + 1);
+			future.run();
+		}
+		long taskTime = System.nanoTime() - start;
+
+		assertThat(notified.get()).isEqualTo(futures * callbacksPerFuture * 2);
+		System.out.println("SettableListenableFuture pipeline: " + TimeUnit.NANOSECONDS.toMillis(settableTime) +
+				"ms, ListenableFutureTask pipeline: " + TimeUnit.NANOSECONDS.toMillis(taskTime) + "ms");
+	}
+
+}
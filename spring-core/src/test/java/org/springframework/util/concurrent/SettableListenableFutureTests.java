@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -304,6 +304,24 @@ class SettableListenableFutureTests {
 		assertThat(interruptibleFuture.isDone()).isTrue();
 	}
 
+	@Test
+	void cancelFromCompletableCallsOverriddenMethod() {
+		InterruptibleSettableListenableFuture interruptibleFuture = new InterruptibleSettableListenableFuture();
+		Future<String> completable = interruptibleFuture.completable();
+		assertThat(completable.cancel(true)).isTrue();
+		assertThat(interruptibleFuture.calledInterruptTask()).isTrue();
+		assertThat(interruptibleFuture.isCancelled()).isTrue();
+		assertThat(completable.isCancelled()).isTrue();
+	}
+
+	@Test
+	void completeOnCompletableDoesNotSetValue() {
+		assertThat(settableListenableFuture.completable().complete("hello")).isTrue();
+		assertThat(settableListenableFuture.isDone()).isFalse();
+		assertThat(settableListenableFuture.set("world")).isTrue();
+		assertThat(settableListenableFuture.completable().join()).isEqualTo("world");
+	}
+
 	@Test
 	void setPreventsCancel() {
 		assertThat(settableListenableFuture.set("hello")).isTrue();
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Strategy interface for loading a large number of rows into a table,
+ * used by {@link JdbcTemplate#bulkLoad}.
+ *
+ * <p>Implementations typically delegate to a vendor-specific bulk loading
+ * facility of the JDBC driver, e.g. PostgreSQL's {@code CopyManager}:
+ *
+ * <pre class="code">
+ * jdbcTemplate.setBulkLoadStrategy((con, tableName, columnNames, rows) -&gt; {
+ *   CopyManager copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+ *   String sql = "COPY " + tableName + " (" + String.join(", ", columnNames) + ") FROM STDIN (FORMAT csv)";
+ *   return copyManager.copyIn(sql, new CsvRowReader(rows));
+ * });
+ * </pre>
+ *
+ * <p>The given Connection participates in the current transaction, if any,
+ * just like with a {@link ConnectionCallback}.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see JdbcTemplate#setBulkLoadStrategy
+ * @see JdbcTemplate#bulkLoad
+ */
+@FunctionalInterface
+public interface BulkLoadStrategy {
+
+	/**
+	 * Load the given rows into the specified table.
+	 * @param con the active JDBC Connection (not to be closed)
+	 * @param tableName the name of the target table
+	 * @param columnNames the names of the target columns
+	 * @param rows the rows to load, each containing one value per column
+	 * @return the number of rows loaded
+	 * @throws SQLException if thrown by a JDBC method, to be auto-converted
+	 * to a DataAccessException by an SQLExceptionTranslator
+	 */
+	long load(Connection con, String tableName, String[] columnNames, Iterable<Object[]> rows)
+			throws SQLException;
+
+}
@@ -0,0 +1,597 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.TypeMismatchDataAccessException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+
+/**
+ * Column-oriented representation of a query result, as produced by
+ * {@link ColumnarResultSetExtractor}.
+ *
+ * <p>Integer, long and double columns are backed by primitive arrays along
+ * with a bitmap of null values, and string columns are dictionary-encoded:
+ * an {@code int} code per row referring to the distinct values of the column.
+ * Other values are kept as objects, as returned by the JDBC driver. Compared
+ * to a list of row maps, this avoids boxing and per-row map overhead, making
+ * large analytical results (e.g. millions of rows with numeric columns) fit
+ * into a fraction of the heap.
+ *
+ * <p>Column and row indexes are 0-based, in contrast to JDBC's 1-based
+ * column indexes, matching the primitive arrays exposed by this class.
+ * A {@code ColumnarResult} is immutable and thread-safe once created,
+ * provided that callers do not modify the exposed arrays.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see ColumnarResultSetExtractor
+ */
+public final class ColumnarResult {
+
+	/**
+	 * The storage type of a column.
+	 */
+	public enum ColumnType {
+
+		/** Stored as {@code int[]} values with a null bitmap. */
+		INT,
+
+		/** Stored as {@code long[]} values with a null bitmap. */
+		LONG,
+
+		/** Stored as {@code double[]} values with a null bitmap. */
+		DOUBLE,
+
+		/** Stored as {@code int[]} codes into a dictionary of distinct values. */
+		STRING,
+
+		/** Stored as {@code Object[]} values. */
+		OBJECT
+	}
+
+
+	private final String[] columnNames;
+
+	private final Column[] columns;
+
+	private final int rowCount;
+
+
+	ColumnarResult(String[] columnNames, Column[] columns, int rowCount) {
+		this.columnNames = columnNames;
+		this.columns = columns;
+		this.rowCount = rowCount;
+	}
+
+
+	/**
+	 * Return the number of rows.
+	 */
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * Return the number of columns.
+	 */
+	public int getColumnCount() {
+		return this.columns.length;
+	}
+
+	/**
+	 * Return the column names (as column labels of the query).
+	 */
+	public String[] getColumnNames() {
+		return this.columnNames.clone();
+	}
+
+	/**
+	 * Return the 0-based index of the given column.
+	 * @param columnName the name of the column (case-insensitive)
+	 * @return the column index
+	 * @throws InvalidDataAccessApiUsageException if there is no such column
+	 */
+	public int findColumn(String columnName) throws InvalidDataAccessApiUsageException {
+		for (int i = 0; i < this.columnNames.length; i++) {
+			if (this.columnNames[i].equalsIgnoreCase(columnName)) {
+				return i;
+			}
+		}
+		throw new InvalidDataAccessApiUsageException("No column '" + columnName + "' in " + this);
+	}
+
+	/**
+	 * Return the storage type of the given column.
+	 * @param column the 0-based column index
+	 */
+	public ColumnType getColumnType(int column) {
+		return getColumn(column).type;
+	}
+
+	/**
+	 * Determine whether the value at the given position is SQL {@code NULL}.
+	 * @param column the 0-based column index
+	 * @param row the 0-based row index
+	 */
+	public boolean isNull(int column, int row) {
+		return getColumn(column).isNull(checkRow(row));
+	}
+
+	/**
+	 * Return the value at the given position as an {@code int}
+	 * (0 for SQL {@code NULL}), from an {@link ColumnType#INT INT} column.
+	 * @param column the 0-based column index
+	 * @param row the 0-based row index
+	 */
+	public int getInt(int column, int row) {
+		return getIntColumn(column)[checkRow(row)];
+	}
+
+	/**
+	 * Return the value at the given position as a {@code long}
+	 * (0 for SQL {@code NULL}), from an {@link ColumnType#INT INT}
+	 * or {@link ColumnType#LONG LONG} column.
+	 * @param column the 0-based column index
+	 * @param row the 0-based row index
+	 */
+	public long getLong(int column, int row) {
+		Column col = getColumn(column);
+		if (col instanceof IntColumn) {
+			return ((IntColumn) col).values[checkRow(row)];
+		}
+		return ((LongColumn) checkType(col, ColumnType.LONG)).values[checkRow(row)];
+	}
+
+	/**
+	 * Return the value at the given position as a {@code double}
+	 * (0 for SQL {@code NULL}), from an {@link ColumnType#INT INT},
+	 * {@link ColumnType#LONG LONG} or {@link ColumnType#DOUBLE DOUBLE} column.
+	 * @param column the 0-based column index
+	 * @param row the 0-based row index
+	 */
+	public double getDouble(int column, int row) {
+		Column col = getColumn(column);
+		if (col instanceof IntColumn) {
+			return ((IntColumn) col).values[checkRow(row)];
+		}
+		if (col instanceof LongColumn) {
+			return ((LongColumn) col).values[checkRow(row)];
+		}
+		return ((DoubleColumn) checkType(col, ColumnType.DOUBLE)).values[checkRow(row)];
+	}
+
+	/**
+	 * Return the value at the given position as a {@code String},
+	 * from a {@link ColumnType#STRING STRING} column.
+	 * @param column the 0-based column index
+	 * @param row the 0-based row index
+	 * @return the value, or {@code null} for SQL {@code NULL}
+	 */
+	@Nullable
+	public String getString(int column, int row) {
+		StringColumn col = (StringColumn) checkType(getColumn(column), ColumnType.STRING);
+		int code = col.codes[checkRow(row)];
+		return (code >= 0 ? col.dictionary[code] : null);
+	}
+
+	/**
+	 * Return the value at the given position as an object, boxing primitive values.
+	 * @param column the 0-based column index
+	 * @param row the 0-based row index
+	 * @return the value, or {@code null} for SQL {@code NULL}
+	 */
+	@Nullable
+	public Object getObject(int column, int row) {
+		return getColumn(column).getObject(checkRow(row));
+	}
+
+	/**
+	 * Return the values of the given {@link ColumnType#INT INT} column.
+	 * <p>The returned array is the internal storage of this result,
+	 * exposed for efficient processing; it must not be modified.
+	 * Entries for SQL {@code NULL} values are 0.
+	 * @param column the 0-based column index
+	 * @see #isNull
+	 */
+	public int[] getIntColumn(int column) {
+		return ((IntColumn) checkType(getColumn(column), ColumnType.INT)).values;
+	}
+
+	/**
+	 * Return the values of the given {@link ColumnType#LONG LONG} column.
+	 * <p>The returned array is the internal storage of this result,
+	 * exposed for efficient processing; it must not be modified.
+	 * Entries for SQL {@code NULL} values are 0.
+	 * @param column the 0-based column index
+	 * @see #isNull
+	 */
+	public long[] getLongColumn(int column) {
+		return ((LongColumn) checkType(getColumn(column), ColumnType.LONG)).values;
+	}
+
+	/**
+	 * Return the values of the given {@link ColumnType#DOUBLE DOUBLE} column.
+	 * <p>The returned array is the internal storage of this result,
+	 * exposed for efficient processing; it must not be modified.
+	 * Entries for SQL {@code NULL} values are 0.
+	 * @param column the 0-based column index
+	 * @see #isNull
+	 */
+	public double[] getDoubleColumn(int column) {
+		return ((DoubleColumn) checkType(getColumn(column), ColumnType.DOUBLE)).values;
+	}
+
+	/**
+	 * Return the dictionary codes of the given {@link ColumnType#STRING STRING}
+	 * column: an index into {@link #getStringDictionary} per row, or -1 for
+	 * SQL {@code NULL}.
+	 * <p>The returned array is the internal storage of this result,
+	 * exposed for efficient processing; it must not be modified.
+	 * @param column the 0-based column index
+	 */
+	public int[] getStringCodes(int column) {
+		return ((StringColumn) checkType(getColumn(column), ColumnType.STRING)).codes;
+	}
+
+	/**
+	 * Return the distinct values of the given {@link ColumnType#STRING STRING}
+	 * column, in order of their first occurrence.
+	 * @param column the 0-based column index
+	 * @see #getStringCodes
+	 */
+	public String[] getStringDictionary(int column) {
+		return ((StringColumn) checkType(getColumn(column), ColumnType.STRING)).dictionary.clone();
+	}
+
+	/**
+	 * Return a bitmap of the rows with SQL {@code NULL} values in the given column.
+	 * @param column the 0-based column index
+	 * @return a copy of the null bitmap
+	 */
+	public BitSet getNullBitmap(int column) {
+		Column col = getColumn(column);
+		BitSet nulls = new BitSet(this.rowCount);
+		for (int row = 0; row < this.rowCount; row++) {
+			if (col.isNull(row)) {
+				nulls.set(row);
+			}
+		}
+		return nulls;
+	}
+
+
+	private Column getColumn(int column) {
+		if (column < 0 || column >= this.columns.length) {
+			throw new InvalidDataAccessApiUsageException(
+					"Invalid column index " + column + ": result has " + this.columns.length + " columns");
+		}
+		return this.columns[column];
+	}
+
+	private int checkRow(int row) {
+		if (row < 0 || row >= this.rowCount) {
+			throw new InvalidDataAccessApiUsageException(
+					"Invalid row index " + row + ": result has " + this.rowCount + " rows");
+		}
+		return row;
+	}
+
+	private Column checkType(Column column, ColumnType requiredType) {
+		if (column.type != requiredType) {
+			throw new TypeMismatchDataAccessException(
+					"Column of type " + column.type + " cannot be accessed as " + requiredType);
+		}
+		return column;
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnarResult with " + this.rowCount + " rows and columns " + Arrays.toString(this.columnNames);
+	}
+
+
+	/**
+	 * Create a column for the given storage type, to be populated through
+	 * {@link Column#add} and completed through {@link Column#complete}.
+	 */
+	static Column createColumn(ColumnType type, int initialCapacity) {
+		switch (type) {
+			case INT:
+				return new IntColumn(initialCapacity);
+			case LONG:
+				return new LongColumn(initialCapacity);
+			case DOUBLE:
+				return new DoubleColumn(initialCapacity);
+			case STRING:
+				return new StringColumn(initialCapacity);
+			default:
+				return new ObjectColumn(initialCapacity);
+		}
+	}
+
+
+	/**
+	 * Base class for a column, populated row by row from a {@link ResultSet}.
+	 */
+	abstract static class Column {
+
+		final ColumnType type;
+
+		Column(ColumnType type) {
+			this.type = type;
+		}
+
+		/**
+		 * Add the value of the current row of the given ResultSet.
+		 * @param rs the ResultSet, positioned at the current row
+		 * @param index the 1-based JDBC column index
+		 * @param row the 0-based row index
+		 */
+		abstract void add(ResultSet rs, int index, int row) throws SQLException;
+
+		/**
+		 * Trim the storage to the given number of rows, after the last row has been added.
+		 */
+		abstract void complete(int rowCount);
+
+		abstract boolean isNull(int row);
+
+		@Nullable
+		abstract Object getObject(int row);
+
+		static int newCapacity(int size) {
+			return Math.max(size + (size >> 1), size + 1);
+		}
+	}
+
+
+	private static final class IntColumn extends Column {
+
+		int[] values;
+
+		private final BitSet nulls = new BitSet();
+
+		IntColumn(int initialCapacity) {
+			super(ColumnType.INT);
+			this.values = new int[initialCapacity];
+		}
+
+		@Override
+		void add(ResultSet rs, int index, int row) throws SQLException {
+			if (row == this.values.length) {
+				this.values = Arrays.copyOf(this.values, newCapacity(row));
+			}
+			this.values[row] = rs.getInt(index);
+			if (rs.wasNull()) {
+				this.nulls.set(row);
+			}
+		}
+
+		@Override
+		void complete(int rowCount) {
+			if (this.values.length != rowCount) {
+				this.values = Arrays.copyOf(this.values, rowCount);
+			}
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return this.nulls.get(row);
+		}
+
+		@Override
+		@Nullable
+		Object getObject(int row) {
+			return (this.nulls.get(row) ? null : this.values[row]);
+		}
+	}
+
+
+	private static final class LongColumn extends Column {
+
+		long[] values;
+
+		private final BitSet nulls = new BitSet();
+
+		LongColumn(int initialCapacity) {
+			super(ColumnType.LONG);
+			this.values = new long[initialCapacity];
+		}
+
+		@Override
+		void add(ResultSet rs, int index, int row) throws SQLException {
+			if (row == this.values.length) {
+				this.values = Arrays.copyOf(this.values, newCapacity(row));
+			}
+			this.values[row] = rs.getLong(index);
+			if (rs.wasNull()) {
+				this.nulls.set(row);
+			}
+		}
+
+		@Override
+		void complete(int rowCount) {
+			if (this.values.length != rowCount) {
+				this.values = Arrays.copyOf(this.values, rowCount);
+			}
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return this.nulls.get(row);
+		}
+
+		@Override
+		@Nullable
+		Object getObject(int row) {
+			return (this.nulls.get(row) ? null : this.values[row]);
+		}
+	}
+
+
+	private static final class DoubleColumn extends Column {
+
+		double[] values;
+
+		private final BitSet nulls = new BitSet();
+
+		DoubleColumn(int initialCapacity) {
+			super(ColumnType.DOUBLE);
+			this.values = new double[initialCapacity];
+		}
+
+		@Override
+		void add(ResultSet rs, int index, int row) throws SQLException {
+			if (row == this.values.length) {
+				this.values = Arrays.copyOf(this.values, newCapacity(row));
+			}
+			this.values[row] = rs.getDouble(index);
+			if (rs.wasNull()) {
+				this.nulls.set(row);
+			}
+		}
+
+		@Override
+		void complete(int rowCount) {
+			if (this.values.length != rowCount) {
+				this.values = Arrays.copyOf(this.values, rowCount);
+			}
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return this.nulls.get(row);
+		}
+
+		@Override
+		@Nullable
+		Object getObject(int row) {
+			return (this.nulls.get(row) ? null : this.values[row]);
+		}
+	}
+
+
+	private static final class StringColumn extends Column {
+
+		int[] codes;
+
+		String[] dictionary;
+
+		@Nullable
+		private Map<String, Integer> codesByValue = new HashMap<>();
+
+		@Nullable
+		private List<String> values = new ArrayList<>();
+
+		StringColumn(int initialCapacity) {
+			super(ColumnType.STRING);
+			this.codes = new int[initialCapacity];
+			this.dictionary = new String[0];
+		}
+
+		@Override
+		void add(ResultSet rs, int index, int row) throws SQLException {
+			if (row == this.codes.length) {
+				this.codes = Arrays.copyOf(this.codes, newCapacity(row));
+			}
+			String value = rs.getString(index);
+			if (value != null) {
+				Integer code = this.codesByValue.get(value);
+				if (code == null) {
+					code = this.values.size();
+					this.codesByValue.put(value, code);
+					this.values.add(value);
+				}
+				this.codes[row] = code;
+			}
+			else {
+				this.codes[row] = -1;
+			}
+		}
+
+		@Override
+		void complete(int rowCount) {
+			if (this.codes.length != rowCount) {
+				this.codes = Arrays.copyOf(this.codes, rowCount);
+			}
+			this.dictionary = this.values.toArray(new String[0]);
+			this.codesByValue = null;
+			this.values = null;
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return (this.codes[row] < 0);
+		}
+
+		@Override
+		@Nullable
+		Object getObject(int row) {
+			int code = this.codes[row];
+			return (code >= 0 ? this.dictionary[code] : null);
+		}
+	}
+
+
+	private static final class ObjectColumn extends Column {
+
+		Object[] values;
+
+		ObjectColumn(int initialCapacity) {
+			super(ColumnType.OBJECT);
+			this.values = new Object[initialCapacity];
+		}
+
+		@Override
+		void add(ResultSet rs, int index, int row) throws SQLException {
+			if (row == this.values.length) {
+				this.values = Arrays.copyOf(this.values, newCapacity(row));
+			}
+			this.values[row] = JdbcUtils.getResultSetValue(rs, index);
+		}
+
+		@Override
+		void complete(int rowCount) {
+			if (this.values.length != rowCount) {
+				this.values = Arrays.copyOf(this.values, rowCount);
+			}
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return (this.values[row] == null);
+		}
+
+		@Override
+		@Nullable
+		Object getObject(int row) {
+			return this.values[row];
+		}
+	}
+
+}
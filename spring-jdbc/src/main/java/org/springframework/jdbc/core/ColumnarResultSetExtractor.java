@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.springframework.jdbc.core.ColumnarResult.ColumnType;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResultSetExtractor} implementation that returns a column-oriented
+ * {@link ColumnarResult} for each given {@link ResultSet}, storing numeric
+ * columns in primitive arrays and string columns in dictionary-encoded form.
+ *
+ * <p>Intended for large analytical queries where a list of row maps (as from
+ * {@link ColumnMapRowMapper}) or a {@link org.springframework.jdbc.support.rowset.SqlRowSet}
+ * would hold a boxed object per value:
+ *
+ * <pre class="code">
+ * ColumnarResult result = jdbcTemplate.query(
+ *     "SELECT region, amount FROM sales", new ColumnarResultSetExtractor());
+ * double[] amounts = result.getDoubleColumn(result.findColumn("amount"));
+ * </pre>
+ *
+ * <p>The storage type per column is derived from its JDBC type; see
+ * {@link #determineColumnType}, which may be overridden for specific columns.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see ColumnarResult
+ * @see JdbcTemplate#query(String, ResultSetExtractor)
+ */
+public class ColumnarResultSetExtractor implements ResultSetExtractor<ColumnarResult> {
+
+	private int initialCapacity = 256;
+
+
+	/**
+	 * Set the initial number of rows to allocate storage for, growing as needed.
+	 * Default is 256.
+	 * <p>Set this to the expected number of rows for large results,
+	 * avoiding intermediate copies of the column arrays.
+	 */
+	public void setInitialCapacity(int initialCapacity) {
+		Assert.isTrue(initialCapacity >= 0, "Initial capacity must not be negative");
+		this.initialCapacity = initialCapacity;
+	}
+
+	/**
+	 * Return the initial number of rows to allocate storage for.
+	 */
+	public int getInitialCapacity() {
+		return this.initialCapacity;
+	}
+
+
+	@Override
+	public ColumnarResult extractData(ResultSet rs) throws SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columnNames = new String[columnCount];
+		ColumnarResult.Column[] columns = new ColumnarResult.Column[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			columnNames[i] = JdbcUtils.lookupColumnName(rsmd, i + 1);
+			columns[i] = ColumnarResult.createColumn(determineColumnType(rsmd, i + 1), this.initialCapacity);
+		}
+
+		int rowCount = 0;
+		while (rs.next()) {
+			for (int i = 0; i < columnCount; i++) {
+				columns[i].add(rs, i + 1, rowCount);
+			}
+			rowCount++;
+		}
+		for (ColumnarResult.Column column : columns) {
+			column.complete(rowCount);
+		}
+		return new ColumnarResult(columnNames, columns, rowCount);
+	}
+
+	/**
+	 * Determine the storage type for the given column.
+	 * <p>The default implementation maps integer types up to {@code INTEGER} to
+	 * {@link ColumnType#INT INT}, {@code BIGINT} to {@link ColumnType#LONG LONG},
+	 * floating-point types to {@link ColumnType#DOUBLE DOUBLE} and character types
+	 * to {@link ColumnType#STRING STRING}. {@code NUMERIC} and {@code DECIMAL}
+	 * columns without fractional digits are stored as {@code INT} or {@code LONG}
+	 * according to their precision; all other columns, including exact decimals
+	 * with fractional digits, are stored as {@link ColumnType#OBJECT OBJECT}.
+	 * @param rsmd the metadata of the ResultSet
+	 * @param index the 1-based JDBC column index
+	 * @return the storage type to use
+	 * @throws SQLException if thrown by the metadata access
+	 */
+	protected ColumnType determineColumnType(ResultSetMetaData rsmd, int index) throws SQLException {
+		switch (rsmd.getColumnType(index)) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				return ColumnType.INT;
+			case Types.BIGINT:
+				return ColumnType.LONG;
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return ColumnType.DOUBLE;
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+				return ColumnType.STRING;
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				int precision = rsmd.getPrecision(index);
+				if (rsmd.getScale(index) == 0 && precision > 0) {
+					if (precision < 10) {
+						return ColumnType.INT;
+					}
+					if (precision < 19) {
+						return ColumnType.LONG;
+					}
+				}
+				return ColumnType.OBJECT;
+			default:
+				return ColumnType.OBJECT;
+		}
+	}
+
+}
@@ -0,0 +1,548 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.MethodInvocationException;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Variant of {@link BeanPropertyRowMapper} which compiles the mapping from
+ * result set columns to bean properties into a plan once per result set shape,
+ * instead of resolving column names and property descriptors for every row.
+ *
+ * <p>A plan binds each column by index to a precomputed setter: {@code long},
+ * {@code int}, {@code double} and {@code boolean} properties are read through
+ * the corresponding typed {@link ResultSet} getters and written without boxing,
+ * all other properties go through {@link JdbcUtils#getResultSetValue(ResultSet, int, Class)}.
+ * Setters and the default constructor of public classes are invoked through
+ * accessors generated by the {@link LambdaMetafactory}, with a fallback to
+ * reflective invocation for non-public classes and methods.
+ *
+ * <p>Plans are cached per mapper instance, keyed by the column labels of the
+ * result set, with the plan for the current result set being reused without
+ * any further meta-data access. Mapping semantics are the same as for the
+ * standard {@code BeanPropertyRowMapper}, with one exception: since no
+ * {@link org.springframework.beans.BeanWrapper} is involved, values which do
+ * not match the property type are converted through the configured
+ * {@link ConversionService} only, not through JavaBeans property editors.
+ * As a consequence, {@link #initBeanWrapper} and {@link #getColumnValue}
+ * do not apply to this variant.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @param <T> the result type
+ * @see BeanPropertyRowMapper
+ */
+public class CompiledBeanPropertyRowMapper<T> extends BeanPropertyRowMapper<T> {
+
+	/** The maximum number of result set shapes to keep a mapping plan for. */
+	private static final int MAX_CACHED_PLANS = 64;
+
+
+	/** Map of the fields we provide mapping for. */
+	@Nullable
+	private Map<String, PropertyDescriptor> mappedFields;
+
+	/** Set of bean properties we provide mapping for. */
+	@Nullable
+	private Set<String> mappedProperties;
+
+	/** Factory for new instances of the mapped class. */
+	@Nullable
+	private Supplier<?> instantiator;
+
+	/** Mapping plans keyed by the column labels of the result set. */
+	@Nullable
+	private Map<List<String>, MappingPlan> planCache;
+
+	/** The plan for the most recently mapped result set. */
+	@Nullable
+	private volatile CurrentPlan currentPlan;
+
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper} for bean-style configuration.
+	 * @see #setMappedClass
+	 * @see #setCheckFullyPopulated
+	 */
+	public CompiledBeanPropertyRowMapper() {
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}, accepting unpopulated
+	 * properties in the target bean.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass) {
+		super(mappedClass);
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @param checkFullyPopulated whether we're strictly validating that
+	 * all bean properties have been mapped from corresponding database fields
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass, boolean checkFullyPopulated) {
+		super(mappedClass, checkFullyPopulated);
+	}
+
+
+	/**
+	 * Initialize the mapping meta-data as well as the instantiation
+	 * strategy for the given class.
+	 * @param mappedClass the mapped class
+	 */
+	@Override
+	protected void initialize(Class<T> mappedClass) {
+		super.initialize(mappedClass);
+		// Note: called from the superclass constructor, so no field initializers for our state
+		this.mappedFields = new HashMap<>();
+		this.mappedProperties = new HashSet<>();
+		for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(mappedClass)) {
+			if (pd.getWriteMethod() != null) {
+				this.mappedFields.put(lowerCaseName(pd.getName()), pd);
+				String underscoredName = underscoreName(pd.getName());
+				if (!lowerCaseName(pd.getName()).equals(underscoredName)) {
+					this.mappedFields.put(underscoredName, pd);
+				}
+				this.mappedProperties.add(pd.getName());
+			}
+		}
+		this.instantiator = createInstantiator(mappedClass);
+		this.planCache = new ConcurrentHashMap<>();
+		this.currentPlan = null;
+	}
+
+
+	/**
+	 * Extract the values for all columns in the current row,
+	 * applying the mapping plan for the given result set.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		Assert.state(this.instantiator != null, "Mapped class was not specified");
+		MappingPlan plan = getMappingPlan(rs);
+		if (isCheckFullyPopulated() && !plan.fullyPopulated) {
+			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
+					"necessary to populate object of " + getMappedClass() + ": " + this.mappedProperties);
+		}
+
+		Object mappedObject = this.instantiator.get();
+		for (ColumnBinding binding : plan.bindings) {
+			binding.bind(rs, mappedObject);
+		}
+		return (T) mappedObject;
+	}
+
+	/**
+	 * Obtain the mapping plan for the given result set, compiling it
+	 * from the result set meta-data on first encounter of its shape.
+	 */
+	private MappingPlan getMappingPlan(ResultSet rs) throws SQLException {
+		CurrentPlan current = this.currentPlan;
+		if (current != null && current.resultSet.get() == rs) {
+			return current.plan;
+		}
+
+		Assert.state(this.planCache != null, "Mapped class was not specified");
+		ResultSetMetaData rsmd = rs.getMetaData();
+		String[] columns = new String[rsmd.getColumnCount()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = JdbcUtils.lookupColumnName(rsmd, i + 1);
+		}
+		List<String> key = Arrays.asList(columns);
+		MappingPlan plan = this.planCache.get(key);
+		if (plan == null) {
+			plan = compileMappingPlan(columns);
+			if (this.planCache.size() < MAX_CACHED_PLANS) {
+				this.planCache.put(key, plan);
+			}
+		}
+		this.currentPlan = new CurrentPlan(rs, plan);
+		return plan;
+	}
+
+	private MappingPlan compileMappingPlan(String[] columns) {
+		Assert.state(this.mappedFields != null && this.mappedProperties != null, "Mapped class was not specified");
+		List<ColumnBinding> bindings = new ArrayList<>(columns.length);
+		Set<String> populatedProperties = new HashSet<>();
+
+		for (int i = 0; i < columns.length; i++) {
+			String column = columns[i];
+			String field = lowerCaseName(StringUtils.delete(column, " "));
+			PropertyDescriptor pd = this.mappedFields.get(field);
+			if (pd != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Mapping column '" + column + "' to property '" + pd.getName() +
+							"' of type '" + ClassUtils.getQualifiedName(pd.getPropertyType()) + "'");
+				}
+				bindings.add(createColumnBinding(i + 1, pd));
+				populatedProperties.add(pd.getName());
+			}
+			else {
+				// No PropertyDescriptor found
+				if (logger.isDebugEnabled()) {
+					logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+				}
+			}
+		}
+
+		return new MappingPlan(bindings.toArray(new ColumnBinding[0]),
+				populatedProperties.equals(this.mappedProperties));
+	}
+
+	private ColumnBinding createColumnBinding(int index, PropertyDescriptor pd) {
+		Method writeMethod = pd.getWriteMethod();
+		Assert.state(writeMethod != null, "No write method");
+		Class<?> type = writeMethod.getParameterTypes()[0];
+		String name = pd.getName();
+
+		if (long.class == type) {
+			LongWriter writer = createWriter(LongWriter.class, writeMethod,
+					(target, value) -> ReflectionUtils.invokeMethod(writeMethod, target, value));
+			return (rs, target) -> {
+				long value = rs.getLong(index);
+				if (!rs.wasNull()) {
+					writer.write(target, value);
+				}
+				else {
+					handleNullValue(target, name, type);
+				}
+			};
+		}
+		else if (int.class == type) {
+			IntWriter writer = createWriter(IntWriter.class, writeMethod,
+					(target, value) -> ReflectionUtils.invokeMethod(writeMethod, target, value));
+			return (rs, target) -> {
+				int value = rs.getInt(index);
+				if (!rs.wasNull()) {
+					writer.write(target, value);
+				}
+				else {
+					handleNullValue(target, name, type);
+				}
+			};
+		}
+		else if (double.class == type) {
+			DoubleWriter writer = createWriter(DoubleWriter.class, writeMethod,
+					(target, value) -> ReflectionUtils.invokeMethod(writeMethod, target, value));
+			return (rs, target) -> {
+				double value = rs.getDouble(index);
+				if (!rs.wasNull()) {
+					writer.write(target, value);
+				}
+				else {
+					handleNullValue(target, name, type);
+				}
+			};
+		}
+		else if (boolean.class == type) {
+			BooleanWriter writer = createWriter(BooleanWriter.class, writeMethod,
+					(target, value) -> ReflectionUtils.invokeMethod(writeMethod, target, value));
+			return (rs, target) -> {
+				boolean value = rs.getBoolean(index);
+				if (!rs.wasNull()) {
+					writer.write(target, value);
+				}
+				else {
+					handleNullValue(target, name, type);
+				}
+			};
+		}
+		else {
+			ObjectWriter writer = createWriter(ObjectWriter.class, writeMethod,
+					(target, value) -> ReflectionUtils.invokeMethod(writeMethod, target, value));
+			TypeDescriptor targetType = new TypeDescriptor(new MethodParameter(writeMethod, 0));
+			return (rs, target) -> {
+				Object value = JdbcUtils.getResultSetValue(rs, index, type);
+				if (value == null) {
+					if (type.isPrimitive()) {
+						handleNullValue(target, name, type);
+					}
+					else {
+						writeValue(writer, target, name, null);
+					}
+				}
+				else {
+					if (!ClassUtils.isAssignableValue(type, value)) {
+						value = convertValue(target, name, value, targetType);
+					}
+					writeValue(writer, target, name, value);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Handle a {@code null} column value for a primitive property,
+	 * leaving the primitive default value in place if allowed.
+	 * @see #isPrimitivesDefaultedForNullValue()
+	 */
+	private void handleNullValue(Object target, String propertyName, Class<?> type) {
+		if (!isPrimitivesDefaultedForNullValue()) {
+			throw new TypeMismatchException(new PropertyChangeEvent(target, propertyName, null, null), type);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Leaving default value for property '" + propertyName + "' of type '" +
+					ClassUtils.getQualifiedName(type) + "' on object " + target + " for null column value");
+		}
+	}
+
+	@Nullable
+	private Object convertValue(Object target, String propertyName, Object value, TypeDescriptor targetType) {
+		ConversionService cs = getConversionService();
+		PropertyChangeEvent event = new PropertyChangeEvent(target, propertyName, null, value);
+		if (cs == null) {
+			throw new TypeMismatchException(event, targetType.getType());
+		}
+		try {
+			return cs.convert(value, TypeDescriptor.forObject(value), targetType);
+		}
+		catch (ConversionException ex) {
+			throw new TypeMismatchException(event, targetType.getType(), ex);
+		}
+	}
+
+	private static void writeValue(ObjectWriter writer, Object target, String propertyName, @Nullable Object value) {
+		try {
+			writer.write(target, value);
+		}
+		catch (RuntimeException ex) {
+			throw new MethodInvocationException(new PropertyChangeEvent(target, propertyName, null, value), ex);
+		}
+	}
+
+
+	/**
+	 * Create a writer of the given functional type for the given setter method,
+	 * generated through the {@link LambdaMetafactory} if the method is
+	 * accessible, or the given reflective fallback otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <W> W createWriter(Class<W> writerType, Method writeMethod, W fallback) {
+		Class<?> declaringClass = writeMethod.getDeclaringClass();
+		if (isGeneratable(declaringClass) && Modifier.isPublic(writeMethod.getModifiers())) {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				MethodHandle handle = lookup.unreflect(writeMethod);
+				Class<?> valueType = writeMethod.getParameterTypes()[0];
+				Class<?> samValueType = (writerType == ObjectWriter.class ? Object.class : valueType);
+				Class<?> instantiatedValueType = (writerType == ObjectWriter.class ?
+						ClassUtils.resolvePrimitiveIfNecessary(valueType) : valueType);
+				return (W) LambdaMetafactory.metafactory(lookup, "write", MethodType.methodType(writerType),
+						MethodType.methodType(void.class, Object.class, samValueType), handle,
+						MethodType.methodType(void.class, declaringClass, instantiatedValueType))
+						.getTarget().invoke();
+			}
+			catch (Throwable ex) {
+				// Fall back to reflective invocation below
+			}
+		}
+		ReflectionUtils.makeAccessible(writeMethod);
+		return fallback;
+	}
+
+	/**
+	 * Create a factory for new instances of the given class, generated through
+	 * the {@link LambdaMetafactory} for a public default constructor, or
+	 * based on {@link BeanUtils#instantiateClass(Constructor, Object...)} otherwise.
+	 */
+	private static Supplier<?> createInstantiator(Class<?> mappedClass) {
+		Constructor<?> ctor;
+		try {
+			ctor = mappedClass.getDeclaredConstructor();
+		}
+		catch (NoSuchMethodException ex) {
+			// Let BeanUtils throw the corresponding exception for each row, as in BeanPropertyRowMapper
+			return () -> BeanUtils.instantiateClass(mappedClass);
+		}
+		if (isGeneratable(mappedClass) && Modifier.isPublic(ctor.getModifiers()) &&
+				!Modifier.isAbstract(mappedClass.getModifiers())) {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				return (Supplier<?>) LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+						MethodType.methodType(Object.class), lookup.unreflectConstructor(ctor),
+						MethodType.methodType(mappedClass)).getTarget().invoke();
+			}
+			catch (Throwable ex) {
+				// Fall back to reflective instantiation below
+			}
+		}
+		return () -> BeanUtils.instantiateClass(ctor);
+	}
+
+	/**
+	 * Determine whether accessors for the given class can be generated from
+	 * this class: i.e. whether the class and its enclosing classes are public
+	 * and visible from the ClassLoader of this class.
+	 */
+	private static boolean isGeneratable(Class<?> clazz) {
+		if (!ClassUtils.isVisible(clazz, CompiledBeanPropertyRowMapper.class.getClassLoader())) {
+			return false;
+		}
+		Class<?> current = clazz;
+		while (current != null) {
+			if (!Modifier.isPublic(current.getModifiers())) {
+				return false;
+			}
+			current = current.getEnclosingClass();
+		}
+		return true;
+	}
+
+
+	/**
+	 * Static factory method to create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @see #newInstance(Class, ConversionService)
+	 */
+	public static <T> CompiledBeanPropertyRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new CompiledBeanPropertyRowMapper<>(mappedClass);
+	}
+
+	/**
+	 * Static factory method to create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @param conversionService the {@link ConversionService} for binding
+	 * JDBC values to bean properties, or {@code null} for none
+	 * @see #newInstance(Class)
+	 * @see #setConversionService
+	 */
+	public static <T> CompiledBeanPropertyRowMapper<T> newInstance(
+			Class<T> mappedClass, @Nullable ConversionService conversionService) {
+
+		CompiledBeanPropertyRowMapper<T> rowMapper = newInstance(mappedClass);
+		rowMapper.setConversionService(conversionService);
+		return rowMapper;
+	}
+
+
+	/**
+	 * Binding of a single column to a bean property.
+	 */
+	@FunctionalInterface
+	private interface ColumnBinding {
+
+		void bind(ResultSet rs, Object target) throws SQLException;
+	}
+
+
+	@FunctionalInterface
+	private interface LongWriter {
+
+		void write(Object target, long value);
+	}
+
+
+	@FunctionalInterface
+	private interface IntWriter {
+
+		void write(Object target, int value);
+	}
+
+
+	@FunctionalInterface
+	private interface DoubleWriter {
+
+		void write(Object target, double value);
+	}
+
+
+	@FunctionalInterface
+	private interface BooleanWriter {
+
+		void write(Object target, boolean value);
+	}
+
+
+	@FunctionalInterface
+	private interface ObjectWriter {
+
+		void write(Object target, @Nullable Object value);
+	}
+
+
+	/**
+	 * Compiled mapping plan for a specific result set shape.
+	 */
+	private static final class MappingPlan {
+
+		final ColumnBinding[] bindings;
+
+		final boolean fullyPopulated;
+
+		MappingPlan(ColumnBinding[] bindings, boolean fullyPopulated) {
+			this.bindings = bindings;
+			this.fullyPopulated = fullyPopulated;
+		}
+	}
+
+
+	/**
+	 * Association of a mapping plan with the result set it applies to,
+	 * without keeping the result set itself from being garbage-collected.
+	 */
+	private static final class CurrentPlan {
+
+		final WeakReference<ResultSet> resultSet;
+
+		final MappingPlan plan;
+
+		CurrentPlan(ResultSet resultSet, MappingPlan plan) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.plan = plan;
+		}
+	}
+
+}
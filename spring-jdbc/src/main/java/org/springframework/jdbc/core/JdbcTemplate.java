@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,11 +29,20 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.sql.DataSource;
 
@@ -49,6 +58,7 @@ import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.util.StringUtils;
@@ -100,6 +110,13 @@ import org.springframework.util.StringUtils;
  */
 public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
+	/**
+	 * Number of rows per batch of INSERT statements for {@link #bulkLoad}
+	 * without a {@link BulkLoadStrategy}.
+	 * @since 5.2.13
+	 */
+	public static final int DEFAULT_BULK_LOAD_BATCH_SIZE = 1000;
+
 	private static final String RETURN_RESULT_SET_PREFIX = "#result-set-";
 
 	private static final String RETURN_UPDATE_COUNT_PREFIX = "#update-count-";
@@ -147,6 +164,26 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	 */
 	private boolean resultsMapCaseInsensitive = false;
 
+	/**
+	 * If this variable is set to a value above 1, batches of single-row INSERT
+	 * statements will be executed as multi-row INSERT statements of that many rows.
+	 */
+	private int multiRowInsertSize = 1;
+
+	/**
+	 * If this variable is set, batch updates with a batch size will be split into
+	 * sub-batches which are executed in parallel on separate connections.
+	 */
+	@Nullable
+	private Executor parallelBatchExecutor;
+
+	/**
+	 * If this variable is set, {@link #bulkLoad} will delegate to this strategy
+	 * instead of executing batches of INSERT statements.
+	 */
+	@Nullable
+	private BulkLoadStrategy bulkLoadStrategy;
+
 
 	/**
 	 * Construct a new JdbcTemplate for bean usage.
@@ -311,6 +348,84 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return this.resultsMapCaseInsensitive;
 	}
 
+	/**
+	 * Set the maximum number of rows to combine into a single multi-row INSERT
+	 * statement when executing a batch of single-row INSERT statements, for
+	 * drivers which do not rewrite batched inserts themselves.
+	 * <p>Default is 1, executing every batch as a regular JDBC batch. A value
+	 * above 1 applies to {@link #batchUpdate(String, BatchPreparedStatementSetter)}
+	 * and {@link #batchUpdate(String, Collection, int, ParameterizedPreparedStatementSetter)}
+	 * (as well as their variants and {@code SimpleJdbcInsert} batches) for an
+	 * {@code INSERT ... VALUES (...)} statement with all parameter placeholders
+	 * within its values group; any other statement is executed as usual.
+	 * <p>Note that the driver does not report update counts per row for a
+	 * multi-row statement: every row is reported with an update count of 1
+	 * if the statement as a whole inserted one row per values group, or with
+	 * {@link Statement#SUCCESS_NO_INFO} otherwise. Also, be aware of the limit
+	 * on the number of parameters per statement in the database in use.
+	 * @since 5.2.13
+	 */
+	public void setMultiRowInsertSize(int multiRowInsertSize) {
+		Assert.isTrue(multiRowInsertSize > 0, "Multi-row insert size must be greater than 0");
+		this.multiRowInsertSize = multiRowInsertSize;
+	}
+
+	/**
+	 * Return the maximum number of rows to combine into a multi-row INSERT statement.
+	 * @since 5.2.13
+	 */
+	public int getMultiRowInsertSize() {
+		return this.multiRowInsertSize;
+	}
+
+	/**
+	 * Set an {@link Executor} for executing the sub-batches of a
+	 * {@link #batchUpdate(String, Collection, int, ParameterizedPreparedStatementSetter)}
+	 * call in parallel, each on a separate connection from the DataSource.
+	 * <p>Default is none, executing all sub-batches sequentially on the same
+	 * connection. Parallel execution only applies outside of transactions
+	 * and transaction synchronization, since the sub-batches cannot share
+	 * a transaction; within a transaction, sub-batches are always executed
+	 * sequentially. The given {@code ParameterizedPreparedStatementSetter}
+	 * needs to be thread-safe for parallel execution.
+	 * <p>Note that sub-batches are not executed atomically: if a sub-batch
+	 * fails, the remaining sub-batches will still be completed (and possibly
+	 * committed) before the exception is propagated to the caller.
+	 * @since 5.2.13
+	 */
+	public void setParallelBatchExecutor(@Nullable Executor parallelBatchExecutor) {
+		this.parallelBatchExecutor = parallelBatchExecutor;
+	}
+
+	/**
+	 * Return the {@link Executor} for parallel batch execution, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public Executor getParallelBatchExecutor() {
+		return this.parallelBatchExecutor;
+	}
+
+	/**
+	 * Set a {@link BulkLoadStrategy} for {@link #bulkLoad}, typically delegating
+	 * to a vendor-specific bulk loading facility such as PostgreSQL's COPY.
+	 * <p>Default is none, executing batches of INSERT statements (as multi-row
+	 * inserts if a {@link #setMultiRowInsertSize "multiRowInsertSize"} is set).
+	 * @since 5.2.13
+	 */
+	public void setBulkLoadStrategy(@Nullable BulkLoadStrategy bulkLoadStrategy) {
+		this.bulkLoadStrategy = bulkLoadStrategy;
+	}
+
+	/**
+	 * Return the {@link BulkLoadStrategy} for {@link #bulkLoad}, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public BulkLoadStrategy getBulkLoadStrategy() {
+		return this.bulkLoadStrategy;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with a plain java.sql.Connection
@@ -366,30 +481,64 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	@Override
 	@Nullable
 	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		return execute(action, true);
+	}
+
+	/**
+	 * Execute the given Statement callback, optionally keeping the Statement
+	 * and the Connection open for further processing of the result.
+	 * @param action the callback to execute
+	 * @param closeResources whether to close the Statement and release the
+	 * Connection after successful execution of the callback (they are always
+	 * released in case of an exception); if {@code false}, the callback is
+	 * expected to return a Stream, and the Connection gets released once the
+	 * Stream is closed
+	 */
+	@Nullable
+	private <T> T execute(StatementCallback<T> action, boolean closeResources) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
 		Statement stmt = null;
+		T result = null;
 		try {
 			stmt = con.createStatement();
 			applyStatementSettings(stmt);
-			T result = action.doInStatement(stmt);
+			result = action.doInStatement(stmt);
 			handleWarnings(stmt);
+			if (!closeResources) {
+				result = releaseConnectionOnClose(result, con);
+			}
 			return result;
 		}
 		catch (SQLException ex) {
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			String sql = getSql(action);
+			if (!closeResources && closeStreamResult(result)) {
+				stmt = null;
+			}
 			JdbcUtils.closeStatement(stmt);
 			stmt = null;
 			DataSourceUtils.releaseConnection(con, getDataSource());
 			con = null;
 			throw translateException("StatementCallback", sql, ex);
 		}
+		catch (RuntimeException | Error ex) {
+			if (!closeResources) {
+				if (closeStreamResult(result)) {
+					stmt = null;
+				}
+				JdbcUtils.closeStatement(stmt);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
+			throw ex;
+		}
 		finally {
-			JdbcUtils.closeStatement(stmt);
-			DataSourceUtils.releaseConnection(con, getDataSource());
+			if (closeResources) {
+				JdbcUtils.closeStatement(stmt);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
 		}
 	}
 
@@ -462,6 +611,35 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException {
+		Assert.notNull(sql, "SQL must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing SQL query [" + sql + "]");
+		}
+
+		/**
+		 * Callback to execute the query, keeping the ResultSet open for streaming.
+		 */
+		class StreamStatementCallback implements StatementCallback<Stream<T>>, SqlProvider {
+			@Override
+			public Stream<T> doInStatement(Statement stmt) throws SQLException {
+				ResultSet rs = stmt.executeQuery(sql);
+				return new ResultSetSpliterator<>(rs, rowMapper, sql).stream().onClose(() -> {
+					JdbcUtils.closeResultSet(rs);
+					JdbcUtils.closeStatement(stmt);
+				});
+			}
+			@Override
+			public String getSql() {
+				return sql;
+			}
+		}
+
+		return result(execute(new StreamStatementCallback(), false));
+	}
+
 	@Override
 	public Map<String, Object> queryForMap(String sql) throws DataAccessException {
 		return result(queryForObject(sql, getColumnMapRowMapper()));
@@ -602,6 +780,24 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
 			throws DataAccessException {
 
+		return execute(psc, action, true);
+	}
+
+	/**
+	 * Execute the given PreparedStatement callback, optionally keeping the
+	 * PreparedStatement and the Connection open for further processing of the result.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param action the callback to execute
+	 * @param closeResources whether to close the PreparedStatement and release
+	 * the Connection after successful execution of the callback (they are always
+	 * released in case of an exception); if {@code false}, the callback is
+	 * expected to return a Stream, and the Connection gets released once the
+	 * Stream is closed
+	 */
+	@Nullable
+	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean closeResources)
+			throws DataAccessException {
+
 		Assert.notNull(psc, "PreparedStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
 		if (logger.isDebugEnabled()) {
@@ -611,16 +807,23 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
 		PreparedStatement ps = null;
+		T result = null;
 		try {
 			ps = psc.createPreparedStatement(con);
 			applyStatementSettings(ps);
-			T result = action.doInPreparedStatement(ps);
+			result = action.doInPreparedStatement(ps);
 			handleWarnings(ps);
+			if (!closeResources) {
+				result = releaseConnectionOnClose(result, con);
+			}
 			return result;
 		}
 		catch (SQLException ex) {
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
+			if (!closeResources && closeStreamResult(result)) {
+				ps = null;
+			}
 			if (psc instanceof ParameterDisposer) {
 				((ParameterDisposer) psc).cleanupParameters();
 			}
@@ -632,12 +835,27 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			con = null;
 			throw translateException("PreparedStatementCallback", sql, ex);
 		}
+		catch (RuntimeException | Error ex) {
+			if (!closeResources) {
+				if (closeStreamResult(result)) {
+					ps = null;
+				}
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
+			throw ex;
+		}
 		finally {
-			if (psc instanceof ParameterDisposer) {
-				((ParameterDisposer) psc).cleanupParameters();
+			if (closeResources) {
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
 			}
-			JdbcUtils.closeStatement(ps);
-			DataSourceUtils.releaseConnection(con, getDataSource());
 		}
 	}
 
@@ -768,6 +986,94 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, args, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, mapping each row to a result object via a
+	 * RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>The Connection, PreparedStatement and ResultSet are held open until
+	 * the returned Stream gets closed. Most other {@code queryForStream}
+	 * methods delegate to this method.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param pss a callback that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * @param fetchSize the fetch size for this query, or -1 for the fetch size
+	 * configured for this template
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.2.13
+	 */
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
+			int fetchSize, RowMapper<T> rowMapper) throws DataAccessException {
+
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		logger.debug("Executing prepared SQL query for stream");
+
+		return result(execute(psc, ps -> {
+			if (fetchSize != -1) {
+				ps.setFetchSize(fetchSize);
+			}
+			ResultSet rs;
+			try {
+				if (pss != null) {
+					pss.setValues(ps);
+				}
+				rs = ps.executeQuery();
+			}
+			catch (SQLException | RuntimeException | Error ex) {
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				throw ex;
+			}
+			return new ResultSetSpliterator<>(rs, rowMapper, getSql(psc)).stream().onClose(() -> {
+				JdbcUtils.closeResultSet(rs);
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+			});
+		}, false));
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) throws DataAccessException {
+		return queryForStream(psc, null, -1, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, int fetchSize, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(psc, null, fetchSize, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), pss, -1, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), -1, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, int fetchSize, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args),
+				fetchSize, rowMapper);
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
@@ -933,6 +1239,19 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing SQL batch update [" + sql + "]");
 		}
 
+		MultiRowInsert multiRowInsert = (!(pss instanceof InterruptibleBatchPreparedStatementSetter) ?
+				getMultiRowInsert(sql) : null);
+		if (multiRowInsert != null) {
+			try {
+				return executeMultiRowInsert(multiRowInsert, pss.getBatchSize(), pss::setValues);
+			}
+			finally {
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+			}
+		}
+
 		int[] result = execute(sql, (PreparedStatementCallback<int[]>) ps -> {
 			try {
 				int batchSize = pss.getBatchSize();
@@ -1026,6 +1345,20 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Executing SQL batch update [" + sql + "] with a batch size of " + batchSize);
 		}
+
+		MultiRowInsert multiRowInsert = getMultiRowInsert(sql);
+		Executor executor = getParallelBatchExecutor(batchArgs.size(), batchSize);
+		if (multiRowInsert != null || executor != null) {
+			try {
+				return executeBatchInChunks(sql, multiRowInsert, executor, new ArrayList<>(batchArgs), batchSize, pss);
+			}
+			finally {
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+			}
+		}
+
 		int[][] result = execute(sql, (PreparedStatementCallback<int[][]>) ps -> {
 			List<int[]> rowsAffected = new ArrayList<>();
 			try {
@@ -1067,6 +1400,187 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result;
 	}
 
+	/**
+	 * Load the given rows into the specified table, through the configured
+	 * {@link #setBulkLoadStrategy BulkLoadStrategy} or, by default, through
+	 * batches of {@value #DEFAULT_BULK_LOAD_BATCH_SIZE} INSERT statements.
+	 * <p>The rows are consumed as they are iterated, so a lazily populated
+	 * {@code Iterable} allows for loading data sets which do not fit into memory.
+	 * @param tableName the name of the target table
+	 * @param columnNames the names of the target columns
+	 * @param rows the rows to load, each containing one value per column
+	 * (possibly {@link SqlParameterValue} instances for specific SQL types)
+	 * @return the number of rows loaded
+	 * @throws DataAccessException if there is any problem issuing the load
+	 * @since 5.2.13
+	 * @see #setBulkLoadStrategy
+	 * @see #setMultiRowInsertSize
+	 */
+	public long bulkLoad(String tableName, String[] columnNames, Iterable<Object[]> rows)
+			throws DataAccessException {
+
+		Assert.hasText(tableName, "Table name must not be empty");
+		Assert.notEmpty(columnNames, "Column names must not be empty");
+		Assert.notNull(rows, "Rows must not be null");
+
+		BulkLoadStrategy strategy = this.bulkLoadStrategy;
+		if (strategy != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Executing bulk load into table [" + tableName + "] through " + strategy);
+			}
+			Long result = execute((ConnectionCallback<Long>) con -> strategy.load(con, tableName, columnNames, rows));
+			Assert.state(result != null, "No row count");
+			return result;
+		}
+
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
+		StringBuilder placeholders = new StringBuilder();
+		for (int i = 0; i < columnNames.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+				placeholders.append(", ");
+			}
+			sql.append(columnNames[i]);
+			placeholders.append('?');
+		}
+		sql.append(") VALUES (").append(placeholders).append(')');
+
+		long rowCount = 0;
+		List<Object[]> batch = new ArrayList<>(DEFAULT_BULK_LOAD_BATCH_SIZE);
+		for (Object[] row : rows) {
+			batch.add(row);
+			if (batch.size() == DEFAULT_BULK_LOAD_BATCH_SIZE) {
+				rowCount += sumRowCounts(batchUpdate(sql.toString(), batch));
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			rowCount += sumRowCounts(batchUpdate(sql.toString(), batch));
+		}
+		return rowCount;
+	}
+
+	/**
+	 * Sum up the given batch update counts, counting each
+	 * {@link Statement#SUCCESS_NO_INFO} entry as one row.
+	 */
+	private static long sumRowCounts(int[] updateCounts) {
+		long sum = 0;
+		for (int count : updateCounts) {
+			sum += (count == Statement.SUCCESS_NO_INFO ? 1 : count);
+		}
+		return sum;
+	}
+
+	/**
+	 * Determine the multi-row INSERT rewriting for the given statement, if enabled.
+	 * @param sql the single-row statement
+	 * @return the {@code MultiRowInsert}, or {@code null} if not applicable
+	 * @see #setMultiRowInsertSize
+	 */
+	@Nullable
+	private MultiRowInsert getMultiRowInsert(String sql) {
+		return (this.multiRowInsertSize > 1 ? MultiRowInsert.parse(sql) : null);
+	}
+
+	/**
+	 * Determine the {@link Executor} for parallel execution of the given batch, if applicable.
+	 * @see #setParallelBatchExecutor
+	 */
+	@Nullable
+	private Executor getParallelBatchExecutor(int totalSize, int batchSize) {
+		if (this.parallelBatchExecutor == null || totalSize <= batchSize ||
+				TransactionSynchronizationManager.isSynchronizationActive() ||
+				TransactionSynchronizationManager.hasResource(obtainDataSource())) {
+			return null;
+		}
+		return this.parallelBatchExecutor;
+	}
+
+	/**
+	 * Execute the given batch in sub-batches of the given size, as multi-row
+	 * INSERT statements (if applicable) and/or in parallel (if applicable).
+	 */
+	private <T> int[][] executeBatchInChunks(String sql, @Nullable MultiRowInsert multiRowInsert,
+			@Nullable Executor executor, List<T> batchArgs, int batchSize,
+			ParameterizedPreparedStatementSetter<T> pss) {
+
+		int chunkCount = (batchArgs.size() + batchSize - 1) / batchSize;
+		List<List<T>> chunks = new ArrayList<>(chunkCount);
+		for (int i = 0; i < chunkCount; i++) {
+			chunks.add(batchArgs.subList(i * batchSize, Math.min((i + 1) * batchSize, batchArgs.size())));
+		}
+
+		int[][] result = new int[chunkCount][];
+		if (executor == null) {
+			for (int i = 0; i < chunkCount; i++) {
+				result[i] = executeBatchChunk(sql, multiRowInsert, chunks.get(i), pss);
+			}
+			return result;
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing " + chunkCount + " sub-batches of SQL batch update [" + sql + "] in parallel");
+		}
+		List<CompletableFuture<int[]>> futures = new ArrayList<>(chunkCount);
+		for (List<T> chunk : chunks) {
+			futures.add(CompletableFuture.supplyAsync(
+					() -> executeBatchChunk(sql, multiRowInsert, chunk, pss), executor));
+		}
+		RuntimeException failure = null;
+		for (int i = 0; i < chunkCount; i++) {
+			try {
+				result[i] = futures.get(i).join();
+			}
+			catch (CompletionException ex) {
+				if (failure == null) {
+					failure = (ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return result;
+	}
+
+	/**
+	 * Execute a single sub-batch, either as multi-row INSERT statements
+	 * or as a regular JDBC batch.
+	 */
+	private <T> int[] executeBatchChunk(String sql, @Nullable MultiRowInsert multiRowInsert, List<T> chunk,
+			ParameterizedPreparedStatementSetter<T> pss) {
+
+		if (multiRowInsert != null) {
+			return executeMultiRowInsert(multiRowInsert, chunk.size(), (ps, i) -> pss.setValues(ps, chunk.get(i)));
+		}
+		return batchUpdate(sql, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				pss.setValues(ps, chunk.get(i));
+			}
+			@Override
+			public int getBatchSize() {
+				return chunk.size();
+			}
+		});
+	}
+
+	/**
+	 * Execute the given number of rows through multi-row INSERT statements
+	 * of up to {@link #getMultiRowInsertSize()} rows each.
+	 * @return the update count per row
+	 */
+	private int[] executeMultiRowInsert(MultiRowInsert multiRowInsert, int rowCount, RowValueSetter rvs) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing SQL batch update [" + multiRowInsert.getSql() + "] as multi-row inserts of up to " +
+					this.multiRowInsertSize + " rows");
+		}
+		int[] result = execute(new MultiRowInsertCallback(multiRowInsert, rowCount, rvs));
+		Assert.state(result != null, "No result array");
+		return result;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with callable statements
@@ -1461,6 +1975,32 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+	/**
+	 * Register the release of the given Connection as a close handler on the
+	 * given Stream result, running after the Stream's own close handlers.
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	private <T> T releaseConnectionOnClose(@Nullable T result, Connection con) {
+		if (result instanceof Stream) {
+			return (T) ((Stream<?>) result).onClose(() -> DataSourceUtils.releaseConnection(con, getDataSource()));
+		}
+		DataSourceUtils.releaseConnection(con, getDataSource());
+		return result;
+	}
+
+	/**
+	 * Close the given Stream result, if any, after a failure in its creation.
+	 * @return {@code true} if a Stream has been closed, along with its Statement
+	 */
+	private static boolean closeStreamResult(@Nullable Object result) {
+		if (result instanceof Stream) {
+			((Stream<?>) result).close();
+			return true;
+		}
+		return false;
+	}
+
 	private static <T> T result(@Nullable T result) {
 		Assert.state(result != null, "No result");
 		return result;
@@ -1539,6 +2079,78 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 
+	/**
+	 * Callback for setting the parameter values of a row at the given index.
+	 */
+	@FunctionalInterface
+	private interface RowValueSetter {
+
+		void setValues(PreparedStatement ps, int index) throws SQLException;
+	}
+
+
+	/**
+	 * Connection callback which executes rows through multi-row INSERT statements,
+	 * using one statement for all full chunks and one for the remainder.
+	 */
+	private class MultiRowInsertCallback implements ConnectionCallback<int[]>, SqlProvider {
+
+		private final MultiRowInsert multiRowInsert;
+
+		private final int rowCount;
+
+		private final RowValueSetter rowValueSetter;
+
+		public MultiRowInsertCallback(MultiRowInsert multiRowInsert, int rowCount, RowValueSetter rowValueSetter) {
+			this.multiRowInsert = multiRowInsert;
+			this.rowCount = rowCount;
+			this.rowValueSetter = rowValueSetter;
+		}
+
+		@Override
+		public int[] doInConnection(Connection con) throws SQLException {
+			int[] rowsAffected = new int[this.rowCount];
+			int chunkSize = Math.min(multiRowInsertSize, this.rowCount);
+			PreparedStatement ps = null;
+			try {
+				int chunkStart = 0;
+				while (chunkStart < this.rowCount) {
+					int rows = Math.min(chunkSize, this.rowCount - chunkStart);
+					if (ps == null || rows < chunkSize) {
+						JdbcUtils.closeStatement(ps);
+						ps = con.prepareStatement(this.multiRowInsert.getSql(rows));
+						applyStatementSettings(ps);
+					}
+					ParameterShiftingPreparedStatement rowPs = this.multiRowInsert.createRowStatement(ps);
+					for (int row = 0; row < rows; row++) {
+						this.multiRowInsert.setRow(rowPs, row);
+						this.rowValueSetter.setValues(rowPs, chunkStart + row);
+					}
+					int count = ps.executeUpdate();
+					if (logger.isTraceEnabled()) {
+						logger.trace("Multi-row insert of " + rows + " rows affected " + count + " rows");
+					}
+					Arrays.fill(rowsAffected, chunkStart, chunkStart + rows,
+							(count == rows ? 1 : Statement.SUCCESS_NO_INFO));
+					chunkStart += rows;
+				}
+				if (ps != null) {
+					handleWarnings(ps);
+				}
+				return rowsAffected;
+			}
+			finally {
+				JdbcUtils.closeStatement(ps);
+			}
+		}
+
+		@Override
+		public String getSql() {
+			return this.multiRowInsert.getSql();
+		}
+	}
+
+
 	/**
 	 * Simple adapter for PreparedStatementCreator, allowing to use a plain SQL statement.
 	 */
@@ -1587,6 +2199,86 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 
+	/**
+	 * Spliterator for queryForStream adaptation of a ResultSet to a Stream,
+	 * mapping the rows on demand. Splits off chunks of mapped rows for
+	 * parallel processing, while the ResultSet itself is always traversed
+	 * by one thread at a time.
+	 * @since 5.2.13
+	 */
+	private class ResultSetSpliterator<T> implements Spliterator<T> {
+
+		private static final int CHUNK_SIZE = 1024;
+
+		private final ResultSet rs;
+
+		private final RowMapper<T> rowMapper;
+
+		@Nullable
+		private final String sql;
+
+		private int rowNum = 0;
+
+		private boolean exhausted;
+
+		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper, @Nullable String sql) {
+			this.rs = rs;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			try {
+				if (!this.exhausted && this.rs.next()) {
+					action.accept(this.rowMapper.mapRow(this.rs, this.rowNum++));
+					return true;
+				}
+				this.exhausted = true;
+				return false;
+			}
+			catch (SQLException ex) {
+				throw translateException("ResultSet iteration", this.sql, ex);
+			}
+		}
+
+		@Override
+		@Nullable
+		public Spliterator<T> trySplit() {
+			Object[] chunk = new Object[CHUNK_SIZE];
+			int count = 0;
+			try {
+				while (count < CHUNK_SIZE && !this.exhausted) {
+					if (this.rs.next()) {
+						chunk[count++] = this.rowMapper.mapRow(this.rs, this.rowNum++);
+					}
+					else {
+						this.exhausted = true;
+					}
+				}
+			}
+			catch (SQLException ex) {
+				throw translateException("ResultSet iteration", this.sql, ex);
+			}
+			return (count > 0 ? Spliterators.spliterator(chunk, 0, count, Spliterator.ORDERED) : null);
+		}
+
+		@Override
+		public long estimateSize() {
+			return (this.exhausted ? 0 : Long.MAX_VALUE);
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED;
+		}
+
+		public Stream<T> stream() {
+			return StreamSupport.stream(this, false);
+		}
+	}
+
+
 	/**
 	 * Adapter to enable use of a RowCallbackHandler inside a ResultSetExtractor.
 	 * <p>Uses a regular ResultSet, so we have to be careful when using it:
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.PreparedStatement;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Rewriting of a single-row INSERT statement with a trailing
+ * {@code VALUES (...)} clause into a multi-row INSERT statement
+ * which repeats the values group for each row.
+ *
+ * <p>Only statements which are safe to rewrite are accepted: all parameter
+ * placeholders must be part of the values group, and the statement must not
+ * contain comments or any clauses after the values group.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see JdbcTemplate#setMultiRowInsertSize
+ */
+final class MultiRowInsert {
+
+	private final String sql;
+
+	private final String prefix;
+
+	private final String valuesGroup;
+
+	private final int parameterCount;
+
+
+	private MultiRowInsert(String sql, String prefix, String valuesGroup, int parameterCount) {
+		this.sql = sql;
+		this.prefix = prefix;
+		this.valuesGroup = valuesGroup;
+		this.parameterCount = parameterCount;
+	}
+
+
+	/**
+	 * Return the original single-row INSERT statement.
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Return the number of parameter placeholders per row.
+	 */
+	public int getParameterCount() {
+		return this.parameterCount;
+	}
+
+	/**
+	 * Build the INSERT statement for the given number of rows.
+	 * @param rows the number of rows to insert in a single statement
+	 */
+	public String getSql(int rows) {
+		if (rows == 1) {
+			return this.sql;
+		}
+		StringBuilder sb = new StringBuilder(this.prefix.length() + rows * (this.valuesGroup.length() + 2));
+		sb.append(this.prefix).append(this.valuesGroup);
+		for (int i = 1; i < rows; i++) {
+			sb.append(", ").append(this.valuesGroup);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Return a view of the given statement which shifts all parameter
+	 * indexes by the given offset.
+	 * @param ps the statement for multiple rows
+	 * @return the shifting statement view, to be repositioned through
+	 * {@link #setRow(ParameterShiftingPreparedStatement, int)}
+	 */
+	public ParameterShiftingPreparedStatement createRowStatement(PreparedStatement ps) {
+		return new ParameterShiftingPreparedStatement(ps);
+	}
+
+	/**
+	 * Position the given row statement view at the given row within
+	 * the multi-row statement.
+	 * @param rowStatement the view obtained from {@link #createRowStatement}
+	 * @param row the zero-based row within the multi-row statement
+	 */
+	public void setRow(ParameterShiftingPreparedStatement rowStatement, int row) {
+		rowStatement.setOffset(row * this.parameterCount);
+	}
+
+
+	/**
+	 * Parse the given SQL statement into a {@code MultiRowInsert}, if possible.
+	 * @param sql the single-row INSERT statement
+	 * @return the corresponding {@code MultiRowInsert}, or {@code null}
+	 * if the statement is not suitable for multi-row rewriting
+	 */
+	@Nullable
+	public static MultiRowInsert parse(String sql) {
+		String trimmed = sql.trim();
+		if (!trimmed.regionMatches(true, 0, "INSERT", 0, 6)) {
+			return null;
+		}
+
+		int valuesStart = -1;
+		int groupStart = -1;
+		int groupEnd = -1;
+		int depth = 0;
+		int placeholders = 0;
+		int groupPlaceholders = 0;
+		char quote = 0;
+		for (int i = 0; i < trimmed.length(); i++) {
+			char c = trimmed.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+				continue;
+			}
+			if (c == '\'' || c == '"' || c == '`') {
+				quote = c;
+			}
+			else if (c == '-' && i + 1 < trimmed.length() && trimmed.charAt(i + 1) == '-' ||
+					c == '/' && i + 1 < trimmed.length() && trimmed.charAt(i + 1) == '*' || c == ';') {
+				// Comments or multiple statements: not safe to rewrite
+				return null;
+			}
+			else if (c == '?') {
+				placeholders++;
+				if (groupStart != -1 && groupEnd == -1) {
+					groupPlaceholders++;
+				}
+			}
+			else if (c == '(') {
+				if (valuesStart != -1 && groupStart == -1 && depth == 0) {
+					if (!trimmed.substring(valuesStart + 6, i).trim().isEmpty()) {
+						return null;
+					}
+					groupStart = i;
+				}
+				depth++;
+			}
+			else if (c == ')') {
+				depth--;
+				if (depth == 0 && groupStart != -1 && groupEnd == -1) {
+					groupEnd = i;
+				}
+			}
+			else if ((c == 'V' || c == 'v') && depth == 0 && trimmed.regionMatches(true, i, "VALUES", 0, 6) &&
+					!Character.isJavaIdentifierPart(trimmed.charAt(i - 1)) &&
+					(i + 6 == trimmed.length() || !Character.isJavaIdentifierPart(trimmed.charAt(i + 6)))) {
+				if (valuesStart != -1) {
+					return null;
+				}
+				valuesStart = i;
+			}
+		}
+
+		if (quote != 0 || groupEnd != trimmed.length() - 1 || placeholders == 0 || placeholders != groupPlaceholders) {
+			return null;
+		}
+		return new MultiRowInsert(sql, trimmed.substring(0, groupStart), trimmed.substring(groupStart), placeholders);
+	}
+
+}
@@ -0,0 +1,632 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * {@link PreparedStatement} decorator for a row within a multi-row INSERT
+ * statement: shifts the parameter index of all parameter setters by the
+ * offset of the current row, delegating all other calls as-is.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see MultiRowInsert#createRowStatement
+ */
+final class ParameterShiftingPreparedStatement implements PreparedStatement {
+
+	private final PreparedStatement target;
+
+	private int offset;
+
+
+	ParameterShiftingPreparedStatement(PreparedStatement target) {
+		this.target = target;
+	}
+
+
+	/**
+	 * Set the offset to add to the parameter index of all parameter setters.
+	 */
+	void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+
+	//-------------------------------------------------------------------------
+	// Parameter setters, shifted by the current offset
+	//-------------------------------------------------------------------------
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType) throws SQLException {
+		this.target.setNull(this.offset + parameterIndex, sqlType);
+	}
+
+	@Override
+	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+		this.target.setBoolean(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setByte(int parameterIndex, byte x) throws SQLException {
+		this.target.setByte(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setShort(int parameterIndex, short x) throws SQLException {
+		this.target.setShort(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setInt(int parameterIndex, int x) throws SQLException {
+		this.target.setInt(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setLong(int parameterIndex, long x) throws SQLException {
+		this.target.setLong(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setFloat(int parameterIndex, float x) throws SQLException {
+		this.target.setFloat(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setDouble(int parameterIndex, double x) throws SQLException {
+		this.target.setDouble(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+		this.target.setBigDecimal(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setString(int parameterIndex, String x) throws SQLException {
+		this.target.setString(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+		this.target.setBytes(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x) throws SQLException {
+		this.target.setDate(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x) throws SQLException {
+		this.target.setTime(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+		this.target.setTimestamp(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		this.target.setAsciiStream(this.offset + parameterIndex, x, length);
+	}
+
+	@Override
+	@Deprecated
+	public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		this.target.setUnicodeStream(this.offset + parameterIndex, x, length);
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+		this.target.setBinaryStream(this.offset + parameterIndex, x, length);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+		this.target.setObject(this.offset + parameterIndex, x, targetSqlType);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x) throws SQLException {
+		this.target.setObject(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+		this.target.setCharacterStream(this.offset + parameterIndex, reader, length);
+	}
+
+	@Override
+	public void setRef(int parameterIndex, Ref x) throws SQLException {
+		this.target.setRef(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, Blob x) throws SQLException {
+		this.target.setBlob(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Clob x) throws SQLException {
+		this.target.setClob(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setArray(int parameterIndex, Array x) throws SQLException {
+		this.target.setArray(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+		this.target.setDate(this.offset + parameterIndex, x, cal);
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+		this.target.setTime(this.offset + parameterIndex, x, cal);
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+		this.target.setTimestamp(this.offset + parameterIndex, x, cal);
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+		this.target.setNull(this.offset + parameterIndex, sqlType, typeName);
+	}
+
+	@Override
+	public void setURL(int parameterIndex, URL x) throws SQLException {
+		this.target.setURL(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setRowId(int parameterIndex, RowId x) throws SQLException {
+		this.target.setRowId(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setNString(int parameterIndex, String value) throws SQLException {
+		this.target.setNString(this.offset + parameterIndex, value);
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+		this.target.setNCharacterStream(this.offset + parameterIndex, value, length);
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, NClob value) throws SQLException {
+		this.target.setNClob(this.offset + parameterIndex, value);
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		this.target.setClob(this.offset + parameterIndex, reader, length);
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+		this.target.setBlob(this.offset + parameterIndex, inputStream, length);
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+		this.target.setNClob(this.offset + parameterIndex, reader, length);
+	}
+
+	@Override
+	public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+		this.target.setSQLXML(this.offset + parameterIndex, xmlObject);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+		this.target.setObject(this.offset + parameterIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+		this.target.setAsciiStream(this.offset + parameterIndex, x, length);
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+		this.target.setBinaryStream(this.offset + parameterIndex, x, length);
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+		this.target.setCharacterStream(this.offset + parameterIndex, reader, length);
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+		this.target.setAsciiStream(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+		this.target.setBinaryStream(this.offset + parameterIndex, x);
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+		this.target.setCharacterStream(this.offset + parameterIndex, reader);
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+		this.target.setNCharacterStream(this.offset + parameterIndex, value);
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader reader) throws SQLException {
+		this.target.setClob(this.offset + parameterIndex, reader);
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+		this.target.setBlob(this.offset + parameterIndex, inputStream);
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+		this.target.setNClob(this.offset + parameterIndex, reader);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+		this.target.setObject(this.offset + parameterIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+		this.target.setObject(this.offset + parameterIndex, x, targetSqlType);
+	}
+
+
+	//-------------------------------------------------------------------------
+	// Plain delegation to the target statement
+	//-------------------------------------------------------------------------
+
+	@Override
+	public ResultSet executeQuery() throws SQLException {
+		return this.target.executeQuery();
+	}
+
+	@Override
+	public int executeUpdate() throws SQLException {
+		return this.target.executeUpdate();
+	}
+
+	@Override
+	public void clearParameters() throws SQLException {
+		this.target.clearParameters();
+	}
+
+	@Override
+	public boolean execute() throws SQLException {
+		return this.target.execute();
+	}
+
+	@Override
+	public void addBatch() throws SQLException {
+		this.target.addBatch();
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return this.target.getMetaData();
+	}
+
+	@Override
+	public ParameterMetaData getParameterMetaData() throws SQLException {
+		return this.target.getParameterMetaData();
+	}
+
+	@Override
+	public long executeLargeUpdate() throws SQLException {
+		return this.target.executeLargeUpdate();
+	}
+
+	@Override
+	public ResultSet executeQuery(String sql) throws SQLException {
+		return this.target.executeQuery(sql);
+	}
+
+	@Override
+	public int executeUpdate(String sql) throws SQLException {
+		return this.target.executeUpdate(sql);
+	}
+
+	@Override
+	public void close() throws SQLException {
+		this.target.close();
+	}
+
+	@Override
+	public int getMaxFieldSize() throws SQLException {
+		return this.target.getMaxFieldSize();
+	}
+
+	@Override
+	public void setMaxFieldSize(int max) throws SQLException {
+		this.target.setMaxFieldSize(max);
+	}
+
+	@Override
+	public int getMaxRows() throws SQLException {
+		return this.target.getMaxRows();
+	}
+
+	@Override
+	public void setMaxRows(int max) throws SQLException {
+		this.target.setMaxRows(max);
+	}
+
+	@Override
+	public void setEscapeProcessing(boolean enable) throws SQLException {
+		this.target.setEscapeProcessing(enable);
+	}
+
+	@Override
+	public int getQueryTimeout() throws SQLException {
+		return this.target.getQueryTimeout();
+	}
+
+	@Override
+	public void setQueryTimeout(int seconds) throws SQLException {
+		this.target.setQueryTimeout(seconds);
+	}
+
+	@Override
+	public void cancel() throws SQLException {
+		this.target.cancel();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return this.target.getWarnings();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		this.target.clearWarnings();
+	}
+
+	@Override
+	public void setCursorName(String name) throws SQLException {
+		this.target.setCursorName(name);
+	}
+
+	@Override
+	public boolean execute(String sql) throws SQLException {
+		return this.target.execute(sql);
+	}
+
+	@Override
+	public ResultSet getResultSet() throws SQLException {
+		return this.target.getResultSet();
+	}
+
+	@Override
+	public int getUpdateCount() throws SQLException {
+		return this.target.getUpdateCount();
+	}
+
+	@Override
+	public boolean getMoreResults() throws SQLException {
+		return this.target.getMoreResults();
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException {
+		this.target.setFetchDirection(direction);
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		return this.target.getFetchDirection();
+	}
+
+	@Override
+	public void setFetchSize(int rows) throws SQLException {
+		this.target.setFetchSize(rows);
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		return this.target.getFetchSize();
+	}
+
+	@Override
+	public int getResultSetConcurrency() throws SQLException {
+		return this.target.getResultSetConcurrency();
+	}
+
+	@Override
+	public int getResultSetType() throws SQLException {
+		return this.target.getResultSetType();
+	}
+
+	@Override
+	public void addBatch(String sql) throws SQLException {
+		this.target.addBatch(sql);
+	}
+
+	@Override
+	public void clearBatch() throws SQLException {
+		this.target.clearBatch();
+	}
+
+	@Override
+	public int[] executeBatch() throws SQLException {
+		return this.target.executeBatch();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return this.target.getConnection();
+	}
+
+	@Override
+	public boolean getMoreResults(int current) throws SQLException {
+		return this.target.getMoreResults(current);
+	}
+
+	@Override
+	public ResultSet getGeneratedKeys() throws SQLException {
+		return this.target.getGeneratedKeys();
+	}
+
+	@Override
+	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		return this.target.executeUpdate(sql, autoGeneratedKeys);
+	}
+
+	@Override
+	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		return this.target.executeUpdate(sql, columnIndexes);
+	}
+
+	@Override
+	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		return this.target.executeUpdate(sql, columnNames);
+	}
+
+	@Override
+	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		return this.target.execute(sql, autoGeneratedKeys);
+	}
+
+	@Override
+	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		return this.target.execute(sql, columnIndexes);
+	}
+
+	@Override
+	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		return this.target.execute(sql, columnNames);
+	}
+
+	@Override
+	public int getResultSetHoldability() throws SQLException {
+		return this.target.getResultSetHoldability();
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return this.target.isClosed();
+	}
+
+	@Override
+	public void setPoolable(boolean poolable) throws SQLException {
+		this.target.setPoolable(poolable);
+	}
+
+	@Override
+	public boolean isPoolable() throws SQLException {
+		return this.target.isPoolable();
+	}
+
+	@Override
+	public void closeOnCompletion() throws SQLException {
+		this.target.closeOnCompletion();
+	}
+
+	@Override
+	public boolean isCloseOnCompletion() throws SQLException {
+		return this.target.isCloseOnCompletion();
+	}
+
+	@Override
+	public long getLargeUpdateCount() throws SQLException {
+		return this.target.getLargeUpdateCount();
+	}
+
+	@Override
+	public void setLargeMaxRows(long max) throws SQLException {
+		this.target.setLargeMaxRows(max);
+	}
+
+	@Override
+	public long getLargeMaxRows() throws SQLException {
+		return this.target.getLargeMaxRows();
+	}
+
+	@Override
+	public long[] executeLargeBatch() throws SQLException {
+		return this.target.executeLargeBatch();
+	}
+
+	@Override
+	public long executeLargeUpdate(String sql) throws SQLException {
+		return this.target.executeLargeUpdate(sql);
+	}
+
+	@Override
+	public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		return this.target.executeLargeUpdate(sql, autoGeneratedKeys);
+	}
+
+	@Override
+	public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		return this.target.executeLargeUpdate(sql, columnIndexes);
+	}
+
+	@Override
+	public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+		return this.target.executeLargeUpdate(sql, columnNames);
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return this.target.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return this.target.isWrapperFor(iface);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -99,6 +99,10 @@ public class CallMetaDataContext {
 	@Nullable
 	private CallMetaDataProvider metaDataProvider;
 
+	// Shared cache for call meta-data providers, if any
+	@Nullable
+	private MetaDataProviderCache metaDataProviderCache;
+
 
 	/**
 	 * Specify the name used for the return value of the function.
@@ -245,13 +249,34 @@ public class CallMetaDataContext {
 		return this.namedBinding;
 	}
 
+	/**
+	 * Specify a shared cache for call meta-data providers, avoiding repeated
+	 * meta-data retrieval for the same procedure across several contexts.
+	 * <p>By default, the meta-data is retrieved for every context.
+	 * @since 5.2.13
+	 */
+	public void setMetaDataProviderCache(@Nullable MetaDataProviderCache metaDataProviderCache) {
+		this.metaDataProviderCache = metaDataProviderCache;
+	}
+
+	/**
+	 * Return the shared cache for call meta-data providers, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public MetaDataProviderCache getMetaDataProviderCache() {
+		return this.metaDataProviderCache;
+	}
+
 
 	/**
 	 * Initialize this class with meta-data from the database.
 	 * @param dataSource the DataSource used to retrieve meta-data
 	 */
 	public void initializeMetaData(DataSource dataSource) {
-		this.metaDataProvider = CallMetaDataProviderFactory.createMetaDataProvider(dataSource, this);
+		this.metaDataProvider = (this.metaDataProviderCache != null ?
+				this.metaDataProviderCache.getCallMetaDataProvider(dataSource, this) :
+				CallMetaDataProviderFactory.createMetaDataProvider(dataSource, this));
 	}
 
 	private CallMetaDataProvider obtainMetaDataProvider() {
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.metadata;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * Size-bounded cache for {@link TableMetaDataProvider} and
+ * {@link CallMetaDataProvider} instances, to be shared between
+ * {@link TableMetaDataContext} and {@link CallMetaDataContext} instances
+ * which operate on the same tables and procedures.
+ *
+ * <p>Each provider is keyed by its {@code DataSource} and by all context
+ * settings that it has been derived from: catalog, schema and table/procedure
+ * name as well as the meta-data access flags. Providers are fully initialized
+ * on creation and only read from afterwards, so a single provider instance
+ * can safely serve several contexts.
+ *
+ * <p>Note that a cached provider does not reflect subsequent changes to the
+ * database schema; call {@link #clear()} after schema changes.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see TableMetaDataContext#setMetaDataProviderCache
+ * @see CallMetaDataContext#setMetaDataProviderCache
+ */
+public class MetaDataProviderCache {
+
+	/** Default maximum number of providers per type: 256. */
+	public static final int DEFAULT_CACHE_LIMIT = 256;
+
+
+	private final ConcurrentLruCache<List<Object>, TableMetaDataProvider> tableMetaDataProviders;
+
+	private final ConcurrentLruCache<List<Object>, CallMetaDataProvider> callMetaDataProviders;
+
+	private final LongAdder requestCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+
+	/**
+	 * Create a new {@code MetaDataProviderCache} with the default cache limit.
+	 * @see #DEFAULT_CACHE_LIMIT
+	 */
+	public MetaDataProviderCache() {
+		this(DEFAULT_CACHE_LIMIT);
+	}
+
+	/**
+	 * Create a new {@code MetaDataProviderCache} with the given cache limit.
+	 * @param cacheLimit the maximum number of providers per type
+	 * (0 indicates no caching, always retrieving the meta-data)
+	 */
+	public MetaDataProviderCache(int cacheLimit) {
+		this.tableMetaDataProviders = new ConcurrentLruCache<>(cacheLimit, this::createTableMetaDataProvider);
+		this.callMetaDataProviders = new ConcurrentLruCache<>(cacheLimit, this::createCallMetaDataProvider);
+	}
+
+
+	/**
+	 * Return a {@link TableMetaDataProvider} for the given context,
+	 * retrieving the database meta-data on a cache miss.
+	 * @param dataSource the DataSource used to retrieve meta-data
+	 * @param context the table context to obtain a provider for
+	 * @see TableMetaDataProviderFactory#createMetaDataProvider
+	 */
+	public TableMetaDataProvider getTableMetaDataProvider(DataSource dataSource, TableMetaDataContext context) {
+		this.requestCount.increment();
+		return this.tableMetaDataProviders.get(Arrays.asList(dataSource,
+				context.getCatalogName(), context.getSchemaName(), context.getTableName(),
+				context.isAccessTableColumnMetaData(), context.isOverrideIncludeSynonymsDefault()));
+	}
+
+	/**
+	 * Return a {@link CallMetaDataProvider} for the given context,
+	 * retrieving the database meta-data on a cache miss.
+	 * @param dataSource the DataSource used to retrieve meta-data
+	 * @param context the call context to obtain a provider for
+	 * @see CallMetaDataProviderFactory#createMetaDataProvider
+	 */
+	public CallMetaDataProvider getCallMetaDataProvider(DataSource dataSource, CallMetaDataContext context) {
+		this.requestCount.increment();
+		return this.callMetaDataProviders.get(Arrays.asList(dataSource,
+				context.getCatalogName(), context.getSchemaName(), context.getProcedureName(),
+				context.isFunction(), context.isAccessCallParameterMetaData()));
+	}
+
+	private TableMetaDataProvider createTableMetaDataProvider(List<Object> key) {
+		this.missCount.increment();
+		TableMetaDataContext context = new TableMetaDataContext();
+		context.setCatalogName((String) key.get(1));
+		context.setSchemaName((String) key.get(2));
+		context.setTableName((String) key.get(3));
+		context.setAccessTableColumnMetaData((Boolean) key.get(4));
+		context.setOverrideIncludeSynonymsDefault((Boolean) key.get(5));
+		return TableMetaDataProviderFactory.createMetaDataProvider((DataSource) key.get(0), context);
+	}
+
+	private CallMetaDataProvider createCallMetaDataProvider(List<Object> key) {
+		this.missCount.increment();
+		CallMetaDataContext context = new CallMetaDataContext();
+		context.setCatalogName((String) key.get(1));
+		context.setSchemaName((String) key.get(2));
+		context.setProcedureName((String) key.get(3));
+		context.setFunction((Boolean) key.get(4));
+		context.setAccessCallParameterMetaData((Boolean) key.get(5));
+		return CallMetaDataProviderFactory.createMetaDataProvider((DataSource) key.get(0), context);
+	}
+
+
+	/**
+	 * Return the number of provider requests served from the cache.
+	 */
+	public long getHitCount() {
+		return this.requestCount.sum() - this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of provider requests which required
+	 * retrieval of the database meta-data.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the ratio of provider requests served from the cache,
+	 * or 0.0 if no providers have been requested yet.
+	 */
+	public double getHitRate() {
+		long requests = this.requestCount.sum();
+		return (requests > 0 ? (double) (requests - this.missCount.sum()) / requests : 0.0);
+	}
+
+	/**
+	 * Return the number of currently cached providers.
+	 */
+	public int size() {
+		return this.tableMetaDataProviders.size() + this.callMetaDataProviders.size();
+	}
+
+	/**
+	 * Remove all cached providers, e.g. after changes to the database schema.
+	 */
+	public void clear() {
+		this.tableMetaDataProviders.clear();
+		this.callMetaDataProviders.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "MetaDataProviderCache: size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount();
+	}
+
+}
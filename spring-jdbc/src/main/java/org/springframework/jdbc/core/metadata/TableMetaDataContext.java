@@ -76,6 +76,10 @@ public class TableMetaDataContext {
 	@Nullable
 	private TableMetaDataProvider metaDataProvider;
 
+	// Shared cache for table meta-data providers, if any
+	@Nullable
+	private MetaDataProviderCache metaDataProviderCache;
+
 	// Are we using generated key columns
 	private boolean generatedKeyColumnsUsed = false;
 
@@ -154,6 +158,25 @@ public class TableMetaDataContext {
 		return this.overrideIncludeSynonymsDefault;
 	}
 
+	/**
+	 * Specify a shared cache for table meta-data providers, avoiding repeated
+	 * meta-data retrieval for the same table across several contexts.
+	 * <p>By default, the meta-data is retrieved for every context.
+	 * @since 5.2.13
+	 */
+	public void setMetaDataProviderCache(@Nullable MetaDataProviderCache metaDataProviderCache) {
+		this.metaDataProviderCache = metaDataProviderCache;
+	}
+
+	/**
+	 * Return the shared cache for table meta-data providers, if any.
+	 * @since 5.2.13
+	 */
+	@Nullable
+	public MetaDataProviderCache getMetaDataProviderCache() {
+		return this.metaDataProviderCache;
+	}
+
 	/**
 	 * Get a List of the table column names.
 	 */
@@ -169,7 +192,9 @@ public class TableMetaDataContext {
 	 * @param generatedKeyNames name of generated keys
 	 */
 	public void processMetaData(DataSource dataSource, List<String> declaredColumns, String[] generatedKeyNames) {
-		this.metaDataProvider = TableMetaDataProviderFactory.createMetaDataProvider(dataSource, this);
+		this.metaDataProvider = (this.metaDataProviderCache != null ?
+				this.metaDataProviderCache.getTableMetaDataProvider(dataSource, this) :
+				TableMetaDataProviderFactory.createMetaDataProvider(dataSource, this));
 		this.tableColumns = reconcileColumnsToUse(declaredColumns, generatedKeyNames);
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,19 @@
 
 package org.springframework.jdbc.core.namedparam;
 
+import java.sql.JDBCType;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.LinkedHashMap;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -29,6 +36,7 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCallback;
@@ -39,11 +47,16 @@ import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.support.SqlArrayValue;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
 
 /**
  * Template class with a basic set of JDBC operations, allowing the use
@@ -71,21 +84,24 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	/** Default maximum number of entries for this template's SQL cache: 256. */
 	public static final int DEFAULT_CACHE_LIMIT = 256;
 
+	/** Databases supporting array comparisons like {@code id = ANY (?)}. */
+	private static final Set<String> arrayComparisonDatabases = new HashSet<>(Arrays.asList("PostgreSQL", "H2"));
+
 
 	/** The JdbcTemplate we are wrapping. */
 	private final JdbcOperations classicJdbcTemplate;
 
-	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
-
 	/** Cache of original SQL String to ParsedSql representation. */
-	@SuppressWarnings("serial")
-	private final Map<String, ParsedSql> parsedSqlCache =
-			new LinkedHashMap<String, ParsedSql>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
-				@Override
-				protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
-					return size() > getCacheLimit();
-				}
-			};
+	private volatile ConcurrentLruCache<String, ParsedSql> parsedSqlCache =
+			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT, NamedParameterUtils::parseSqlStatement);
+
+	private boolean inClauseArrayBinding = false;
+
+	private int maxInListSize = 0;
+
+	/** Whether the database supports array comparisons, once determined. */
+	@Nullable
+	private volatile Boolean arrayComparisonSupported;
 
 
 	/**
@@ -135,14 +151,63 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	 * Default is 256.
 	 */
 	public void setCacheLimit(int cacheLimit) {
-		this.cacheLimit = cacheLimit;
+		this.parsedSqlCache = new ConcurrentLruCache<>(Math.max(cacheLimit, 0), NamedParameterUtils::parseSqlStatement);
 	}
 
 	/**
 	 * Return the maximum number of entries for this template's SQL cache.
 	 */
 	public int getCacheLimit() {
-		return this.cacheLimit;
+		return this.parsedSqlCache.sizeLimit();
+	}
+
+	/**
+	 * Specify whether to bind a collection parameter within an {@code IN} clause,
+	 * e.g. {@code id IN (:ids)}, as a single SQL ARRAY value through an array
+	 * comparison like {@code id = ANY (?)}, rather than expanding it into one
+	 * placeholder per element. Default is "false".
+	 * <p>This keeps the SQL statement independent of the number of elements,
+	 * allowing for reuse of the statement and its execution plan, and is not
+	 * subject to driver limits on the number of parameters. It is only applied
+	 * if the database supports array comparisons (currently PostgreSQL and H2),
+	 * as detected on first use; otherwise collections are expanded as usual,
+	 * split according to the {@link #setMaxInListSize "maxInListSize"}.
+	 * <p>The SQL type name of the array elements is derived from the declared
+	 * SQL type of the parameter, if any, or from the type of its first element.
+	 * @since 5.2.13
+	 * @see SqlArrayValue
+	 */
+	public void setInClauseArrayBinding(boolean inClauseArrayBinding) {
+		this.inClauseArrayBinding = inClauseArrayBinding;
+	}
+
+	/**
+	 * Return whether to bind collection parameters within an {@code IN} clause
+	 * as a single SQL ARRAY value, where supported by the database.
+	 * @since 5.2.13
+	 */
+	public boolean isInClauseArrayBinding() {
+		return this.inClauseArrayBinding;
+	}
+
+	/**
+	 * Specify the maximum number of elements within a single {@code IN} clause,
+	 * splitting a larger collection parameter into several clauses on the same
+	 * column, e.g. {@code (id IN (?, ?) OR id IN (?, ?))}. Default is 0 (no limit).
+	 * <p>Set this according to the limits of the database, e.g. 1000 for Oracle.
+	 * @since 5.2.13
+	 * @see NamedParameterUtils#substituteNamedParameters(ParsedSql, SqlParameterSource, int)
+	 */
+	public void setMaxInListSize(int maxInListSize) {
+		this.maxInListSize = Math.max(maxInListSize, 0);
+	}
+
+	/**
+	 * Return the maximum number of elements within a single {@code IN} clause.
+	 * @since 5.2.13
+	 */
+	public int getMaxInListSize() {
+		return this.maxInListSize;
 	}
 
 
@@ -223,6 +288,27 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return query(sql, new MapSqlParameterSource(paramMap), rowMapper);
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return getJdbcOperations().queryForStream(getPreparedStatementCreator(sql, paramSource), rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, int fetchSize,
+			RowMapper<T> rowMapper) throws DataAccessException {
+
+		return getJdbcOperations().queryForStream(getPreparedStatementCreator(sql, paramSource), fetchSize, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(sql, new MapSqlParameterSource(paramMap), rowMapper);
+	}
+
 	@Override
 	public <T> List<T> query(String sql, RowMapper<T> rowMapper) throws DataAccessException {
 		return query(sql, EmptySqlParameterSource.INSTANCE, rowMapper);
@@ -411,27 +497,113 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 			@Nullable Consumer<PreparedStatementCreatorFactory> customizer) {
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, paramSource);
+		SqlParameterSource paramSourceToUse = paramSource;
+		if (this.inClauseArrayBinding && parsedSql.getNamedParameterCount() > 0 && isArrayComparisonSupported()) {
+			Map<String, SqlArrayValue> arrayValues = new HashMap<>();
+			NamedParameterUtils.ArrayComparisons arrayComparisons = NamedParameterUtils.substituteArrayComparisons(
+					parsedSql, paramName -> arrayValues.computeIfAbsent(
+							paramName, name -> buildArrayValue(paramSource, name)) != null);
+			if (arrayComparisons != null) {
+				parsedSql = getParsedSql(arrayComparisons.getSql());
+				arrayValues.keySet().retainAll(arrayComparisons.getParameterNames());
+				paramSourceToUse = new ArrayValueParameterSource(paramSource, arrayValues);
+			}
+		}
+		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, paramSourceToUse);
 		if (customizer != null) {
 			customizer.accept(pscf);
 		}
-		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSourceToUse, null);
 		return pscf.newPreparedStatementCreator(params);
 	}
 
+	/**
+	 * Determine whether the database supports array comparisons,
+	 * checking its product name on first access.
+	 */
+	private boolean isArrayComparisonSupported() {
+		Boolean supported = this.arrayComparisonSupported;
+		if (supported == null) {
+			String productName = getJdbcOperations().execute((ConnectionCallback<String>) con ->
+					JdbcUtils.commonDatabaseName(con.getMetaData().getDatabaseProductName()));
+			supported = arrayComparisonDatabases.contains(productName);
+			this.arrayComparisonSupported = supported;
+		}
+		return supported;
+	}
+
+	/**
+	 * Build an {@link SqlArrayValue} for the given collection parameter.
+	 * @return the array value, or {@code null} if the parameter value is not
+	 * a collection or the SQL type of its elements cannot be determined
+	 */
+	@Nullable
+	private static SqlArrayValue buildArrayValue(SqlParameterSource paramSource, String paramName) {
+		if (!paramSource.hasValue(paramName)) {
+			return null;
+		}
+		Object value = paramSource.getValue(paramName);
+		int sqlType = paramSource.getSqlType(paramName);
+		if (value instanceof SqlParameterValue) {
+			sqlType = ((SqlParameterValue) value).getSqlType();
+			value = ((SqlParameterValue) value).getValue();
+		}
+		if (!(value instanceof Iterable)) {
+			return null;
+		}
+		List<Object> elements = new ArrayList<>();
+		for (Object element : (Iterable<?>) value) {
+			if (element instanceof Object[]) {
+				// Expression lists: to be expanded
+				return null;
+			}
+			if (sqlType == SqlParameterSource.TYPE_UNKNOWN && element != null) {
+				sqlType = StatementCreatorUtils.javaTypeToSqlParameterType(element.getClass());
+			}
+			elements.add(element);
+		}
+		String typeName = getArrayElementTypeName(sqlType);
+		return (typeName != null ? new SqlArrayValue(typeName, elements) : null);
+	}
+
+	/**
+	 * Determine the SQL type name for array elements of the given SQL type.
+	 */
+	@Nullable
+	private static String getArrayElementTypeName(int sqlType) {
+		switch (sqlType) {
+			case SqlParameterSource.TYPE_UNKNOWN:
+			case Types.OTHER:
+			case Types.ARRAY:
+			case Types.STRUCT:
+			case Types.JAVA_OBJECT:
+				return null;
+			case Types.TINYINT:
+				return "smallint";
+			case Types.DOUBLE:
+				return "float8";
+			case Types.DECIMAL:
+				return "numeric";
+			default:
+				try {
+					return JDBCType.valueOf(sqlType).getName().toLowerCase();
+				}
+				catch (IllegalArgumentException ex) {
+					return null;
+				}
+		}
+	}
+
 	/**
 	 * Obtain a parsed representation of the given SQL statement.
-	 * <p>The default implementation uses an LRU cache with an upper limit of 256 entries.
+	 * <p>The default implementation uses an LRU cache with an upper limit of 256 entries,
+	 * with lock-free access to cached entries.
 	 * @param sql the original SQL statement
 	 * @return a representation of the parsed SQL statement
+	 * @see ConcurrentLruCache
 	 */
 	protected ParsedSql getParsedSql(String sql) {
-		if (getCacheLimit() <= 0) {
-			return NamedParameterUtils.parseSqlStatement(sql);
-		}
-		synchronized (this.parsedSqlCache) {
-			return this.parsedSqlCache.computeIfAbsent(sql, NamedParameterUtils::parseSqlStatement);
-		}
+		return this.parsedSqlCache.get(sql);
 	}
 
 	/**
@@ -446,9 +618,54 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	protected PreparedStatementCreatorFactory getPreparedStatementCreatorFactory(
 			ParsedSql parsedSql, SqlParameterSource paramSource) {
 
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource, this.maxInListSize);
 		List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
 		return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
 	}
 
+
+	/**
+	 * Parameter source exposing collection parameters as SQL ARRAY values.
+	 */
+	private static class ArrayValueParameterSource implements SqlParameterSource {
+
+		private final SqlParameterSource source;
+
+		private final Map<String, SqlArrayValue> arrayValues;
+
+		public ArrayValueParameterSource(SqlParameterSource source, Map<String, SqlArrayValue> arrayValues) {
+			this.source = source;
+			this.arrayValues = arrayValues;
+		}
+
+		@Override
+		public boolean hasValue(String paramName) {
+			return (this.arrayValues.containsKey(paramName) || this.source.hasValue(paramName));
+		}
+
+		@Override
+		@Nullable
+		public Object getValue(String paramName) throws IllegalArgumentException {
+			SqlArrayValue arrayValue = this.arrayValues.get(paramName);
+			return (arrayValue != null ? arrayValue : this.source.getValue(paramName));
+		}
+
+		@Override
+		public int getSqlType(String paramName) {
+			return (this.arrayValues.containsKey(paramName) ? TYPE_UNKNOWN : this.source.getSqlType(paramName));
+		}
+
+		@Override
+		@Nullable
+		public String getTypeName(String paramName) {
+			return (this.arrayValues.containsKey(paramName) ? null : this.source.getTypeName(paramName));
+		}
+
+		@Override
+		@Nullable
+		public String[] getParameterNames() {
+			return this.source.getParameterNames();
+		}
+	}
+
 }
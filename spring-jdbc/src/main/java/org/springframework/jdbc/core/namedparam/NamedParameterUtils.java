@@ -17,11 +17,13 @@
 package org.springframework.jdbc.core.namedparam;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.core.SqlParameter;
@@ -51,6 +53,12 @@ public abstract class NamedParameterUtils {
 	 */
 	private static final String[] STOP_SKIP = new String[] {"'", "\"", "\n", "*/"};
 
+	/**
+	 * Keywords after which a condition may start.
+	 */
+	private static final String[] CONDITION_KEYWORDS =
+			new String[] {"WHERE", "AND", "OR", "NOT", "ON", "HAVING", "WHEN", "THEN", "ELSE", "SELECT"};
+
 	/**
 	 * Set of characters that qualify as parameter separators,
 	 * indicating that a parameter name in an SQL String has ended.
@@ -266,11 +274,282 @@ public abstract class NamedParameterUtils {
 	 * @see #parseSqlStatement
 	 */
 	public static String substituteNamedParameters(ParsedSql parsedSql, @Nullable SqlParameterSource paramSource) {
-		String originalSql = parsedSql.getOriginalSql();
+		return substituteNamedParameters(parsedSql, paramSource, 0);
+	}
+
+	/**
+	 * Parse the SQL statement and locate any placeholders or named parameters,
+	 * as in {@link #substituteNamedParameters(ParsedSql, SqlParameterSource)},
+	 * splitting large lists within {@code IN} clauses into several clauses.
+	 * <p>A clause like {@code id IN (:ids)} with more elements than the given
+	 * limit turns into {@code (id IN (?, ?) OR id IN (?, ?))}, and correspondingly
+	 * {@code id NOT IN (:ids)} into {@code (id NOT IN (?, ?) AND id NOT IN (?, ?))}.
+	 * This is only applied if the left-hand side of the clause is a plain
+	 * (possibly qualified) column name; any other list is expanded as usual.
+	 * @param parsedSql the parsed representation of the SQL statement
+	 * @param paramSource the source for named parameters
+	 * @param maxInListSize the maximum number of placeholders within a
+	 * single {@code IN} clause (0 for no limit)
+	 * @return the SQL statement with substituted parameters
+	 * @since 5.2.13
+	 */
+	public static String substituteNamedParameters(
+			ParsedSql parsedSql, @Nullable SqlParameterSource paramSource, int maxInListSize) {
+
 		List<String> paramNames = parsedSql.getParameterNames();
 		if (paramNames.isEmpty()) {
-			return originalSql;
+			return parsedSql.getOriginalSql();
 		}
+
+		// Determine the expansion size per parameter, for reuse of cached SQL variants
+		int[] expansionSizes = null;
+		boolean exceedsInListSize = false;
+		for (int i = 0; i < paramNames.size(); i++) {
+			String paramName = paramNames.get(i);
+			if (paramSource != null && paramSource.hasValue(paramName)) {
+				Object value = paramSource.getValue(paramName);
+				if (value instanceof SqlParameterValue) {
+					value = ((SqlParameterValue) value).getValue();
+				}
+				if (value instanceof Iterable) {
+					int size = 0;
+					for (Object entryItem : (Iterable<?>) value) {
+						if (entryItem instanceof Object[]) {
+							// Expression lists: not cached
+							return buildSubstitutedSql(parsedSql, paramSource);
+						}
+						size++;
+					}
+					if (expansionSizes == null) {
+						expansionSizes = new int[paramNames.size()];
+						Arrays.fill(expansionSizes, -1);
+					}
+					expansionSizes[i] = size;
+					exceedsInListSize |= (maxInListSize > 0 && size > maxInListSize);
+				}
+			}
+		}
+
+		if (expansionSizes == null) {
+			return parsedSql.getSubstitutedSql(parsed -> buildExpandedSql(parsed, null, 0));
+		}
+		if (exceedsInListSize) {
+			return parsedSql.getExpandedSql(expansionSizes, maxInListSize,
+					(parsed, sizes) -> buildExpandedSql(parsed, sizes, maxInListSize));
+		}
+		return parsedSql.getExpandedSql(expansionSizes, 0, (parsed, sizes) -> buildExpandedSql(parsed, sizes, 0));
+	}
+
+	/**
+	 * Build the SQL statement for the given expansion sizes per parameter.
+	 * @param parsedSql the parsed representation of the SQL statement
+	 * @param expansionSizes the number of placeholders per parameter,
+	 * or -1 (as well as {@code null} for all parameters) for a single placeholder
+	 * @param maxInListSize the maximum number of placeholders within a
+	 * single {@code IN} clause (0 for no limit)
+	 */
+	private static String buildExpandedSql(ParsedSql parsedSql, @Nullable int[] expansionSizes, int maxInListSize) {
+		String originalSql = parsedSql.getOriginalSql();
+		List<String> paramNames = parsedSql.getParameterNames();
+		StringBuilder actualSql = new StringBuilder(originalSql.length());
+		int lastIndex = 0;
+		for (int i = 0; i < paramNames.size(); i++) {
+			int[] indexes = parsedSql.getParameterIndexes(i);
+			actualSql.append(originalSql, lastIndex, indexes[0]);
+			int previousIndex = lastIndex;
+			lastIndex = indexes[1];
+			int size = (expansionSizes != null ? expansionSizes[i] : -1);
+			if (size < 0) {
+				actualSql.append('?');
+				continue;
+			}
+			if (maxInListSize > 0 && size > maxInListSize) {
+				InClause inClause = findInClause(originalSql, indexes, previousIndex);
+				if (inClause != null && inClause.columnStart >= 0) {
+					// Split into several IN clauses for the same column
+					actualSql.setLength(actualSql.length() - (indexes[0] - inClause.columnStart));
+					String column = originalSql.substring(inClause.columnStart, inClause.columnEnd);
+					actualSql.append('(');
+					for (int start = 0; start < size; start += maxInListSize) {
+						if (start > 0) {
+							actualSql.append(inClause.negated ? " AND " : " OR ");
+						}
+						actualSql.append(column).append(inClause.negated ? " NOT IN (" : " IN (");
+						appendPlaceholders(actualSql, Math.min(maxInListSize, size - start));
+						actualSql.append(')');
+					}
+					actualSql.append(')');
+					lastIndex = inClause.end;
+					continue;
+				}
+			}
+			appendPlaceholders(actualSql, size);
+		}
+		actualSql.append(originalSql, lastIndex, originalSql.length());
+		return actualSql.toString();
+	}
+
+	private static void appendPlaceholders(StringBuilder sql, int count) {
+		for (int k = 0; k < count; k++) {
+			if (k > 0) {
+				sql.append(", ");
+			}
+			sql.append('?');
+		}
+	}
+
+	/**
+	 * Rewrite {@code IN} clauses with a single named parameter, such as
+	 * {@code id IN (:ids)}, into array comparisons such as {@code id = ANY (:ids)},
+	 * for binding the parameter as a single SQL ARRAY value.
+	 * <p>A parameter is only rewritten if all of its occurrences in the
+	 * statement are part of such an {@code IN} clause. {@code NOT IN} clauses
+	 * are left as-is, since not all databases support the corresponding
+	 * {@code <> ALL} comparison with an array.
+	 * @param parsedSql the parsed representation of the SQL statement
+	 * @param arrayParameter predicate for the names of the parameters
+	 * to consider for array binding
+	 * @return the names of the rewritten parameters along with the rewritten
+	 * SQL statement (with named parameters), or {@code null} if none applied
+	 * @since 5.2.13
+	 */
+	@Nullable
+	static ArrayComparisons substituteArrayComparisons(ParsedSql parsedSql, Predicate<String> arrayParameter) {
+		String originalSql = parsedSql.getOriginalSql();
+		List<String> paramNames = parsedSql.getParameterNames();
+		Set<String> arrayParams = new HashSet<>();
+		Set<String> otherParams = new HashSet<>();
+		InClause[] inClauses = new InClause[paramNames.size()];
+		int lastIndex = 0;
+		for (int i = 0; i < paramNames.size(); i++) {
+			String paramName = paramNames.get(i);
+			int[] indexes = parsedSql.getParameterIndexes(i);
+			if (arrayParameter.test(paramName)) {
+				InClause inClause = findInClause(originalSql, indexes, lastIndex);
+				if (inClause != null && !inClause.negated) {
+					inClauses[i] = inClause;
+					arrayParams.add(paramName);
+				}
+				else {
+					otherParams.add(paramName);
+				}
+			}
+			lastIndex = indexes[1];
+		}
+		arrayParams.removeAll(otherParams);
+		if (arrayParams.isEmpty()) {
+			return null;
+		}
+
+		StringBuilder actualSql = new StringBuilder(originalSql.length());
+		lastIndex = 0;
+		for (int i = 0; i < paramNames.size(); i++) {
+			InClause inClause = inClauses[i];
+			if (inClause != null && arrayParams.contains(paramNames.get(i))) {
+				int[] indexes = parsedSql.getParameterIndexes(i);
+				actualSql.append(originalSql, lastIndex, inClause.operatorStart);
+				actualSql.append("= ANY (").append(originalSql, indexes[0], indexes[1]).append(')');
+				lastIndex = inClause.end;
+			}
+		}
+		actualSql.append(originalSql, lastIndex, originalSql.length());
+		return new ArrayComparisons(actualSql.toString(), arrayParams);
+	}
+
+	/**
+	 * Determine whether the given parameter is the only element of an
+	 * {@code IN} list, e.g. {@code id IN (:ids)} or {@code id NOT IN (:ids)}.
+	 * @param sql the original SQL statement
+	 * @param indexes the start and end index of the parameter
+	 * @param lowerBound the minimum index for the start of the clause
+	 * (the end of the previous parameter)
+	 * @return the corresponding clause, or {@code null} if not applicable
+	 */
+	@Nullable
+	private static InClause findInClause(String sql, int[] indexes, int lowerBound) {
+		int end = skipWhitespace(sql, indexes[1], 1);
+		if (end >= sql.length() || sql.charAt(end) != ')') {
+			return null;
+		}
+		int pos = skipWhitespace(sql, indexes[0] - 1, -1);
+		if (pos < lowerBound || sql.charAt(pos) != '(') {
+			return null;
+		}
+		pos = skipWhitespace(sql, pos - 1, -1);
+		if (!isKeywordAt(sql, pos, "IN", lowerBound)) {
+			return null;
+		}
+		int operatorStart = pos - 1;
+		boolean negated = false;
+		pos = skipWhitespace(sql, operatorStart - 1, -1);
+		if (pos < operatorStart - 1 && isKeywordAt(sql, pos, "NOT", lowerBound)) {
+			operatorStart = pos - 2;
+			negated = true;
+			pos = skipWhitespace(sql, operatorStart - 1, -1);
+		}
+
+		// Plain column name on the left-hand side, if any
+		int columnEnd = pos + 1;
+		int columnStart = columnEnd;
+		while (columnStart > lowerBound && isColumnNameChar(sql.charAt(columnStart - 1))) {
+			columnStart--;
+		}
+		if (columnStart == columnEnd || !isConditionStart(sql, columnStart - 1, lowerBound)) {
+			columnStart = -1;
+		}
+		return new InClause(operatorStart, end + 1, negated, columnStart, columnEnd);
+	}
+
+	/**
+	 * Determine whether a condition may start after the given position,
+	 * i.e. whether the preceding token is an opening parenthesis, a comma
+	 * or a keyword like {@code WHERE} or {@code AND} (rather than an operator).
+	 */
+	private static boolean isConditionStart(String sql, int position, int lowerBound) {
+		int pos = skipWhitespace(sql, position, -1);
+		if (pos < 0) {
+			return true;
+		}
+		if (pos < lowerBound) {
+			return false;
+		}
+		char c = sql.charAt(pos);
+		if (c == '(' || c == ',') {
+			return true;
+		}
+		for (String keyword : CONDITION_KEYWORDS) {
+			if (isKeywordAt(sql, pos, keyword, lowerBound)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int skipWhitespace(String sql, int position, int step) {
+		int pos = position;
+		while (pos >= 0 && pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+			pos += step;
+		}
+		return pos;
+	}
+
+	private static boolean isKeywordAt(String sql, int lastCharIndex, String keyword, int lowerBound) {
+		int start = lastCharIndex - keyword.length() + 1;
+		return (start >= lowerBound && sql.regionMatches(true, start, keyword, 0, keyword.length()) &&
+				(start == 0 || !Character.isJavaIdentifierPart(sql.charAt(start - 1))));
+	}
+
+	private static boolean isColumnNameChar(char c) {
+		return (Character.isJavaIdentifierPart(c) || c == '.' || c == '"' || c == '`');
+	}
+
+	/**
+	 * Build the SQL statement for the given parameter values,
+	 * including expression lists.
+	 */
+	private static String buildSubstitutedSql(ParsedSql parsedSql, @Nullable SqlParameterSource paramSource) {
+		String originalSql = parsedSql.getOriginalSql();
+		List<String> paramNames = parsedSql.getParameterNames();
 		StringBuilder actualSql = new StringBuilder(originalSql.length());
 		int lastIndex = 0;
 		for (int i = 0; i < paramNames.size(); i++) {
@@ -486,6 +765,65 @@ public abstract class NamedParameterUtils {
 	}
 
 
+	/**
+	 * An {@code IN} clause with a single parameter as list.
+	 */
+	private static final class InClause {
+
+		/** Start index of the IN (or NOT IN) operator. */
+		final int operatorStart;
+
+		/** End index (exclusive) of the clause, after the closing parenthesis. */
+		final int end;
+
+		final boolean negated;
+
+		/** Start index of a plain column name on the left-hand side, or -1 if none. */
+		final int columnStart;
+
+		final int columnEnd;
+
+		InClause(int operatorStart, int end, boolean negated, int columnStart, int columnEnd) {
+			this.operatorStart = operatorStart;
+			this.end = end;
+			this.negated = negated;
+			this.columnStart = columnStart;
+			this.columnEnd = columnEnd;
+		}
+	}
+
+
+	/**
+	 * A SQL statement with {@code IN} clauses rewritten into array comparisons.
+	 * @since 5.2.13
+	 */
+	static final class ArrayComparisons {
+
+		private final String sql;
+
+		private final Set<String> parameterNames;
+
+		ArrayComparisons(String sql, Set<String> parameterNames) {
+			this.sql = sql;
+			this.parameterNames = parameterNames;
+		}
+
+		/**
+		 * Return the rewritten SQL statement, still with named parameters.
+		 */
+		public String getSql() {
+			return this.sql;
+		}
+
+		/**
+		 * Return the names of the parameters to bind as SQL ARRAY values.
+		 */
+		public Set<String> getParameterNames() {
+			return this.parameterNames;
+		}
+	}
+
+
 	private static class ParameterHolder {
 
 		private final String parameterName;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,14 @@
 package org.springframework.jdbc.core.namedparam;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
 
 /**
  * Holds information about a parsed SQL statement.
@@ -28,6 +35,10 @@ import java.util.List;
  */
 public class ParsedSql {
 
+	/** The maximum number of expanded SQL variants to cache per statement. */
+	private static final int EXPANDED_SQL_CACHE_LIMIT = 64;
+
+
 	private final String originalSql;
 
 	private final List<String> parameterNames = new ArrayList<>();
@@ -40,6 +51,13 @@ public class ParsedSql {
 
 	private int totalParameterCount;
 
+	/** The SQL with a single placeholder per parameter, once substituted. */
+	@Nullable
+	private volatile String substitutedSql;
+
+	/** SQL variants with expanded collection parameters, keyed by expansion sizes. */
+	private final Map<ExpansionKey, String> expandedSqlCache = new ConcurrentHashMap<>();
+
 
 	/**
 	 * Create a new instance of the {@link ParsedSql} class.
@@ -134,6 +152,45 @@ public class ParsedSql {
 	}
 
 
+	/**
+	 * Return the SQL statement with a single placeholder per parameter,
+	 * substituting it through the given function on first access.
+	 * @param substitution the function to build the SQL statement with
+	 * @since 5.2.13
+	 */
+	String getSubstitutedSql(Function<ParsedSql, String> substitution) {
+		String sql = this.substitutedSql;
+		if (sql == null) {
+			sql = substitution.apply(this);
+			this.substitutedSql = sql;
+		}
+		return sql;
+	}
+
+	/**
+	 * Return the SQL statement with collection parameters expanded to the
+	 * given number of placeholders, building it through the given function
+	 * on first access for a specific combination of expansion sizes.
+	 * @param expansionSizes the number of placeholders per parameter
+	 * (as index in the parameter names List), or -1 for a single placeholder
+	 * @param maxInListSize the maximum number of placeholders within a
+	 * single {@code IN} clause, as applied by the expansion (0 for no limit)
+	 * @param expansion the function to build the SQL statement with
+	 * @since 5.2.13
+	 */
+	String getExpandedSql(int[] expansionSizes, int maxInListSize, BiFunction<ParsedSql, int[], String> expansion) {
+		ExpansionKey key = new ExpansionKey(expansionSizes, maxInListSize);
+		String sql = this.expandedSqlCache.get(key);
+		if (sql == null) {
+			sql = expansion.apply(this, expansionSizes);
+			if (this.expandedSqlCache.size() < EXPANDED_SQL_CACHE_LIMIT) {
+				this.expandedSqlCache.put(key, sql);
+			}
+		}
+		return sql;
+	}
+
+
 	/**
 	 * Exposes the original SQL String.
 	 */
@@ -142,4 +199,41 @@ public class ParsedSql {
 		return this.originalSql;
 	}
 
+
+	/**
+	 * Cache key for an expanded SQL variant.
+	 */
+	private static final class ExpansionKey {
+
+		private final int[] expansionSizes;
+
+		private final int maxInListSize;
+
+		private final int hashCode;
+
+		ExpansionKey(int[] expansionSizes, int maxInListSize) {
+			this.expansionSizes = expansionSizes;
+			this.maxInListSize = maxInListSize;
+			this.hashCode = Arrays.hashCode(expansionSizes) * 31 + maxInListSize;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ExpansionKey)) {
+				return false;
+			}
+			ExpansionKey otherKey = (ExpansionKey) other;
+			return (this.maxInListSize == otherKey.maxInListSize &&
+					Arrays.equals(this.expansionSizes, otherKey.expansionSizes));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
 }
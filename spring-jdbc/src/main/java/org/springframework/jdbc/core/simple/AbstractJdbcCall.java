@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SqlParameter;
 import org.springframework.jdbc.core.metadata.CallMetaDataContext;
+import org.springframework.jdbc.core.metadata.MetaDataProviderCache;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -223,6 +224,16 @@ public abstract class AbstractJdbcCall {
 		this.callMetaDataContext.setAccessCallParameterMetaData(accessCallParameterMetaData);
 	}
 
+	/**
+	 * Specify a cache for call meta-data providers, to be shared with
+	 * other calls for the same procedures and functions. The default is none.
+	 * @since 5.2.13
+	 * @see CallMetaDataContext#setMetaDataProviderCache
+	 */
+	public void setMetaDataProviderCache(@Nullable MetaDataProviderCache metaDataProviderCache) {
+		this.callMetaDataContext.setMetaDataProviderCache(metaDataProviderCache);
+	}
+
 	/**
 	 * Get the call string that should be used based on parameters and meta-data.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -41,6 +41,7 @@ import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.SqlTypeValue;
 import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.metadata.MetaDataProviderCache;
 import org.springframework.jdbc.core.metadata.TableMetaDataContext;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -221,6 +222,16 @@ public abstract class AbstractJdbcInsert {
 		this.tableMetaDataContext.setOverrideIncludeSynonymsDefault(override);
 	}
 
+	/**
+	 * Specify a cache for table meta-data providers, to be shared with
+	 * other inserts for the same tables. The default is none.
+	 * @since 5.2.13
+	 * @see TableMetaDataContext#setMetaDataProviderCache
+	 */
+	public void setMetaDataProviderCache(@Nullable MetaDataProviderCache metaDataProviderCache) {
+		this.tableMetaDataContext.setMetaDataProviderCache(metaDataProviderCache);
+	}
+
 	/**
 	 * Get the insert string to be used.
 	 */
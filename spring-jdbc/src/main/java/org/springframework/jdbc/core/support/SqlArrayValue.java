@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+import org.springframework.jdbc.core.DisposableSqlTypeValue;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Common {@link org.springframework.jdbc.core.SqlTypeValue} implementation
+ * for binding a JDBC {@link Array} parameter, created through
+ * {@link java.sql.Connection#createArrayOf} for the given element type name
+ * and released through {@link Array#free()} after statement execution.
+ *
+ * <p>Typically used with array comparisons such as {@code id = ANY (?)}
+ * on databases which support them, binding an arbitrary number of values
+ * to a single parameter:
+ *
+ * <pre class="code">
+ * jdbcTemplate.query("SELECT * FROM person WHERE id = ANY (?)", rowMapper,
+ *     new SqlArrayValue("bigint", ids));
+ * </pre>
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see java.sql.Connection#createArrayOf
+ * @see java.sql.PreparedStatement#setArray
+ * @see org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate#setInClauseArrayBinding
+ */
+public class SqlArrayValue implements DisposableSqlTypeValue {
+
+	private final String typeName;
+
+	private final Object[] elements;
+
+	@Nullable
+	private Array array;
+
+
+	/**
+	 * Create a new {@code SqlArrayValue} for the given element type and elements.
+	 * @param typeName the SQL name of the type of the array elements
+	 * (as understood by the JDBC driver, e.g. "integer" or "varchar")
+	 * @param elements the array elements
+	 */
+	public SqlArrayValue(String typeName, Object... elements) {
+		Assert.hasText(typeName, "Type name must not be empty");
+		Assert.notNull(elements, "Elements array must not be null");
+		this.typeName = typeName;
+		this.elements = elements;
+	}
+
+	/**
+	 * Create a new {@code SqlArrayValue} for the given element type and elements.
+	 * @param typeName the SQL name of the type of the array elements
+	 * (as understood by the JDBC driver, e.g. "integer" or "varchar")
+	 * @param elements the array elements
+	 */
+	public SqlArrayValue(String typeName, Collection<?> elements) {
+		this(typeName, elements.toArray());
+	}
+
+
+	/**
+	 * Return the SQL name of the type of the array elements.
+	 */
+	public String getTypeName() {
+		return this.typeName;
+	}
+
+	/**
+	 * Return the array elements.
+	 */
+	public Object[] getElements() {
+		return this.elements;
+	}
+
+	@Override
+	public void setTypeValue(PreparedStatement ps, int paramIndex, int sqlType, @Nullable String typeName)
+			throws SQLException {
+
+		cleanup();
+		this.array = ps.getConnection().createArrayOf(this.typeName, this.elements);
+		ps.setArray(paramIndex, this.array);
+	}
+
+	@Override
+	public void cleanup() {
+		if (this.array != null) {
+			try {
+				this.array.free();
+			}
+			catch (SQLException | UnsupportedOperationException ex) {
+				// ignore - freeing is an optional optimization for the driver
+			}
+			this.array = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SqlArrayValue of type '" + this.typeName + "' with " + this.elements.length + " elements";
+	}
+
+}
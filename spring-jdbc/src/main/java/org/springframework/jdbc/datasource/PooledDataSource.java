@@ -0,0 +1,869 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Lightweight connection pool in front of a target DataSource which creates
+ * a new physical Connection for every request, such as {@link SimpleDriverDataSource}
+ * or an {@link org.springframework.jdbc.datasource.embedded.EmbeddedDatabase}.
+ *
+ * <p>Returns Connection handles (implementing the {@link ConnectionProxy}
+ * interface) whose {@code close()} call returns the physical Connection to
+ * the pool, so this DataSource works transparently with {@link DataSourceUtils},
+ * {@link DataSourceTransactionManager} and {@code JdbcTemplate}.
+ *
+ * <p>Idle Connections are handed out without locking: a thread first tries
+ * the Connections that it has recently returned itself, then any idle Connection
+ * in the pool, then creates a new Connection if the pool has not reached its
+ * {@link #setMaxPoolSize "maxPoolSize"} yet. Otherwise it waits for a Connection
+ * to be handed off directly by a returning thread, for up to the specified
+ * {@link #setConnectionTimeout "connectionTimeout"}.
+ *
+ * <p>A Connection which has not been used for the
+ * {@link #setValidationInterval "validationInterval"} is validated through
+ * {@link Connection#isValid} before being handed out. Connections are retired
+ * after their {@link #setMaxLifetime "maxLifetime"}, and idle Connections beyond
+ * {@link #setMinIdle "minIdle"} after the {@link #setIdleTimeout "idleTimeout"}.
+ * Connections held for longer than the {@link #setLeakDetectionThreshold
+ * "leakDetectionThreshold"} (if any) are logged as potential leaks, along with
+ * the stack trace of their retrieval. These checks are performed by a background
+ * housekeeping thread which is started on first use and stopped on {@link #destroy()}.
+ *
+ * <p>Auto-commit, read-only and isolation settings changed through a Connection
+ * handle are reset when the Connection is returned to the pool, rolling back
+ * any pending transaction. Statements and ResultSets need to be closed by the
+ * application (as {@code JdbcTemplate} does) before closing the Connection handle.
+ *
+ * <p>This pool is intended for embedded, test and small-service deployments.
+ * Consider a full-featured connection pool such as HikariCP for demanding
+ * production environments.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see #getActiveConnections()
+ * @see #getIdleConnections()
+ * @see #getThreadsAwaitingConnection()
+ */
+public class PooledDataSource extends DelegatingDataSource implements DisposableBean {
+
+	/** Default maximum number of Connections in the pool: 10. */
+	public static final int DEFAULT_MAX_POOL_SIZE = 10;
+
+	private static final int STATE_REMOVED = -1;
+
+	private static final int STATE_IDLE = 0;
+
+	private static final int STATE_IN_USE = 1;
+
+	private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+	private static final long WAIT_SLICE = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private static final long HANDOFF_TIMEOUT = TimeUnit.MICROSECONDS.toNanos(100);
+
+
+	private static final Log logger = LogFactory.getLog(PooledDataSource.class);
+
+	private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+
+	private int minIdle = 0;
+
+	private long connectionTimeout = 30000;
+
+	private long validationInterval = 500;
+
+	private long validationTimeout = 5000;
+
+	private long idleTimeout = 600000;
+
+	private long maxLifetime = 1800000;
+
+	private long leakDetectionThreshold = 0;
+
+	private long housekeepingPeriod = 30000;
+
+	private final List<PoolEntry> entries = new CopyOnWriteArrayList<>();
+
+	private final ThreadLocal<List<WeakReference<PoolEntry>>> recentlyReturned =
+			ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_LOCAL_ENTRIES));
+
+	private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+
+	private final AtomicInteger totalConnections = new AtomicInteger();
+
+	private final AtomicInteger waiters = new AtomicInteger();
+
+	/** Number of threads currently blocked on the handoff queue. */
+	private final AtomicInteger parkedWaiters = new AtomicInteger();
+
+	private final LongAdder createdCount = new LongAdder();
+
+	private final LongAdder timeoutCount = new LongAdder();
+
+	private final LongAdder leakCount = new LongAdder();
+
+	@Nullable
+	private volatile ScheduledExecutorService housekeeper;
+
+	private volatile boolean closed;
+
+
+	/**
+	 * Create a new PooledDataSource.
+	 * @see #setTargetDataSource
+	 */
+	public PooledDataSource() {
+	}
+
+	/**
+	 * Create a new PooledDataSource.
+	 * @param targetDataSource the target DataSource to obtain physical Connections from
+	 */
+	public PooledDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+
+	/**
+	 * Specify the maximum number of Connections in the pool, both idle and in use.
+	 * <p>Default is {@value #DEFAULT_MAX_POOL_SIZE}.
+	 */
+	public void setMaxPoolSize(int maxPoolSize) {
+		Assert.isTrue(maxPoolSize > 0, "maxPoolSize must be greater than 0");
+		this.maxPoolSize = maxPoolSize;
+	}
+
+	/**
+	 * Return the maximum number of Connections in the pool.
+	 */
+	public int getMaxPoolSize() {
+		return this.maxPoolSize;
+	}
+
+	/**
+	 * Specify the minimum number of idle Connections to keep in the pool,
+	 * to be established by the housekeeping thread.
+	 * <p>Default is 0: Connections are only created on demand.
+	 */
+	public void setMinIdle(int minIdle) {
+		Assert.isTrue(minIdle >= 0, "minIdle must not be negative");
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 * Return the minimum number of idle Connections to keep in the pool.
+	 */
+	public int getMinIdle() {
+		return this.minIdle;
+	}
+
+	/**
+	 * Specify the maximum time (in milliseconds) to wait for a Connection
+	 * when the pool is exhausted, after which an {@link SQLTransientConnectionException}
+	 * is thrown. Default is 30000.
+	 */
+	public void setConnectionTimeout(long connectionTimeout) {
+		Assert.isTrue(connectionTimeout > 0, "connectionTimeout must be greater than 0");
+		this.connectionTimeout = connectionTimeout;
+	}
+
+	/**
+	 * Return the maximum time (in milliseconds) to wait for a Connection.
+	 */
+	public long getConnectionTimeout() {
+		return this.connectionTimeout;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) since its last use after which an
+	 * idle Connection is validated before being handed out. Default is 500.
+	 * <p>Set this to 0 in order to validate a Connection on every retrieval.
+	 */
+	public void setValidationInterval(long validationInterval) {
+		Assert.isTrue(validationInterval >= 0, "validationInterval must not be negative");
+		this.validationInterval = validationInterval;
+	}
+
+	/**
+	 * Return the time (in milliseconds) after which an idle Connection is validated.
+	 */
+	public long getValidationInterval() {
+		return this.validationInterval;
+	}
+
+	/**
+	 * Specify the timeout (in milliseconds) for a {@link Connection#isValid}
+	 * call, rounded up to seconds. Default is 5000.
+	 */
+	public void setValidationTimeout(long validationTimeout) {
+		Assert.isTrue(validationTimeout > 0, "validationTimeout must be greater than 0");
+		this.validationTimeout = validationTimeout;
+	}
+
+	/**
+	 * Return the timeout (in milliseconds) for validating a Connection.
+	 */
+	public long getValidationTimeout() {
+		return this.validationTimeout;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) after which an idle Connection
+	 * beyond {@link #setMinIdle "minIdle"} is closed. Default is 600000.
+	 * <p>Set this to 0 in order to keep idle Connections indefinitely.
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		Assert.isTrue(idleTimeout >= 0, "idleTimeout must not be negative");
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Return the time (in milliseconds) after which an idle Connection is closed.
+	 */
+	public long getIdleTimeout() {
+		return this.idleTimeout;
+	}
+
+	/**
+	 * Specify the maximum lifetime (in milliseconds) of a Connection in the pool,
+	 * after which it is closed once not in use anymore. Default is 1800000.
+	 * <p>Set this to 0 for an unlimited lifetime.
+	 */
+	public void setMaxLifetime(long maxLifetime) {
+		Assert.isTrue(maxLifetime >= 0, "maxLifetime must not be negative");
+		this.maxLifetime = maxLifetime;
+	}
+
+	/**
+	 * Return the maximum lifetime (in milliseconds) of a Connection in the pool.
+	 */
+	public long getMaxLifetime() {
+		return this.maxLifetime;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) that a Connection may be held by the
+	 * application before a potential leak is logged. Default is 0 (no leak detection).
+	 * <p>Note that this captures the stack trace for every Connection retrieval.
+	 */
+	public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+		Assert.isTrue(leakDetectionThreshold >= 0, "leakDetectionThreshold must not be negative");
+		this.leakDetectionThreshold = leakDetectionThreshold;
+	}
+
+	/**
+	 * Return the time (in milliseconds) after which a held Connection is considered leaked.
+	 */
+	public long getLeakDetectionThreshold() {
+		return this.leakDetectionThreshold;
+	}
+
+	/**
+	 * Specify the period (in milliseconds) of the housekeeping thread which
+	 * enforces idle timeout, max lifetime, min idle and leak detection.
+	 * Default is 30000.
+	 */
+	public void setHousekeepingPeriod(long housekeepingPeriod) {
+		Assert.isTrue(housekeepingPeriod > 0, "housekeepingPeriod must be greater than 0");
+		this.housekeepingPeriod = housekeepingPeriod;
+	}
+
+	/**
+	 * Return the period (in milliseconds) of the housekeeping thread.
+	 */
+	public long getHousekeepingPeriod() {
+		return this.housekeepingPeriod;
+	}
+
+
+	@Override
+	public void afterPropertiesSet() {
+		super.afterPropertiesSet();
+		Assert.isTrue(this.minIdle <= this.maxPoolSize, "minIdle must not be greater than maxPoolSize");
+		startHousekeeping();
+	}
+
+	/**
+	 * Obtain a Connection from the pool, creating a new physical Connection
+	 * if no idle one is available and the pool has not reached its maximum size.
+	 * @throws SQLTransientConnectionException if no Connection became available
+	 * within the {@link #setConnectionTimeout "connectionTimeout"}
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("PooledDataSource has been closed");
+		}
+		if (this.housekeeper == null) {
+			startHousekeeping();
+		}
+
+		long start = System.nanoTime();
+		long timeout = TimeUnit.MILLISECONDS.toNanos(this.connectionTimeout);
+		do {
+			PoolEntry entry = borrow(start, timeout);
+			if (entry == null) {
+				break;
+			}
+			if (isUsable(entry)) {
+				return entry.createConnectionHandle(this.leakDetectionThreshold > 0);
+			}
+			discard(entry);
+		}
+		while (System.nanoTime() - start < timeout);
+
+		this.timeoutCount.increment();
+		throw new SQLTransientConnectionException("PooledDataSource exhausted - no Connection available after " +
+				this.connectionTimeout + "ms (total=" + getTotalConnections() + ", active=" + getActiveConnections() +
+				", waiting=" + getThreadsAwaitingConnection() + ")", "08001");
+	}
+
+	/**
+	 * Obtain an unpooled Connection for the given credentials from the target DataSource.
+	 * Only Connections for the default credentials are pooled.
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return obtainTargetDataSource().getConnection(username, password);
+	}
+
+	@Nullable
+	private PoolEntry borrow(long start, long timeout) throws SQLException {
+		// Connections recently returned by the current thread first...
+		List<WeakReference<PoolEntry>> local = this.recentlyReturned.get();
+		for (int i = local.size() - 1; i >= 0; i--) {
+			PoolEntry entry = local.remove(i).get();
+			if (entry != null && entry.compareAndSetState(STATE_IDLE, STATE_IN_USE)) {
+				return entry;
+			}
+		}
+
+		this.waiters.incrementAndGet();
+		try {
+			long remaining = timeout;
+			while (remaining > 0) {
+				for (PoolEntry entry : this.entries) {
+					if (entry.compareAndSetState(STATE_IDLE, STATE_IN_USE)) {
+						return entry;
+					}
+				}
+				PoolEntry entry = createEntry(STATE_IN_USE);
+				if (entry != null) {
+					return entry;
+				}
+				// Wait for a handoff, rescanning periodically in case a slot became free
+				this.parkedWaiters.incrementAndGet();
+				try {
+					entry = this.handoffQueue.poll(Math.min(remaining, WAIT_SLICE), TimeUnit.NANOSECONDS);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new SQLTransientConnectionException("Interrupted while waiting for a Connection", "08001", ex);
+				}
+				finally {
+					this.parkedWaiters.decrementAndGet();
+				}
+				if (entry != null && entry.compareAndSetState(STATE_IDLE, STATE_IN_USE)) {
+					return entry;
+				}
+				remaining = timeout - (System.nanoTime() - start);
+			}
+			return null;
+		}
+		finally {
+			this.waiters.decrementAndGet();
+		}
+	}
+
+	@Nullable
+	private PoolEntry createEntry(int initialState) throws SQLException {
+		int total;
+		do {
+			total = this.totalConnections.get();
+			if (total >= this.maxPoolSize || this.closed) {
+				return null;
+			}
+		}
+		while (!this.totalConnections.compareAndSet(total, total + 1));
+
+		try {
+			PoolEntry entry = new PoolEntry(obtainTargetDataSource().getConnection(), initialState);
+			this.entries.add(entry);
+			this.createdCount.increment();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Added Connection " + entry.connection + " to pool (total=" + (total + 1) + ")");
+			}
+			return entry;
+		}
+		catch (SQLException | RuntimeException | Error ex) {
+			this.totalConnections.decrementAndGet();
+			throw ex;
+		}
+	}
+
+	private boolean isUsable(PoolEntry entry) {
+		long now = System.currentTimeMillis();
+		if (isExpired(entry, now)) {
+			return false;
+		}
+		if (now - entry.lastAccess >= this.validationInterval) {
+			try {
+				if (!entry.connection.isValid((int) ((this.validationTimeout + 999) / 1000))) {
+					logger.debug("Discarding invalid Connection " + entry.connection);
+					return false;
+				}
+			}
+			catch (SQLException ex) {
+				logger.debug("Discarding Connection " + entry.connection + " after failed validation", ex);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isExpired(PoolEntry entry, long now) {
+		return (this.maxLifetime > 0 && now - entry.createdAt > this.maxLifetime);
+	}
+
+	/**
+	 * Return the given Connection entry to the pool,
+	 * handing it off to a waiting thread if possible.
+	 */
+	private void release(PoolEntry entry) {
+		entry.lastAccess = System.currentTimeMillis();
+		if (entry.leakReported) {
+			logger.info("Previously reported leaked Connection " + entry.connection + " returned to pool");
+		}
+		if (this.closed || entry.broken || isExpired(entry, entry.lastAccess) || !entry.resetState()) {
+			discard(entry);
+			return;
+		}
+
+		entry.setState(STATE_IDLE);
+		if (this.parkedWaiters.get() > 0) {
+			// Offer once to a blocked thread; otherwise keep it idle for the next scan
+			try {
+				if (this.handoffQueue.offer(entry, HANDOFF_TIMEOUT, TimeUnit.NANOSECONDS)) {
+					return;
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		List<WeakReference<PoolEntry>> local = this.recentlyReturned.get();
+		if (local.size() < MAX_THREAD_LOCAL_ENTRIES) {
+			local.add(new WeakReference<>(entry));
+		}
+	}
+
+	/**
+	 * Remove the given Connection entry (owned by the caller) from the pool
+	 * and close its physical Connection.
+	 */
+	private void discard(PoolEntry entry) {
+		entry.setState(STATE_REMOVED);
+		if (this.entries.remove(entry)) {
+			this.totalConnections.decrementAndGet();
+		}
+		try {
+			entry.connection.close();
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not close pooled JDBC Connection", ex);
+		}
+		catch (Throwable ex) {
+			logger.debug("Unexpected exception on closing pooled JDBC Connection", ex);
+		}
+	}
+
+
+	/**
+	 * Start the housekeeping thread, unless already started.
+	 */
+	private synchronized void startHousekeeping() {
+		if (this.housekeeper == null && !this.closed) {
+			ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "PooledDataSource-housekeeper");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.scheduleWithFixedDelay(this::housekeep, (this.minIdle > 0 ? 0 : this.housekeepingPeriod),
+					this.housekeepingPeriod, TimeUnit.MILLISECONDS);
+			this.housekeeper = executor;
+		}
+	}
+
+	/**
+	 * Retire expired and surplus idle Connections, report leaked Connections
+	 * and replenish the pool to {@link #setMinIdle "minIdle"} Connections.
+	 */
+	void housekeep() {
+		long now = System.currentTimeMillis();
+		int idle = getIdleConnections();
+		for (PoolEntry entry : this.entries) {
+			if (entry.compareAndSetState(STATE_IDLE, STATE_IN_USE)) {
+				if (isExpired(entry, now) || (this.idleTimeout > 0 && idle > this.minIdle &&
+						now - entry.lastAccess > this.idleTimeout)) {
+					idle--;
+					discard(entry);
+				}
+				else {
+					entry.setState(STATE_IDLE);
+				}
+			}
+			else if (this.leakDetectionThreshold > 0 && entry.getState() == STATE_IN_USE &&
+					entry.borrowStackTrace != null && !entry.leakReported &&
+					now - entry.borrowedAt > this.leakDetectionThreshold) {
+				entry.leakReported = true;
+				this.leakCount.increment();
+				logger.warn("Connection leak detection triggered for " + entry.connection + " held for " +
+						(now - entry.borrowedAt) + "ms, stack trace follows", entry.borrowStackTrace);
+			}
+		}
+
+		try {
+			while (!this.closed && getIdleConnections() < this.minIdle) {
+				if (createEntry(STATE_IDLE) == null) {
+					break;
+				}
+			}
+		}
+		catch (SQLException | RuntimeException ex) {
+			logger.debug("Could not replenish pool to minIdle Connections", ex);
+		}
+	}
+
+	/**
+	 * Close all idle Connections and stop the housekeeping thread.
+	 * Connections in use are closed once returned to the pool.
+	 */
+	@Override
+	public void destroy() {
+		this.closed = true;
+		ScheduledExecutorService executor = this.housekeeper;
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		for (PoolEntry entry : this.entries) {
+			if (entry.compareAndSetState(STATE_IDLE, STATE_IN_USE)) {
+				discard(entry);
+			}
+		}
+		int active = getActiveConnections();
+		if (active > 0 && logger.isInfoEnabled()) {
+			logger.info("PooledDataSource closed with " + active + " Connections still in use");
+		}
+	}
+
+
+	/**
+	 * Return the number of physical Connections in the pool, idle and in use.
+	 */
+	public int getTotalConnections() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Return the number of Connections currently in use.
+	 */
+	public int getActiveConnections() {
+		return countEntries(STATE_IN_USE);
+	}
+
+	/**
+	 * Return the number of idle Connections in the pool.
+	 */
+	public int getIdleConnections() {
+		return countEntries(STATE_IDLE);
+	}
+
+	private int countEntries(int state) {
+		int count = 0;
+		for (PoolEntry entry : this.entries) {
+			if (entry.getState() == state) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Return the number of threads currently trying to obtain a Connection.
+	 */
+	public int getThreadsAwaitingConnection() {
+		return this.waiters.get();
+	}
+
+	/**
+	 * Return the number of physical Connections created so far.
+	 */
+	public long getConnectionsCreated() {
+		return this.createdCount.sum();
+	}
+
+	/**
+	 * Return the number of {@code getConnection} calls which timed out so far.
+	 */
+	public long getConnectionTimeouts() {
+		return this.timeoutCount.sum();
+	}
+
+	/**
+	 * Return the number of potential Connection leaks detected so far.
+	 * @see #setLeakDetectionThreshold
+	 */
+	public long getLeaksDetected() {
+		return this.leakCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "PooledDataSource for target DataSource [" + getTargetDataSource() + "]: total=" +
+				getTotalConnections() + ", active=" + getActiveConnections() + ", idle=" + getIdleConnections() +
+				", waiting=" + getThreadsAwaitingConnection();
+	}
+
+
+	/**
+	 * A physical Connection in the pool, along with its pool state.
+	 */
+	private class PoolEntry {
+
+		private final AtomicInteger state;
+
+		final Connection connection;
+
+		final long createdAt;
+
+		volatile long lastAccess;
+
+		volatile long borrowedAt;
+
+		@Nullable
+		volatile Throwable borrowStackTrace;
+
+		volatile boolean leakReported;
+
+		volatile boolean broken;
+
+		private final boolean defaultAutoCommit;
+
+		private final boolean defaultReadOnly;
+
+		private final int defaultTransactionIsolation;
+
+		boolean autoCommit;
+
+		boolean readOnlyChanged;
+
+		boolean transactionIsolationChanged;
+
+		PoolEntry(Connection connection, int initialState) throws SQLException {
+			this.state = new AtomicInteger(initialState);
+			this.connection = connection;
+			this.createdAt = System.currentTimeMillis();
+			this.lastAccess = this.createdAt;
+			try {
+				this.defaultAutoCommit = connection.getAutoCommit();
+				this.defaultReadOnly = connection.isReadOnly();
+				this.defaultTransactionIsolation = connection.getTransactionIsolation();
+			}
+			catch (SQLException | RuntimeException ex) {
+				connection.close();
+				throw ex;
+			}
+			this.autoCommit = this.defaultAutoCommit;
+		}
+
+		public int getState() {
+			return this.state.get();
+		}
+
+		public void setState(int state) {
+			this.state.set(state);
+		}
+
+		public boolean compareAndSetState(int expect, int update) {
+			return this.state.compareAndSet(expect, update);
+		}
+
+		public Connection createConnectionHandle(boolean captureStackTrace) {
+			this.borrowedAt = System.currentTimeMillis();
+			this.borrowStackTrace = (captureStackTrace ? new Exception("Connection retrieved here") : null);
+			this.leakReported = false;
+			return (Connection) Proxy.newProxyInstance(
+					ConnectionProxy.class.getClassLoader(),
+					new Class<?>[] {ConnectionProxy.class},
+					new PooledConnectionInvocationHandler(this));
+		}
+
+		/**
+		 * Reset the Connection settings changed through the handle.
+		 * @return whether the Connection can be reused
+		 */
+		public boolean resetState() {
+			try {
+				if (!this.autoCommit) {
+					// Discard any pending transaction
+					this.connection.rollback();
+				}
+				if (this.autoCommit != this.defaultAutoCommit) {
+					this.connection.setAutoCommit(this.defaultAutoCommit);
+					this.autoCommit = this.defaultAutoCommit;
+				}
+				if (this.readOnlyChanged) {
+					this.connection.setReadOnly(this.defaultReadOnly);
+					this.readOnlyChanged = false;
+				}
+				if (this.transactionIsolationChanged) {
+					this.connection.setTransactionIsolation(this.defaultTransactionIsolation);
+					this.transactionIsolationChanged = false;
+				}
+				this.connection.clearWarnings();
+				return true;
+			}
+			catch (SQLException | RuntimeException ex) {
+				logger.debug("Could not reset pooled JDBC Connection - discarding it", ex);
+				return false;
+			}
+		}
+	}
+
+
+	/**
+	 * Invocation handler for a Connection handle, returning the physical
+	 * Connection to the pool on close.
+	 */
+	private class PooledConnectionInvocationHandler implements InvocationHandler {
+
+		private final PoolEntry entry;
+
+		private boolean closed;
+
+		public PooledConnectionInvocationHandler(PoolEntry entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			// Invocation on ConnectionProxy interface coming in...
+
+			switch (method.getName()) {
+				case "equals":
+					// Only consider equal when proxies are identical.
+					return (proxy == args[0]);
+				case "hashCode":
+					// Use hashCode of Connection proxy.
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "Pooled Connection handle for [" + this.entry.connection + "]";
+				case "unwrap":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return proxy;
+					}
+					break;
+				case "isWrapperFor":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return true;
+					}
+					break;
+				case "getTargetConnection":
+					// Handle getTargetConnection method: return underlying Connection.
+					return this.entry.connection;
+				case "isClosed":
+					return (this.closed || this.entry.connection.isClosed());
+				case "close":
+					// Return the physical Connection to the pool (once).
+					if (!this.closed) {
+						this.closed = true;
+						release(this.entry);
+					}
+					return null;
+				case "abort":
+					if (!this.closed) {
+						this.closed = true;
+						this.entry.broken = true;
+						release(this.entry);
+					}
+					return null;
+			}
+
+			if (this.closed) {
+				throw new SQLException("Connection handle already closed");
+			}
+
+			Object result;
+			try {
+				result = method.invoke(this.entry.connection, args);
+			}
+			catch (InvocationTargetException ex) {
+				Throwable targetEx = ex.getTargetException();
+				if (targetEx instanceof SQLException) {
+					String sqlState = ((SQLException) targetEx).getSQLState();
+					if (sqlState != null && sqlState.startsWith("08")) {
+						// Connection exception: do not return the Connection to the pool
+						this.entry.broken = true;
+					}
+				}
+				throw targetEx;
+			}
+
+			switch (method.getName()) {
+				case "setAutoCommit":
+					this.entry.autoCommit = (Boolean) args[0];
+					break;
+				case "setReadOnly":
+					this.entry.readOnlyChanged = true;
+					break;
+				case "setTransactionIsolation":
+					this.entry.transactionIsolationChanged = true;
+					break;
+			}
+			return result;
+		}
+	}
+
+}
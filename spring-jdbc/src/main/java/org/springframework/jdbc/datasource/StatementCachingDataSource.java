@@ -0,0 +1,587 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Proxy for a target DataSource, caching JDBC PreparedStatements per target
+ * Connection: a PreparedStatement closed by the application is kept open and
+ * handed out again for the next {@code prepareStatement} call with the same
+ * SQL and statement options on the same target Connection.
+ *
+ * <p>This is primarily intended for non-pooling DataSources which do not come
+ * with a statement cache of their own, such as {@link SingleConnectionDataSource}
+ * (reusing its Connection across operations) or {@link SimpleDriverDataSource}
+ * and {@link DriverManagerDataSource} within transactions (reusing the
+ * transactional Connection for all operations within a transaction). Cached
+ * statements are closed when their target Connection is actually closed, or -
+ * if the target Connection got closed elsewhere - once a new target Connection
+ * is obtained.
+ *
+ * <p>A cached statement is reset when returned to the cache: its parameters,
+ * batch and warnings are cleared, and any fetch size, max rows or query
+ * timeout set by the application is restored to the original driver setting.
+ * Statements with other custom settings (e.g. a cursor name or fetch direction)
+ * are closed rather than cached. The cache keeps up to
+ * {@link #setStatementCacheSize "statementCacheSize"} idle statements per
+ * Connection, evicting the least recently used one beyond that limit.
+ *
+ * <p>The cache hit rate is exposed through {@link #getHitCount()},
+ * {@link #getMissCount()} and {@link #getHitRate()}, for monitoring purposes.
+ *
+ * <p><b>NOTE:</b> This DataSource proxy returns wrapped Connections (which
+ * implement the {@link ConnectionProxy} interface). Use {@link Connection#unwrap}
+ * to retrieve the native JDBC Connection.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see SmartDataSource
+ */
+public class StatementCachingDataSource extends DelegatingDataSource implements SmartDataSource {
+
+	/** Default maximum number of idle statements to cache per Connection: 64. */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+
+	private static final Log logger = LogFactory.getLog(StatementCachingDataSource.class);
+
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+
+	/** Keyed by target Connection, holding each cache until its Connection is found to be closed. */
+	private final Map<Connection, StatementCache> statementCaches = new IdentityHashMap<>();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+
+	/**
+	 * Create a new StatementCachingDataSource.
+	 * @see #setTargetDataSource
+	 */
+	public StatementCachingDataSource() {
+	}
+
+	/**
+	 * Create a new StatementCachingDataSource.
+	 * @param targetDataSource the target DataSource
+	 */
+	public StatementCachingDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+
+	/**
+	 * Specify the maximum number of idle statements to cache per Connection.
+	 * <p>Default is {@value #DEFAULT_STATEMENT_CACHE_SIZE}.
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		Assert.isTrue(statementCacheSize > 0, "Statement cache size must be greater than 0");
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Return the maximum number of idle statements to cache per Connection.
+	 */
+	public int getStatementCacheSize() {
+		return this.statementCacheSize;
+	}
+
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return getCachingConnectionProxy(obtainTargetDataSource().getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return getCachingConnectionProxy(obtainTargetDataSource().getConnection(username, password));
+	}
+
+	/**
+	 * Determine whether the given Connection should be closed,
+	 * delegating to the target DataSource if it is a {@link SmartDataSource}.
+	 */
+	@Override
+	public boolean shouldClose(Connection con) {
+		DataSource target = obtainTargetDataSource();
+		if (target instanceof SmartDataSource) {
+			return ((SmartDataSource) target).shouldClose(getTargetConnection(con));
+		}
+		return true;
+	}
+
+	/**
+	 * Wrap the given Connection with a proxy that caches its PreparedStatements.
+	 * @param target the original Connection to wrap
+	 * @return the wrapped Connection
+	 */
+	protected Connection getCachingConnectionProxy(Connection target) {
+		StatementCache cache;
+		List<StatementCache> staleCaches = null;
+		synchronized (this.statementCaches) {
+			cache = this.statementCaches.get(target);
+			if (cache == null) {
+				// New target Connection: drop caches of Connections closed without this proxy
+				staleCaches = removeClosedConnectionCaches();
+				cache = new StatementCache();
+				this.statementCaches.put(target, cache);
+			}
+		}
+		if (staleCaches != null) {
+			for (StatementCache staleCache : staleCaches) {
+				staleCache.close();
+			}
+		}
+		return (Connection) Proxy.newProxyInstance(
+				ConnectionProxy.class.getClassLoader(),
+				new Class<?>[] {ConnectionProxy.class},
+				new CachingConnectionInvocationHandler(target, cache));
+	}
+
+	/**
+	 * Remove the caches of all Connections which have been closed in the meantime,
+	 * e.g. evicted by a connection pool. To be called with the cache map locked.
+	 */
+	private List<StatementCache> removeClosedConnectionCaches() {
+		List<StatementCache> staleCaches = new ArrayList<>();
+		for (Iterator<Map.Entry<Connection, StatementCache>> it = this.statementCaches.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Connection, StatementCache> entry = it.next();
+			boolean closed;
+			try {
+				closed = entry.getKey().isClosed();
+			}
+			catch (SQLException ex) {
+				closed = true;
+			}
+			if (closed) {
+				staleCaches.add(entry.getValue());
+				it.remove();
+			}
+		}
+		return staleCaches;
+	}
+
+	private Connection getTargetConnection(Connection con) {
+		if (Proxy.isProxyClass(con.getClass())) {
+			InvocationHandler handler = Proxy.getInvocationHandler(con);
+			if (handler instanceof CachingConnectionInvocationHandler) {
+				return ((CachingConnectionInvocationHandler) handler).target;
+			}
+		}
+		return con;
+	}
+
+
+	/**
+	 * Return the number of {@code prepareStatement} calls served from the cache.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of {@code prepareStatement} calls which had to
+	 * prepare a new statement on the target Connection.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of idle statements closed because of the cache size limit.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+	/**
+	 * Return the ratio of cache hits to all {@code prepareStatement} calls
+	 * so far, between 0.0 and 1.0 (0.0 if there have not been any calls yet).
+	 */
+	public double getHitRate() {
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return (total > 0 ? (double) hits / total : 0.0);
+	}
+
+	/**
+	 * Return the current number of idle statements in the caches
+	 * for all open Connections.
+	 */
+	public int getCachedStatementCount() {
+		int count = 0;
+		synchronized (this.statementCaches) {
+			for (StatementCache cache : this.statementCaches.values()) {
+				count += cache.size();
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "StatementCachingDataSource for target DataSource [" + getTargetDataSource() + "]: hits=" +
+				getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount();
+	}
+
+
+	/**
+	 * Cache key for a PreparedStatement: the {@code prepareStatement} arguments.
+	 */
+	private static final class StatementKey {
+
+		private final Object[] args;
+
+		private final int hashCode;
+
+		StatementKey(Object[] args) {
+			this.args = args;
+			this.hashCode = Arrays.deepHashCode(args);
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			return (this == other || (other instanceof StatementKey &&
+					Arrays.deepEquals(this.args, ((StatementKey) other).args)));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(this.args[0]);
+		}
+	}
+
+
+	/**
+	 * Cache of idle statements for a specific target Connection,
+	 * in least-recently-used order.
+	 */
+	private class StatementCache {
+
+		private final LinkedHashMap<StatementKey, PreparedStatement> idleStatements = new LinkedHashMap<>();
+
+		private boolean closed;
+
+		@Nullable
+		public synchronized PreparedStatement checkout(StatementKey key) {
+			return this.idleStatements.remove(key);
+		}
+
+		public void release(StatementKey key, PreparedStatement ps) {
+			PreparedStatement evicted = null;
+			synchronized (this) {
+				if (this.closed || this.idleStatements.containsKey(key)) {
+					evicted = ps;
+				}
+				else {
+					this.idleStatements.put(key, ps);
+					if (this.idleStatements.size() > statementCacheSize) {
+						Iterator<PreparedStatement> it = this.idleStatements.values().iterator();
+						evicted = it.next();
+						it.remove();
+						evictionCount.increment();
+					}
+				}
+			}
+			JdbcUtils.closeStatement(evicted);
+		}
+
+		public void close() {
+			List<PreparedStatement> statements;
+			synchronized (this) {
+				this.closed = true;
+				statements = new ArrayList<>(this.idleStatements.values());
+				this.idleStatements.clear();
+			}
+			for (PreparedStatement ps : statements) {
+				JdbcUtils.closeStatement(ps);
+			}
+		}
+
+		public synchronized int size() {
+			return this.idleStatements.size();
+		}
+	}
+
+
+	/**
+	 * Invocation handler that serves PreparedStatements from the cache
+	 * and closes the cached statements along with the target Connection.
+	 */
+	private class CachingConnectionInvocationHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final StatementCache cache;
+
+		public CachingConnectionInvocationHandler(Connection target, StatementCache cache) {
+			this.target = target;
+			this.cache = cache;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			// Invocation on ConnectionProxy interface coming in...
+
+			switch (method.getName()) {
+				case "equals":
+					// Only consider equal when proxies are identical.
+					return (proxy == args[0]);
+				case "hashCode":
+					// Use hashCode of Connection proxy.
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "Statement-caching proxy for target Connection [" + this.target + "]";
+				case "unwrap":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return proxy;
+					}
+					break;
+				case "isWrapperFor":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return true;
+					}
+					break;
+				case "getTargetConnection":
+					// Handle getTargetConnection method: return underlying Connection.
+					return this.target;
+				case "prepareStatement":
+					return prepareStatement((Connection) proxy, method, args);
+				case "close":
+					try {
+						this.target.close();
+					}
+					finally {
+						if (this.target.isClosed()) {
+							// Actually closed (rather than suppressed or returned to a pool)
+							synchronized (statementCaches) {
+								statementCaches.remove(this.target);
+							}
+							this.cache.close();
+						}
+					}
+					return null;
+			}
+
+			// Invoke method on target Connection.
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+		private PreparedStatement prepareStatement(Connection proxy, Method method, Object[] args) throws Throwable {
+			StatementKey key = new StatementKey(args);
+			PreparedStatement ps = this.cache.checkout(key);
+			if (ps != null) {
+				hitCount.increment();
+				if (logger.isTraceEnabled()) {
+					logger.trace("Reusing cached PreparedStatement for SQL [" + key + "]");
+				}
+			}
+			else {
+				missCount.increment();
+				try {
+					ps = (PreparedStatement) method.invoke(this.target, args);
+				}
+				catch (InvocationTargetException ex) {
+					throw ex.getTargetException();
+				}
+			}
+			return (PreparedStatement) Proxy.newProxyInstance(
+					PreparedStatement.class.getClassLoader(),
+					new Class<?>[] {PreparedStatement.class},
+					new CachedStatementInvocationHandler(ps, key, this.cache, proxy));
+		}
+	}
+
+
+	/**
+	 * Invocation handler that returns a PreparedStatement to the cache on close,
+	 * restoring its original settings.
+	 */
+	private static class CachedStatementInvocationHandler implements InvocationHandler {
+
+		private final PreparedStatement target;
+
+		private final StatementKey key;
+
+		private final StatementCache cache;
+
+		private final Connection connectionProxy;
+
+		@Nullable
+		private Integer originalFetchSize;
+
+		@Nullable
+		private Integer originalMaxRows;
+
+		@Nullable
+		private Integer originalQueryTimeout;
+
+		private boolean batched;
+
+		private boolean reusable = true;
+
+		private boolean closed;
+
+		public CachedStatementInvocationHandler(PreparedStatement target, StatementKey key,
+				StatementCache cache, Connection connectionProxy) {
+
+			this.target = target;
+			this.key = key;
+			this.cache = cache;
+			this.connectionProxy = connectionProxy;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "equals":
+					return (proxy == args[0]);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "Cached PreparedStatement for SQL [" + this.key + "]";
+				case "unwrap":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return proxy;
+					}
+					break;
+				case "isWrapperFor":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return true;
+					}
+					break;
+				case "getConnection":
+					return this.connectionProxy;
+				case "isClosed":
+					return (this.closed || this.target.isClosed());
+				case "close":
+					if (!this.closed) {
+						this.closed = true;
+						release();
+					}
+					return null;
+				case "addBatch":
+					this.batched = true;
+					break;
+				case "setFetchSize":
+					if (this.originalFetchSize == null) {
+						this.originalFetchSize = this.target.getFetchSize();
+					}
+					break;
+				case "setMaxRows":
+					if (this.originalMaxRows == null) {
+						this.originalMaxRows = this.target.getMaxRows();
+					}
+					break;
+				case "setQueryTimeout":
+					if (this.originalQueryTimeout == null) {
+						this.originalQueryTimeout = this.target.getQueryTimeout();
+					}
+					break;
+				case "setCursorName":
+				case "setEscapeProcessing":
+				case "setFetchDirection":
+				case "setMaxFieldSize":
+				case "setLargeMaxRows":
+				case "setPoolable":
+				case "closeOnCompletion":
+					// Custom settings which we do not restore: close instead of caching
+					this.reusable = false;
+					break;
+			}
+
+			if (this.closed) {
+				throw new SQLException("PreparedStatement has been closed");
+			}
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+		private void release() {
+			if (this.reusable) {
+				try {
+					this.target.clearParameters();
+					if (this.batched) {
+						this.target.clearBatch();
+					}
+					this.target.clearWarnings();
+					if (this.originalFetchSize != null) {
+						this.target.setFetchSize(this.originalFetchSize);
+					}
+					if (this.originalMaxRows != null) {
+						this.target.setMaxRows(this.originalMaxRows);
+					}
+					if (this.originalQueryTimeout != null) {
+						this.target.setQueryTimeout(this.originalQueryTimeout);
+					}
+					if (!this.target.isClosed()) {
+						this.cache.release(this.key, this.target);
+						return;
+					}
+				}
+				catch (SQLException | RuntimeException ex) {
+					logger.debug("Could not reset PreparedStatement for caching - closing it instead", ex);
+				}
+			}
+			JdbcUtils.closeStatement(this.target);
+		}
+	}
+
+}
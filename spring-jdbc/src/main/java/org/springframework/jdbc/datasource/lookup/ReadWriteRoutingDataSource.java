@@ -0,0 +1,441 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * {@link javax.sql.DataSource} implementation that routes read-only transactions
+ * to one of several replica DataSources and everything else to a primary
+ * DataSource for writing, based on
+ * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()}.
+ *
+ * <p>Since a transaction manager obtains its Connection before exposing the
+ * read-only flag of the transaction, this DataSource returns lazy Connection
+ * handles (see {@link LazyConnectionDataSourceProxy}): the actual target
+ * Connection is only fetched on first statement execution, at which point the
+ * read-only flag is known. Default auto-commit and isolation settings are
+ * determined from the write DataSource on initialization.
+ *
+ * <p>Replicas are load-balanced through weighted random selection, with each
+ * replica weighted by the inverse of its recent Connection acquisition latency.
+ * A replica that fails to provide a Connection is skipped for the
+ * {@link #setReplicaRetryInterval "replicaRetryInterval"}; if no replica is
+ * available, read-only transactions fall back to the write DataSource
+ * (unless {@link #setFallbackToWriteDataSource "fallbackToWriteDataSource"}
+ * is turned off). Per-target statistics are exposed through
+ * {@link #getWriteStatistics()} and {@link #getReadStatistics()}.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see #setWriteDataSource
+ * @see #setReadDataSources
+ * @see org.springframework.transaction.annotation.Transactional#readOnly()
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements InitializingBean {
+
+	private static final long MIN_LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+
+	private static final Log logger = LogFactory.getLog(ReadWriteRoutingDataSource.class);
+
+	@Nullable
+	private DataSource writeDataSource;
+
+	private List<DataSource> readDataSources = Collections.emptyList();
+
+	private long replicaRetryInterval = 5000;
+
+	private boolean fallbackToWriteDataSource = true;
+
+	@Nullable
+	private TargetStatistics writeTarget;
+
+	private List<TargetStatistics> readTargets = Collections.emptyList();
+
+	@Nullable
+	private LazyConnectionDataSourceProxy connectionProxy;
+
+
+	/**
+	 * Create a new ReadWriteRoutingDataSource.
+	 * @see #setWriteDataSource
+	 * @see #setReadDataSources
+	 */
+	public ReadWriteRoutingDataSource() {
+	}
+
+	/**
+	 * Create a new ReadWriteRoutingDataSource.
+	 * @param writeDataSource the primary DataSource for writing
+	 * @param readDataSources the replica DataSources for read-only transactions
+	 */
+	public ReadWriteRoutingDataSource(DataSource writeDataSource, DataSource... readDataSources) {
+		setWriteDataSource(writeDataSource);
+		setReadDataSources(Arrays.asList(readDataSources));
+		afterPropertiesSet();
+	}
+
+
+	/**
+	 * Set the primary DataSource, used for all Connections outside of
+	 * read-only transactions.
+	 */
+	public void setWriteDataSource(DataSource writeDataSource) {
+		this.writeDataSource = writeDataSource;
+	}
+
+	/**
+	 * Return the primary DataSource for writing.
+	 */
+	@Nullable
+	public DataSource getWriteDataSource() {
+		return this.writeDataSource;
+	}
+
+	/**
+	 * Set the replica DataSources to load-balance read-only transactions across.
+	 * <p>If none are specified, all Connections are obtained from the write DataSource.
+	 */
+	public void setReadDataSources(List<DataSource> readDataSources) {
+		Assert.notNull(readDataSources, "Read DataSources must not be null");
+		this.readDataSources = readDataSources;
+	}
+
+	/**
+	 * Return the replica DataSources for read-only transactions.
+	 */
+	public List<DataSource> getReadDataSources() {
+		return this.readDataSources;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) that a replica is skipped after it
+	 * failed to provide a Connection. Default is 5000.
+	 */
+	public void setReplicaRetryInterval(long replicaRetryInterval) {
+		Assert.isTrue(replicaRetryInterval >= 0, "replicaRetryInterval must not be negative");
+		this.replicaRetryInterval = replicaRetryInterval;
+	}
+
+	/**
+	 * Return the time (in milliseconds) that a failed replica is skipped.
+	 */
+	public long getReplicaRetryInterval() {
+		return this.replicaRetryInterval;
+	}
+
+	/**
+	 * Specify whether to fall back to the write DataSource for read-only
+	 * transactions if no replica is available. Default is "true".
+	 * <p>Switch this flag to "false" in order to propagate the replica
+	 * failure to the caller instead.
+	 */
+	public void setFallbackToWriteDataSource(boolean fallbackToWriteDataSource) {
+		this.fallbackToWriteDataSource = fallbackToWriteDataSource;
+	}
+
+	/**
+	 * Return whether to fall back to the write DataSource if no replica is available.
+	 */
+	public boolean isFallbackToWriteDataSource() {
+		return this.fallbackToWriteDataSource;
+	}
+
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.writeDataSource == null) {
+			throw new IllegalArgumentException("Property 'writeDataSource' is required");
+		}
+		this.writeTarget = new TargetStatistics(this.writeDataSource);
+		List<TargetStatistics> readTargets = new ArrayList<>(this.readDataSources.size());
+		for (DataSource readDataSource : this.readDataSources) {
+			readTargets.add(new TargetStatistics(readDataSource));
+		}
+		this.readTargets = Collections.unmodifiableList(readTargets);
+
+		LazyConnectionDataSourceProxy connectionProxy = new LazyConnectionDataSourceProxy();
+		connectionProxy.setTargetDataSource(new RoutingTargetDataSource());
+		connectionProxy.afterPropertiesSet();
+		this.connectionProxy = connectionProxy;
+	}
+
+	/**
+	 * Return a lazy Connection handle which obtains its target Connection from
+	 * the write DataSource or a replica on first statement execution.
+	 * @see #isReadOnlyRoute()
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		return obtainConnectionProxy().getConnection();
+	}
+
+	/**
+	 * Return a lazy Connection handle which obtains its target Connection from
+	 * the write DataSource or a replica on first statement execution.
+	 * @see #isReadOnlyRoute()
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return obtainConnectionProxy().getConnection(username, password);
+	}
+
+	private LazyConnectionDataSourceProxy obtainConnectionProxy() {
+		Assert.state(this.connectionProxy != null, "DataSource router not initialized");
+		return this.connectionProxy;
+	}
+
+	/**
+	 * Determine whether the current Connection is requested for a read-only
+	 * transaction, to be served by a replica.
+	 * <p>The default implementation checks
+	 * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()}.
+	 */
+	protected boolean isReadOnlyRoute() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	@Nullable
+	private TargetStatistics determineTarget(List<TargetStatistics> failedTargets) {
+		Assert.state(this.writeTarget != null, "DataSource router not initialized");
+		if (this.readTargets.isEmpty() || !isReadOnlyRoute()) {
+			return this.writeTarget;
+		}
+
+		// Snapshot eligible replicas and their weights, since both may change concurrently
+		long now = System.nanoTime();
+		TargetStatistics[] candidates = new TargetStatistics[this.readTargets.size()];
+		double[] weights = new double[candidates.length];
+		int eligibleCount = 0;
+		double totalWeight = 0;
+		for (TargetStatistics candidate : this.readTargets) {
+			if (candidate.isAvailable(now) && !failedTargets.contains(candidate)) {
+				double weight = candidate.getWeight();
+				candidates[eligibleCount] = candidate;
+				weights[eligibleCount] = weight;
+				eligibleCount++;
+				totalWeight += weight;
+			}
+		}
+		if (eligibleCount > 0) {
+			double selection = ThreadLocalRandom.current().nextDouble(totalWeight);
+			for (int i = 0; i < eligibleCount - 1; i++) {
+				selection -= weights[i];
+				if (selection < 0) {
+					return candidates[i];
+				}
+			}
+			return candidates[eligibleCount - 1];
+		}
+		return (this.fallbackToWriteDataSource ? this.writeTarget : null);
+	}
+
+	private Connection doGetConnection(@Nullable String username, @Nullable String password) throws SQLException {
+		List<TargetStatistics> failedTargets = new ArrayList<>(1);
+		SQLException lastFailure = null;
+		while (true) {
+			TargetStatistics target = determineTarget(failedTargets);
+			if (target == null) {
+				Assert.state(lastFailure != null, "No read DataSource available");
+				throw lastFailure;
+			}
+			long start = System.nanoTime();
+			try {
+				DataSource dataSource = target.getDataSource();
+				Connection con = (username != null ?
+						dataSource.getConnection(username, password) : dataSource.getConnection());
+				target.recordSuccess(System.nanoTime() - start);
+				return con;
+			}
+			catch (SQLException | RuntimeException ex) {
+				target.recordFailure(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(this.replicaRetryInterval));
+				if (target == this.writeTarget) {
+					throw ex;
+				}
+				if (logger.isWarnEnabled()) {
+					logger.warn("Failed to obtain Connection from replica [" + target.getDataSource() +
+							"] - skipping it for " + this.replicaRetryInterval + "ms", ex);
+				}
+				failedTargets.add(target);
+				lastFailure = (ex instanceof SQLException ? (SQLException) ex :
+						new SQLException("Failed to obtain Connection from replica", ex));
+			}
+		}
+	}
+
+
+	/**
+	 * Return the statistics for the write DataSource.
+	 */
+	public TargetStatistics getWriteStatistics() {
+		Assert.state(this.writeTarget != null, "DataSource router not initialized");
+		return this.writeTarget;
+	}
+
+	/**
+	 * Return the statistics for the replica DataSources,
+	 * in the order of {@link #setReadDataSources registration}.
+	 */
+	public List<TargetStatistics> getReadStatistics() {
+		return this.readTargets;
+	}
+
+
+	/**
+	 * Connection acquisition statistics for a target DataSource.
+	 */
+	public static final class TargetStatistics {
+
+		private static final double SMOOTHING_FACTOR = 0.2;
+
+		private final DataSource dataSource;
+
+		private final LongAdder connectionCount = new LongAdder();
+
+		private final LongAdder failureCount = new LongAdder();
+
+		private final LongAdder totalLatency = new LongAdder();
+
+		private volatile double recentLatency;
+
+		private volatile long unavailableUntil;
+
+		private volatile boolean failed;
+
+		TargetStatistics(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		void recordSuccess(long latency) {
+			this.connectionCount.increment();
+			this.totalLatency.add(latency);
+			double recent = this.recentLatency;
+			this.recentLatency = (recent == 0 ? latency : recent + SMOOTHING_FACTOR * (latency - recent));
+			this.failed = false;
+		}
+
+		void recordFailure(long now, long retryInterval) {
+			this.failureCount.increment();
+			this.unavailableUntil = now + retryInterval;
+			this.failed = true;
+		}
+
+		boolean isAvailable(long now) {
+			return (!this.failed || now - this.unavailableUntil >= 0);
+		}
+
+		double getWeight() {
+			return 1.0 / Math.max(this.recentLatency, MIN_LATENCY_NANOS);
+		}
+
+		/**
+		 * Return the target DataSource.
+		 */
+		public DataSource getDataSource() {
+			return this.dataSource;
+		}
+
+		/**
+		 * Return the number of Connections obtained from the target so far.
+		 */
+		public long getConnectionCount() {
+			return this.connectionCount.sum();
+		}
+
+		/**
+		 * Return the number of failed attempts to obtain a Connection so far.
+		 */
+		public long getFailureCount() {
+			return this.failureCount.sum();
+		}
+
+		/**
+		 * Return the average Connection acquisition latency in nanoseconds.
+		 */
+		public long getAverageLatencyNanos() {
+			long count = this.connectionCount.sum();
+			return (count > 0 ? this.totalLatency.sum() / count : 0);
+		}
+
+		/**
+		 * Return the recent Connection acquisition latency in nanoseconds,
+		 * as an exponentially weighted moving average.
+		 */
+		public long getRecentLatencyNanos() {
+			return (long) this.recentLatency;
+		}
+
+		/**
+		 * Return whether the target is currently considered available,
+		 * i.e. has not failed within the retry interval.
+		 */
+		public boolean isAvailable() {
+			return isAvailable(System.nanoTime());
+		}
+
+		@Override
+		public String toString() {
+			return "TargetStatistics for [" + this.dataSource + "]: connections=" + getConnectionCount() +
+					", failures=" + getFailureCount() + ", averageLatency=" + getAverageLatencyNanos() + "ns";
+		}
+	}
+
+
+	/**
+	 * Target of the lazy Connection proxy, routing each physical Connection
+	 * request at the time of the first statement execution.
+	 */
+	private class RoutingTargetDataSource extends AbstractDataSource {
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return doGetConnection(null, null);
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return doGetConnection(username, password);
+		}
+
+		@Override
+		public String toString() {
+			return "Routing target of " + ReadWriteRoutingDataSource.this;
+		}
+	}
+
+}
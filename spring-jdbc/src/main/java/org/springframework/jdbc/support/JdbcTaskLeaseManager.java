@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.support.TaskLeaseManager;
+import org.springframework.util.Assert;
+
+/**
+ * {@link TaskLeaseManager} implementation which keeps its leases in a shared
+ * database table, coordinating scheduled task executions between all nodes
+ * which point to the same database.
+ *
+ * <p>Expects a table of the following structure (with the table name
+ * configurable through {@link #setTableName}):
+ *
+ * <pre class="code">
+ * CREATE TABLE TASK_LEASE (
+ *   TASK_NAME VARCHAR(200) NOT NULL PRIMARY KEY,
+ *   LEASE_OWNER VARCHAR(200) NOT NULL,
+ *   LEASE_UNTIL TIMESTAMP NOT NULL
+ * )</pre>
+ *
+ * <p>A lease is acquired through a conditional update of an expired row,
+ * falling back to an insert for a task which has not been leased before;
+ * a concurrent insert from another node fails on the primary key, so each
+ * lease is granted to a single node only. Lease expiration is based on the
+ * local clocks of the participating nodes; see
+ * {@link org.springframework.scheduling.config.ScheduledTaskRegistrar#setMinLeaseHoldTime}
+ * for compensating clock differences.
+ *
+ * <p>Statements are executed in auto-commit mode (or within the current
+ * transaction, if any); the scheduled tasks themselves run outside of
+ * the lease handling.
+ *
+ * @author agent
+ * @since 5.2.13
+ * @see org.springframework.scheduling.config.ScheduledTaskRegistrar#setTaskLeaseManager
+ */
+public class JdbcTaskLeaseManager implements TaskLeaseManager {
+
+	/** Default name of the lease table: "TASK_LEASE". */
+	public static final String DEFAULT_TABLE_NAME = "TASK_LEASE";
+
+
+	private static final Log logger = LogFactory.getLog(JdbcTaskLeaseManager.class);
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private String tableName = DEFAULT_TABLE_NAME;
+
+	private String nodeName = determineDefaultNodeName();
+
+
+	/**
+	 * Create a new {@code JdbcTaskLeaseManager} for the given DataSource.
+	 * @param dataSource the JDBC DataSource to access the lease table with
+	 */
+	public JdbcTaskLeaseManager(DataSource dataSource) {
+		this(new JdbcTemplate(dataSource));
+	}
+
+	/**
+	 * Create a new {@code JdbcTaskLeaseManager} for the given JdbcTemplate.
+	 * @param jdbcTemplate the JdbcTemplate to access the lease table with
+	 */
+	public JdbcTaskLeaseManager(JdbcTemplate jdbcTemplate) {
+		Assert.notNull(jdbcTemplate, "JdbcTemplate must not be null");
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+
+	/**
+	 * Set the name of the lease table. Default is {@value #DEFAULT_TABLE_NAME}.
+	 */
+	public void setTableName(String tableName) {
+		Assert.hasText(tableName, "Table name must not be empty");
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Return the name of the lease table.
+	 */
+	public String getTableName() {
+		return this.tableName;
+	}
+
+	/**
+	 * Set the name of this node, stored as part of the lease owner for
+	 * diagnostic purposes. Default is the local host name.
+	 */
+	public void setNodeName(String nodeName) {
+		Assert.hasText(nodeName, "Node name must not be empty");
+		this.nodeName = nodeName;
+	}
+
+	/**
+	 * Return the name of this node.
+	 */
+	public String getNodeName() {
+		return this.nodeName;
+	}
+
+
+	@Override
+	@Nullable
+	public Lease tryAcquire(String taskName, Duration leaseTime) {
+		Timestamp now = Timestamp.from(Instant.now());
+		Timestamp until = Timestamp.from(now.toInstant().plus(leaseTime));
+		String owner = this.nodeName + ":" + UUID.randomUUID();
+
+		int updated = this.jdbcTemplate.update("UPDATE " + this.tableName +
+				" SET LEASE_OWNER = ?, LEASE_UNTIL = ? WHERE TASK_NAME = ? AND LEASE_UNTIL <= ?",
+				owner, until, taskName, now);
+		if (updated == 0) {
+			try {
+				this.jdbcTemplate.update("INSERT INTO " + this.tableName +
+						" (TASK_NAME, LEASE_OWNER, LEASE_UNTIL) VALUES (?, ?, ?)", taskName, owner, until);
+			}
+			catch (DataIntegrityViolationException ex) {
+				// Row exists with an active lease, or concurrently inserted by another node
+				return null;
+			}
+		}
+		return holdUntil -> release(taskName, owner, holdUntil);
+	}
+
+	private void release(String taskName, String owner, Instant holdUntil) {
+		Instant now = Instant.now();
+		Timestamp until = Timestamp.from(holdUntil.isAfter(now) ? holdUntil : now);
+		try {
+			this.jdbcTemplate.update("UPDATE " + this.tableName +
+					" SET LEASE_UNTIL = ? WHERE TASK_NAME = ? AND LEASE_OWNER = ?", until, taskName, owner);
+		}
+		catch (DataAccessException ex) {
+			// The lease is going to expire on its own...
+			logger.warn("Failed to release lease for task '" + taskName + "'", ex);
+		}
+	}
+
+
+	private static String determineDefaultNodeName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		}
+		catch (Exception ex) {
+			return "unknown";
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.jdbc.support;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.springframework.lang.Nullable;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
@@ -66,6 +69,10 @@ public class SQLErrorCodes {
 	@Nullable
 	private SQLExceptionTranslator customSqlExceptionTranslator;
 
+	/** Lazily built index of error codes, reset whenever the codes change. */
+	@Nullable
+	private volatile Map<String, ErrorCodeCategory> errorCodeIndex;
+
 
 	/**
 	 * Set this property if the database name contains spaces,
@@ -108,6 +115,7 @@ public class SQLErrorCodes {
 
 	public void setBadSqlGrammarCodes(String... badSqlGrammarCodes) {
 		this.badSqlGrammarCodes = StringUtils.sortStringArray(badSqlGrammarCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getBadSqlGrammarCodes() {
@@ -116,6 +124,7 @@ public class SQLErrorCodes {
 
 	public void setInvalidResultSetAccessCodes(String... invalidResultSetAccessCodes) {
 		this.invalidResultSetAccessCodes = StringUtils.sortStringArray(invalidResultSetAccessCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getInvalidResultSetAccessCodes() {
@@ -128,10 +137,12 @@ public class SQLErrorCodes {
 
 	public void setDuplicateKeyCodes(String... duplicateKeyCodes) {
 		this.duplicateKeyCodes = duplicateKeyCodes;
+		this.errorCodeIndex = null;
 	}
 
 	public void setDataIntegrityViolationCodes(String... dataIntegrityViolationCodes) {
 		this.dataIntegrityViolationCodes = StringUtils.sortStringArray(dataIntegrityViolationCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getDataIntegrityViolationCodes() {
@@ -140,6 +151,7 @@ public class SQLErrorCodes {
 
 	public void setPermissionDeniedCodes(String... permissionDeniedCodes) {
 		this.permissionDeniedCodes = StringUtils.sortStringArray(permissionDeniedCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getPermissionDeniedCodes() {
@@ -148,6 +160,7 @@ public class SQLErrorCodes {
 
 	public void setDataAccessResourceFailureCodes(String... dataAccessResourceFailureCodes) {
 		this.dataAccessResourceFailureCodes = StringUtils.sortStringArray(dataAccessResourceFailureCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getDataAccessResourceFailureCodes() {
@@ -156,6 +169,7 @@ public class SQLErrorCodes {
 
 	public void setTransientDataAccessResourceCodes(String... transientDataAccessResourceCodes) {
 		this.transientDataAccessResourceCodes = StringUtils.sortStringArray(transientDataAccessResourceCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getTransientDataAccessResourceCodes() {
@@ -164,6 +178,7 @@ public class SQLErrorCodes {
 
 	public void setCannotAcquireLockCodes(String... cannotAcquireLockCodes) {
 		this.cannotAcquireLockCodes = StringUtils.sortStringArray(cannotAcquireLockCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getCannotAcquireLockCodes() {
@@ -172,6 +187,7 @@ public class SQLErrorCodes {
 
 	public void setDeadlockLoserCodes(String... deadlockLoserCodes) {
 		this.deadlockLoserCodes = StringUtils.sortStringArray(deadlockLoserCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getDeadlockLoserCodes() {
@@ -180,6 +196,7 @@ public class SQLErrorCodes {
 
 	public void setCannotSerializeTransactionCodes(String... cannotSerializeTransactionCodes) {
 		this.cannotSerializeTransactionCodes = StringUtils.sortStringArray(cannotSerializeTransactionCodes);
+		this.errorCodeIndex = null;
 	}
 
 	public String[] getCannotSerializeTransactionCodes() {
@@ -219,4 +236,68 @@ public class SQLErrorCodes {
 		return this.customSqlExceptionTranslator;
 	}
 
+
+	/**
+	 * Determine the category of the given error code, through a hash-based
+	 * index of all error codes (built on first access).
+	 * <p>If an error code is listed in several categories, the category
+	 * with the highest precedence in translation wins.
+	 * @param errorCode the error code (or SQL state, if
+	 * {@link #isUseSqlStateForTranslation() "useSqlStateForTranslation"})
+	 * @return the corresponding category, or {@code null} if none
+	 * @since 5.2.13
+	 */
+	@Nullable
+	ErrorCodeCategory getErrorCodeCategory(String errorCode) {
+		Map<String, ErrorCodeCategory> index = this.errorCodeIndex;
+		if (index == null) {
+			index = new HashMap<>();
+			addToIndex(index, this.badSqlGrammarCodes, ErrorCodeCategory.BAD_SQL_GRAMMAR);
+			addToIndex(index, this.invalidResultSetAccessCodes, ErrorCodeCategory.INVALID_RESULT_SET_ACCESS);
+			addToIndex(index, this.duplicateKeyCodes, ErrorCodeCategory.DUPLICATE_KEY);
+			addToIndex(index, this.dataIntegrityViolationCodes, ErrorCodeCategory.DATA_INTEGRITY_VIOLATION);
+			addToIndex(index, this.permissionDeniedCodes, ErrorCodeCategory.PERMISSION_DENIED);
+			addToIndex(index, this.dataAccessResourceFailureCodes, ErrorCodeCategory.DATA_ACCESS_RESOURCE_FAILURE);
+			addToIndex(index, this.transientDataAccessResourceCodes, ErrorCodeCategory.TRANSIENT_DATA_ACCESS_RESOURCE);
+			addToIndex(index, this.cannotAcquireLockCodes, ErrorCodeCategory.CANNOT_ACQUIRE_LOCK);
+			addToIndex(index, this.deadlockLoserCodes, ErrorCodeCategory.DEADLOCK_LOSER);
+			addToIndex(index, this.cannotSerializeTransactionCodes, ErrorCodeCategory.CANNOT_SERIALIZE_TRANSACTION);
+			this.errorCodeIndex = index;
+		}
+		return index.get(errorCode);
+	}
+
+	private static void addToIndex(Map<String, ErrorCodeCategory> index, String[] codes, ErrorCodeCategory category) {
+		for (String code : codes) {
+			index.putIfAbsent(code, category);
+		}
+	}
+
+
+	/**
+	 * Categories of error codes, in order of precedence.
+	 */
+	enum ErrorCodeCategory {
+
+		BAD_SQL_GRAMMAR,
+
+		INVALID_RESULT_SET_ACCESS,
+
+		DUPLICATE_KEY,
+
+		DATA_INTEGRITY_VIOLATION,
+
+		PERMISSION_DENIED,
+
+		DATA_ACCESS_RESOURCE_FAILURE,
+
+		TRANSIENT_DATA_ACCESS_RESOURCE,
+
+		CANNOT_ACQUIRE_LOCK,
+
+		DEADLOCK_LOSER,
+
+		CANNOT_SERIALIZE_TRANSACTION
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.jdbc.support;
 import java.sql.DatabaseMetaData;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.sql.DataSource;
 
@@ -91,6 +92,12 @@ public class SQLErrorCodesFactory {
 	 */
 	private final Map<DataSource, SQLErrorCodes> dataSourceCache = new ConcurrentReferenceHashMap<>(16);
 
+	/**
+	 * Map to hold a lock per DataSource for the meta-data lookup, avoiding a global
+	 * lock which would serialize lookups for unrelated (or unavailable) databases.
+	 */
+	private final ConcurrentMap<DataSource, Object> dataSourceLocks = new ConcurrentReferenceHashMap<>(16);
+
 
 	/**
 	 * Create a new instance of the {@link SQLErrorCodesFactory} class.
@@ -226,8 +233,16 @@ public class SQLErrorCodesFactory {
 		// Try efficient lock-free access for existing cache entry
 		SQLErrorCodes sec = this.dataSourceCache.get(dataSource);
 		if (sec == null) {
-			synchronized (this.dataSourceCache) {
-				// Double-check within full dataSourceCache lock
+			Object lock = this.dataSourceLocks.get(dataSource);
+			if (lock == null) {
+				Object newLock = new Object();
+				lock = this.dataSourceLocks.putIfAbsent(dataSource, newLock);
+				if (lock == null) {
+					lock = newLock;
+				}
+			}
+			synchronized (lock) {
+				// Double-check within DataSource-specific lock
 				sec = this.dataSourceCache.get(dataSource);
 				if (sec == null) {
 					// We could not find it - got to look it up.
@@ -281,6 +296,7 @@ public class SQLErrorCodesFactory {
 	 */
 	@Nullable
 	public SQLErrorCodes unregisterDatabase(DataSource dataSource) {
+		this.dataSourceLocks.remove(dataSource);
 		return this.dataSourceCache.remove(dataSource);
 	}
 
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.TypeMismatchDataAccessException;
+import org.springframework.jdbc.core.ColumnarResult.ColumnType;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link ColumnarResultSetExtractor} and {@link ColumnarResult},
+ * running against an embedded H2 database.
+ *
+ * @author agent
+ */
+public class ColumnarResultSetExtractorTests {
+
+	private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+			.generateUniqueName(true).setType(EmbeddedDatabaseType.H2).build();
+
+	private final JdbcTemplate template = new JdbcTemplate(this.database);
+
+
+	@BeforeEach
+	public void setup() {
+		this.template.execute("create table sales (id int, units bigint, amount double, " +
+				"region varchar(20), price decimal(10,2), qty numeric(5,0))");
+		this.template.update("insert into sales values (1, 10, 1.5, 'north', 2.50, 3)");
+		this.template.update("insert into sales values (2, null, 2.5, 'south', null, 4)");
+		this.template.update("insert into sales values (3, 30, null, 'north', 1.00, null)");
+		this.template.update("insert into sales values (null, 40, 4.5, null, 3.25, 5)");
+	}
+
+	@AfterEach
+	public void shutdown() {
+		this.database.shutdown();
+	}
+
+
+	@Test
+	public void columnTypes() {
+		ColumnarResult result = query();
+		assertThat(result.getRowCount()).isEqualTo(4);
+		assertThat(result.getColumnNames()).containsExactly("ID", "UNITS", "AMOUNT", "REGION", "PRICE", "QTY");
+		assertThat(result.getColumnType(0)).isEqualTo(ColumnType.INT);
+		assertThat(result.getColumnType(1)).isEqualTo(ColumnType.LONG);
+		assertThat(result.getColumnType(2)).isEqualTo(ColumnType.DOUBLE);
+		assertThat(result.getColumnType(3)).isEqualTo(ColumnType.STRING);
+		assertThat(result.getColumnType(4)).isEqualTo(ColumnType.OBJECT);
+		assertThat(result.getColumnType(5)).isEqualTo(ColumnType.INT);
+	}
+
+	@Test
+	public void primitiveColumns() {
+		ColumnarResult result = query();
+		assertThat(result.getIntColumn(result.findColumn("id"))).containsExactly(1, 2, 3, 0);
+		assertThat(result.getLongColumn(result.findColumn("units"))).containsExactly(10, 0, 30, 40);
+		assertThat(result.getDoubleColumn(result.findColumn("amount"))).containsExactly(1.5, 2.5, 0, 4.5);
+
+		assertThat(result.isNull(0, 3)).isTrue();
+		assertThat(result.isNull(0, 2)).isFalse();
+		assertThat(result.getNullBitmap(1).cardinality()).isEqualTo(1);
+		assertThat(result.getNullBitmap(1).get(1)).isTrue();
+		assertThat(result.getNullBitmap(2).get(2)).isTrue();
+	}
+
+	@Test
+	public void dictionaryEncodedStrings() {
+		ColumnarResult result = query();
+		assertThat(result.getStringDictionary(3)).containsExactly("north", "south");
+		assertThat(result.getStringCodes(3)).containsExactly(0, 1, 0, -1);
+		assertThat(result.getString(3, 2)).isEqualTo("north");
+		assertThat(result.getString(3, 3)).isNull();
+		assertThat(result.isNull(3, 3)).isTrue();
+	}
+
+	@Test
+	public void valueAccess() {
+		ColumnarResult result = query();
+		assertThat(result.getInt(0, 1)).isEqualTo(2);
+		assertThat(result.getLong(0, 1)).isEqualTo(2L);
+		assertThat(result.getDouble(1, 2)).isEqualTo(30.0);
+		assertThat(result.getObject(0, 0)).isEqualTo(1);
+		assertThat(result.getObject(1, 1)).isNull();
+		assertThat(result.getObject(2, 0)).isEqualTo(1.5);
+		assertThat(result.getObject(3, 1)).isEqualTo("south");
+		assertThat(result.getObject(4, 0)).isEqualTo(new BigDecimal("2.50"));
+		assertThat(result.getObject(4, 1)).isNull();
+	}
+
+	@Test
+	public void invalidAccess() {
+		ColumnarResult result = query();
+		assertThatExceptionOfType(TypeMismatchDataAccessException.class).isThrownBy(() -> result.getInt(2, 0));
+		assertThatExceptionOfType(TypeMismatchDataAccessException.class).isThrownBy(() -> result.getString(0, 0));
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class).isThrownBy(() -> result.getInt(0, 4));
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class).isThrownBy(() -> result.getObject(6, 0));
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class).isThrownBy(() -> result.findColumn("x"));
+	}
+
+	@Test
+	public void growBeyondInitialCapacity() {
+		ColumnarResultSetExtractor extractor = new ColumnarResultSetExtractor();
+		extractor.setInitialCapacity(1);
+		ColumnarResult result = this.template.query("select id, region from sales", extractor);
+		assertThat(result.getRowCount()).isEqualTo(4);
+		assertThat(result.getIntColumn(0)).hasSize(4);
+		assertThat(result.getStringCodes(1)).hasSize(4);
+	}
+
+	@Test
+	public void emptyResult() {
+		ColumnarResult result = this.template.query("select id from sales where id > 10", new ColumnarResultSetExtractor());
+		assertThat(result.getRowCount()).isEqualTo(0);
+		assertThat(result.getIntColumn(0)).isEmpty();
+	}
+
+
+	private ColumnarResult query() {
+		return this.template.query("select * from sales order by coalesce(id, 99)",
+				new ColumnarResultSetExtractor());
+	}
+
+}
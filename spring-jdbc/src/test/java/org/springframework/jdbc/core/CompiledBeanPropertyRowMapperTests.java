@@ -0,0 +1,231 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.testfixture.EnabledForTestGroups;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.test.ConcretePerson;
+import org.springframework.jdbc.core.test.DatePerson;
+import org.springframework.jdbc.core.test.ExtendedPerson;
+import org.springframework.jdbc.core.test.Person;
+import org.springframework.jdbc.core.test.SpacePerson;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.springframework.core.testfixture.TestGroup.PERFORMANCE;
+
+/**
+ * @author agent
+ */
+public class CompiledBeanPropertyRowMapperTests extends AbstractRowMapperTests {
+
+	@Test
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void testOverridingDifferentClassDefinedForMapping() {
+		CompiledBeanPropertyRowMapper mapper = new CompiledBeanPropertyRowMapper(Person.class);
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class).isThrownBy(() ->
+				mapper.setMappedClass(Long.class));
+	}
+
+	@Test
+	public void testStaticQueryWithRowMapper() throws Exception {
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(Person.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithInheritance() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ConcretePerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithNonPublicClass() throws Exception {
+		Mock mock = new Mock();
+		List<PackagePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(PackagePerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithNoUnpopulatedFieldsFound() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ConcretePerson.class, true));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithUnpopulatedFieldsNotChecked() throws Exception {
+		Mock mock = new Mock();
+		List<ExtendedPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ExtendedPerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithUnpopulatedFieldsNotAccepted() throws Exception {
+		Mock mock = new Mock();
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class).isThrownBy(() ->
+				mock.getJdbcTemplate().query("select name, age, birth_date, balance from people",
+						new CompiledBeanPropertyRowMapper<>(ExtendedPerson.class, true)));
+	}
+
+	@Test
+	public void testMappingNullValue() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		Mock mock = new Mock(MockType.TWO);
+		assertThatExceptionOfType(TypeMismatchException.class).isThrownBy(() ->
+				mock.getJdbcTemplate().query("select name, null as age, birth_date, balance from people", mapper));
+	}
+
+	@Test
+	public void testMappingNullValueWithPrimitivesDefaulted() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		Mock mock = new Mock(MockType.TWO);
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+		assertThat(result.size()).isEqualTo(1);
+		assertThat(result.get(0).getAge()).isEqualTo(0L);
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDateTime() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<SpacePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(SpacePerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDate() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<DatePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(DatePerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingPlanPerResultSetShape() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		Mock mock = new Mock();
+		verifyPerson(mock.getJdbcTemplate().query("select name, age, birth_date, balance from people", mapper).get(0));
+		Mock mock2 = new Mock(MockType.THREE);
+		Person person = mock2.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people", mapper).get(0);
+		assertThat(person.getName()).isNull();
+		assertThat(person.getAge()).isEqualTo(22L);
+		Mock mock3 = new Mock();
+		verifyPerson(mock3.getJdbcTemplate().query("select name, age, birth_date, balance from people", mapper).get(0));
+	}
+
+	@Test
+	@EnabledForTestGroups(PERFORMANCE)
+	public void mappingThroughput() throws Exception {
+		int rowCount = 1_000_000;
+		ResultSet rs = createResultSet();
+		BeanPropertyRowMapper<Person> standardMapper = new BeanPropertyRowMapper<>(Person.class);
+		CompiledBeanPropertyRowMapper<Person> compiledMapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+
+		StopWatch sw = new StopWatch();
+		for (int round = 0; round < 3; round++) {
+			sw.start("standard-" + round);
+			for (int i = 0; i < rowCount; i++) {
+				standardMapper.mapRow(rs, i);
+			}
+			sw.stop();
+			sw.start("compiled-" + round);
+			for (int i = 0; i < rowCount; i++) {
+				compiledMapper.mapRow(rs, i);
+			}
+			sw.stop();
+		}
+		System.out.println(sw.prettyPrint());
+		verifyPerson(compiledMapper.mapRow(rs, 0));
+	}
+
+	private static ResultSet createResultSet() {
+		String[] labels = {"name", "age", "birth_date", "balance"};
+		ResultSetMetaData rsmd = (ResultSetMetaData) Proxy.newProxyInstance(
+				CompiledBeanPropertyRowMapperTests.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getColumnCount": return labels.length;
+						case "getColumnLabel": return labels[(Integer) args[0] - 1];
+						default: return null;
+					}
+				});
+		Timestamp birthDate = new Timestamp(1221222L);
+		BigDecimal balance = new BigDecimal("1234.56");
+		return (ResultSet) Proxy.newProxyInstance(
+				CompiledBeanPropertyRowMapperTests.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getMetaData": return rsmd;
+						case "getString": return "Bubba";
+						case "getLong": return 22L;
+						case "getTimestamp": return birthDate;
+						case "getBigDecimal": return balance;
+						case "wasNull": return false;
+						default: return null;
+					}
+				});
+	}
+
+
+	static class PackagePerson extends Person {
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,22 +23,31 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.SQLWarningException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -383,4 +392,108 @@ public class JdbcTemplateQueryTests {
 		verify(this.preparedStatement).close();
 	}
 
+	@Test
+	public void testQueryForStream() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < 3";
+		given(this.statement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1))) {
+			verify(this.resultSet, never()).next();
+			assertThat(stream.collect(Collectors.toList())).containsExactly(11, 12);
+			verify(this.resultSet, never()).close();
+			verify(this.statement, never()).close();
+			verify(this.connection, never()).close();
+		}
+		verify(this.resultSet).close();
+		verify(this.statement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithArgsAndFetchSize() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		this.template.setFetchSize(10);
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willReturn(true, false);
+		given(this.resultSet.getInt(1)).willReturn(11);
+		try (Stream<Integer> stream = this.template.queryForStream(sql, 1000, (rs, rowNum) -> rs.getInt(1), 3)) {
+			assertThat(stream.findFirst()).contains(11);
+		}
+		verify(this.preparedStatement).setFetchSize(10);
+		verify(this.preparedStatement).setFetchSize(1000);
+		verify(this.preparedStatement).setObject(1, 3);
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithFailingQuery() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		SQLException sqlException = new SQLException("Query failed");
+		given(this.preparedStatement.executeQuery()).willThrow(sqlException);
+		assertThatExceptionOfType(DataAccessException.class).isThrownBy(() ->
+				this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1), 3))
+			.withCause(sqlException);
+		verify(this.preparedStatement).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testQueryForStreamReleasesObtainedConnection() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < 3";
+		Connection nativeConnection = mock(Connection.class);
+		given(this.statement.getConnection()).willReturn(nativeConnection);
+		given(this.resultSet.next()).willReturn(true, false);
+		given(this.resultSet.getInt(1)).willReturn(11);
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1))) {
+			assertThat(stream.findFirst()).contains(11);
+		}
+		verify(this.connection).close();
+		verify(nativeConnection, never()).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithWarningNotIgnored() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		this.template.setIgnoreWarnings(false);
+		given(this.preparedStatement.getWarnings()).willReturn(new SQLWarning("Not ignored"));
+		assertThatExceptionOfType(SQLWarningException.class).isThrownBy(() ->
+				this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1), 3));
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithFailingSetter() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		assertThatIllegalStateException().isThrownBy(() ->
+				this.template.queryForStream(sql, ps -> {
+					throw new IllegalStateException("Setter failed");
+				}, (rs, rowNum) -> rs.getInt(1)));
+		verify(this.preparedStatement).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testQueryForParallelStream() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR";
+		int rowCount = 5000;
+		AtomicInteger current = new AtomicInteger();
+		given(this.statement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willAnswer(invocation -> current.incrementAndGet() <= rowCount);
+		given(this.resultSet.getInt(1)).willAnswer(invocation -> current.get());
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1))) {
+			List<Integer> result = stream.parallel().map(age -> age * 2).collect(Collectors.toList());
+			assertThat(result).hasSize(rowCount);
+			for (int i = 0; i < rowCount; i++) {
+				assertThat(result.get(i)).isEqualTo((i + 1) * 2);
+			}
+		}
+		verify(this.resultSet).close();
+		verify(this.connection).close();
+	}
+
 }
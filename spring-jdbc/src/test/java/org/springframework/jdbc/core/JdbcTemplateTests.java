@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,8 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.sql.DataSource;
 
@@ -50,6 +52,7 @@ import org.springframework.jdbc.datasource.ConnectionProxy;
 import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
 import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.util.StringUtils;
 
@@ -779,6 +782,162 @@ public class JdbcTemplateTests {
 		verify(this.connection, atLeastOnce()).close();
 	}
 
+	@Test
+	public void testBatchUpdateWithMultiRowInsert() throws Exception {
+		final String sql = "INSERT INTO NOSUCHTABLE (ID) VALUES (?)";
+		final String multiRowSql = "INSERT INTO NOSUCHTABLE (ID) VALUES (?), (?)";
+		final List<Integer> ids = Arrays.asList(100, 200, 300, 400, 500);
+		given(this.preparedStatement.executeUpdate()).willReturn(2, 1, 2);
+
+		ParameterizedPreparedStatementSetter<Integer> setter = (ps, argument) -> ps.setInt(1, argument.intValue());
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+		template.setMultiRowInsertSize(2);
+
+		int[][] actualRowsAffected = template.batchUpdate(sql, ids, 3, setter);
+		assertThat(actualRowsAffected).containsExactly(new int[] {1, 1, 1}, new int[] {1, 1});
+
+		verify(this.connection, times(2)).prepareStatement(multiRowSql);
+		verify(this.connection).prepareStatement(sql);
+		verify(this.preparedStatement).setInt(1, 100);
+		verify(this.preparedStatement).setInt(2, 200);
+		verify(this.preparedStatement).setInt(1, 300);
+		verify(this.preparedStatement).setInt(1, 400);
+		verify(this.preparedStatement).setInt(2, 500);
+		verify(this.preparedStatement, never()).addBatch();
+		verify(this.preparedStatement, times(3)).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testBatchUpdateWithMultiRowInsertAndListOfObjectArrays() throws Exception {
+		final String sql = "INSERT INTO NOSUCHTABLE (ID, NAME) VALUES (?, ?)";
+		final List<Object[]> ids = new ArrayList<>();
+		ids.add(new Object[] {100, "a"});
+		ids.add(new Object[] {200, "b"});
+		ids.add(new Object[] {300, "c"});
+		given(this.preparedStatement.executeUpdate()).willReturn(3);
+
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+		template.setMultiRowInsertSize(10);
+
+		int[] actualRowsAffected = template.batchUpdate(sql, ids, new int[] {Types.INTEGER, Types.VARCHAR});
+		assertThat(actualRowsAffected).containsExactly(1, 1, 1);
+
+		verify(this.connection).prepareStatement("INSERT INTO NOSUCHTABLE (ID, NAME) VALUES (?, ?), (?, ?), (?, ?)");
+		verify(this.preparedStatement).setObject(1, 100, Types.INTEGER);
+		verify(this.preparedStatement).setString(2, "a");
+		verify(this.preparedStatement).setObject(5, 300, Types.INTEGER);
+		verify(this.preparedStatement).setString(6, "c");
+		verify(this.preparedStatement).close();
+	}
+
+	@Test
+	public void testBatchUpdateWithMultiRowInsertNotApplicable() throws Exception {
+		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
+		final List<Integer> ids = Arrays.asList(100, 200);
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1});
+		mockDatabaseMetaData(true);
+
+		ParameterizedPreparedStatementSetter<Integer> setter = (ps, argument) -> ps.setInt(1, argument.intValue());
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+		template.setMultiRowInsertSize(10);
+
+		int[][] actualRowsAffected = template.batchUpdate(sql, ids, 2, setter);
+		assertThat(actualRowsAffected).containsExactly(new int[] {1, 1});
+		verify(this.connection).prepareStatement(sql);
+		verify(this.preparedStatement, times(2)).addBatch();
+	}
+
+	@Test
+	public void testBatchUpdateInParallel() throws Exception {
+		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
+		final List<Integer> ids = Arrays.asList(100, 200, 300, 400, 500);
+		given(this.preparedStatement.executeBatch()).willAnswer(invocation -> new int[] {1, 1});
+		mockDatabaseMetaData(true);
+
+		ParameterizedPreparedStatementSetter<Integer> setter = (ps, argument) -> ps.setInt(1, argument.intValue());
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+			template.setParallelBatchExecutor(executor);
+			int[][] actualRowsAffected = template.batchUpdate(sql, ids, 2, setter);
+			assertThat(actualRowsAffected.length).isEqualTo(3);
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		verify(this.connection, times(3)).prepareStatement(sql);
+		verify(this.preparedStatement, times(5)).addBatch();
+		verify(this.preparedStatement, times(3)).executeBatch();
+		for (Integer id : ids) {
+			verify(this.preparedStatement).setInt(1, id);
+		}
+		verify(this.preparedStatement, times(3)).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testBulkLoad() throws Exception {
+		List<Object[]> rows = new ArrayList<>();
+		rows.add(new Object[] {100, "a"});
+		rows.add(new Object[] {200, "b"});
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, Statement.SUCCESS_NO_INFO});
+		mockDatabaseMetaData(true);
+
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+		assertThat(template.bulkLoad("NOSUCHTABLE", new String[] {"ID", "NAME"}, rows)).isEqualTo(2);
+
+		verify(this.connection).prepareStatement("INSERT INTO NOSUCHTABLE (ID, NAME) VALUES (?, ?)");
+		verify(this.preparedStatement).setObject(1, 100);
+		verify(this.preparedStatement).setString(2, "b");
+		verify(this.preparedStatement, times(2)).addBatch();
+		verify(this.preparedStatement).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testBulkLoadWithStrategy() throws Exception {
+		List<Object[]> rows = Collections.singletonList(new Object[] {100, "a"});
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+		template.setBulkLoadStrategy((con, tableName, columnNames, rowsToLoad) -> {
+			assertThat(((ConnectionProxy) con).getTargetConnection()).isSameAs(this.connection);
+			assertThat(tableName).isEqualTo("NOSUCHTABLE");
+			assertThat(columnNames).containsExactly("ID", "NAME");
+			assertThat(rowsToLoad).isSameAs(rows);
+			return 1;
+		});
+
+		assertThat(template.bulkLoad("NOSUCHTABLE", new String[] {"ID", "NAME"}, rows)).isEqualTo(1);
+		verify(this.connection, never()).prepareStatement(anyString());
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testBatchUpdateInParallelWithinSynchronization() throws Exception {
+		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
+		final List<Integer> ids = Arrays.asList(100, 200, 300);
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1}, new int[] {1});
+		mockDatabaseMetaData(true);
+
+		ParameterizedPreparedStatementSetter<Integer> setter = (ps, argument) -> ps.setInt(1, argument.intValue());
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+		template.setParallelBatchExecutor(task -> {
+			throw new IllegalStateException("Should not execute in parallel");
+		});
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			int[][] actualRowsAffected = template.batchUpdate(sql, ids, 2, setter);
+			assertThat(actualRowsAffected).containsExactly(new int[] {1, 1}, new int[] {1});
+		}
+		finally {
+			TransactionSynchronizationManager.clearSynchronization();
+			TransactionSynchronizationManager.unbindResourceIfPossible(this.dataSource);
+		}
+		verify(this.connection).prepareStatement(sql);
+		verify(this.preparedStatement, times(2)).executeBatch();
+	}
+
 	@Test
 	public void testCouldNotGetConnectionForOperationOrExceptionTranslator() throws SQLException {
 		SQLException sqlException = new SQLException("foo", "07xxx");
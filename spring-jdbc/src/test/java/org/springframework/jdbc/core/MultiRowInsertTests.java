@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.PreparedStatement;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author agent
+ */
+public class MultiRowInsertTests {
+
+	@Test
+	public void parseSimpleInsert() {
+		MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO T (A, B) VALUES(?, 'x?')");
+		assertThat(insert).isNotNull();
+		assertThat(insert.getParameterCount()).isEqualTo(1);
+		assertThat(insert.getSql(1)).isEqualTo("INSERT INTO T (A, B) VALUES(?, 'x?')");
+		assertThat(insert.getSql(3)).isEqualTo("INSERT INTO T (A, B) VALUES(?, 'x?'), (?, 'x?'), (?, 'x?')");
+	}
+
+	@Test
+	public void parseInsertWithFunctionCall() {
+		MultiRowInsert insert = MultiRowInsert.parse("insert into t (a, b) values (?, coalesce(?, 0))");
+		assertThat(insert).isNotNull();
+		assertThat(insert.getParameterCount()).isEqualTo(2);
+		assertThat(insert.getSql(2)).isEqualTo("insert into t (a, b) values (?, coalesce(?, 0)), (?, coalesce(?, 0))");
+	}
+
+	@Test
+	public void parseUnsupportedStatements() {
+		assertThat(MultiRowInsert.parse("UPDATE T SET A = ?")).isNull();
+		assertThat(MultiRowInsert.parse("INSERT INTO T (A) SELECT A FROM S WHERE B = ?")).isNull();
+		assertThat(MultiRowInsert.parse("INSERT INTO T (A) VALUES (?) ON CONFLICT DO NOTHING")).isNull();
+		assertThat(MultiRowInsert.parse("INSERT INTO T (A) VALUES (?), (?)")).isNull();
+		assertThat(MultiRowInsert.parse("INSERT INTO T (A) VALUES (?) -- comment")).isNull();
+		assertThat(MultiRowInsert.parse("INSERT INTO T (A) VALUES ('x')")).isNull();
+		assertThat(MultiRowInsert.parse("INSERT INTO T (MY_VALUES) VALUES (?)")).isNotNull();
+	}
+
+	@Test
+	public void rowStatementShiftsParameterIndexes() throws Exception {
+		MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO T (A, B) VALUES (?, ?)");
+		PreparedStatement ps = mock(PreparedStatement.class);
+		ParameterShiftingPreparedStatement rowPs = insert.createRowStatement(ps);
+		insert.setRow(rowPs, 2);
+		rowPs.setString(1, "a");
+		rowPs.setNull(2, 0);
+		rowPs.setFetchSize(10);
+		verify(ps).setString(5, "a");
+		verify(ps).setNull(6, 0);
+		verify(ps).setFetchSize(10);
+	}
+
+}
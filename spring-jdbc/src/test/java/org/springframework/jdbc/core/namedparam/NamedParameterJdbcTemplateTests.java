@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.jdbc.core.namedparam;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
@@ -44,11 +45,13 @@ import org.springframework.jdbc.core.SqlParameterValue;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -265,6 +268,48 @@ public class NamedParameterJdbcTemplateTests {
 		verify(connection).close();
 	}
 
+	@Test
+	public void testQueryWithInClauseArrayBinding() throws SQLException {
+		Array array = mock(Array.class);
+		given(connection.getMetaData()).willReturn(databaseMetaData);
+		given(databaseMetaData.getDatabaseProductName()).willReturn("PostgreSQL");
+		given(connection.createArrayOf("integer", new Object[] {1, 2, 3})).willReturn(array);
+		given(resultSet.next()).willReturn(false);
+
+		params.put("ids", Arrays.asList(1, 2, 3));
+		params.put("country", "UK");
+		namedParameterTemplate.setInClauseArrayBinding(true);
+		namedParameterTemplate.queryForList(
+				"select id, forename from custmr where id in (:ids) and country = :country", params);
+
+		verify(connection).prepareStatement("select id, forename from custmr where id = ANY (?) and country = ?");
+		verify(preparedStatement).setArray(1, array);
+		verify(preparedStatement).setString(2, "UK");
+		verify(array).free();
+		verify(preparedStatement).close();
+		verify(connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testQueryWithInClauseArrayBindingNotSupported() throws SQLException {
+		given(connection.getMetaData()).willReturn(databaseMetaData);
+		given(resultSet.next()).willReturn(false);
+
+		params.put("ids", Arrays.asList(1, 2, 3));
+		namedParameterTemplate.setInClauseArrayBinding(true);
+		namedParameterTemplate.setMaxInListSize(2);
+		namedParameterTemplate.queryForList("select id, forename from custmr where id in (:ids)", params);
+
+		verify(connection).prepareStatement(
+				"select id, forename from custmr where (id IN (?, ?) OR id IN (?))");
+		verify(preparedStatement).setObject(1, 1);
+		verify(preparedStatement).setObject(2, 2);
+		verify(preparedStatement).setObject(3, 3);
+		verify(connection, never()).createArrayOf(anyString(), any());
+		verify(preparedStatement).close();
+		verify(connection, atLeastOnce()).close();
+	}
+
 	@Test
 	public void testQueryWithRowCallbackHandler() throws SQLException {
 		given(resultSet.next()).willReturn(true, false);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -104,6 +106,24 @@ public class NamedParameterQueryTests {
 		verify(preparedStatement).setObject(1, 3);
 	}
 
+	@Test
+	public void testQueryForStreamWithParamMap() throws Exception {
+		given(preparedStatement.getConnection()).willReturn(connection);
+		given(resultSet.next()).willReturn(true, true, false);
+		given(resultSet.getInt(1)).willReturn(11, 12);
+
+		MapSqlParameterSource params = new MapSqlParameterSource();
+		params.addValue("id", 3);
+		try (Stream<Integer> stream = template.queryForStream("SELECT AGE FROM CUSTMR WHERE ID < :id", params,
+				500, (rs, rowNum) -> rs.getInt(1))) {
+			assertThat(stream.collect(Collectors.toList())).containsExactly(11, 12);
+		}
+
+		verify(connection).prepareStatement("SELECT AGE FROM CUSTMR WHERE ID < ?");
+		verify(preparedStatement).setFetchSize(500);
+		verify(preparedStatement).setObject(1, 3);
+	}
+
 	@Test
 	public void testQueryForListWithParamMapAndEmptyResult() throws Exception {
 		given(resultSet.next()).willReturn(false);
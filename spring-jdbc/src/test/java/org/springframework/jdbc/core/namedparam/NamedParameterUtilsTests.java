@@ -16,6 +16,7 @@
 
 package org.springframework.jdbc.core.namedparam;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -70,6 +71,27 @@ public class NamedParameterUtilsTests {
 		assertThat(NamedParameterUtils.substituteNamedParameters("xxx :a :b :c xx :a :a", namedParams)).isEqualTo("xxx ? ? ? xx ? ?");
 	}
 
+	@Test
+	public void substituteNamedParametersWithCachedSql() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("select * from t where a = :a and b in (:b) and c in (:c)");
+		MapSqlParameterSource namedParams = new MapSqlParameterSource();
+		namedParams.addValue("a", 1).addValue("b", Arrays.asList(1, 2, 3)).addValue("c", Arrays.asList(1, 2));
+		String sql1 = NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams);
+		assertThat(sql1).isEqualTo("select * from t where a = ? and b in (?, ?, ?) and c in (?, ?)");
+		namedParams.addValue("b", Arrays.asList(4, 5, 6)).addValue("c", new SqlParameterValue(0, Arrays.asList(3, 4)));
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams)).isSameAs(sql1);
+		namedParams.addValue("c", Collections.singletonList(3));
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams))
+				.isEqualTo("select * from t where a = ? and b in (?, ?, ?) and c in (?)");
+		namedParams.addValue("c", Collections.singletonList(new Object[] {1, 2}));
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams))
+				.isEqualTo("select * from t where a = ? and b in (?, ?, ?) and c in ((?, ?))");
+
+		String sql2 = NamedParameterUtils.substituteNamedParameters(parsedSql, null);
+		assertThat(sql2).isEqualTo("select * from t where a = ? and b in (?) and c in (?)");
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, new MapSqlParameterSource("a", 2))).isSameAs(sql2);
+	}
+
 	@Test
 	public void convertParamMapToArray() {
 		Map<String, String> paramMap = new HashMap<>();
@@ -319,4 +341,61 @@ public class NamedParameterUtilsTests {
 		assertThat(psql2.getParameterNames().get(0)).isEqualTo("xxx");
 	}
 
+	@Test
+	public void substituteNamedParametersWithMaxInListSize() {
+		MapSqlParameterSource paramSource = new MapSqlParameterSource();
+		paramSource.addValue("ids", Arrays.asList(1, 2, 3, 4, 5));
+		paramSource.addValue("name", "x");
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(
+				"select * from foo where name = :name and f.id in (:ids) order by id");
+
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource, 2)).isEqualTo(
+				"select * from foo where name = ? and (f.id IN (?, ?) OR f.id IN (?, ?) OR f.id IN (?)) order by id");
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource, 5)).isEqualTo(
+				"select * from foo where name = ? and f.id in (?, ?, ?, ?, ?) order by id");
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource)).isEqualTo(
+				"select * from foo where name = ? and f.id in (?, ?, ?, ?, ?) order by id");
+		assertThat(NamedParameterUtils.buildValueArray(parsedSql, paramSource, null))
+				.containsExactly("x", Arrays.asList(1, 2, 3, 4, 5));
+	}
+
+	@Test
+	public void substituteNamedParametersWithMaxInListSizeAndNotIn() {
+		MapSqlParameterSource paramSource = new MapSqlParameterSource("ids", Arrays.asList(1, 2, 3));
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("select * from foo where id NOT IN (:ids)");
+
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource, 2)).isEqualTo(
+				"select * from foo where (id NOT IN (?, ?) AND id NOT IN (?))");
+	}
+
+	@Test
+	public void substituteNamedParametersWithMaxInListSizeAndExpression() {
+		MapSqlParameterSource paramSource = new MapSqlParameterSource("ids", Arrays.asList(1, 2, 3));
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("select * from foo where id + 1 in (:ids)");
+
+		assertThat(NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource, 2)).isEqualTo(
+				"select * from foo where id + 1 in (?, ?, ?)");
+	}
+
+	@Test
+	public void substituteArrayComparisons() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(
+				"select * from foo where id in (:ids) and name = :name and type NOT IN (:types)");
+
+		NamedParameterUtils.ArrayComparisons arrayComparisons =
+				NamedParameterUtils.substituteArrayComparisons(parsedSql, name -> !name.equals("name"));
+		assertThat(arrayComparisons).isNotNull();
+		assertThat(arrayComparisons.getSql()).isEqualTo(
+				"select * from foo where id = ANY (:ids) and name = :name and type NOT IN (:types)");
+		assertThat(arrayComparisons.getParameterNames()).containsExactly("ids");
+	}
+
+	@Test
+	public void substituteArrayComparisonsWithParameterOutsideOfInClause() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(
+				"select * from foo where id in (:ids) or parent_id in (:ids, 0) or (:ids) is null");
+
+		assertThat(NamedParameterUtils.substituteArrayComparisons(parsedSql, name -> true)).isNull();
+	}
+
 }
@@ -30,6 +30,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.metadata.MetaDataProviderCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -138,4 +139,36 @@ class SimpleJdbcInsertTests {
 		verify(tableResultSet).close();
 	}
 
+	@Test
+	void sharedMetaDataProviderCache() throws Exception {
+		ResultSet tableResultSet = mock(ResultSet.class);
+		given(tableResultSet.next()).willReturn(true, false);
+
+		given(databaseMetaData.getUserName()).willReturn("me");
+		given(databaseMetaData.getTables(null, null, "me", null)).willReturn(tableResultSet);
+
+		ResultSet columnResultSet = mock(ResultSet.class);
+		given(databaseMetaData.getColumns(null, "me", null, null)).willReturn(columnResultSet);
+		given(columnResultSet.next()).willReturn(true, true, false);
+		given(columnResultSet.getString("COLUMN_NAME")).willReturn("col1", "col2");
+		given(columnResultSet.getInt("DATA_TYPE")).willReturn(Types.VARCHAR);
+		given(columnResultSet.getBoolean("NULLABLE")).willReturn(false);
+
+		MetaDataProviderCache cache = new MetaDataProviderCache();
+		SimpleJdbcInsert insert1 = new SimpleJdbcInsert(dataSource).withTableName("me");
+		insert1.setMetaDataProviderCache(cache);
+		insert1.compile();
+		SimpleJdbcInsert insert2 = new SimpleJdbcInsert(dataSource).withTableName("me").usingColumns("col2");
+		insert2.setMetaDataProviderCache(cache);
+		insert2.compile();
+
+		// Meta-data retrieved only once, with a single connection to be closed
+		assertThat(insert1.getInsertString()).isEqualTo("INSERT INTO me (col1, col2) VALUES(?, ?)");
+		assertThat(insert2.getInsertString()).isEqualTo("INSERT INTO me (col2) VALUES(?)");
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(cache.getHitRate()).isEqualTo(0.5);
+		assertThat(cache.size()).isEqualTo(1);
+	}
+
 }
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link PooledDataSource}, running against an embedded H2 database.
+ *
+ * @author agent
+ */
+public class PooledDataSourceTests {
+
+	private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+			.generateUniqueName(true).setType(EmbeddedDatabaseType.H2).build();
+
+	private final PooledDataSource dataSource = new PooledDataSource(this.database);
+
+
+	@AfterEach
+	public void shutdown() {
+		this.dataSource.destroy();
+		this.database.shutdown();
+	}
+
+
+	@Test
+	public void reuseConnection() throws SQLException {
+		Connection con = this.dataSource.getConnection();
+		Connection target = ((ConnectionProxy) con).getTargetConnection();
+		assertThat(this.dataSource.getActiveConnections()).isEqualTo(1);
+		con.close();
+		assertThat(con.isClosed()).isTrue();
+		assertThatExceptionOfType(SQLException.class).isThrownBy(con::createStatement);
+		assertThat(this.dataSource.getIdleConnections()).isEqualTo(1);
+
+		Connection con2 = this.dataSource.getConnection();
+		assertThat(con2).isNotSameAs(con);
+		assertThat(((ConnectionProxy) con2).getTargetConnection()).isSameAs(target);
+		con2.close();
+		assertThat(this.dataSource.getConnectionsCreated()).isEqualTo(1);
+		assertThat(target.isClosed()).isFalse();
+	}
+
+	@Test
+	public void jdbcTemplateWithTransactions() {
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(this.dataSource));
+		template.execute("create table t (x int)");
+
+		tt.execute(status -> template.update("insert into t values (1)"));
+		tt.execute(status -> {
+			template.update("insert into t values (2)");
+			status.setRollbackOnly();
+			return null;
+		});
+
+		assertThat(template.queryForList("select x from t", Integer.class)).containsExactly(1);
+		assertThat(this.dataSource.getTotalConnections()).isEqualTo(1);
+		assertThat(this.dataSource.getActiveConnections()).isEqualTo(0);
+	}
+
+	@Test
+	public void jdbcTemplateWithStreams() {
+		this.dataSource.setMaxPoolSize(1);
+		this.dataSource.setConnectionTimeout(500);
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+		template.execute("create table t (x int)");
+		template.update("insert into t values (1)");
+
+		for (int i = 0; i < 3; i++) {
+			try (Stream<Integer> stream = template.queryForStream("select x from t", (rs, rowNum) -> rs.getInt(1))) {
+				assertThat(stream).containsExactly(1);
+			}
+			assertThat(this.dataSource.getActiveConnections()).isEqualTo(0);
+		}
+		assertThat(this.dataSource.getTotalConnections()).isEqualTo(1);
+	}
+
+	@Test
+	public void resetConnectionOnReturn() throws SQLException {
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+		template.execute("create table t (x int)");
+
+		Connection con = this.dataSource.getConnection();
+		con.setAutoCommit(false);
+		con.setReadOnly(false);
+		con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+		con.createStatement().executeUpdate("insert into t values (1)");
+		con.close();
+
+		Connection con2 = this.dataSource.getConnection();
+		assertThat(con2.getAutoCommit()).isTrue();
+		assertThat(con2.getTransactionIsolation()).isNotEqualTo(Connection.TRANSACTION_SERIALIZABLE);
+		con2.close();
+		assertThat(template.queryForList("select x from t", Integer.class)).isEmpty();
+	}
+
+	@Test
+	public void poolExhausted() throws SQLException {
+		this.dataSource.setMaxPoolSize(1);
+		this.dataSource.setConnectionTimeout(50);
+
+		Connection con = this.dataSource.getConnection();
+		assertThatExceptionOfType(SQLTransientConnectionException.class).isThrownBy(this.dataSource::getConnection);
+		assertThat(this.dataSource.getConnectionTimeouts()).isEqualTo(1);
+		assertThat(this.dataSource.getThreadsAwaitingConnection()).isEqualTo(0);
+		con.close();
+
+		this.dataSource.getConnection().close();
+		assertThat(this.dataSource.getConnectionsCreated()).isEqualTo(1);
+	}
+
+	@Test
+	public void handoffToWaitingThread() throws Exception {
+		this.dataSource.setMaxPoolSize(1);
+		Connection con = this.dataSource.getConnection();
+		Connection target = ((ConnectionProxy) con).getTargetConnection();
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Connection> future = executor.submit(() -> {
+				Connection waitingCon = this.dataSource.getConnection();
+				Connection waitingTarget = ((ConnectionProxy) waitingCon).getTargetConnection();
+				waitingCon.close();
+				return waitingTarget;
+			});
+			while (this.dataSource.getThreadsAwaitingConnection() == 0) {
+				Thread.sleep(1);
+			}
+			con.close();
+			assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(target);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void releaseWithoutWaitingForConcurrentConnect() throws Exception {
+		CountDownLatch connecting = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		AtomicInteger connectCount = new AtomicInteger();
+		PooledDataSource dataSource = new PooledDataSource(new DelegatingDataSource(this.database) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				if (connectCount.incrementAndGet() == 2) {
+					connecting.countDown();
+					try {
+						proceed.await();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.getConnection();
+			}
+		});
+		dataSource.setMaxPoolSize(2);
+		Connection con = dataSource.getConnection();
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> future = executor.submit(() -> {
+				dataSource.getConnection().close();
+				return null;
+			});
+			assertThat(connecting.await(5, TimeUnit.SECONDS)).isTrue();
+			// Closing must not wait for the other thread's physical connect
+			executor.submit(() -> {
+				con.close();
+				return null;
+			}).get(1, TimeUnit.SECONDS);
+			proceed.countDown();
+			future.get(5, TimeUnit.SECONDS);
+		}
+		finally {
+			proceed.countDown();
+			executor.shutdownNow();
+			dataSource.destroy();
+		}
+	}
+
+	@Test
+	public void retireConnectionAfterMaxLifetime() throws Exception {
+		this.dataSource.setMaxLifetime(1);
+		Connection con = this.dataSource.getConnection();
+		Connection target = ((ConnectionProxy) con).getTargetConnection();
+		Thread.sleep(5);
+		con.close();
+
+		assertThat(target.isClosed()).isTrue();
+		assertThat(this.dataSource.getTotalConnections()).isEqualTo(0);
+	}
+
+	@Test
+	public void discardInvalidConnection() throws SQLException {
+		this.dataSource.setValidationInterval(0);
+		Connection con = this.dataSource.getConnection();
+		Connection target = ((ConnectionProxy) con).getTargetConnection();
+		con.close();
+		target.close();
+
+		Connection con2 = this.dataSource.getConnection();
+		assertThat(((ConnectionProxy) con2).getTargetConnection()).isNotSameAs(target);
+		con2.close();
+		assertThat(this.dataSource.getConnectionsCreated()).isEqualTo(2);
+		assertThat(this.dataSource.getTotalConnections()).isEqualTo(1);
+	}
+
+	@Test
+	public void housekeeping() throws Exception {
+		this.dataSource.setLeakDetectionThreshold(1);
+		this.dataSource.setIdleTimeout(1);
+		this.dataSource.setMinIdle(1);
+		Connection con1 = this.dataSource.getConnection();
+		Connection con2 = this.dataSource.getConnection();
+		Connection con3 = this.dataSource.getConnection();
+		con1.close();
+		con2.close();
+		Thread.sleep(5);
+
+		this.dataSource.housekeep();
+		assertThat(this.dataSource.getLeaksDetected()).isEqualTo(1);
+		assertThat(this.dataSource.getIdleConnections()).isEqualTo(1);
+		assertThat(this.dataSource.getActiveConnections()).isEqualTo(1);
+		con3.close();
+	}
+
+	@Test
+	public void concurrentAccess() throws Exception {
+		this.dataSource.setMaxPoolSize(4);
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+		template.execute("create table t (x int)");
+		template.update("insert into t values (1)");
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					int sum = 0;
+					for (int j = 0; j < 500; j++) {
+						sum += template.queryForObject("select x from t", Integer.class);
+					}
+					return sum;
+				}));
+			}
+			for (Future<Integer> future : futures) {
+				assertThat(future.get(30, TimeUnit.SECONDS)).isEqualTo(500);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(this.dataSource.getConnectionsCreated()).isLessThanOrEqualTo(4);
+		assertThat(this.dataSource.getActiveConnections()).isEqualTo(0);
+		assertThat(this.dataSource.getConnectionTimeouts()).isEqualTo(0);
+	}
+
+	@Test
+	public void destroyClosesConnections() throws SQLException {
+		Connection con1 = this.dataSource.getConnection();
+		Connection con2 = this.dataSource.getConnection();
+		Connection target1 = ((ConnectionProxy) con1).getTargetConnection();
+		Connection target2 = ((ConnectionProxy) con2).getTargetConnection();
+		con1.close();
+
+		this.dataSource.destroy();
+		assertThat(target1.isClosed()).isTrue();
+		assertThat(target2.isClosed()).isFalse();
+		con2.close();
+		assertThat(target2.isClosed()).isTrue();
+		assertThatExceptionOfType(SQLException.class).isThrownBy(this.dataSource::getConnection);
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link StatementCachingDataSource}.
+ *
+ * @author agent
+ */
+public class StatementCachingDataSourceTests {
+
+	private final Connection connection = mock(Connection.class);
+
+	private final PreparedStatement statement = mock(PreparedStatement.class);
+
+
+	@Test
+	public void reuseStatementOnSameConnection() throws Exception {
+		given(connection.prepareStatement("update t set x = ?")).willReturn(statement);
+		given(statement.getFetchSize()).willReturn(10);
+		DataSource target = mock(DataSource.class);
+		given(target.getConnection()).willReturn(connection);
+		StatementCachingDataSource dataSource = new StatementCachingDataSource(target);
+
+		Connection con = dataSource.getConnection();
+		PreparedStatement ps1 = con.prepareStatement("update t set x = ?");
+		ps1.setFetchSize(100);
+		ps1.setInt(1, 1);
+		ps1.executeUpdate();
+		ps1.close();
+		assertThat(ps1.isClosed()).isTrue();
+		assertThatExceptionOfType(SQLException.class).isThrownBy(ps1::executeUpdate);
+		assertThat(dataSource.getCachedStatementCount()).isEqualTo(1);
+
+		PreparedStatement ps2 = con.prepareStatement("update t set x = ?");
+		assertThat(ps2.getConnection()).isSameAs(con);
+		ps2.setInt(1, 2);
+		ps2.executeUpdate();
+		ps2.close();
+
+		verify(connection, times(1)).prepareStatement("update t set x = ?");
+		verify(statement, times(2)).clearParameters();
+		verify(statement).setFetchSize(10);
+		verify(statement, never()).clearBatch();
+		verify(statement, never()).close();
+		assertThat(dataSource.getHitCount()).isEqualTo(1);
+		assertThat(dataSource.getMissCount()).isEqualTo(1);
+		assertThat(dataSource.getHitRate()).isEqualTo(0.5);
+
+		given(connection.isClosed()).willReturn(true);
+		con.close();
+		verify(connection).close();
+		verify(statement).close();
+		assertThat(dataSource.getCachedStatementCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void keepCacheWhileConnectionOpen() throws Exception {
+		given(connection.prepareStatement("select x from t")).willReturn(statement);
+		DataSource target = mock(DataSource.class);
+		given(target.getConnection()).willReturn(connection);
+		StatementCachingDataSource dataSource = new StatementCachingDataSource(target);
+
+		for (int i = 0; i < 3; i++) {
+			Connection con = dataSource.getConnection();
+			con.prepareStatement("select x from t").close();
+			con.close();
+			System.gc();
+		}
+
+		verify(connection, times(1)).prepareStatement("select x from t");
+		verify(statement, never()).close();
+		assertThat(dataSource.getHitCount()).isEqualTo(2);
+		assertThat(dataSource.getMissCount()).isEqualTo(1);
+		assertThat(dataSource.getCachedStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void dropCacheOfConnectionClosedElsewhere() throws Exception {
+		given(connection.prepareStatement("select x from t")).willReturn(statement);
+		Connection connection2 = mock(Connection.class);
+		DataSource target = mock(DataSource.class);
+		given(target.getConnection()).willReturn(connection, connection2);
+		StatementCachingDataSource dataSource = new StatementCachingDataSource(target);
+
+		dataSource.getConnection().prepareStatement("select x from t").close();
+		assertThat(dataSource.getCachedStatementCount()).isEqualTo(1);
+
+		// Physically closed without going through the proxy, e.g. by a pool
+		given(connection.isClosed()).willReturn(true);
+		dataSource.getConnection();
+		verify(statement).close();
+		assertThat(dataSource.getCachedStatementCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void closeStatementWithCustomSettings() throws Exception {
+		given(connection.prepareStatement("select x from t")).willReturn(statement);
+		DataSource target = mock(DataSource.class);
+		given(target.getConnection()).willReturn(connection);
+		StatementCachingDataSource dataSource = new StatementCachingDataSource(target);
+
+		Connection con = dataSource.getConnection();
+		PreparedStatement ps = con.prepareStatement("select x from t");
+		ps.setCursorName("c");
+		ps.close();
+
+		verify(statement).close();
+		assertThat(dataSource.getCachedStatementCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void evictLeastRecentlyUsedStatement() throws Exception {
+		PreparedStatement statement2 = mock(PreparedStatement.class);
+		given(connection.prepareStatement("select x from t")).willReturn(statement);
+		given(connection.prepareStatement("select y from t")).willReturn(statement2);
+		DataSource target = mock(DataSource.class);
+		given(target.getConnection()).willReturn(connection);
+		StatementCachingDataSource dataSource = new StatementCachingDataSource(target);
+		dataSource.setStatementCacheSize(1);
+
+		Connection con = dataSource.getConnection();
+		con.prepareStatement("select x from t").close();
+		con.prepareStatement("select y from t").close();
+
+		verify(statement).close();
+		verify(statement2, never()).close();
+		assertThat(dataSource.getEvictionCount()).isEqualTo(1);
+		assertThat(dataSource.getCachedStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void reuseStatementWithJdbcTemplateOnSingleConnection() throws Exception {
+		given(connection.prepareStatement("update t set x = ?")).willReturn(statement);
+		given(statement.executeUpdate()).willReturn(1);
+		SingleConnectionDataSource target = new SingleConnectionDataSource(connection, true);
+		StatementCachingDataSource dataSource = new StatementCachingDataSource(target);
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(template.update("update t set x = ?", i)).isEqualTo(1);
+		}
+
+		verify(connection, times(1)).prepareStatement("update t set x = ?");
+		verify(statement, times(10)).executeUpdate();
+		verify(statement, never()).close();
+		verify(connection, never()).close();
+		assertThat(dataSource.getHitCount()).isEqualTo(9);
+		assertThat(dataSource.getMissCount()).isEqualTo(1);
+	}
+
+}
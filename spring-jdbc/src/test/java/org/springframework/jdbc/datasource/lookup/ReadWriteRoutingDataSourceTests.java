@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ReadWriteRoutingDataSource}.
+ *
+ * @author agent
+ */
+public class ReadWriteRoutingDataSourceTests {
+
+	private final Connection writeConnection = mock(Connection.class);
+
+	private final Connection readConnection1 = mock(Connection.class);
+
+	private final Connection readConnection2 = mock(Connection.class);
+
+	private final DataSource writeDataSource = mock(DataSource.class);
+
+	private final DataSource readDataSource1 = mock(DataSource.class);
+
+	private final DataSource readDataSource2 = mock(DataSource.class);
+
+
+	private ReadWriteRoutingDataSource createDataSource() throws SQLException {
+		given(writeDataSource.getConnection()).willReturn(writeConnection);
+		given(readDataSource1.getConnection()).willReturn(readConnection1);
+		given(readDataSource2.getConnection()).willReturn(readConnection2);
+		return new ReadWriteRoutingDataSource(writeDataSource, readDataSource1, readDataSource2);
+	}
+
+	private Connection obtainTargetConnection(DataSource dataSource, boolean readOnly) {
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		tt.setReadOnly(readOnly);
+		return tt.execute(status -> {
+			Connection con = DataSourceUtils.getConnection(dataSource);
+			return ((ConnectionProxy) con).getTargetConnection();
+		});
+	}
+
+
+	@Test
+	public void routeReadOnlyTransactionsToReplicas() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = createDataSource();
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(obtainTargetConnection(dataSource, true)).isIn(readConnection1, readConnection2);
+		}
+		assertThat(obtainTargetConnection(dataSource, false)).isSameAs(writeConnection);
+		assertThat(dataSource.getConnection().unwrap(ConnectionProxy.class).getTargetConnection())
+				.isSameAs(writeConnection);
+
+		assertThat(dataSource.getReadStatistics().get(0).getConnectionCount() +
+				dataSource.getReadStatistics().get(1).getConnectionCount()).isEqualTo(20);
+		// Initialization of default connection properties plus two write requests
+		assertThat(dataSource.getWriteStatistics().getConnectionCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void routeToWriteDataSourceWithoutReplicas() throws SQLException {
+		given(writeDataSource.getConnection()).willReturn(writeConnection);
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(writeDataSource);
+
+		assertThat(obtainTargetConnection(dataSource, true)).isSameAs(writeConnection);
+	}
+
+	@Test
+	public void skipFailedReplica() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = createDataSource();
+		given(readDataSource1.getConnection()).willThrow(new SQLException("down"));
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(obtainTargetConnection(dataSource, true)).isSameAs(readConnection2);
+		}
+		ReadWriteRoutingDataSource.TargetStatistics stats = dataSource.getReadStatistics().get(0);
+		assertThat(stats.getFailureCount()).isEqualTo(1);
+		assertThat(stats.isAvailable()).isFalse();
+		assertThat(dataSource.getReadStatistics().get(1).getConnectionCount()).isEqualTo(10);
+	}
+
+	@Test
+	public void retryFailedReplicaAfterInterval() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = createDataSource();
+		dataSource.setReplicaRetryInterval(0);
+		given(readDataSource1.getConnection()).willThrow(new SQLException("down")).willReturn(readConnection1);
+		given(readDataSource2.getConnection()).willThrow(new SQLException("down")).willReturn(readConnection2);
+
+		// Both replicas failing once: fall back to write DataSource
+		assertThat(obtainTargetConnection(dataSource, true)).isSameAs(writeConnection);
+		assertThat(obtainTargetConnection(dataSource, true)).isIn(readConnection1, readConnection2);
+		assertThat(dataSource.getReadStatistics().get(0).isAvailable()).isTrue();
+	}
+
+	@Test
+	public void fallbackToWriteDataSourceWithConcurrentFailures() throws Exception {
+		ReadWriteRoutingDataSource dataSource = createDataSource();
+		dataSource.setReplicaRetryInterval(0);
+		given(readDataSource1.getConnection()).willThrow(new SQLException("down"));
+		given(readDataSource2.getConnection()).willThrow(new SQLException("down"));
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 200; j++) {
+						assertThat(obtainTargetConnection(dataSource, true)).isSameAs(writeConnection);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void noFallbackToWriteDataSource() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = createDataSource();
+		dataSource.setFallbackToWriteDataSource(false);
+		given(readDataSource1.getConnection()).willThrow(new SQLException("down"));
+		given(readDataSource2.getConnection()).willThrow(new SQLException("down"));
+
+		assertThatExceptionOfType(Exception.class).isThrownBy(() -> obtainTargetConnection(dataSource, true));
+		assertThat(dataSource.getWriteStatistics().getConnectionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void uninitialized() {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource();
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(dataSource::getConnection);
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(dataSource::afterPropertiesSet);
+	}
+
+}
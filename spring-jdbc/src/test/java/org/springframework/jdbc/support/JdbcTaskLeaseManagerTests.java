@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.scheduling.support.TaskLeaseManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author agent
+ */
+public class JdbcTaskLeaseManagerTests {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTaskLeaseManager node1;
+
+	private JdbcTaskLeaseManager node2;
+
+
+	@BeforeEach
+	public void setup() {
+		this.database = new EmbeddedDatabaseBuilder().generateUniqueName(true)
+				.setType(EmbeddedDatabaseType.H2).build();
+		new JdbcTemplate(this.database).execute("CREATE TABLE TASK_LEASE (TASK_NAME VARCHAR(200) NOT NULL PRIMARY KEY, " +
+				"LEASE_OWNER VARCHAR(200) NOT NULL, LEASE_UNTIL TIMESTAMP NOT NULL)");
+		this.node1 = new JdbcTaskLeaseManager(this.database);
+		this.node1.setNodeName("node1");
+		this.node2 = new JdbcTaskLeaseManager(this.database);
+		this.node2.setNodeName("node2");
+	}
+
+	@AfterEach
+	public void shutdown() {
+		this.database.shutdown();
+	}
+
+
+	@Test
+	public void acquireAndRelease() {
+		TaskLeaseManager.Lease lease = this.node1.tryAcquire("task", Duration.ofMinutes(1));
+		assertThat(lease).isNotNull();
+		assertThat(this.node2.tryAcquire("task", Duration.ofMinutes(1))).isNull();
+		assertThat(this.node1.tryAcquire("task", Duration.ofMinutes(1))).isNull();
+		assertThat(this.node2.tryAcquire("otherTask", Duration.ofMinutes(1))).isNotNull();
+
+		lease.release(Instant.now());
+		TaskLeaseManager.Lease lease2 = this.node2.tryAcquire("task", Duration.ofMinutes(1));
+		assertThat(lease2).isNotNull();
+		assertThat(new JdbcTemplate(this.database).queryForObject(
+				"SELECT LEASE_OWNER FROM TASK_LEASE WHERE TASK_NAME = 'task'", String.class)).startsWith("node2:");
+	}
+
+	@Test
+	public void releaseWithHoldTime() {
+		TaskLeaseManager.Lease lease = this.node1.tryAcquire("task", Duration.ofMinutes(1));
+		lease.release(Instant.now().plusSeconds(60));
+		assertThat(this.node2.tryAcquire("task", Duration.ofMinutes(1))).isNull();
+	}
+
+	@Test
+	public void expiredLease() throws Exception {
+		TaskLeaseManager.Lease lease = this.node1.tryAcquire("task", Duration.ofMillis(10));
+		Thread.sleep(50);
+		TaskLeaseManager.Lease lease2 = this.node2.tryAcquire("task", Duration.ofMinutes(1));
+		assertThat(lease2).isNotNull();
+		// Late release of the expired lease must not affect the new owner
+		lease.release(Instant.now());
+		assertThat(this.node1.tryAcquire("task", Duration.ofMinutes(1))).isNull();
+	}
+
+}
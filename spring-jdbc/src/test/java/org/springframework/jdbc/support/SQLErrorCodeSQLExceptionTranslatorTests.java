@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -104,6 +104,24 @@ public class SQLErrorCodeSQLExceptionTranslatorTests {
 		assertThat(ex.getCause() == sex).isTrue();
 	}
 
+	@Test
+	public void errorCodeTranslationWithUnsortedAndOverlappingCodes() {
+		SQLErrorCodes sec = new SQLErrorCodes();
+		sec.setBadSqlGrammarCodes("1");
+		sec.setDuplicateKeyCodes("20", "11");
+		sec.setDataIntegrityViolationCodes("1", "12");
+		SQLExceptionTranslator sext = new SQLErrorCodeSQLExceptionTranslator(sec);
+
+		checkTranslation(sext, 1, BadSqlGrammarException.class);
+		checkTranslation(sext, 11, DuplicateKeyException.class);
+		checkTranslation(sext, 20, DuplicateKeyException.class);
+		checkTranslation(sext, 12, DataIntegrityViolationException.class);
+
+		// Changed codes to be reflected in subsequent translations
+		sec.setCannotAcquireLockCodes("13");
+		checkTranslation(sext, 13, CannotAcquireLockException.class);
+	}
+
 	@Test
 	public void batchExceptionTranslation() {
 		SQLExceptionTranslator sext = new SQLErrorCodeSQLExceptionTranslator(ERROR_CODES);
@@ -887,8 +887,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 								// target invocation exception
 								return completeTransactionAfterThrowing(it, ex).then(Mono.error(ex));
 							}
-						})).subscriberContext(TransactionContextManager.getOrCreateContext())
-						.subscriberContext(TransactionContextManager.getOrCreateContextHolder());
+						})).subscriberContext(TransactionContextManager.getOrCreateContextAndHolder());
 			}
 
 			// Any other reactive type, typically a Flux
@@ -917,8 +916,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 							// target invocation exception
 							return completeTransactionAfterThrowing(it, ex).then(Mono.error(ex));
 						}
-					})).subscriberContext(TransactionContextManager.getOrCreateContext())
-					.subscriberContext(TransactionContextManager.getOrCreateContextHolder()));
+					})).subscriberContext(TransactionContextManager.getOrCreateContextAndHolder()));
 		}
 
 		@SuppressWarnings("serial")
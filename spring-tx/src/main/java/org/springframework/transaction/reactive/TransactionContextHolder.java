@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,14 @@
 
 package org.springframework.transaction.reactive;
 
-import java.util.Deque;
-
+import org.springframework.lang.Nullable;
 import org.springframework.transaction.NoTransactionException;
 
 /**
  * Mutable holder for reactive transaction {@link TransactionContext contexts}.
- * This holder keeps references to individual {@link TransactionContext}s.
+ * This holder keeps a reference to the innermost {@link TransactionContext};
+ * outer contexts remain reachable through {@link TransactionContext#getParent()},
+ * so no separate stack structure needs to be allocated per transactional flow.
  *
  * @author Mark Paluch
  * @author Juergen Hoeller
@@ -31,12 +32,8 @@ import org.springframework.transaction.NoTransactionException;
  */
 final class TransactionContextHolder {
 
-	private final Deque<TransactionContext> transactionStack;
-
-
-	TransactionContextHolder(Deque<TransactionContext> transactionStack) {
-		this.transactionStack = transactionStack;
-	}
+	@Nullable
+	private TransactionContext currentContext;
 
 
 	/**
@@ -44,7 +41,7 @@ final class TransactionContextHolder {
 	 * @throws NoTransactionException if no transaction is ongoing
 	 */
 	TransactionContext currentContext() {
-		TransactionContext context = this.transactionStack.peek();
+		TransactionContext context = this.currentContext;
 		if (context == null) {
 			throw new NoTransactionException("No transaction in context");
 		}
@@ -55,14 +52,14 @@ final class TransactionContextHolder {
 	 * Create a new {@link TransactionContext}.
 	 */
 	TransactionContext createContext() {
-		TransactionContext context = this.transactionStack.peek();
+		TransactionContext context = this.currentContext;
 		if (context != null) {
 			context = new TransactionContext(context);
 		}
 		else {
 			context = new TransactionContext();
 		}
-		this.transactionStack.push(context);
+		this.currentContext = context;
 		return context;
 	}
 
@@ -71,7 +68,7 @@ final class TransactionContextHolder {
 	 * @return {@literal true} if a {@link TransactionContext} is associated
 	 */
 	boolean hasContext() {
-		return !this.transactionStack.isEmpty();
+		return (this.currentContext != null);
 	}
 
 }
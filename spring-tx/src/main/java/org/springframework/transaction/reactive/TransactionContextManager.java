@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,6 @@
 
 package org.springframework.transaction.reactive;
 
-import java.util.ArrayDeque;
 import java.util.function.Function;
 
 import reactor.core.publisher.Flux;
@@ -105,12 +104,34 @@ public abstract class TransactionContextManager {
 	public static Function<Context, Context> getOrCreateContextHolder() {
 		return context -> {
 			if (!context.hasKey(TransactionContextHolder.class)) {
-				return context.put(TransactionContextHolder.class, new TransactionContextHolder(new ArrayDeque<>()));
+				return context.put(TransactionContextHolder.class, new TransactionContextHolder());
 			}
 			return context;
 		};
 	}
 
+	/**
+	 * Return a {@link Function} to create or associate a new
+	 * {@link TransactionContextHolder} and to create or associate a
+	 * {@link TransactionContext} within it, in a single step.
+	 * <p>Equivalent to applying {@link #getOrCreateContextHolder()} followed
+	 * by {@link #getOrCreateContext()}, but requiring only a single
+	 * subscriber context operator per transactional flow.
+	 * @return functional context registration.
+	 * @since 5.2.13
+	 */
+	public static Function<Context, Context> getOrCreateContextAndHolder() {
+		return context -> {
+			TransactionContextHolder holder = context.getOrDefault(TransactionContextHolder.class, null);
+			if (holder == null) {
+				holder = new TransactionContextHolder();
+				context = context.put(TransactionContextHolder.class, holder);
+			}
+			return context.put(TransactionContext.class,
+					(holder.hasContext() ? holder.currentContext() : holder.createContext()));
+		};
+	}
+
 
 	/**
 	 * Stackless variant of {@link NoTransactionException} for reactive flows.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -72,40 +72,40 @@ final class TransactionalOperatorImpl implements TransactionalOperator {
 
 	@Override
 	public <T> Mono<T> transactional(Mono<T> mono) {
-		return TransactionContextManager.currentContext().flatMap(context -> {
-			Mono<ReactiveTransaction> status = this.transactionManager.getReactiveTransaction(this.transactionDefinition);
-			// This is an around advice: Invoke the next interceptor in the chain.
-			// This will normally result in a target object being invoked.
-			// Need re-wrapping of ReactiveTransaction until we get hold of the exception
-			// through usingWhen.
-			return status.flatMap(it -> Mono.usingWhen(Mono.just(it), ignore -> mono,
-					this.transactionManager::commit, (res, err) -> Mono.empty(), this.transactionManager::commit)
-					.onErrorResume(ex -> rollbackOnException(it, ex).then(Mono.error(ex))));
-		})
-		.subscriberContext(TransactionContextManager.getOrCreateContext())
-		.subscriberContext(TransactionContextManager.getOrCreateContextHolder());
+		// The transaction manager resolves the current TransactionContext lazily on subscription,
+		// so there is no need for an additional TransactionContextManager.currentContext() hop.
+		return Mono.defer(() -> this.transactionManager.getReactiveTransaction(this.transactionDefinition))
+				.flatMap(it -> {
+					// This is an around advice: Invoke the next interceptor in the chain.
+					// This will normally result in a target object being invoked.
+					// Need re-wrapping of ReactiveTransaction until we get hold of the exception
+					// through usingWhen.
+					return Mono.usingWhen(Mono.just(it), ignore -> mono,
+							this.transactionManager::commit, (res, err) -> Mono.empty(), this.transactionManager::commit)
+							.onErrorResume(ex -> rollbackOnException(it, ex).then(Mono.error(ex)));
+				})
+				.subscriberContext(TransactionContextManager.getOrCreateContextAndHolder());
 	}
 
 	@Override
 	public <T> Flux<T> execute(TransactionCallback<T> action) throws TransactionException {
-		return TransactionContextManager.currentContext().flatMapMany(context -> {
-			Mono<ReactiveTransaction> status = this.transactionManager.getReactiveTransaction(this.transactionDefinition);
-			// This is an around advice: Invoke the next interceptor in the chain.
-			// This will normally result in a target object being invoked.
-			// Need re-wrapping of ReactiveTransaction until we get hold of the exception
-			// through usingWhen.
-			return status.flatMapMany(it -> Flux
-					.usingWhen(
-							Mono.just(it),
-							action::doInTransaction,
-							this.transactionManager::commit,
-							(tx, ex) -> Mono.empty(),
-							this.transactionManager::commit)
-					.onErrorResume(ex ->
-							rollbackOnException(it, ex).then(Mono.error(ex))));
-		})
-		.subscriberContext(TransactionContextManager.getOrCreateContext())
-		.subscriberContext(TransactionContextManager.getOrCreateContextHolder());
+		return Mono.defer(() -> this.transactionManager.getReactiveTransaction(this.transactionDefinition))
+				.flatMapMany(it -> {
+					// This is an around advice: Invoke the next interceptor in the chain.
+					// This will normally result in a target object being invoked.
+					// Need re-wrapping of ReactiveTransaction until we get hold of the exception
+					// through usingWhen.
+					return Flux
+							.usingWhen(
+									Mono.just(it),
+									action::doInTransaction,
+									this.transactionManager::commit,
+									(tx, ex) -> Mono.empty(),
+									this.transactionManager::commit)
+							.onErrorResume(ex ->
+									rollbackOnException(it, ex).then(Mono.error(ex)));
+				})
+				.subscriberContext(TransactionContextManager.getOrCreateContextAndHolder());
 	}
 
 	/**
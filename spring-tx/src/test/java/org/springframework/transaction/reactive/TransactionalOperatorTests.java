@@ -120,4 +120,18 @@ public class TransactionalOperatorTests {
 		assertThat(tm.rollback).isTrue();
 	}
 
+	@Test
+	public void nestedOperatorsShareTransactionContext() {
+		TransactionalOperator operator = TransactionalOperator.create(tm, new DefaultTransactionDefinition());
+		Mono<TransactionContext> inner = TransactionContextManager.currentContext().as(operator::transactional);
+		TransactionContextManager.currentContext()
+				.flatMap(outer -> inner.map(it -> it == outer))
+				.as(operator::transactional)
+				.as(StepVerifier::create)
+				.expectNext(true)
+				.verifyComplete();
+		assertThat(tm.commit).isTrue();
+		assertThat(tm.rollback).isFalse();
+	}
+
 }